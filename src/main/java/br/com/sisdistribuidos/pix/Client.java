@@ -9,6 +9,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.math.BigDecimal;
 import java.net.Socket;
 import java.util.Scanner;
 
@@ -53,9 +54,8 @@ public class Client {
         if (responseStr == null) return false;
 
         try {
-            Validator.validateServer(responseStr); 
-            
-            JsonNode responseNode = objectMapper.readTree(responseStr);
+            JsonNode responseNode = Validator.parseJson(responseStr);
+            Validator.validateServer(responseNode);
             boolean status = responseNode.get("status").asBoolean();
             if (status) {
                 System.out.println("Protocolo iniciado com sucesso.");
@@ -165,15 +165,15 @@ public class Client {
     
     private static void fazerDeposito(Scanner scanner) throws IOException {
         System.out.print("Digite o valor a ser depositado: ");
-        double valor;
+        BigDecimal valor;
         try {
-            valor = Double.parseDouble(scanner.nextLine());
+            valor = new BigDecimal(scanner.nextLine().trim());
         } catch (NumberFormatException e) {
             System.err.println("Valor inválido. Insira um número (ex: 150.75).");
             return;
         }
 
-        if (valor <= 0) {
+        if (valor.signum() <= 0) {
              System.err.println("O valor do depósito deve ser positivo.");
              return;
         }
@@ -188,9 +188,8 @@ public class Client {
         
         try {
             
-            Validator.validateServer(response);
-            
-             JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
              String info = responseNode.get("info").asText();
              if (responseNode.get("status").asBoolean()) {
                  System.out.println("Sucesso: " + info);
@@ -207,7 +206,7 @@ public class Client {
         System.out.print("Digite o CPF de destino: ");
         String cpfDestino = scanner.nextLine();
         System.out.print("Digite o valor: ");
-        double valor = Double.parseDouble(scanner.nextLine());
+        BigDecimal valor = new BigDecimal(scanner.nextLine().trim());
 
         ObjectNode json = objectMapper.createObjectNode();
         json.put("operacao", "transacao_criar");
@@ -220,9 +219,8 @@ public class Client {
         
         try {
             
-            Validator.validateServer(response);
-            
-             JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
              String info = responseNode.get("info").asText();
              if (responseNode.get("status").asBoolean()) {
                  System.out.println("Sucesso: " + info);
@@ -252,9 +250,8 @@ public class Client {
         
         try {
             
-            Validator.validateServer(response);
-            
-            JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
 
             if (responseNode.get("status").asBoolean()) {
                 System.out.println("\n--- EXTRATO DA CONTA ---");
@@ -327,9 +324,8 @@ public class Client {
         
         try {
             // Valida a resposta (REGRA 2.0)
-            Validator.validateServer(response);
-
-            JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
             if (responseNode.get("status").asBoolean()) {
                 sessionToken = responseNode.get("token").asText();
                 System.out.println("Login bem-sucedido. Buscando dados do usuário...");
@@ -356,9 +352,8 @@ public class Client {
         if (response == null) return;
         
         try {
-            Validator.validateServer(response);
-
-            JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
             if (responseNode.get("status").asBoolean()) {
                 loggedInUserName = responseNode.path("usuario").path("nome").asText("Desconhecido");
             } else {
@@ -381,8 +376,8 @@ public class Client {
         if (response == null) return;
         
         try {
-             Validator.validateServer(response);
-             JsonNode responseNode = objectMapper.readTree(response);
+             JsonNode responseNode = Validator.parseJson(response);
+             Validator.validateServer(responseNode);
              System.out.println(responseNode.get("info").asText()); 
         } catch (Exception e) {
              System.err.println("ERRO DE PROTOCOLO: O servidor enviou uma resposta inválida para 'usuario_logout': " + e.getMessage());
@@ -404,8 +399,8 @@ public class Client {
         if (response == null) return;
         
         try {
-            Validator.validateServer(response);
-            JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
             
             String info = responseNode.get("info").asText();
             if (responseNode.get("status").asBoolean()) {
@@ -436,8 +431,8 @@ public class Client {
         if (response == null) return;
 
         try {
-             Validator.validateServer(response);
-             JsonNode responseNode = objectMapper.readTree(response);
+             JsonNode responseNode = Validator.parseJson(response);
+             Validator.validateServer(responseNode);
              String info = responseNode.get("info").asText();
              if (responseNode.get("status").asBoolean()) {
                  System.out.println("Sucesso: " + info);
@@ -474,8 +469,8 @@ public class Client {
         if (response == null) return;
         
         try {
-            Validator.validateServer(response);
-             JsonNode responseNode = objectMapper.readTree(response);
+            JsonNode responseNode = Validator.parseJson(response);
+            Validator.validateServer(responseNode);
              String info = responseNode.get("info").asText();
              if (responseNode.get("status").asBoolean()) {
                  System.out.println("Sucesso: " + info);
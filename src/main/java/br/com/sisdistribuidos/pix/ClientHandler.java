@@ -1,160 +1,423 @@
 package br.com.sisdistribuidos.pix;
 
+import br.com.sisdistribuidos.pix.database.AccountLockManager;
+import br.com.sisdistribuidos.pix.database.BalanceStore;
+import br.com.sisdistribuidos.pix.database.CursorTransacao;
 import br.com.sisdistribuidos.pix.database.DatabaseManager;
 import br.com.sisdistribuidos.pix.database.TransacaoDAO;
+import br.com.sisdistribuidos.pix.database.TransacaoRecusadaException;
 import br.com.sisdistribuidos.pix.database.UsuarioDAO;
+import br.com.sisdistribuidos.pix.model.Cpf;
 import br.com.sisdistribuidos.pix.model.Transacao;
 import br.com.sisdistribuidos.pix.model.Usuario;
+import br.com.sisdistribuidos.pix.protocolo.Enquadramento;
+import br.com.sisdistribuidos.pix.protocolo.FormatoMensagem;
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoAtualizarUsuario;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoCriarUsuario;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoDeposito;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoDepositoLote;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoErroServidor;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoExtrato;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoLogin;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoToken;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoTransacao;
+import br.com.sisdistribuidos.pix.protocolo.RequisicaoTransacaoLote;
+import br.com.sisdistribuidos.pix.protocolo.Resposta;
+import br.com.sisdistribuidos.pix.protocolo.RespostaLogin;
+import br.com.sisdistribuidos.pix.protocolo.RespostaLote;
+import br.com.sisdistribuidos.pix.protocolo.RespostaLote.ResultadoItem;
+import br.com.sisdistribuidos.pix.protocolo.RespostaPronta;
+import br.com.sisdistribuidos.pix.protocolo.RespostaUsuario;
+import br.com.sisdistribuidos.pix.seguranca.CredentialService;
+import br.com.sisdistribuidos.pix.sessao.SessionStore;
+import br.com.sisdistribuidos.pix.validador.ResultadoValidacao;
 import br.com.sisdistribuidos.pix.validador.Validator;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.Socket;
-import java.sql.Connection;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ClientHandler implements Runnable {
     private final Socket clientSocket;
-    private final ObjectMapper objectMapper;
+    private final JsonCodec codec;
     private final UsuarioDAO usuarioDao;
     private final TransacaoDAO transacaoDao;
-
-    private static final Map<String, String> sessions = new HashMap<>();
-
-    public ClientHandler(Socket socket) {
+    private final BalanceStore saldos;
+    private final RequestPipeline pipeline;
+    private boolean conectado = false;
+    private volatile boolean escritaFalhou = false;
+    // Uma mensagem por vez na saída. ReentrantLock em vez de synchronized: a escrita no socket
+    // bloqueia, e dentro de um monitor prenderia a virtual thread à thread carregadora
+    private final ReentrantLock lockSaida = new ReentrantLock();
+    // Negociado no 'conectar'; o próprio handshake é sempre respondido em JSON
+    private FormatoMensagem formato = FormatoMensagem.JSON;
+
+    private static final SessionStore sessions = SessionStore.fromSystemProperties();
+    // Toda alteração de saldo acontece com a conta bloqueada
+    private static final AccountLockManager contas = AccountLockManager.fromSystemProperties();
+    // Hash das senhas (PBKDF2) em executor próprio, com cache de credenciais verificadas há pouco
+    private static final CredentialService credenciais = CredentialService.fromSystemProperties();
+    // Requisições com 'id' em andamento por conexão; no limite, a conexão deixa de ser lida
+    private static final int MAXIMO_PIPELINE = Integer.getInteger("pix.pipeline.maximoPorConexao", 64);
+
+    // Respostas constantes, serializadas uma única vez
+    private static final RespostaPronta CONECTADO = RespostaPronta.fixa("conectar", true, "Conexão estabelecida com sucesso.");
+    private static final RespostaPronta USUARIO_CRIADO = RespostaPronta.fixa("usuario_criar", true, "Usuário criado com sucesso.");
+    private static final RespostaPronta CPF_JA_CADASTRADO = RespostaPronta.fixa("usuario_criar", false, "Este CPF já está cadastrado.");
+    private static final RespostaPronta CRIAR_OCUPADO = RespostaPronta.fixa("usuario_criar", false, "Servidor ocupado, tente novamente em instantes.");
+    private static final RespostaPronta LOGIN_INVALIDO = RespostaPronta.fixa("usuario_login", false, "CPF ou senha inválidos.");
+    private static final RespostaPronta LOGIN_OCUPADO = RespostaPronta.fixa("usuario_login", false, "Servidor ocupado, tente novamente em instantes.");
+    private static final RespostaPronta LOGOUT_REALIZADO = RespostaPronta.fixa("usuario_logout", true, "Logout realizado com sucesso.");
+    private static final RespostaPronta LOGOUT_TOKEN_INVALIDO = RespostaPronta.fixa("usuario_logout", false, "Token inválido.");
+    private static final RespostaPronta LER_TOKEN_INVALIDO = RespostaPronta.fixa("usuario_ler", false, "Token inválido.");
+    private static final RespostaPronta LER_NAO_ENCONTRADO = RespostaPronta.fixa("usuario_ler", false, "Usuário não encontrado.");
+    private static final RespostaPronta ATUALIZAR_TOKEN_INVALIDO = RespostaPronta.fixa("usuario_atualizar", false, "Token inválido.");
+    private static final RespostaPronta ATUALIZAR_NAO_ENCONTRADO = RespostaPronta.fixa("usuario_atualizar", false, "Usuário não encontrado.");
+    private static final RespostaPronta ATUALIZAR_OCUPADO = RespostaPronta.fixa("usuario_atualizar", false, "Servidor ocupado, tente novamente em instantes.");
+    private static final RespostaPronta USUARIO_ATUALIZADO = RespostaPronta.fixa("usuario_atualizar", true, "Usuário atualizado com sucesso.");
+    private static final RespostaPronta DELETAR_TOKEN_INVALIDO = RespostaPronta.fixa("usuario_deletar", false, "Token inválido.");
+    private static final RespostaPronta USUARIO_DELETADO = RespostaPronta.fixa("usuario_deletar", true, "Usuário deletado com sucesso.");
+    private static final RespostaPronta TRANSACAO_TOKEN_INVALIDO = RespostaPronta.fixa("transacao_criar", false, "Token de sessão inválido.");
+    private static final RespostaPronta TRANSACAO_SALDO_INSUFICIENTE = RespostaPronta.fixa("transacao_criar", false, "Saldo insuficiente ou um dos usuários não foi encontrado.");
+    private static final RespostaPronta TRANSACAO_VALOR_INVALIDO = RespostaPronta.fixa("transacao_criar", false, "Valor da transação deve ser positivo.");
+    private static final RespostaPronta TRANSACAO_REALIZADA = RespostaPronta.fixa("transacao_criar", true, "Transação realizada com sucesso.");
+    private static final RespostaPronta EXTRATO_TOKEN_INVALIDO = RespostaPronta.fixa("transacao_ler", false, "Token de sessão inválido.");
+    private static final RespostaPronta EXTRATO_DATAS_INVERTIDAS = RespostaPronta.fixa("transacao_ler", false, "Data inicial não pode ser maior que a data final.");
+    private static final RespostaPronta EXTRATO_PERIODO_LONGO = RespostaPronta.fixa("transacao_ler", false, "O período máximo do extrato é de 31 dias.");
+    private static final RespostaPronta EXTRATO_DATA_INVALIDA = RespostaPronta.fixa("transacao_ler", false, "Formato de data inválido para cálculo de período.");
+    private static final String INFO_EXTRATO = "Transações recuperadas com sucesso.";
+    private static final String INFO_EXTRATO_INCOMPLETO =
+            "Extrato incompleto: há mais transações no período, continue pelo 'proximo_cursor'.";
+    private static final RespostaPronta EXTRATO_CURSOR_INVALIDO = RespostaPronta.fixa("transacao_ler", false, "Cursor de paginação inválido.");
+    private static final RespostaPronta DEPOSITO_TOKEN_INVALIDO = RespostaPronta.fixa("depositar", false, "Token de sessão inválido.");
+    private static final RespostaPronta DEPOSITO_VALOR_INVALIDO = RespostaPronta.fixa("depositar", false, "Valor do depósito deve ser positivo.");
+    private static final RespostaPronta DEPOSITO_NAO_ENCONTRADO = RespostaPronta.fixa("depositar", false, "Usuário não encontrado.");
+    private static final RespostaPronta DEPOSITO_REALIZADO = RespostaPronta.fixa("depositar", true, "Deposito realizado com sucesso.");
+    private static final RespostaPronta LOTE_TRANSACAO_TOKEN_INVALIDO = RespostaPronta.fixa("transacao_criar_lote", false, "Token de sessão inválido.");
+    private static final RespostaPronta LOTE_TRANSACAO_NAO_ENCONTRADO = RespostaPronta.fixa("transacao_criar_lote", false, "Usuário não encontrado.");
+    private static final RespostaPronta LOTE_DEPOSITO_TOKEN_INVALIDO = RespostaPronta.fixa("depositar_lote", false, "Token de sessão inválido.");
+    private static final RespostaPronta LOTE_DEPOSITO_NAO_ENCONTRADO = RespostaPronta.fixa("depositar_lote", false, "Usuário não encontrado.");
+    private static final RespostaPronta ERRO_LOGADO = RespostaPronta.fixa("erro_servidor", true, "Erro logado pelo servidor.");
+    private static final RespostaPronta OPERACAO_DESCONHECIDA = RespostaPronta.fixa("desconhecida", false, "Operação não reconhecida.");
+
+    // Resultados dos itens de um lote (imutáveis, compartilhados entre as respostas)
+    private static final ResultadoItem ITEM_TRANSACAO_REALIZADA = new ResultadoItem(true, "Transação realizada com sucesso.");
+    private static final ResultadoItem ITEM_SALDO_INSUFICIENTE = new ResultadoItem(false, "Saldo insuficiente ou um dos usuários não foi encontrado.");
+    private static final ResultadoItem ITEM_TRANSACAO_VALOR_INVALIDO = new ResultadoItem(false, "Valor da transação deve ser positivo.");
+    private static final ResultadoItem ITEM_DEPOSITO_REALIZADO = new ResultadoItem(true, "Deposito realizado com sucesso.");
+    private static final ResultadoItem ITEM_DEPOSITO_VALOR_INVALIDO = new ResultadoItem(false, "Valor do depósito deve ser positivo.");
+
+    /**
+     * @param executor onde são processadas as requisições com 'id' (pipeline) desta conexão.
+     */
+    public ClientHandler(Socket socket, JsonCodec codec, Executor executor) {
         this.clientSocket = socket;
-        this.objectMapper = new ObjectMapper();
+        this.codec = codec;
         this.usuarioDao = new UsuarioDAO();
         this.transacaoDao = new TransacaoDAO();
+        this.saldos = DatabaseManager.getSaldos();
+        this.pipeline = new RequestPipeline(executor, MAXIMO_PIPELINE);
     }
 
     @Override
     public void run() {
         try (
-            PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true);
-            BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()))
+            OutputStream out = new BufferedOutputStream(clientSocket.getOutputStream());
+            InputStream in = new BufferedInputStream(clientSocket.getInputStream())
         ) {
-            String firstLine = in.readLine();
+            String firstLine = Enquadramento.lerLinha(in);
             if (firstLine == null) return;
             System.out.println("Servidor recebeu: " + firstLine);
 
-            String operacaoConexao = "conectar";
-            try {
-                // Valida a sintaxe e o protocolo da primeira mensagem
-                Validator.validateClient(firstLine); 
-                JsonNode firstNode = objectMapper.readTree(firstLine);
-                operacaoConexao = firstNode.path("operacao").asText();
-
-                if (!operacaoConexao.equals("conectar")) {
-                    throw new IllegalArgumentException("Protocolo violado: a primeira operação deve ser 'conectar'.");
-                }
-                
-            } catch (Exception e) {
-                // Se a validação falhar (sintaxe ou protocolo), envia o erro e fecha.
-                // (Regra 5.3 modificada para enviar erro antes de fechar)
-                String errorResponse = createErrorResponse(operacaoConexao, e.getMessage());
-                System.out.println("Servidor enviou: " + errorResponse);
-                out.println(errorResponse);
+            if (!processConectar(firstLine, out)) {
                 return; // Fecha a conexão
             }
 
-            String successResponse = createSuccessResponse("conectar", "Conexão estabelecida com sucesso.");
-            System.out.println("Servidor enviou: " + successResponse);
-            out.println(successResponse);
-
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                System.out.println("Servidor recebeu: " + inputLine);
-                String response = processRequest(inputLine);
-                
-                // Implementa a Regra 5.2: Se a resposta for null, encerra a conexão
-                if (response == null) {
-                    System.out.println("Servidor: Erro de sintaxe JSON detectado. Encerrando conexão.");
-                    break; // Sai do loop e fecha o socket
+            if (formato == FormatoMensagem.JSON) {
+                BufferedReader linhas = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String inputLine;
+                while ((inputLine = linhas.readLine()) != null) {
+                    System.out.println("Servidor recebeu: " + inputLine);
+
+                    // Implementa a Regra 5.2: Se a mensagem não for um JSON válido, encerra a conexão
+                    if (!processRequest(inputLine, out)) {
+                        System.out.println("Servidor: Erro de sintaxe JSON detectado. Encerrando conexão.");
+                        break; // Sai do loop e fecha o socket
+                    }
+                }
+            } else {
+                byte[] quadro;
+                while ((quadro = Enquadramento.lerQuadro(in)) != null) {
+                    System.out.println("Servidor recebeu: quadro " + formato.getValor() + " de " + quadro.length + " bytes");
+
+                    if (!processFrame(quadro, out)) {
+                        System.out.println("Servidor: Erro de sintaxe no quadro " + formato.getValor() + ". Encerrando conexão.");
+                        break;
+                    }
                 }
-                
-                System.out.println("Servidor enviou: " + response);
-                out.println(response);
             }
         } catch (Exception e) {
             System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
         } finally {
             try {
+                pipeline.aguardar(); // Respostas ainda em andamento saem antes do fechamento
                 clientSocket.close();
                 System.out.println("Cliente desconectado: " + clientSocket.getInetAddress().getHostAddress());
             } catch (IOException e) { /* Ignorar */ }
         }
     }
 
-    String processRequest(String jsonRequest) {
+    /**
+     * Processa a primeira mensagem da conexão, que deve ser obrigatoriamente 'conectar', e
+     * escreve a resposta em {@code saida} como uma linha JSON. Se o cliente pediu outro
+     * formato, as mensagens seguintes (nos dois sentidos) passam a usá-lo.
+     *
+     * @return false se o handshake falhou e a conexão deve ser encerrada.
+     */
+    boolean processConectar(String firstLine, OutputStream saida) throws IOException {
+        String operacaoConexao = "conectar";
+        FormatoMensagem formatoPedido = FormatoMensagem.JSON;
+        try {
+            // Valida a sintaxe e o protocolo da primeira mensagem, parseada uma única vez
+            JsonNode firstNode = Validator.parseJson(firstLine);
+            Validator.validateClient(firstNode);
+            operacaoConexao = firstNode.path("operacao").asText();
+
+            if (!operacaoConexao.equals("conectar")) {
+                throw new IllegalArgumentException("Protocolo violado: a primeira operação deve ser 'conectar'.");
+            }
+            if (firstNode.has("formato")) {
+                formatoPedido = FormatoMensagem.deValor(firstNode.get("formato").asText());
+            }
+            
+        } catch (Exception e) {
+            // Se a validação falhar (sintaxe ou protocolo), envia o erro e fecha.
+            // (Regra 5.3 modificada para enviar erro antes de fechar)
+            enviar(saida, createErrorResponse(operacaoConexao, e.getMessage()));
+            return false;
+        }
+
+        conectado = true;
+        enviar(saida, CONECTADO);
+        formato = formatoPedido;
+        return true;
+    }
+
+    boolean isConectado() {
+        return conectado;
+    }
+
+    FormatoMensagem getFormato() {
+        return formato;
+    }
+
+    /** Completa quando as requisições com 'id' já recebidas tiverem sido respondidas. */
+    CompletableFuture<Void> requisicoesConcluidas() {
+        return pipeline.concluidas();
+    }
+
+    /**
+     * Processa uma linha JSON e escreve a resposta, terminada em '\n', em {@code saida}.
+     * Uma requisição com 'id' é apenas despachada e respondida depois, possivelmente fora de
+     * ordem; sem 'id', é respondida antes do retorno, depois de todas as anteriores.
+     *
+     * @return false se a mensagem não for um JSON válido e a conexão deve ser encerrada (Regra 5.2).
+     * @throws IOException se a escrita da resposta falhar; a conexão deve ser encerrada.
+     */
+    boolean processRequest(String jsonRequest, OutputStream saida) throws IOException {
         JsonNode rootNode;
-        String operacao = "desconhecida";
         try {
             // 1. Tenta parsear o JSON. Se falhar, é erro de sintaxe.
-            rootNode = objectMapper.readTree(jsonRequest);
-            if (rootNode.has("operacao")) {
-                operacao = rootNode.get("operacao").asText();
-            } else {
-                 throw new Exception("O campo 'operacao' é obrigatório."); // Força erro de sintaxe
-            }
+            rootNode = codec.lerArvore(jsonRequest);
         } catch (Exception e) {
-            // REGRA 5.2: Erro de Sintaxe JSON. Retorna null para fechar a conexão.
-            return null; 
+            // REGRA 5.2: Erro de Sintaxe JSON. Sinaliza para fechar a conexão.
+            pipeline.aguardar();
+            return false; 
         }
+        return despachar(rootNode, saida);
+    }
 
+    /**
+     * Processa o conteúdo de um quadro no formato binário negociado e escreve a resposta,
+     * também em um quadro, em {@code saida}.
+     *
+     * @return false se o quadro não for um documento válido e a conexão deve ser encerrada (Regra 5.2).
+     */
+    boolean processFrame(byte[] quadro, OutputStream saida) throws IOException {
+        JsonNode rootNode;
         try {
-            // 2. Valida o protocolo (campos, formatos, etc.)
-            Validator.validateClient(jsonRequest); 
+            rootNode = codec.lerArvore(quadro, formato);
         } catch (Exception e) {
+            pipeline.aguardar();
+            return false;
+        }
+        return despachar(rootNode, saida);
+    }
+
+    // As mesmas regras valem para as duas codificações: a validação é feita sobre a árvore
+    private boolean despachar(JsonNode rootNode, OutputStream saida) throws IOException {
+        if (escritaFalhou || !rootNode.has("operacao")) {
+            // Sem 'operacao' a mensagem é tratada como erro de sintaxe
+            pipeline.aguardar();
+            return false;
+        }
+        String operacao = rootNode.get("operacao").asText();
+
+        JsonNode id = idDaRequisicao(rootNode);
+        if (id == null) {
+            pipeline.aguardar();
+            processarMensagem(operacao, rootNode, null, saida);
+            return true;
+        }
+        pipeline.executar(contaDaRequisicao(rootNode), () -> {
+            try {
+                processarMensagem(operacao, rootNode, id, saida);
+            } catch (IOException | RuntimeException e) {
+                // A conexão será encerrada na próxima mensagem recebida
+                System.err.println("Erro na comunicação com o cliente (id " + id + "): " + e.getMessage());
+                escritaFalhou = true;
+            }
+        });
+        return true;
+    }
+
+    private void processarMensagem(String operacao, JsonNode rootNode, JsonNode id, OutputStream saida) throws IOException {
+        // 2. Valida o protocolo (campos, formatos, etc.) sobre a mesma árvore
+        ResultadoValidacao validacao = Validator.verificarCliente(rootNode);
+        if (!validacao.isValido()) {
             // REGRA 5.1: Erro de Validação (Regra de negócio/protocolo). Retorna erro JSON.
-            System.err.println("ERRO de Validação: " + e.getMessage());
-            return createErrorResponse(operacao, e.getMessage());
+            System.err.println("ERRO de Validação: " + validacao.getMensagem());
+            enviar(saida, createErrorResponse(operacao, validacao.getMensagem()), id);
+            return;
         }
-        try {
 
-            switch (operacao) {
-                case "usuario_criar": return handleCriarUsuario(rootNode);
-                case "usuario_login": return handleLogin(rootNode);
-                case "usuario_logout": return handleLogout(rootNode);
-                case "usuario_ler": return handleLerUsuario(rootNode);
-                case "usuario_atualizar": return handleAtualizarUsuario(rootNode);
-                case "usuario_deletar": return handleDeletarUsuario(rootNode);
-                case "transacao_criar": return handleCriarTransacao(rootNode);
-                case "transacao_ler": return handleLerTransacoes(rootNode);
-                case "depositar": return handleDepositar(rootNode);
-                case "erro_servidor": return handleErroServidor(rootNode);
-                default: return createErrorResponse("desconhecida", "Operação não reconhecida.");
+        RespostaPronta response;
+        try {
+            if (operacao.equals("transacao_ler")) {
+                // Escreve a resposta por conta própria, transação por transação
+                handleLerTransacoes(codec.ler(rootNode, RequisicaoExtrato.class), id, saida);
+                return;
             }
+            response = processOperacao(operacao, rootNode);
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("ERRO Interno no Servidor (Operação: " + operacao + "): " + e.getMessage());
-            return createErrorResponse(operacao, "Erro interno no servidor: " + e.getMessage());
+            response = createErrorResponse(operacao, "Erro interno no servidor: " + e.getMessage());
+        }
+        enviar(saida, response, id);
+    }
+
+    // Só um 'id' válido é devolvido; com um 'id' inválido a requisição segue em ordem e a validação responde o erro
+    private static JsonNode idDaRequisicao(JsonNode rootNode) {
+        JsonNode id = rootNode.get(Validator.ID);
+        if (id == null || !Validator.verificarId(rootNode).isValido()) {
+            return null;
+        }
+        return id;
+    }
+
+    /**
+     * Conta que ordena as requisições em pipeline: requisições da mesma conta são processadas
+     * na ordem em que chegaram. É o CPF da sessão (ou do próprio pedido, no login e no cadastro).
+     */
+    private static Object contaDaRequisicao(JsonNode rootNode) {
+        JsonNode token = rootNode.get("token");
+        if (token != null && token.isTextual()) {
+            Cpf cpf = sessions.cpfDoToken(token.textValue());
+            return cpf != null ? cpf : token.textValue();
+        }
+        JsonNode cpf = rootNode.get("cpf");
+        if (cpf == null || !cpf.isTextual()) return null;
+        // Ainda não validado: fora do formato, a requisição é ordenada pelo próprio texto (e será recusada)
+        return Cpf.isFormatoValido(cpf.textValue()) ? Cpf.parse(cpf.textValue()) : cpf.textValue();
+    }
+
+    // A árvore já foi validada: cada operação é convertida na sua requisição tipada
+    private RespostaPronta processOperacao(String operacao, JsonNode rootNode) throws Exception {
+        switch (operacao) {
+            case "usuario_criar": return handleCriarUsuario(codec.ler(rootNode, RequisicaoCriarUsuario.class));
+            case "usuario_login": return handleLogin(codec.ler(rootNode, RequisicaoLogin.class));
+            case "usuario_logout": return handleLogout(codec.ler(rootNode, RequisicaoToken.class));
+            case "usuario_ler": return handleLerUsuario(codec.ler(rootNode, RequisicaoToken.class));
+            case "usuario_atualizar": return handleAtualizarUsuario(codec.ler(rootNode, RequisicaoAtualizarUsuario.class));
+            case "usuario_deletar": return handleDeletarUsuario(codec.ler(rootNode, RequisicaoToken.class));
+            case "transacao_criar": return handleCriarTransacao(codec.ler(rootNode, RequisicaoTransacao.class));
+            case "depositar": return handleDepositar(codec.ler(rootNode, RequisicaoDeposito.class));
+            case "transacao_criar_lote": return handleCriarTransacaoLote(codec.ler(rootNode, RequisicaoTransacaoLote.class));
+            case "depositar_lote": return handleDepositarLote(codec.ler(rootNode, RequisicaoDepositoLote.class));
+            case "erro_servidor": return handleErroServidor(codec.ler(rootNode, RequisicaoErroServidor.class));
+            default: return OPERACAO_DESCONHECIDA;
+        }
+    }
+
+    void enviar(OutputStream saida, RespostaPronta response) throws IOException {
+        enviar(saida, response, null);
+    }
+
+    private void enviar(OutputStream saida, RespostaPronta response, JsonNode id) throws IOException {
+        byte[] mensagem = codec.codificar(response, formato, id); // Antes do log: em JSON, o texto sai destes bytes
+        System.out.println("Servidor enviou: " + response + (id != null ? " (id " + id + ")" : ""));
+        escrever(saida, mensagem);
+    }
+
+    // Cada mensagem é escrita inteira, mesmo com várias requisições da conexão respondendo ao mesmo tempo
+    private void escrever(OutputStream saida, byte[] mensagem) throws IOException {
+        lockSaida.lock();
+        try {
+            if (formato == FormatoMensagem.JSON) {
+                saida.write(mensagem);
+                saida.write('\n');
+            } else {
+                Enquadramento.escreverQuadro(saida, mensagem);
+            }
+            saida.flush();
+        } finally {
+            lockSaida.unlock();
         }
     }
 
-    private String handleCriarUsuario(JsonNode rootNode) {
+    private RespostaPronta handleCriarUsuario(RequisicaoCriarUsuario requisicao) {
     try {
         Usuario novoUsuario = new Usuario(
-            rootNode.get("cpf").asText(),
-            rootNode.get("nome").asText(),
-            rootNode.get("senha").asText(),
-            0.00
+            requisicao.getCpf(),
+            requisicao.getNome(),
+            credenciais.gerarHash(requisicao.getSenha()),
+            0L
         );
         usuarioDao.criar(novoUsuario);
-        return createSuccessResponse("usuario_criar", "Usuário criado com sucesso.");
+        return USUARIO_CRIADO;
+    } catch (TimeoutException e) {
+        System.err.println("ERRO em [usuario_criar]: " + e.getMessage());
+        return CRIAR_OCUPADO;
     } catch (SQLException e) {
         if (e.getErrorCode() == 19 && e.getMessage().contains("UNIQUE constraint failed: usuario.cpf")) {
              System.err.println("ERRO em [usuario_criar]: Tentativa de criar CPF duplicado.");
-            return createErrorResponse("usuario_criar", "Este CPF já está cadastrado.");
+            return CPF_JA_CADASTRADO;
         } else {
             System.err.println("ERRO em [usuario_criar] (SQLException): " + e.getMessage());
             return createErrorResponse("usuario_criar", "Erro no banco de dados ao tentar criar usuário.");
@@ -165,127 +428,175 @@ public class ClientHandler implements Runnable {
     }
 }
     
-    private String handleLogin(JsonNode rootNode) throws Exception {
-        String cpf = rootNode.get("cpf").asText();
-        String senha = rootNode.get("senha").asText();
+    private RespostaPronta handleLogin(RequisicaoLogin requisicao) throws Exception {
+        Cpf cpf = requisicao.getCpf();
+        String senha = requisicao.getSenha();
         Usuario usuario = usuarioDao.ler(cpf);
-        if (usuario != null && usuario.getSenha().equals(senha)) {
-            String token = UUID.randomUUID().toString();
-            sessions.put(token, cpf);
-            Map<String, Object> responseMap = new HashMap<>();
-            responseMap.put("operacao", "usuario_login");
-            responseMap.put("status", true);
-            responseMap.put("info", "Login bem-sucedido.");
-            responseMap.put("token", token);
-            return objectMapper.writeValueAsString(responseMap);
-        } else {
-            return createErrorResponse("usuario_login", "CPF ou senha inválidos.");
+        if (usuario == null) return LOGIN_INVALIDO;
+
+        String armazenada = usuario.getSenha();
+        try {
+            if (!credenciais.verificar(cpf, senha, armazenada)) return LOGIN_INVALIDO;
+        } catch (TimeoutException e) {
+            System.err.println("ERRO em [usuario_login]: " + e.getMessage());
+            return LOGIN_OCUPADO;
+        }
+
+        // Senha ainda em texto puro (ou com custo antigo): grava o hash novo sem atrasar a resposta
+        if (credenciais.precisaRehash(armazenada)) {
+            credenciais.rehashEmSegundoPlano(cpf, senha, armazenada, novoHash -> {
+                AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpf);
+                try {
+                    return usuarioDao.trocarSenhaSeIgual(cpf, armazenada, novoHash);
+                } finally {
+                    bloqueio.liberar();
+                }
+            });
         }
+        String token = sessions.criar(cpf);
+        // A conta pode ter sido excluída durante a verificação da senha, com as sessões do CPF
+        // encerradas antes desta ser criada (ver SessionStore.criar)
+        if (usuarioDao.ler(cpf) == null) {
+            sessions.encerrar(token);
+            return LOGIN_INVALIDO;
+        }
+        return codec.serializar(new RespostaLogin(token));
     }
 
-    private String handleLogout(JsonNode rootNode) throws Exception {
-        String token = rootNode.get("token").asText();
-        if (sessions.remove(token) != null) {
-            return createSuccessResponse("usuario_logout", "Logout realizado com sucesso.");
+    private RespostaPronta handleLogout(RequisicaoToken requisicao) throws Exception {
+        if (sessions.encerrar(requisicao.getToken())) {
+            return LOGOUT_REALIZADO;
         } else {
-            return createErrorResponse("usuario_logout", "Token inválido.");
+            return LOGOUT_TOKEN_INVALIDO;
         }
     }
     
-    private String handleLerUsuario(JsonNode rootNode) throws Exception {
-        String token = rootNode.get("token").asText();
-        String cpf = sessions.get(token);
-        if (cpf == null) return createErrorResponse("usuario_ler", "Token inválido.");
+    private RespostaPronta handleLerUsuario(RequisicaoToken requisicao) throws Exception {
+        Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
+        if (cpf == null) return LER_TOKEN_INVALIDO;
         
         Usuario usuario = usuarioDao.ler(cpf);
-        if (usuario == null) return createErrorResponse("usuario_ler", "Usuário não encontrado.");
+        Long saldo = saldos.ler(cpf);
+        if (usuario == null || saldo == null) return LER_NAO_ENCONTRADO;
         
+        usuario.setSaldoCentavos(saldo);
         usuario.setSenha(null);
-        Map<String, Object> responseMap = new HashMap<>();
-        responseMap.put("operacao", "usuario_ler");
-        responseMap.put("status", true);
-        responseMap.put("info", "Dados recuperados.");
-        responseMap.put("usuario", usuario);
-        return objectMapper.writeValueAsString(responseMap);
-    }
-
-    private String handleAtualizarUsuario(JsonNode rootNode) throws Exception {
-        String token = rootNode.get("token").asText();
-        String cpf = sessions.get(token);
-        if (cpf == null) return createErrorResponse("usuario_atualizar", "Token inválido.");
-        
-        Usuario usuario = usuarioDao.ler(cpf);
-        if (usuario == null) return createErrorResponse("usuario_atualizar", "Usuário não encontrado.");
-        
-        JsonNode usuarioNode = rootNode.get("usuario");
-        if (usuarioNode.has("nome")) usuario.setNome(usuarioNode.get("nome").asText());
-        if (usuarioNode.has("senha")) usuario.setSenha(usuarioNode.get("senha").asText());
-        
-        usuarioDao.atualizar(usuario);
-        return createSuccessResponse("usuario_atualizar", "Usuário atualizado com sucesso.");
+        return codec.serializar(new RespostaUsuario(usuario));
     }
 
-    private String handleDeletarUsuario(JsonNode rootNode) throws Exception {
-        String token = rootNode.get("token").asText();
-        String cpf = sessions.get(token);
-        if (cpf == null) return createErrorResponse("usuario_deletar", "Token inválido.");
-        
-        usuarioDao.deletar(cpf);
-        sessions.remove(token);
-        return createSuccessResponse("usuario_deletar", "Usuário deletado com sucesso.");
+    private RespostaPronta handleAtualizarUsuario(RequisicaoAtualizarUsuario requisicao) throws Exception {
+        Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
+        if (cpf == null) return ATUALIZAR_TOKEN_INVALIDO;
+
+        RequisicaoAtualizarUsuario.AlteracaoUsuario alteracao = requisicao.getUsuario();
+        // O hash é calculado antes de bloquear a conta, para não segurar transferências enquanto isso
+        String novaSenha = null;
+        if (alteracao.getSenha() != null) {
+            try {
+                novaSenha = credenciais.gerarHash(alteracao.getSenha());
+            } catch (TimeoutException e) {
+                System.err.println("ERRO em [usuario_atualizar]: " + e.getMessage());
+                return ATUALIZAR_OCUPADO;
+            }
+        }
+
+        // Grava só nome e senha; a conta fica bloqueada entre a leitura e a escrita para que uma
+        // troca de senha concorrente (como o rehash do login) não seja sobrescrita
+        AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpf);
+        try {
+            Usuario usuario = usuarioDao.ler(cpf);
+            if (usuario == null) return ATUALIZAR_NAO_ENCONTRADO;
+
+            String nome = alteracao.getNome() != null ? alteracao.getNome() : usuario.getNome();
+            String senha = novaSenha != null ? novaSenha : usuario.getSenha();
+            if (!usuarioDao.atualizarDados(cpf, nome, senha)) return ATUALIZAR_NAO_ENCONTRADO;
+        } finally {
+            bloqueio.liberar();
+        }
+        if (novaSenha != null) credenciais.esquecer(cpf);
+        return USUARIO_ATUALIZADO;
     }
 
-    private String handleCriarTransacao(JsonNode rootNode) {
-        Connection conn = null;
+    private RespostaPronta handleDeletarUsuario(RequisicaoToken requisicao) throws Exception {
+        Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
+        if (cpf == null) return DELETAR_TOKEN_INVALIDO;
+
+        // Como nas transferências: nenhum lançamento na conta acontece durante a exclusão
+        AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpf);
+        try {
+            usuarioDao.deletar(cpf);
+        } finally {
+            bloqueio.liberar();
+        }
+        sessions.encerrarTodas(cpf);
+        credenciais.esquecer(cpf);
+        return USUARIO_DELETADO;
+    }
+
+    private RespostaPronta handleCriarTransacao(RequisicaoTransacao requisicao) {
         try {
-            String token = rootNode.get("token").asText();
-            String cpfEnviador = sessions.get(token);
+            Cpf cpfEnviador = sessions.cpfDoToken(requisicao.getToken());
             if (cpfEnviador == null) {
-                return createErrorResponse("transacao_criar", "Token de sessão inválido.");
+                return TRANSACAO_TOKEN_INVALIDO;
             }
             
-            String cpfRecebedor = rootNode.get("cpf_destino").asText();
-            double valor = rootNode.get("valor").asDouble();
-
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false);
-
-            Usuario enviador = usuarioDao.lerComConexao(conn, cpfEnviador);
-            Usuario recebedor = usuarioDao.lerComConexao(conn, cpfRecebedor);
-
-            if (enviador == null || recebedor == null || enviador.getSaldo() < valor) {
-                conn.rollback();
-                String motivo = "Saldo insuficiente ou um dos usuários não foi encontrado.";
-                return createErrorResponse("transacao_criar", motivo);
+            Cpf cpfRecebedor = requisicao.getCpfDestino();
+            long valor = requisicao.getValorCentavos();
+            if (valor <= 0) {
+                return TRANSACAO_VALOR_INVALIDO; // Um débito negativo retiraria dinheiro do recebedor
             }
 
-            enviador.setSaldo(enviador.getSaldo() - valor);
-            recebedor.setSaldo(recebedor.getSaldo() + valor);
-            usuarioDao.atualizarComConexao(conn, enviador);
-            usuarioDao.atualizarComConexao(conn, recebedor);
-            
-            Transacao novaTransacao = new Transacao(valor, cpfEnviador, cpfRecebedor);
-            transacaoDao.criarComConexao(conn, novaTransacao);
-            conn.commit();
+            AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpfEnviador, cpfRecebedor);
+            try {
+                // Com as duas contas bloqueadas os saldos só mudam pela própria transferência: a recusa
+                // é decidida em uma conexão de leitura, em paralelo com as outras contas, sem ocupar a
+                // thread de escrita. A tarefa de escrita confere de novo antes de gravar.
+                Long saldoEnviador = saldos.ler(cpfEnviador);
+                if (saldoEnviador == null || saldoEnviador < valor || saldos.ler(cpfRecebedor) == null) {
+                    return TRANSACAO_SALDO_INSUFICIENTE;
+                }
 
-            return createSuccessResponse("transacao_criar", "Transação realizada com sucesso.");
+                // Executado na thread de escrita; devolve a resposta de recusa ou null em caso de sucesso.
+                // Débito e crédito são UPDATEs condicionais sobre o valor atual da coluna, sem leitura
+                // prévia; numa transferência para si mesmo os dois se anulam na mesma linha.
+                RespostaPronta recusa = DatabaseManager.executarEscrita(conn -> {
+                    if (!saldos.debitarComConexao(conn, cpfEnviador, valor)) {
+                        return TRANSACAO_SALDO_INSUFICIENTE;
+                    }
+                    if (!saldos.creditarComConexao(conn, cpfRecebedor, valor)) {
+                        // Desfaz o débito já aplicado
+                        throw new TransacaoRecusadaException("Recebedor não encontrado: " + cpfRecebedor);
+                    }
+
+                    Transacao novaTransacao = Transacao.transferencia(valor, cpfEnviador, cpfRecebedor);
+                    transacaoDao.criarComConexao(conn, novaTransacao);
+                    DatabaseManager.registrarTransferencia(novaTransacao);
+                    return null;
+                });
+
+                if (recusa != null) {
+                    return recusa;
+                }
+                return TRANSACAO_REALIZADA;
+            } finally {
+                bloqueio.liberar();
+            }
+        } catch (TransacaoRecusadaException e) {
+            return TRANSACAO_SALDO_INSUFICIENTE;
         } catch (Exception e) {
-            if (conn != null) { try { conn.rollback(); } catch (SQLException ignored) {} }
             return createErrorResponse("transacao_criar", "Falha na transação: " + e.getMessage());
-        } finally {
-            if (conn != null) { try { conn.close(); } catch (SQLException ignored) {} }
         }
     }
 
-    private String handleLerTransacoes(JsonNode rootNode) throws Exception {
-        String token = rootNode.get("token").asText();
-        String cpf = sessions.get(token);
+    private void handleLerTransacoes(RequisicaoExtrato requisicao, JsonNode id, OutputStream saida) throws Exception {
+        Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
         if (cpf == null) {
-            return createErrorResponse("transacao_ler", "Token de sessão inválido.");
+            enviar(saida, EXTRATO_TOKEN_INVALIDO, id);
+            return;
         }
         
-        String dataInicialStr = rootNode.get("data_inicial").asText();
-        String dataFinalStr = rootNode.get("data_final").asText();
+        String dataInicialStr = requisicao.getDataInicial();
+        String dataFinalStr = requisicao.getDataFinal();
         
         try {
             LocalDate dataInicial = LocalDate.parse(dataInicialStr.substring(0, 10));
@@ -294,105 +605,328 @@ public class ClientHandler implements Runnable {
             long dias = ChronoUnit.DAYS.between(dataInicial, dataFinal);
 
             if (dias < 0) {
-                 return createErrorResponse("transacao_ler", "Data inicial não pode ser maior que a data final.");
+                 enviar(saida, EXTRATO_DATAS_INVERTIDAS, id);
+                 return;
             }
             if (dias > 31) {
-                return createErrorResponse("transacao_ler", "O período máximo do extrato é de 31 dias.");
+                enviar(saida, EXTRATO_PERIODO_LONGO, id);
+                return;
             }
         } catch (Exception e) {
              System.err.println("Erro ao parsear datas (já validadas?): " + e.getMessage());
-             return createErrorResponse("transacao_ler", "Formato de data inválido para cálculo de período.");
+             enviar(saida, EXTRATO_DATA_INVALIDA, id);
+             return;
         }
-        
-        List<Transacao> transacoes = transacaoDao.lerPorCpfComDatas(cpf, dataInicialStr, dataFinalStr);
-        
-        for (Transacao t : transacoes) {//testar
-            Usuario enviadorDb = usuarioDao.ler(t.getCpfEnviador());
-            Usuario recebedorDb = usuarioDao.ler(t.getCpfRecebedor());
-
-            if (enviadorDb != null) {
-                Usuario enviadorSimples = new Usuario();
-                enviadorSimples.setNome(enviadorDb.getNome());
-                enviadorSimples.setCpf(enviadorDb.getCpf());
-                t.setUsuarioEnviador(enviadorSimples);
+
+        // JSON sai sempre em streaming, com ou sem 'id': todas as transações do período quando não
+        // há 'limite'. No formato binário o quadro precisa do tamanho antes do conteúdo e não pode
+        // passar de Enquadramento.TAMANHO_MAXIMO_QUADRO: a página é montada em memória e, sem
+        // 'limite', vai até LIMITE_MAXIMO_PAGINA transações; o 'info' avisa que o extrato veio
+        // incompleto e o restante segue pelo 'proximo_cursor'.
+        boolean streaming = formato == FormatoMensagem.JSON;
+        int limite;
+        if (requisicao.getLimite() != null) {
+            limite = requisicao.getLimite();
+        } else {
+            limite = streaming ? TransacaoDAO.SEM_LIMITE : Validator.LIMITE_MAXIMO_PAGINA;
+        }
+        CursorTransacao cursor = null;
+        if (requisicao.getCursor() != null) {
+            try {
+                cursor = CursorTransacao.decodificar(requisicao.getCursor());
+            } catch (IllegalArgumentException e) {
+                enviar(saida, EXTRATO_CURSOR_INVALIDO, id);
+                return;
+            }
+        }
+
+        if (streaming) {
+            transmitirExtrato(cpf, dataInicialStr, dataFinalStr, cursor, limite, id, saida);
+        } else {
+            enviarPaginaExtrato(cpf, dataInicialStr, dataFinalStr, cursor, limite, requisicao.getLimite() == null, id, saida);
+        }
+    }
+
+    /**
+     * Escreve o extrato em JSON direto na saída, transação por transação. Em pipeline, a saída
+     * fica com esta resposta (lockSaida) até o fim, para as outras não se misturarem a ela.
+     * O cabeçalho só é escrito junto com a primeira transação (ou ao final, se não houver nenhuma):
+     * assim uma falha na consulta ainda pode ser respondida com um erro normal.
+     */
+    private void transmitirExtrato(Cpf cpf, String dataInicial, String dataFinal, CursorTransacao cursor, int limite,
+                                   JsonNode id, OutputStream saida) throws IOException, SQLException {
+        lockSaida.lock();
+        try {
+            JsonGenerator generator = codec.getFactory(formato).createGenerator(saida, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            int[] total = {0};
+            Transacao[] ultima = {null};
+            boolean haMais;
+            try {
+                haMais = transacaoDao.percorrerPaginaPorCpfComDatasComUsuarios(cpf, dataInicial, dataFinal, cursor, limite, transacao -> {
+                    if (total[0]++ == 0) {
+                        iniciarRespostaExtrato(generator, id, INFO_EXTRATO);
+                    }
+                    codec.getEscritorTransacao(formato).writeValue(generator, transacao);
+                    ultima[0] = transacao;
+                });
+            } catch (SQLException e) {
+                if (total[0] > 0) {
+                    // Parte do extrato já foi enviada; não há como responder com erro sem quebrar o JSON
+                    throw new IOException("Falha no banco de dados durante o envio do extrato: " + e.getMessage(), e);
+                }
+                throw e;
+            }
+            if (total[0] == 0) {
+                iniciarRespostaExtrato(generator, id, INFO_EXTRATO);
             }
+            finalizarRespostaExtrato(generator, haMais ? ultima[0] : null);
+            generator.writeRaw('\n');
+            generator.close();
+            saida.flush();
+            System.out.println("Servidor enviou: extrato de transacao_ler com " + total[0] + " transações (streaming" +
+                    (id != null ? ", id " + id : "") + ")");
+        } finally {
+            lockSaida.unlock();
+        }
+    }
 
-            if (recebedorDb != null) {
-                Usuario recebedorSimples = new Usuario();
-                recebedorSimples.setNome(recebedorDb.getNome());
-                recebedorSimples.setCpf(recebedorDb.getCpf());
-                t.setUsuarioRecebedor(recebedorSimples);
+    /**
+     * Monta a página do extrato em memória e a envia em um único quadro.
+     *
+     * @param semLimitePedido a requisição não trouxe 'limite': se houver mais transações, o 'info'
+     *                        diz que o extrato está incompleto.
+     */
+    private void enviarPaginaExtrato(Cpf cpf, String dataInicial, String dataFinal, CursorTransacao cursor, int limite,
+                                     boolean semLimitePedido, JsonNode id, OutputStream saida) throws IOException, SQLException {
+        List<Transacao> transacoes = new ArrayList<>();
+        boolean haMais = transacaoDao.percorrerPaginaPorCpfComDatasComUsuarios(cpf, dataInicial, dataFinal, cursor, limite,
+                                                                                transacoes::add);
+
+        ByteArrayOutputStream pagina = new ByteArrayOutputStream(4096);
+        try (JsonGenerator generator = codec.getFactory(formato).createGenerator(pagina, JsonEncoding.UTF8)) {
+            iniciarRespostaExtrato(generator, id, haMais && semLimitePedido ? INFO_EXTRATO_INCOMPLETO : INFO_EXTRATO);
+            for (Transacao transacao : transacoes) {
+                codec.getEscritorTransacao(formato).writeValue(generator, transacao);
             }
+            finalizarRespostaExtrato(generator, haMais ? transacoes.get(transacoes.size() - 1) : null);
         }
-        
-        Map<String, Object> responseMap = new HashMap<>();
-        responseMap.put("operacao", "transacao_ler");
-        responseMap.put("status", true);
-        responseMap.put("info", "Transações recuperadas com sucesso.");
-        responseMap.put("transacoes", transacoes);
-        return objectMapper.writeValueAsString(responseMap);
+        escrever(saida, pagina.toByteArray());
+        System.out.println("Servidor enviou: extrato de transacao_ler com " + transacoes.size() + " transações (" +
+                formato.getValor() + " em bloco" + (id != null ? ", id " + id : "") + (haMais ? ", incompleto" : "") + ")");
+    }
+
+    private void iniciarRespostaExtrato(JsonGenerator generator, JsonNode id, String info) throws IOException {
+        generator.writeStartObject();
+        if (id != null) {
+            generator.writeFieldName(Validator.ID);
+            codec.getMapper().writeTree(generator, id);
+        }
+        generator.writeStringField("operacao", "transacao_ler");
+        generator.writeBooleanField("status", true);
+        generator.writeStringField("info", info);
+        generator.writeArrayFieldStart("transacoes");
+    }
+
+    // Fecha a lista; com mais transações no período, o cursor aponta para depois de 'ultima'
+    private void finalizarRespostaExtrato(JsonGenerator generator, Transacao ultima) throws IOException {
+        generator.writeEndArray();
+        if (ultima != null) {
+            generator.writeStringField("proximo_cursor", new CursorTransacao(ultima.getCriadoEm(), ultima.getId()).codificar());
+        }
+        generator.writeEndObject();
     }
     
-    private String handleDepositar(JsonNode rootNode) {
-        Connection conn = null;
+    private RespostaPronta handleDepositar(RequisicaoDeposito requisicao) {
         try {
-            String token = rootNode.get("token").asText();
-            String cpf = sessions.get(token);
+            Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
             if (cpf == null) {
-                return createErrorResponse("depositar", "Token de sessão inválido.");
+                return DEPOSITO_TOKEN_INVALIDO;
             }
 
-            double valor = rootNode.path("valor_enviado").asDouble();
+            long valor = requisicao.getValorCentavos();
             if (valor <= 0) {
-                 return createErrorResponse("depositar", "Valor do depósito deve ser positivo.");
+                 return DEPOSITO_VALOR_INVALIDO;
             }
 
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false);
-
-            Usuario usuario = usuarioDao.lerComConexao(conn, cpf);
-            if (usuario == null) {
-                conn.rollback();
-                return createErrorResponse("depositar", "Usuário não encontrado.");
+            AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpf);
+            try {
+                boolean encontrado = DatabaseManager.executarEscrita(conn -> {
+                    if (!saldos.creditarComConexao(conn, cpf, valor)) {
+                        return false;
+                    }
+
+                    Transacao deposito = Transacao.deposito(valor, cpf); 
+                    transacaoDao.criarComConexao(conn, deposito);
+                    DatabaseManager.registrarDeposito(deposito);
+                    return true;
+                });
+
+                if (!encontrado) {
+                    return DEPOSITO_NAO_ENCONTRADO;
+                }
+                return DEPOSITO_REALIZADO;
+            } finally {
+                bloqueio.liberar();
             }
 
-            usuario.setSaldo(usuario.getSaldo() + valor);
-            usuarioDao.atualizarComConexao(conn, usuario);
-
-            Transacao deposito = new Transacao(valor, cpf, cpf); 
-            transacaoDao.criarComConexao(conn, deposito);
-
-            conn.commit();
-
-            return createSuccessResponse("depositar", "Deposito realizado com sucesso.");
-
         } catch (Exception e) {
-            if (conn != null) { try { conn.rollback(); } catch (SQLException ignored) {} }
             System.err.println("ERRO em [depositar] (Exception): " + e.getMessage());
             return createErrorResponse("depositar", "Falha no depósito: " + e.getMessage());
-        } finally {
-            if (conn != null) { try { conn.close(); } catch (SQLException ignored) {} }
         }
     }
     
-    private String handleErroServidor(JsonNode rootNode) throws Exception {
-        String operacaoEnviada = rootNode.path("operacao_enviada").asText();
-        String infoErro = rootNode.path("info").asText();
-        
-        System.err.println("[ERRO REPORTADO PELO CLIENTE] Operação: " + operacaoEnviada + " | Info: " + infoErro);
-        
-        return createSuccessResponse("erro_servidor", "Erro logado pelo servidor.");
+    /**
+     * Todas as transferências do lote em uma única tarefa de escrita (uma transação). Os saldos são
+     * acumulados em memória, item a item na ordem do lote; cada conta alterada é gravada uma vez
+     * no final e as transações realizadas são inseridas em um único executeBatch. Um item recusado
+     * não altera nada e não impede os seguintes.
+     */
+    private RespostaPronta handleCriarTransacaoLote(RequisicaoTransacaoLote requisicao) {
+        try {
+            Cpf cpfEnviador = sessions.cpfDoToken(requisicao.getToken());
+            if (cpfEnviador == null) {
+                return LOTE_TRANSACAO_TOKEN_INVALIDO;
+            }
+            List<RequisicaoTransacaoLote.ItemTransacao> itens = requisicao.getTransacoes();
+
+            List<Cpf> envolvidas = new ArrayList<>(itens.size() + 1);
+            envolvidas.add(cpfEnviador);
+            for (RequisicaoTransacaoLote.ItemTransacao item : itens) {
+                envolvidas.add(item.getCpfDestino());
+            }
+            AccountLockManager.Bloqueio bloqueio = contas.bloquear(envolvidas);
+            try {
+                List<ResultadoItem> resultados = DatabaseManager.executarEscrita(conn -> {
+                    Long saldoEnviador = saldos.lerComConexao(conn, cpfEnviador);
+                    if (saldoEnviador == null) {
+                        return null;
+                    }
+                    Map<Cpf, Long> saldosLote = new HashMap<>();
+                    saldosLote.put(cpfEnviador, saldoEnviador);
+                    Set<Cpf> alteradas = new LinkedHashSet<>();
+                    List<Transacao> realizadas = new ArrayList<>();
+                    List<ResultadoItem> porItem = new ArrayList<>(itens.size());
+
+                    for (RequisicaoTransacaoLote.ItemTransacao item : itens) {
+                        long valor = item.getValorCentavos();
+                        if (valor <= 0) {
+                            porItem.add(ITEM_TRANSACAO_VALOR_INVALIDO);
+                            continue;
+                        }
+                        Cpf cpfRecebedor = item.getCpfDestino();
+                        if (!saldosLote.containsKey(cpfRecebedor)) {
+                            // null também: não consulta de novo
+                            saldosLote.put(cpfRecebedor, saldos.lerComConexao(conn, cpfRecebedor));
+                        }
+                        if (saldosLote.get(cpfRecebedor) == null || saldosLote.get(cpfEnviador) < valor) {
+                            porItem.add(ITEM_SALDO_INSUFICIENTE);
+                            continue;
+                        }
+
+                        // Um de cada vez: numa transferência para si mesmo as duas contas são a mesma
+                        saldosLote.put(cpfEnviador, saldosLote.get(cpfEnviador) - valor);
+                        saldosLote.put(cpfRecebedor, saldosLote.get(cpfRecebedor) + valor);
+                        alteradas.add(cpfEnviador);
+                        alteradas.add(cpfRecebedor);
+                        realizadas.add(Transacao.transferencia(valor, cpfEnviador, cpfRecebedor));
+                        porItem.add(ITEM_TRANSACAO_REALIZADA);
+                    }
+
+                    for (Cpf conta : alteradas) {
+                        saldos.definirComConexao(conn, conta, saldosLote.get(conta));
+                    }
+                    transacaoDao.criarLoteComConexao(conn, realizadas);
+                    for (Transacao transacao : realizadas) {
+                        DatabaseManager.registrarTransferencia(transacao);
+                    }
+                    return porItem;
+                });
+
+                if (resultados == null) {
+                    return LOTE_TRANSACAO_NAO_ENCONTRADO;
+                }
+                return respostaLote("transacao_criar_lote", "transações realizadas", resultados);
+            } finally {
+                bloqueio.liberar();
+            }
+        } catch (Exception e) {
+            return createErrorResponse("transacao_criar_lote", "Falha no lote: " + e.getMessage());
+        }
     }
-    
-    private String createSuccessResponse(String operacao, String info) throws Exception {
-        return objectMapper.writeValueAsString(Map.of("operacao", operacao, "status", true, "info", info));
+
+    private RespostaPronta handleDepositarLote(RequisicaoDepositoLote requisicao) {
+        try {
+            Cpf cpf = sessions.cpfDoToken(requisicao.getToken());
+            if (cpf == null) {
+                return LOTE_DEPOSITO_TOKEN_INVALIDO;
+            }
+            List<RequisicaoDepositoLote.ItemDeposito> itens = requisicao.getDepositos();
+
+            AccountLockManager.Bloqueio bloqueio = contas.bloquear(cpf);
+            try {
+                List<ResultadoItem> resultados = DatabaseManager.executarEscrita(conn -> {
+                    Long saldo = saldos.lerComConexao(conn, cpf);
+                    if (saldo == null) {
+                        return null;
+                    }
+                    List<Transacao> realizados = new ArrayList<>();
+                    List<ResultadoItem> porItem = new ArrayList<>(itens.size());
+                    for (RequisicaoDepositoLote.ItemDeposito item : itens) {
+                        long valor = item.getValorCentavos();
+                        if (valor <= 0) {
+                            porItem.add(ITEM_DEPOSITO_VALOR_INVALIDO);
+                            continue;
+                        }
+                        saldo += valor;
+                        realizados.add(Transacao.deposito(valor, cpf));
+                        porItem.add(ITEM_DEPOSITO_REALIZADO);
+                    }
+
+                    if (!realizados.isEmpty()) {
+                        saldos.definirComConexao(conn, cpf, saldo);
+                        transacaoDao.criarLoteComConexao(conn, realizados);
+                        for (Transacao deposito : realizados) {
+                            DatabaseManager.registrarDeposito(deposito);
+                        }
+                    }
+                    return porItem;
+                });
+
+                if (resultados == null) {
+                    return LOTE_DEPOSITO_NAO_ENCONTRADO;
+                }
+                return respostaLote("depositar_lote", "depósitos realizados", resultados);
+            } finally {
+                bloqueio.liberar();
+            }
+        } catch (Exception e) {
+            System.err.println("ERRO em [depositar_lote] (Exception): " + e.getMessage());
+            return createErrorResponse("depositar_lote", "Falha no lote de depósitos: " + e.getMessage());
+        }
+    }
+
+    // Ex.: "Lote processado: 3 de 5 transações realizadas."
+    private RespostaPronta respostaLote(String operacao, String realizadosNoLote, List<ResultadoItem> resultados) throws IOException {
+        int realizados = 0;
+        for (ResultadoItem resultado : resultados) {
+            if (resultado.isStatus()) realizados++;
+        }
+        String info = "Lote processado: " + realizados + " de " + resultados.size() + " " + realizadosNoLote + ".";
+        return codec.serializar(new RespostaLote(operacao, info, resultados));
+    }
+
+    private RespostaPronta handleErroServidor(RequisicaoErroServidor requisicao) throws Exception {
+        System.err.println("[ERRO REPORTADO PELO CLIENTE] Operação: " + requisicao.getOperacaoEnviada() + " | Info: " + requisicao.getInfo());
+        
+        return ERRO_LOGADO;
     }
 
-    private String createErrorResponse(String operacao, String info) {
+    private RespostaPronta createErrorResponse(String operacao, String info) {
         try {
-            return objectMapper.writeValueAsString(Map.of("operacao", operacao, "status", false, "info", info));
+            return codec.serializar(new Resposta(operacao, false, info));
         } catch (Exception e) {
-            return "{\"status\":false, \"info\":\"Erro interno no servidor.\"}";
+            return new RespostaPronta("{\"status\":false, \"info\":\"Erro interno no servidor.\"}".getBytes(StandardCharsets.UTF_8));
         }
     }
 }
\ No newline at end of file
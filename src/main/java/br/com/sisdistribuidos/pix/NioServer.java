@@ -0,0 +1,499 @@
+package br.com.sisdistribuidos.pix;
+
+import br.com.sisdistribuidos.pix.protocolo.Enquadramento;
+import br.com.sisdistribuidos.pix.protocolo.FormatoMensagem;
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Servidor não bloqueante baseado em {@link Selector}.
+ * Uma única thread aceita conexões, lê os bytes e separa as mensagens: por '\n' no
+ * formato JSON, ou pelo prefixo de tamanho dos quadros no formato binário negociado no
+ * 'conectar'. Cada mensagem completa é processada pelo {@link ClientHandler} da conexão
+ * em um pool limitado de workers, preservando a ordem das mensagens de cada cliente.
+ */
+public class NioServer {
+
+    private static final int TAMANHO_BUFFER_LEITURA = 8 * 1024;
+    private static final int TAMANHO_INICIAL_LINHA = 512;
+    private static final int TAMANHO_MAXIMO_LINHA = 1024 * 1024;
+    private static final int MAXIMO_LINHAS_PENDENTES = 64;
+    private static final int LINHAS_POR_EXECUCAO = 16;
+    private static final int TAMANHO_BLOCO_ESCRITA = 8 * 1024;
+    // Acima disto o worker espera o cliente consumir a resposta antes de continuar escrevendo
+    private static final long LIMITE_BYTES_PENDENTES = 1024 * 1024;
+
+    private final JsonCodec codec;
+    private final ThreadPoolExecutor workers;
+    // Requisições com 'id' (pipeline); separado dos workers, que podem esperar por elas
+    private final ThreadPoolExecutor pipeline;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    // Conexões que precisam da thread do selector (escrita pendente, mudança de interesse ou fechamento)
+    private final Queue<Conexao> pendencias = new ConcurrentLinkedQueue<>();
+    // Conexões com mensagens prontas que não couberam na fila dos workers
+    private final Queue<Conexao> aguardandoWorker = new ConcurrentLinkedQueue<>();
+
+    public NioServer(int port, JsonCodec codec) throws IOException {
+        this(port, codec,
+             Integer.getInteger("pix.nio.workers", Runtime.getRuntime().availableProcessors() * 4),
+             Integer.getInteger("pix.nio.filaWorkers", 10_000));
+    }
+
+    public NioServer(int port, JsonCodec codec, int numeroWorkers, int capacidadeFila) throws IOException {
+        this.codec = codec;
+        this.workers = new ThreadPoolExecutor(numeroWorkers, numeroWorkers, 0L, TimeUnit.MILLISECONDS,
+                                              new ArrayBlockingQueue<>(capacidadeFila));
+        // Fila limitada; cheia, a requisição roda na própria thread que a despacha (um worker, que
+        // enquanto isso não lê mais mensagens da conexão). Cada conexão também limita as suas
+        // requisições em andamento (ver RequestPipeline): um worker no limite espera, e a conexão
+        // deixa de ser lida quando as linhas pendentes chegam a MAXIMO_LINHAS_PENDENTES.
+        int threadsPipeline = Integer.getInteger("pix.nio.threadsPipeline", numeroWorkers);
+        this.pipeline = new ThreadPoolExecutor(threadsPipeline, threadsPipeline, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(Integer.getInteger("pix.nio.filaPipeline", capacidadeFila)),
+                                               new ThreadPoolExecutor.CallerRunsPolicy());
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** Porta em que o servidor escuta (útil quando criado com a porta 0). */
+    int getPorta() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public void iniciar() throws IOException {
+        try {
+            while (true) {
+                selector.select(aguardandoWorker.isEmpty() ? 0 : 10);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        aceitar();
+                        continue;
+                    }
+                    Conexao conexao = (Conexao) key.attachment();
+                    if (key.isWritable()) {
+                        conexao.atualizarInteresses();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        conexao.ler();
+                    }
+                }
+
+                Conexao conexao;
+                while ((conexao = pendencias.poll()) != null) {
+                    conexao.atualizarInteresses();
+                }
+                int aguardando = aguardandoWorker.size();
+                for (int i = 0; i < aguardando && (conexao = aguardandoWorker.poll()) != null; i++) {
+                    conexao.agendar();
+                }
+            }
+        } finally {
+            workers.shutdown();
+            pipeline.shutdown();
+            serverChannel.close();
+            selector.close();
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel canal;
+        while ((canal = serverChannel.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Conexao conexao = new Conexao(canal);
+            conexao.chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+            System.out.println("Cliente conectado: " + conexao.endereco);
+        }
+    }
+
+    private class Conexao {
+        private final SocketChannel canal;
+        private final String endereco;
+        private final ClientHandler handler;
+        private SelectionKey chave;
+
+        // Buffers reutilizados durante toda a vida da conexão (somente a thread do selector os acessa)
+        private final ByteBuffer leitura = ByteBuffer.allocate(TAMANHO_BUFFER_LEITURA);
+        private byte[] linha = new byte[TAMANHO_INICIAL_LINHA];
+        private int tamanhoLinha = 0;
+        // Quadro binário em montagem: primeiro os 4 bytes do tamanho, depois o conteúdo
+        private int bytesCabecalho = 0;
+        private int tamanhoQuadro = 0;
+        private byte[] quadro;
+        private int posicaoQuadro = 0;
+        private boolean leituraPausada = false;
+
+        // Linhas JSON (sem o '\n') ou conteúdos de quadro, conforme o formato da conexão
+        private final Queue<byte[]> linhasPendentes = new ConcurrentLinkedQueue<>();
+        private final Queue<ByteBuffer> escritas = new ConcurrentLinkedQueue<>();
+        private final AtomicLong bytesPendentes = new AtomicLong();
+        private final ReentrantLock lockEspaco = new ReentrantLock();
+        private final Condition espacoLivre = lockEspaco.newCondition();
+        private final SaidaConexao saida = new SaidaConexao();
+        private final AtomicBoolean emProcessamento = new AtomicBoolean(false);
+        private volatile boolean entradaEncerrada = false;
+        private volatile boolean fecharAposEscrita = false;
+        private volatile boolean fechada = false;
+
+        Conexao(SocketChannel canal) {
+            this.canal = canal;
+            this.endereco = canal.socket().getInetAddress().getHostAddress();
+            this.handler = new ClientHandler(canal.socket(), codec, pipeline);
+        }
+
+        // ---- Thread do selector ----
+
+        void ler() {
+            int lidos;
+            try {
+                lidos = canal.read(leitura);
+            } catch (IOException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                fechar();
+                return;
+            }
+            if (lidos < 0) {
+                // Uma última linha sem '\n' ainda é processada; um quadro incompleto é descartado
+                if (tamanhoLinha > 0 && !linhaCompleta(fecharLinha())) {
+                    return;
+                }
+                agendar();
+                entradaEncerrada = true;
+                chave.interestOps(chave.interestOps() & ~SelectionKey.OP_READ);
+                if (linhasPendentes.isEmpty() && !emProcessamento.get()) {
+                    encerrarAposRequisicoes();
+                }
+                return;
+            }
+
+            byte[] dados = leitura.array();
+            int fim = leitura.position();
+            int i = 0;
+            while (i < fim) {
+                if (handler.getFormato() == FormatoMensagem.JSON || !handler.isConectado()) {
+                    i = lerLinha(dados, i, fim);
+                } else {
+                    i = lerQuadro(dados, i, fim);
+                }
+                if (i < 0) {
+                    return; // Conexão encerrada
+                }
+            }
+            leitura.clear();
+
+            if (linhasPendentes.size() >= MAXIMO_LINHAS_PENDENTES) {
+                leituraPausada = true;
+                chave.interestOps(chave.interestOps() & ~SelectionKey.OP_READ);
+            }
+            agendar();
+        }
+
+        // Consome bytes até completar uma linha ou esgotar os dados; devolve a próxima posição, ou -1
+        private int lerLinha(byte[] dados, int i, int fim) {
+            for (; i < fim; i++) {
+                byte b = dados[i];
+                if (b == '\n') {
+                    return linhaCompleta(fecharLinha()) ? i + 1 : -1;
+                }
+                if (tamanhoLinha == linha.length) {
+                    if (linha.length >= TAMANHO_MAXIMO_LINHA) {
+                        System.err.println("Mensagem excede o tamanho máximo permitido. Encerrando conexão: " + endereco);
+                        fechar();
+                        return -1;
+                    }
+                    linha = Arrays.copyOf(linha, Math.min(linha.length * 2, TAMANHO_MAXIMO_LINHA));
+                }
+                linha[tamanhoLinha++] = b;
+            }
+            return fim;
+        }
+
+        // Termina a linha em montagem (sem o '\r' de um CRLF) e devolve o seu tamanho
+        private int fecharLinha() {
+            int tamanho = tamanhoLinha;
+            if (tamanho > 0 && linha[tamanho - 1] == '\r') tamanho--;
+            tamanhoLinha = 0;
+            return tamanho;
+        }
+
+        /**
+         * O handshake é processado aqui mesmo, na thread do selector: é só validação, e o formato
+         * negociado precisa valer antes de separar os bytes seguintes, que podem já ser quadros.
+         */
+        private boolean linhaCompleta(int tamanho) {
+            if (handler.isConectado()) {
+                linhasPendentes.add(Arrays.copyOf(linha, tamanho));
+                return true;
+            }
+            String firstLine = new String(linha, 0, tamanho, StandardCharsets.UTF_8);
+            System.out.println("Servidor recebeu: " + firstLine);
+            try {
+                if (handler.processConectar(firstLine, saida)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+            }
+            fecharAposEscrita = true;
+            entradaEncerrada = true;
+            atualizarInteresses();
+            return false;
+        }
+
+        private int lerQuadro(byte[] dados, int i, int fim) {
+            while (bytesCabecalho < Enquadramento.TAMANHO_CABECALHO_QUADRO) {
+                if (i == fim) return fim;
+                tamanhoQuadro = (tamanhoQuadro << 8) | (dados[i++] & 0xFF);
+                if (++bytesCabecalho == Enquadramento.TAMANHO_CABECALHO_QUADRO) {
+                    try {
+                        Enquadramento.validarTamanho(tamanhoQuadro);
+                    } catch (IOException e) {
+                        System.err.println(e.getMessage() + ". Encerrando conexão: " + endereco);
+                        fechar();
+                        return -1;
+                    }
+                    quadro = new byte[tamanhoQuadro];
+                    posicaoQuadro = 0;
+                }
+            }
+            int n = Math.min(fim - i, tamanhoQuadro - posicaoQuadro);
+            System.arraycopy(dados, i, quadro, posicaoQuadro, n);
+            posicaoQuadro += n;
+            if (posicaoQuadro == tamanhoQuadro) {
+                linhasPendentes.add(quadro);
+                quadro = null;
+                bytesCabecalho = 0;
+                tamanhoQuadro = 0;
+            }
+            return i + n;
+        }
+
+        void atualizarInteresses() {
+            if (fechada || !chave.isValid()) return;
+            try {
+                ByteBuffer buffer;
+                while ((buffer = escritas.peek()) != null) {
+                    canal.write(buffer);
+                    if (buffer.hasRemaining()) break;
+                    escritas.poll();
+                    liberarEspaco(buffer.limit());
+                }
+            } catch (IOException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                fechar();
+                return;
+            }
+
+            if (escritas.isEmpty() && fecharAposEscrita) {
+                fechar();
+                return;
+            }
+            if (leituraPausada && linhasPendentes.size() < MAXIMO_LINHAS_PENDENTES / 2) {
+                leituraPausada = false;
+            }
+            int interesses = 0;
+            if (!leituraPausada && !entradaEncerrada) interesses |= SelectionKey.OP_READ;
+            if (!escritas.isEmpty()) interesses |= SelectionKey.OP_WRITE;
+            chave.interestOps(interesses);
+        }
+
+        void fechar() {
+            if (fechada) return;
+            fechada = true;
+            fecharAposEscrita = true;
+            chave.cancel();
+            try {
+                canal.close();
+            } catch (IOException e) { /* Ignorar */ }
+            liberarEspaco(0); // Acorda um worker que esteja esperando para escrever
+            System.out.println("Cliente desconectado: " + endereco);
+        }
+
+        private void liberarEspaco(long bytes) {
+            long anterior = bytesPendentes.getAndAdd(-bytes);
+            // Só pode haver worker esperando se o limite tinha sido atingido (ou se a conexão fechou)
+            if (anterior >= LIMITE_BYTES_PENDENTES || fechada) {
+                lockEspaco.lock();
+                try {
+                    espacoLivre.signalAll();
+                } finally {
+                    lockEspaco.unlock();
+                }
+            }
+        }
+
+        // ---- Compartilhado entre selector e workers ----
+
+        void agendar() {
+            if (linhasPendentes.isEmpty() || !emProcessamento.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                workers.execute(this::processar);
+            } catch (RejectedExecutionException e) {
+                emProcessamento.set(false);
+                aguardandoWorker.add(this);
+            }
+        }
+
+        private void sinalizar() {
+            pendencias.add(this);
+            selector.wakeup();
+        }
+
+        // ---- Thread do worker ----
+
+        private void processar() {
+            try {
+                byte[] mensagem;
+                int processadas = 0;
+                while (!fecharAposEscrita && processadas++ < LINHAS_POR_EXECUCAO
+                        && (mensagem = linhasPendentes.poll()) != null) {
+                    processarMensagem(mensagem);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                fecharAposEscrita = true;
+            } finally {
+                emProcessamento.set(false);
+            }
+
+            if (fecharAposEscrita) {
+                linhasPendentes.clear();
+            } else if (!linhasPendentes.isEmpty()) {
+                agendar();
+            } else if (entradaEncerrada) {
+                encerrarAposRequisicoes();
+            }
+            sinalizar();
+        }
+
+        // Fecha depois que as requisições em pipeline escreverem as suas respostas
+        private void encerrarAposRequisicoes() {
+            handler.requisicoesConcluidas().thenRun(() -> {
+                fecharAposEscrita = true;
+                sinalizar();
+            });
+        }
+
+        private void processarMensagem(byte[] mensagem) {
+            try {
+                FormatoMensagem formato = handler.getFormato();
+                boolean valida;
+                if (formato == FormatoMensagem.JSON) {
+                    String inputLine = new String(mensagem, StandardCharsets.UTF_8);
+                    System.out.println("Servidor recebeu: " + inputLine);
+                    valida = handler.processRequest(inputLine, saida);
+                } else {
+                    System.out.println("Servidor recebeu: quadro " + formato.getValor() + " de " + mensagem.length + " bytes");
+                    valida = handler.processFrame(mensagem, saida);
+                }
+
+                // Regra 5.2: Se a mensagem não for um documento válido, encerra a conexão
+                if (!valida) {
+                    System.out.println("Servidor: Erro de sintaxe " + formato.getValor() + " detectado. Encerrando conexão.");
+                    fecharAposEscrita = true;
+                }
+            } catch (IOException e) {
+                System.err.println("Erro na comunicação com o cliente: " + e.getMessage());
+                fecharAposEscrita = true;
+            }
+        }
+
+        /**
+         * Saída usada pelo {@link ClientHandler}: acumula os bytes em blocos e os entrega à fila de
+         * escrita da conexão, que a thread do selector descarrega no socket. Respostas grandes
+         * (extratos) seguem bloco a bloco; se o cliente não consome, o worker espera.
+         */
+        private final class SaidaConexao extends OutputStream {
+            private byte[] bloco = new byte[TAMANHO_BLOCO_ESCRITA];
+            private int posicao = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (posicao == bloco.length) despachar();
+                bloco[posicao++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (posicao == bloco.length) despachar();
+                    int n = Math.min(len, bloco.length - posicao);
+                    System.arraycopy(b, off, bloco, posicao, n);
+                    posicao += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (posicao > 0) despachar();
+            }
+
+            private void despachar() throws IOException {
+                aguardarEspaco();
+                ByteBuffer buffer;
+                if (posicao == bloco.length) {
+                    // Bloco cheio passa a pertencer à fila; o próximo é alocado
+                    buffer = ByteBuffer.wrap(bloco);
+                    bloco = new byte[TAMANHO_BLOCO_ESCRITA];
+                } else {
+                    buffer = ByteBuffer.wrap(Arrays.copyOf(bloco, posicao));
+                }
+                bytesPendentes.addAndGet(posicao);
+                posicao = 0;
+                escritas.add(buffer);
+                sinalizar();
+            }
+
+            private void aguardarEspaco() throws IOException {
+                if (bytesPendentes.get() < LIMITE_BYTES_PENDENTES) return;
+                lockEspaco.lock();
+                try {
+                    while (bytesPendentes.get() >= LIMITE_BYTES_PENDENTES) {
+                        if (fechada) throw new IOException("Conexão encerrada pelo cliente.");
+                        espacoLivre.await(100, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrompido aguardando o envio da resposta.", e);
+                } finally {
+                    lockEspaco.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.sisdistribuidos.pix;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Requisições com 'id' em andamento em uma conexão. Cada requisição entra na fila da sua
+ * conta e só começa depois das anteriores da mesma conta; contas diferentes são processadas
+ * em paralelo no executor compartilhado e as respostas saem na ordem em que ficam prontas.
+ * As filas são apenas encadeamentos de CompletableFuture, sem thread por conta.
+ * <p>
+ * Só a thread que lê a conexão despacha requisições; as tarefas terminam em qualquer thread.
+ * O número de requisições em andamento é limitado: no limite, a thread que lê espera uma
+ * terminar antes de despachar outra e, enquanto isso, para de ler a conexão.
+ */
+class RequestPipeline {
+
+    private final Executor executor;
+    // Última tarefa despachada de cada conta (em geral o Cpf); removida quando termina sem outra atrás dela
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> filas = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Void>> emAndamento = ConcurrentHashMap.newKeySet();
+    private final Semaphore vagas;
+
+    /**
+     * @param maximoEmAndamento requisições despachadas e ainda não concluídas, por conexão.
+     */
+    RequestPipeline(Executor executor, int maximoEmAndamento) {
+        if (maximoEmAndamento < 1) {
+            throw new IllegalArgumentException("O máximo de requisições em andamento deve ser pelo menos 1: " + maximoEmAndamento);
+        }
+        this.executor = executor;
+        this.vagas = new Semaphore(maximoEmAndamento);
+    }
+
+    /**
+     * Executa a tarefa depois das tarefas anteriores da mesma conta. Sem conta (null), a tarefa
+     * não espera nenhuma outra. A tarefa deve tratar as próprias exceções.
+     */
+    void executar(Object conta, Runnable tarefa) {
+        vagas.acquireUninterruptibly();
+        CompletableFuture<Void> anterior = conta != null ? filas.get(conta) : null;
+        CompletableFuture<Void> atual;
+        try {
+            atual = anterior == null
+                    ? CompletableFuture.runAsync(tarefa, executor)
+                    : anterior.exceptionally(e -> null).thenRunAsync(tarefa, executor);
+        } catch (RuntimeException e) {
+            vagas.release(); // Executor encerrado
+            throw e;
+        }
+
+        emAndamento.add(atual);
+        if (conta != null) {
+            filas.put(conta, atual);
+        }
+        atual.whenComplete((r, e) -> {
+            vagas.release();
+            emAndamento.remove(atual);
+            if (conta != null) {
+                filas.remove(conta, atual);
+            }
+        });
+    }
+
+    /**
+     * Completa quando todas as tarefas despachadas até agora terminarem.
+     */
+    CompletableFuture<Void> concluidas() {
+        if (emAndamento.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?>[] tarefas = emAndamento.toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(tarefas).exceptionally(e -> null);
+    }
+
+    /**
+     * Bloqueia até todas as tarefas despachadas até agora terminarem. Não deve ser chamado
+     * por uma thread do próprio executor.
+     */
+    void aguardar() {
+        if (!emAndamento.isEmpty()) {
+            concluidas().join();
+        }
+    }
+}
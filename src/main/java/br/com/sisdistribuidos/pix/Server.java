@@ -1,6 +1,8 @@
 package br.com.sisdistribuidos.pix;
 
 import br.com.sisdistribuidos.pix.database.DatabaseManager;
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import br.com.sisdistribuidos.pix.validador.Validator;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.DatagramSocket;
@@ -33,31 +35,79 @@ public class Server {
             return;
         }
 
-        ExecutorService pool = Executors.newCachedThreadPool();
+        // Um único codec JSON para todas as conexões, com os serializadores já montados
+        JsonCodec codec;
+        try {
+            codec = new JsonCodec().aquecer();
+            Validator.setObjectMapper(codec.getMapper());
+        } catch (IOException e) {
+            System.err.println("Erro FATAL na inicialização do codec JSON: " + e.getMessage());
+            return;
+        }
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
+        // Modo de execução: "bloqueante" (uma thread por cliente, padrão), "virtual" (uma virtual thread
+        // por cliente, requer Java 21) ou "nio" (selector + pool de workers)
+        String modo = args.length > 0 ? args[0] : System.getProperty("pix.servidor.modo", "bloqueante");
 
-            String ipAddress = findServerIpAddress();
-            if (ipAddress != null) {
-                System.out.println("Endereço IPv4 do Servidor: " + ipAddress);
+        try {
+            if (modo.equals("nio")) {
+                NioServer nioServer = new NioServer(port, codec);
+                anunciarInicio(port, modo);
+                nioServer.iniciar();
+            } else if (modo.equals("virtual")) {
+                iniciarBloqueante(port, "virtual", newVirtualThreadExecutor(), newVirtualThreadExecutor(), codec);
             } else {
-                 System.out.println("Não foi possível determinar o endereço IPv4 local.");
+                iniciarBloqueante(port, "bloqueante", Executors.newCachedThreadPool(), Executors.newCachedThreadPool(), codec);
             }
+        } catch (IOException e) {
+            System.err.println("Erro ao iniciar o servidor na porta " + port + ": " + e.getMessage());
+        } finally {
+             scanner.close();
+        }
+    }
 
-            System.out.println("Servidor iniciado na porta " + port);
-            System.out.println("Aguardando conexões de clientes...");
+    /**
+     * @param pool     threads das conexões, uma por cliente.
+     * @param pipeline threads das requisições com 'id'. Separado do pool, como no {@link NioServer}:
+     *                 a thread da conexão espera por essas requisições (RequestPipeline.aguardar) e
+     *                 não pode ficar na fila atrás delas.
+     */
+    private static void iniciarBloqueante(int port, String modo, ExecutorService pool, ExecutorService pipeline,
+                                          JsonCodec codec) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            anunciarInicio(port, modo);
 
             while (true) {
                 Socket clientSocket = serverSocket.accept();
                 System.out.println("Cliente conectado: " + clientSocket.getInetAddress().getHostAddress());
-                pool.submit(new ClientHandler(clientSocket));
+                pool.submit(new ClientHandler(clientSocket, codec, pipeline));
             }
-        } catch (IOException e) {
-            System.err.println("Erro ao iniciar o servidor na porta " + port + ": " + e.getMessage());
         } finally {
-             scanner.close();
              pool.shutdown();
+             pipeline.shutdown();
+        }
+    }
+
+    // Obtido por reflexão para que o projeto continue compilando com alvo 1.8 fora do perfil java21
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads indisponíveis nesta JVM (requer Java 21). Usando pool de threads convencional.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static void anunciarInicio(int port, String modo) {
+        String ipAddress = findServerIpAddress();
+        if (ipAddress != null) {
+            System.out.println("Endereço IPv4 do Servidor: " + ipAddress);
+        } else {
+             System.out.println("Não foi possível determinar o endereço IPv4 local.");
         }
+
+        System.out.println("Servidor iniciado na porta " + port + " (modo " + modo + ")");
+        System.out.println("Aguardando conexões de clientes...");
     }
     
     private static String findServerIpAddress() {
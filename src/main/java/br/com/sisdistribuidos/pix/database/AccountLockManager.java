@@ -0,0 +1,98 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks por conta (CPF) para as operações que alteram saldo. Em vez de um lock por CPF, um
+ * número fixo de faixas (striping): cada CPF cai sempre na mesma faixa, e CPFs diferentes
+ * podem dividir uma faixa sem prejuízo para a correção.
+ * <p>
+ * As faixas de uma operação são sempre adquiridas em ordem crescente de índice, então duas
+ * operações que disputam as mesmas contas nunca esperam uma pela outra em ciclo (deadlock).
+ * Operações em contas de faixas disjuntas seguem em paralelo.
+ */
+public class AccountLockManager {
+
+    private final ReentrantLock[] faixas;
+    private final int mascara;
+
+    /**
+     * @param numeroFaixas pelo menos 1, arredondado para a próxima potência de 2.
+     */
+    public AccountLockManager(int numeroFaixas) {
+        int tamanho = potenciaDe2(numeroFaixas);
+        this.faixas = new ReentrantLock[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            faixas[i] = new ReentrantLock();
+        }
+        this.mascara = tamanho - 1;
+    }
+
+    public static AccountLockManager fromSystemProperties() {
+        return new AccountLockManager(Integer.getInteger("pix.contas.faixasLock", 1024));
+    }
+
+    /**
+     * Bloqueia as contas informadas (repetições são ignoradas) e devolve o bloqueio, que deve
+     * ser liberado com {@link Bloqueio#liberar()} em um bloco finally.
+     */
+    public Bloqueio bloquear(Cpf... cpfs) {
+        return bloquear(Arrays.asList(cpfs));
+    }
+
+    public Bloqueio bloquear(Collection<Cpf> cpfs) {
+        int[] indices = new int[cpfs.size()];
+        int n = 0;
+        for (Cpf cpf : cpfs) {
+            indices[n++] = faixa(cpf);
+        }
+        Arrays.sort(indices);
+
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintas == 0 || indices[i] != indices[distintas - 1]) {
+                indices[distintas++] = indices[i];
+            }
+        }
+        for (int i = 0; i < distintas; i++) {
+            faixas[indices[i]].lock();
+        }
+        return new Bloqueio(indices, distintas);
+    }
+
+    public int getNumeroFaixas() {
+        return faixas.length;
+    }
+
+    // Menor potência de 2 maior ou igual ao número de faixas pedido
+    static int potenciaDe2(int numeroFaixas) {
+        if (numeroFaixas < 1) {
+            throw new IllegalArgumentException("O número de faixas deve ser pelo menos 1: " + numeroFaixas);
+        }
+        return numeroFaixas == 1 ? 1 : Integer.highestOneBit(numeroFaixas - 1) << 1;
+    }
+
+    private int faixa(Cpf cpf) {
+        int h = cpf.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    public final class Bloqueio {
+        private final int[] indices;
+        private final int quantidade;
+
+        private Bloqueio(int[] indices, int quantidade) {
+            this.indices = indices;
+            this.quantidade = quantidade;
+        }
+
+        public void liberar() {
+            for (int i = quantidade - 1; i >= 0; i--) {
+                faixas[indices[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Onde ficam os saldos das contas: na coluna usuario.saldo_centavos ({@link SqliteBalanceStore},
+ * o padrão) ou em memória ({@link InMemoryBalanceEngine}, com pix.saldos.motor=memoria).
+ * <p>
+ * Os métodos "ComConexao" só podem ser chamados de dentro de uma tarefa de escrita
+ * ({@link DatabaseManager#executarEscrita(WriteTask)}) e são desfeitos junto com ela.
+ */
+public interface BalanceStore {
+
+    /**
+     * Fora de uma tarefa de escrita. No {@link SqliteBalanceStore} vê só o que já foi confirmado;
+     * no {@link InMemoryBalanceEngine} pode ver também um lançamento cujo commit ainda está em
+     * andamento e que ainda pode ser desfeito (leitura não confirmada). Decisões sobre o saldo
+     * devem ser tomadas com a conta bloqueada no {@link AccountLockManager} e conferidas de novo
+     * na tarefa de escrita.
+     *
+     * @return o saldo em centavos, ou null se a conta não existe.
+     */
+    Long ler(Cpf cpf) throws SQLException;
+
+    /**
+     * Como {@link #ler(Cpf)}, vendo também o que a transação corrente já alterou.
+     */
+    Long lerComConexao(Connection conn, Cpf cpf) throws SQLException;
+
+    /**
+     * @return false se a conta não existe ou o saldo é insuficiente; nesse caso nada muda.
+     */
+    boolean debitarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException;
+
+    /**
+     * @return false se a conta não existe.
+     */
+    boolean creditarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException;
+
+    /**
+     * Grava o saldo já calculado pelo chamador (lotes, que acumulam os saldos antes de gravar).
+     */
+    void definirComConexao(Connection conn, Cpf cpf, long saldoCentavos) throws SQLException;
+
+    /** A conta acabou de ser inserida na tabela usuario, com o saldo informado. */
+    void contaCriadaComConexao(Connection conn, Cpf cpf, long saldoCentavos) throws SQLException;
+
+    /** A conta e as suas transações acabaram de ser removidas (ver {@link UsuarioDAO#deletar(Cpf)}). */
+    void contaRemovidaComConexao(Connection conn, Cpf cpf) throws SQLException;
+}
@@ -0,0 +1,242 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool limitado de conexões JDBC.
+ * As conexões entregues são proxies: chamar {@code close()} devolve a conexão física ao pool
+ * (desfazendo qualquer transação em aberto) em vez de fechá-la.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final Properties propriedades;
+    private final int tamanhoMaximo;
+    private final int minimoOcioso;
+    private final long timeoutAquisicaoMillis;
+    private final long tempoMaximoOciosoNanos;
+    private final boolean validarAoEmprestar;
+
+    private final Semaphore permissoes;
+    // Usada como pilha (LIFO) para reaproveitar as conexões mais recentes; as antigas ficam no fim e expiram
+    private final LinkedBlockingDeque<ConexaoOciosa> ociosas = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService limpeza;
+
+    private final AtomicInteger totalAbertas = new AtomicInteger();
+    private final AtomicInteger emUso = new AtomicInteger();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public ConnectionPool(String url, Properties propriedades, int tamanhoMaximo, int minimoOcioso,
+                          long timeoutAquisicaoMillis, long tempoMaximoOciosoMillis, boolean validarAoEmprestar) {
+        this.url = url;
+        this.propriedades = propriedades;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.minimoOcioso = minimoOcioso;
+        this.timeoutAquisicaoMillis = timeoutAquisicaoMillis;
+        this.tempoMaximoOciosoNanos = TimeUnit.MILLISECONDS.toNanos(tempoMaximoOciosoMillis);
+        this.validarAoEmprestar = validarAoEmprestar;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-db-pool-limpeza");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(1000L, tempoMaximoOciosoMillis / 2);
+        limpeza.scheduleWithFixedDelay(this::removerOciosas, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection emprestar() throws SQLException {
+        try {
+            if (!permissoes.tryAcquire(timeoutAquisicaoMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Tempo esgotado aguardando uma conexão livre no pool (máximo " + tamanhoMaximo + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando uma conexão do pool.", e);
+        }
+
+        try {
+            Connection fisica = null;
+            ConexaoOciosa ociosa;
+            while (fisica == null && (ociosa = ociosas.pollFirst()) != null) {
+                if (!validarAoEmprestar || ociosa.conexao.isValid(1)) {
+                    fisica = ociosa.conexao;
+                } else {
+                    descartar(ociosa.conexao);
+                }
+            }
+            if (fisica == null) {
+                fisica = DriverManager.getConnection(url, propriedades);
+                totalAbertas.incrementAndGet();
+                criadas.incrementAndGet();
+            }
+            emprestimos.incrementAndGet();
+            emUso.incrementAndGet();
+            return envolver(fisica);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    private void devolver(Connection fisica) {
+        try {
+            if (!fisica.isClosed()) {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+                ociosas.offerFirst(new ConexaoOciosa(fisica, System.nanoTime()));
+            } else {
+                totalAbertas.decrementAndGet();
+                descartadas.incrementAndGet();
+            }
+        } catch (SQLException e) {
+            descartar(fisica);
+        } finally {
+            emUso.decrementAndGet();
+            permissoes.release();
+        }
+    }
+
+    private void removerOciosas() {
+        long agora = System.nanoTime();
+        ConexaoOciosa ociosa;
+        while (ociosas.size() > minimoOcioso && (ociosa = ociosas.pollLast()) != null) {
+            if (agora - ociosa.devolvidaEm < tempoMaximoOciosoNanos) {
+                ociosas.offerLast(ociosa);
+                break;
+            }
+            descartar(ociosa.conexao);
+        }
+    }
+
+    private void descartar(Connection fisica) {
+        totalAbertas.decrementAndGet();
+        descartadas.incrementAndGet();
+        try {
+            fisica.close();
+        } catch (SQLException e) { /* Ignorar */ }
+    }
+
+    public void fechar() {
+        limpeza.shutdownNow();
+        ConexaoOciosa ociosa;
+        while ((ociosa = ociosas.pollFirst()) != null) {
+            descartar(ociosa.conexao);
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(totalAbertas.get(), emUso.get(), ociosas.size(), criadas.get(),
+                                emprestimos.get(), descartadas.get(), timeouts.get());
+    }
+
+    private Connection envolver(Connection fisica) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new ConexaoEmprestada(fisica));
+    }
+
+    private final class ConexaoEmprestada implements InvocationHandler {
+        private final Connection fisica;
+        private boolean devolvida = false;
+
+        ConexaoEmprestada(Connection fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!devolvida) {
+                        devolvida = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devolvida || fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexaoEmprestada[" + fisica + "]";
+                default:
+                    if (devolvida) {
+                        throw new SQLException("Conexão já devolvida ao pool.");
+                    }
+                    try {
+                        return method.invoke(fisica, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private static final class ConexaoOciosa {
+        final Connection conexao;
+        final long devolvidaEm;
+
+        ConexaoOciosa(Connection conexao, long devolvidaEm) {
+            this.conexao = conexao;
+            this.devolvidaEm = devolvidaEm;
+        }
+    }
+
+    public static final class Estatisticas {
+        private final int abertas;
+        private final int emUso;
+        private final int ociosas;
+        private final long criadas;
+        private final long emprestimos;
+        private final long descartadas;
+        private final long timeouts;
+
+        Estatisticas(int abertas, int emUso, int ociosas, long criadas, long emprestimos, long descartadas, long timeouts) {
+            this.abertas = abertas;
+            this.emUso = emUso;
+            this.ociosas = ociosas;
+            this.criadas = criadas;
+            this.emprestimos = emprestimos;
+            this.descartadas = descartadas;
+            this.timeouts = timeouts;
+        }
+
+        public int getAbertas() { return abertas; }
+        public int getEmUso() { return emUso; }
+        public int getOciosas() { return ociosas; }
+        public long getCriadas() { return criadas; }
+        public long getEmprestimos() { return emprestimos; }
+        public long getDescartadas() { return descartadas; }
+        public long getTimeouts() { return timeouts; }
+
+        @Override
+        public String toString() {
+            return "Pool{abertas=" + abertas + ", emUso=" + emUso + ", ociosas=" + ociosas +
+                   ", criadas=" + criadas + ", emprestimos=" + emprestimos +
+                   ", descartadas=" + descartadas + ", timeouts=" + timeouts + '}';
+        }
+    }
+}
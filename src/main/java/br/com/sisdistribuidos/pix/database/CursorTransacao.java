@@ -0,0 +1,47 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posição no extrato para a paginação por chave (keyset): a última transação entregue,
+ * identificada por (criado_em, id). A próxima página começa logo depois dela na ordem
+ * "criado_em DESC, id DESC", sem OFFSET. Para o cliente o cursor é um texto opaco.
+ */
+public class CursorTransacao {
+
+    private static final char SEPARADOR = '|';
+
+    private final String criadoEm;
+    private final String id;
+
+    public CursorTransacao(String criadoEm, String id) {
+        this.criadoEm = criadoEm;
+        this.id = id;
+    }
+
+    public String getCriadoEm() {
+        return criadoEm;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String codificar() {
+        String bruto = criadoEm + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o texto não for um cursor gerado pelo servidor.
+     */
+    public static CursorTransacao decodificar(String cursor) {
+        String bruto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separador = bruto.indexOf(SEPARADOR);
+        if (separador <= 0 || separador == bruto.length() - 1) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+        return new CursorTransacao(bruto.substring(0, separador), bruto.substring(separador + 1));
+    }
+}
@@ -1,61 +1,459 @@
 package br.com.sisdistribuidos.pix.database;
 
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.sqlite.SQLiteConfig;
 
 public class DatabaseManager {
 
     private static final String DB_URL = "jdbc:sqlite:pix_database.db";
     
     private static volatile boolean tablesInitialized = false;
+    // ReentrantLock em vez de synchronized: bloquear uma virtual thread em JDBC dentro de um
+    // monitor a prenderia (pinning) à thread carregadora
+    private static final ReentrantLock initLock = new ReentrantLock();
 
-    public static Connection getConnection() throws SQLException {
+    private static final StorageConfig storageConfig = StorageConfig.fromSystemProperties();
+    // Conexões somente leitura; todas as escritas passam pelo escritor único
+    private static final ConnectionPool pool;
+    private static volatile DatabaseWriter writer;
+    // Lidos do journal na abertura e reaplicados depois das migrações
+    private static List<RegistroJournal> registrosRecuperados = Collections.emptyList();
+    private static final UsuarioCache usuarioCache = UsuarioCache.fromSystemProperties();
+    // Coluna saldo_centavos (padrão) ou motor em memória; definido na inicialização
+    private static volatile BalanceStore saldos;
+    private static InMemoryBalanceEngine motorDeSaldos;
+
+    static {
         try {
             Class.forName("org.sqlite.JDBC");
-            return DriverManager.getConnection(DB_URL); 
         } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver do SQLite não encontrado.", e); 
+            throw new ExceptionInInitializerError("Driver do SQLite não encontrado.");
+        }
+        pool = new ConnectionPool(DB_URL, storageConfig.propriedadesLeitura(),
+                                  Integer.getInteger("pix.db.pool.tamanhoMaximo", 10),
+                                  Integer.getInteger("pix.db.pool.minimoOcioso", 1),
+                                  Long.getLong("pix.db.pool.timeoutAquisicaoMs", 5000L),
+                                  Long.getLong("pix.db.pool.tempoOciosoMs", 60000L),
+                                  Boolean.parseBoolean(System.getProperty("pix.db.pool.validarAoEmprestar", "true")));
+    }
+
+    /**
+     * Empresta uma conexão somente leitura do pool. Deve ser fechada (try-with-resources) para ser devolvida.
+     * Para alterar dados use {@link #executarEscrita(WriteTask)}.
+     */
+    public static Connection getConnection() throws SQLException {
+        return pool.emprestar();
+    }
+
+    /**
+     * Executa a tarefa na thread de escrita, dentro de uma transação, e aguarda o commit.
+     */
+    public static <T> T executarEscrita(WriteTask<T> tarefa) throws SQLException {
+        DatabaseWriter atual = writer;
+        if (atual == null) {
+            throw new SQLException("Banco de dados não inicializado.");
+        }
+        return atual.executar(tarefa);
+    }
+
+    /**
+     * Agenda a ação para depois do commit da tarefa de escrita corrente (ver
+     * {@link DatabaseWriter#aposCommit(Runnable)}); fora de uma tarefa, roda na hora.
+     */
+    public static void aposCommit(Runnable acao) {
+        DatabaseWriter atual = writer;
+        if (atual == null) {
+            acao.run();
+        } else {
+            atual.aposCommit(acao);
+        }
+    }
+
+    /**
+     * Dentro de uma tarefa de escrita, registra como desfazer uma alteração em memória caso a
+     * tarefa ou o lote seja desfeito (ver {@link DatabaseWriter#aoDesfazer(Runnable)}).
+     */
+    public static void aoDesfazer(Runnable acao) {
+        DatabaseWriter atual = writer;
+        if (atual == null) {
+            throw new IllegalStateException("Banco de dados não inicializado.");
+        }
+        atual.aoDesfazer(acao);
+    }
+
+    /**
+     * Dentro de uma tarefa de escrita, registra no journal (se ativo) a transferência gravada por ela.
+     */
+    public static void registrarTransferencia(Transacao transacao) {
+        DatabaseWriter atual = writer;
+        if (atual != null && atual.isJournalAtivo()) {
+            atual.registrar(RegistroJournal.transferencia(transacao));
+        }
+    }
+
+    /**
+     * Dentro de uma tarefa de escrita, registra no journal (se ativo) o depósito gravado por ela.
+     */
+    public static void registrarDeposito(Transacao transacao) {
+        DatabaseWriter atual = writer;
+        if (atual != null && atual.isJournalAtivo()) {
+            atual.registrar(RegistroJournal.deposito(transacao));
+        }
+    }
+
+    /**
+     * Dentro de uma tarefa de escrita, registra no journal (se ativo) a exclusão da conta e das suas transações.
+     */
+    public static void registrarExclusao(Cpf cpf) {
+        DatabaseWriter atual = writer;
+        if (atual != null && atual.isJournalAtivo()) {
+            atual.registrar(RegistroJournal.exclusao(cpf));
+        }
+    }
+
+    public static BalanceStore getSaldos() {
+        return saldos;
+    }
+
+    /** @return o motor de saldos em memória, ou null com os saldos no banco. */
+    public static InMemoryBalanceEngine getMotorDeSaldos() {
+        return motorDeSaldos;
+    }
+
+    public static UsuarioCache getUsuarioCache() {
+        return usuarioCache;
+    }
+
+    public static ConnectionPool.Estatisticas getPoolEstatisticas() {
+        return pool.getEstatisticas();
+    }
+
+    public static void initialize() throws SQLException {
+        initLock.lock();
+        try {
+            if (!tablesInitialized) {
+                try {
+                    if (writer == null) {
+                        LedgerJournal journal = criarJournal();
+                        registrosRecuperados = journal != null ? abrirJournal(journal) : Collections.emptyList();
+                        Connection conexaoEscrita = DriverManager.getConnection(DB_URL, storageConfig.propriedadesEscrita());
+                        writer = new DatabaseWriter(conexaoEscrita, journal,
+                                                    Integer.getInteger("pix.db.escritor.capacidadeFila", 10_000),
+                                                    Integer.getInteger("pix.db.escritor.maxLote", 256),
+                                                    Long.getLong("pix.db.escritor.janelaMicros", 200L));
+                        System.out.println("Armazenamento configurado: " + storageConfig);
+                        motorDeSaldos = InMemoryBalanceEngine.fromSystemProperties();
+                        saldos = motorDeSaldos != null ? motorDeSaldos : new SqliteBalanceStore();
+                    }
+                    aplicarMigracoes();
+                    if (writer.isJournalAtivo()) {
+                        reaplicarJournal();
+                    }
+                    consolidarSaldos();
+                    if (motorDeSaldos != null) {
+                        motorDeSaldos.iniciarSnapshots(Long.getLong("pix.saldos.snapshotSegundos", 60L));
+                    }
+                    tablesInitialized = true;
+                    System.out.println("Banco de dados inicializado com sucesso.");
+                } catch (SQLException e) {
+                    System.err.println("Falha na inicialização do banco de dados: " + e.getMessage());
+                    throw e;
+                }
+            }
+        } finally {
+            initLock.unlock();
         }
     }
 
-    public static synchronized void initialize() throws SQLException {
-        if (!tablesInitialized) {
-            try (Connection conn = getConnection()) {
-                createTables(conn);
-                tablesInitialized = true;
-                System.out.println("Banco de dados inicializado com sucesso.");
-            } catch (SQLException e) {
-                System.err.println("Falha na inicialização do banco de dados: " + e.getMessage());
-                throw e;
+    private static LedgerJournal criarJournal() {
+        // Sem sincronização no checkpoint, o banco pode perder o que já saiu do journal
+        boolean descartarSegmentos = storageConfig.getSynchronous() != SQLiteConfig.SynchronousMode.OFF;
+        LedgerJournal journal = LedgerJournal.fromSystemProperties(descartarSegmentos);
+        if (journal != null && !descartarSegmentos) {
+            System.err.println("Aviso: com pix.db.synchronous=OFF os segmentos do journal nunca são descartados.");
+        }
+        return journal;
+    }
+
+    private static List<RegistroJournal> abrirJournal(LedgerJournal journal) throws SQLException {
+        try {
+            return journal.abrir();
+        } catch (IOException e) {
+            throw new SQLException("Falha ao abrir o journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reaplica os lançamentos do journal que não chegaram ao banco (queda entre o journal e o commit,
+     * ou commit ainda não sincronizado). Um lançamento já aplicado é reconhecido pelo id da transação;
+     * os anulados (commit com falha) são ignorados. O commit desta tarefa libera o descarte dos
+     * segmentos antigos. Se a execução anterior usou o motor de saldos em memória, só as linhas
+     * de transacao são inseridas: {@link #consolidarSaldos()} as aplica junto com as demais.
+     * Lançamentos anteriores à exclusão de uma das contas também são ignorados: foram apagados
+     * com ela, e a conta pode ter sido criada de novo depois.
+     */
+    private static void reaplicarJournal() throws SQLException {
+        List<RegistroJournal> registros = registrosRecuperados;
+        registrosRecuperados = Collections.emptyList();
+
+        List<long[]> anulados = new ArrayList<>();
+        for (RegistroJournal registro : registros) {
+            if (registro.tipo == RegistroJournal.ANULACAO) {
+                anulados.add(new long[] { registro.primeiraAnulada(), registro.ultimaAnulada() });
+            }
+        }
+        // Última exclusão confirmada de cada conta (CPF -> sequência)
+        Map<Long, Long> exclusoes = new HashMap<>();
+        for (RegistroJournal registro : registros) {
+            if (registro.tipo == RegistroJournal.EXCLUSAO && !anulado(anulados, registro.sequencia)) {
+                exclusoes.put(registro.cpfExcluido(), registro.sequencia);
+            }
+        }
+
+        UsuarioDAO usuarioDao = new UsuarioDAO();
+        TransacaoDAO transacaoDao = new TransacaoDAO();
+        int[] contagem = new int[2]; // reaplicados, ignorados
+        executarEscrita(conn -> {
+            boolean soTransacoes = lerMarcadorDeSaldos(conn) != null;
+            for (RegistroJournal registro : registros) {
+                if (registro.tipo == RegistroJournal.ANULACAO || registro.tipo == RegistroJournal.EXCLUSAO
+                        || anulado(anulados, registro.sequencia)) continue;
+                if (excluidaDepois(exclusoes, registro.cpfEnviador, registro.sequencia)
+                        || excluidaDepois(exclusoes, registro.cpfRecebedor, registro.sequencia)) {
+                    contagem[1]++;
+                    continue;
+                }
+                Transacao transacao = registro.paraTransacao();
+                if (transacaoDao.existeComConexao(conn, transacao.getId())) continue;
+
+                Cpf enviador = transacao.getCpfEnviador();
+                Cpf recebedor = transacao.getCpfRecebedor();
+                if (usuarioDao.lerComConexao(conn, enviador) == null || usuarioDao.lerComConexao(conn, recebedor) == null) {
+                    contagem[1]++; // Conta removida (sem registro de exclusão no journal)
+                    continue;
+                }
+                long valor = transacao.getValorCentavos();
+                if (soTransacoes) {
+                    transacaoDao.criarComConexao(conn, transacao);
+                    contagem[0]++;
+                    continue;
+                }
+                if (registro.tipo == RegistroJournal.TRANSFERENCIA) {
+                    // Sem a condição de saldo: o lançamento já foi aceito antes da queda
+                    usuarioDao.creditarComConexao(conn, enviador, -valor);
+                }
+                usuarioDao.creditarComConexao(conn, recebedor, valor);
+                transacaoDao.criarComConexao(conn, transacao);
+                contagem[0]++;
+            }
+            return null;
+        });
+        if (!registros.isEmpty()) {
+            System.out.println("Journal: " + registros.size() + " registros lidos, " + contagem[0] +
+                               " lançamentos reaplicados, " + contagem[1] + " ignorados (conta inexistente).");
+        }
+    }
+
+    /**
+     * Põe a coluna usuario.saldo_centavos em dia com as transações gravadas depois do último
+     * snapshot do motor em memória (se a execução anterior o usou) e descarta o marcador. Com o
+     * motor ativo, carrega os saldos em memória e grava um marcador novo na mesma transação.
+     * As linhas posteriores a um marcador sempre têm o tipo: um depósito e uma transferência
+     * para si mesmo têm os mesmos CPFs, mas só a transferência debita o enviador.
+     */
+    private static void consolidarSaldos() throws SQLException {
+        InMemoryBalanceEngine motor = motorDeSaldos;
+        int[] reaplicadas = {0};
+        executarEscrita(conn -> {
+            Long marcador = lerMarcadorDeSaldos(conn);
+            if (marcador != null) {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM transacao WHERE rowid > ?")) {
+                    stmt.setLong(1, marcador);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        reaplicadas[0] = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE usuario SET saldo_centavos = saldo_centavos " +
+                        "+ COALESCE((SELECT SUM(valor_centavos) FROM transacao WHERE rowid > ? AND cpf_recebedor = usuario.cpf), 0) " +
+                        "- COALESCE((SELECT SUM(valor_centavos) FROM transacao WHERE rowid > ? AND cpf_enviador = usuario.cpf AND tipo = ?), 0) " +
+                        "WHERE cpf IN (SELECT cpf_recebedor FROM transacao WHERE rowid > ? UNION SELECT cpf_enviador FROM transacao WHERE rowid > ?)")) {
+                    stmt.setLong(1, marcador);
+                    stmt.setLong(2, marcador);
+                    stmt.setString(3, Transacao.TIPO_TRANSFERENCIA);
+                    stmt.setLong(4, marcador);
+                    stmt.setLong(5, marcador);
+                    stmt.executeUpdate();
+                }
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("DELETE FROM saldo_snapshot");
+                }
             }
+            if (motor != null) {
+                motor.carregarComConexao(conn);
+                motor.gravarSnapshotComConexao(conn);
+            }
+            return null;
+        });
+        if (reaplicadas[0] > 0) {
+            System.out.println("Saldos: " + reaplicadas[0] + " transações posteriores ao último snapshot reaplicadas.");
+        }
+    }
+
+    private static Long lerMarcadorDeSaldos(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT ultima_transacao FROM saldo_snapshot WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    private static boolean excluidaDepois(Map<Long, Long> exclusoes, long cpf, long sequencia) {
+        Long exclusao = exclusoes.get(cpf);
+        return exclusao != null && exclusao > sequencia;
+    }
+
+    private static boolean anulado(List<long[]> anulados, long sequencia) {
+        for (long[] intervalo : anulados) {
+            if (sequencia >= intervalo[0] && sequencia <= intervalo[1]) return true;
         }
+        return false;
     }
 
-    private static void createTables(Connection conn) throws SQLException {
-        try (Statement statement = conn.createStatement()) {
-            String createUsuarioTable = "CREATE TABLE IF NOT EXISTS usuario (" +
-                                        "cpf VARCHAR(255) PRIMARY KEY," +
-                                        "nome VARCHAR(255) NOT NULL," +
-                                        "senha VARCHAR(255) NOT NULL," +
-                                        "saldo REAL NOT NULL" + 
-                                        ")";
-            statement.execute(createUsuarioTable);
-            System.out.println("Tabela 'usuario' criada ou já existente.");
-
-            String createTransacaoTable =   "CREATE TABLE IF NOT EXISTS transacao (" +
-                                            "id VARCHAR(255) PRIMARY KEY," +
-                                            "valor REAL NOT NULL," +
-                                            "cpf_enviador VARCHAR(255) NOT NULL," +
-                                            "cpf_recebedor VARCHAR(255) NOT NULL," +
-                                            "criado_em VARCHAR(255) NOT NULL," +
-                                            "atualizado_em VARCHAR(255) NOT NULL," +
-                                            "FOREIGN KEY (cpf_enviador) REFERENCES usuario(cpf) ON DELETE CASCADE," +
-                                            "FOREIGN KEY (cpf_recebedor) REFERENCES usuario(cpf) ON DELETE CASCADE" +
-                                            ")";
-            statement.execute(createTransacaoTable);
-            System.out.println("Tabela 'transacao' criada ou já existente.");
-        }
-    }
-}
\ No newline at end of file
+    private static void aplicarMigracoes() throws SQLException {
+        int versaoAtual = executarEscrita(conn -> {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS schema_versao (" +
+                                  "versao INTEGER PRIMARY KEY," +
+                                  "descricao VARCHAR(255) NOT NULL," +
+                                  "aplicada_em VARCHAR(255) NOT NULL" +
+                                  ")");
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(versao), 0) FROM schema_versao")) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        });
+
+        for (Migracao migracao : MIGRACOES) {
+            if (migracao.versao <= versaoAtual) continue;
+            // Cada migração em sua própria transação: uma falha preserva as versões anteriores
+            executarEscrita(conn -> {
+                try (Statement statement = conn.createStatement()) {
+                    for (String sql : migracao.comandos) {
+                        statement.execute(sql);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO schema_versao (versao, descricao, aplicada_em) VALUES (?, ?, ?)")) {
+                    stmt.setInt(1, migracao.versao);
+                    stmt.setString(2, migracao.descricao);
+                    stmt.setString(3, Instant.now().toString());
+                    stmt.executeUpdate();
+                }
+                return null;
+            });
+            System.out.println("Migração de esquema " + migracao.versao + " aplicada: " + migracao.descricao);
+        }
+    }
+
+    // Versões do esquema, aplicadas em ordem na inicialização. Nunca altere uma migração já
+    // publicada: adicione uma nova com o próximo número de versão.
+    private static final List<Migracao> MIGRACOES = Arrays.asList(
+        new Migracao(1, "Tabelas usuario e transacao",
+            // IF NOT EXISTS: bancos criados antes do controle de versão já possuem as tabelas
+            "CREATE TABLE IF NOT EXISTS usuario (" +
+            "cpf VARCHAR(255) PRIMARY KEY," +
+            "nome VARCHAR(255) NOT NULL," +
+            "senha VARCHAR(255) NOT NULL," +
+            "saldo REAL NOT NULL" + 
+            ")",
+            "CREATE TABLE IF NOT EXISTS transacao (" +
+            "id VARCHAR(255) PRIMARY KEY," +
+            "valor REAL NOT NULL," +
+            "cpf_enviador VARCHAR(255) NOT NULL," +
+            "cpf_recebedor VARCHAR(255) NOT NULL," +
+            "criado_em VARCHAR(255) NOT NULL," +
+            "atualizado_em VARCHAR(255) NOT NULL," +
+            "FOREIGN KEY (cpf_enviador) REFERENCES usuario(cpf) ON DELETE CASCADE," +
+            "FOREIGN KEY (cpf_recebedor) REFERENCES usuario(cpf) ON DELETE CASCADE" +
+            ")"),
+        new Migracao(2, "Índices do extrato por CPF e data",
+            "CREATE INDEX IF NOT EXISTS idx_transacao_enviador_data ON transacao (cpf_enviador, criado_em)",
+            "CREATE INDEX IF NOT EXISTS idx_transacao_recebedor_data ON transacao (cpf_recebedor, criado_em)"),
+        new Migracao(3, "Saldo e valor em centavos (INTEGER) no lugar de REAL",
+            "ALTER TABLE usuario ADD COLUMN saldo_centavos INTEGER NOT NULL DEFAULT 0",
+            "UPDATE usuario SET saldo_centavos = CAST(ROUND(saldo * 100) AS INTEGER)",
+            "ALTER TABLE usuario DROP COLUMN saldo",
+            "ALTER TABLE transacao ADD COLUMN valor_centavos INTEGER NOT NULL DEFAULT 0",
+            "UPDATE transacao SET valor_centavos = CAST(ROUND(valor * 100) AS INTEGER)",
+            "ALTER TABLE transacao DROP COLUMN valor"),
+        new Migracao(4, "Tipo da transação e marcador do snapshot de saldos em memória",
+            "ALTER TABLE transacao ADD COLUMN tipo VARCHAR(20)",
+            // Nas linhas antigas um depósito não se distingue de uma transferência para si mesmo: ficam sem tipo
+            "UPDATE transacao SET tipo = 'transferencia' WHERE cpf_enviador <> cpf_recebedor",
+            "CREATE TABLE IF NOT EXISTS saldo_snapshot (" +
+            "id INTEGER PRIMARY KEY CHECK (id = 1)," +
+            "ultima_transacao INTEGER NOT NULL," +
+            "criado_em VARCHAR(255) NOT NULL" +
+            ")"),
+        // SQLite não altera o tipo de uma coluna nem a chave primária: as duas tabelas são recriadas.
+        // Com cpf INTEGER PRIMARY KEY a conta é a própria chave da árvore (rowid), sem índice à parte.
+        // As transações mantêm o rowid, que é o marcador do snapshot de saldos.
+        new Migracao(5, "CPF como INTEGER (11 dígitos) no lugar de texto formatado",
+            "CREATE TABLE usuario_nova (" +
+            "cpf INTEGER PRIMARY KEY," +
+            "nome VARCHAR(255) NOT NULL," +
+            "senha VARCHAR(255) NOT NULL," +
+            "saldo_centavos INTEGER NOT NULL DEFAULT 0" +
+            ")",
+            "INSERT INTO usuario_nova (cpf, nome, senha, saldo_centavos) " +
+            "SELECT CAST(REPLACE(REPLACE(cpf, '.', ''), '-', '') AS INTEGER), nome, senha, saldo_centavos FROM usuario",
+            "CREATE TABLE transacao_nova (" +
+            "id VARCHAR(255) PRIMARY KEY," +
+            "valor_centavos INTEGER NOT NULL DEFAULT 0," +
+            "cpf_enviador INTEGER NOT NULL," +
+            "cpf_recebedor INTEGER NOT NULL," +
+            "criado_em VARCHAR(255) NOT NULL," +
+            "atualizado_em VARCHAR(255) NOT NULL," +
+            "tipo VARCHAR(20)," +
+            "FOREIGN KEY (cpf_enviador) REFERENCES usuario(cpf) ON DELETE CASCADE," +
+            "FOREIGN KEY (cpf_recebedor) REFERENCES usuario(cpf) ON DELETE CASCADE" +
+            ")",
+            "INSERT INTO transacao_nova (rowid, id, valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em, tipo) " +
+            "SELECT rowid, id, valor_centavos, CAST(REPLACE(REPLACE(cpf_enviador, '.', ''), '-', '') AS INTEGER), " +
+            "CAST(REPLACE(REPLACE(cpf_recebedor, '.', ''), '-', '') AS INTEGER), criado_em, atualizado_em, tipo FROM transacao",
+            "DROP TABLE transacao",
+            "DROP TABLE usuario",
+            "ALTER TABLE usuario_nova RENAME TO usuario",
+            "ALTER TABLE transacao_nova RENAME TO transacao",
+            "CREATE INDEX idx_transacao_enviador_data ON transacao (cpf_enviador, criado_em)",
+            "CREATE INDEX idx_transacao_recebedor_data ON transacao (cpf_recebedor, criado_em)")
+    );
+
+    private static final class Migracao {
+        final int versao;
+        final String descricao;
+        final String[] comandos;
+
+        Migracao(int versao, String descricao, String... comandos) {
+            this.versao = versao;
+            this.descricao = descricao;
+            this.comandos = comandos;
+        }
+    }
+}
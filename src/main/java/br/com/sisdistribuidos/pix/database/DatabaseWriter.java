@@ -0,0 +1,339 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritor único do banco: uma thread dedicada é dona da única conexão de escrita e executa,
+ * em ordem de chegada, as tarefas enfileiradas pelas threads de atendimento. Com isso as
+ * escritas nunca disputam o lock do SQLite entre si (sem SQLITE_BUSY) e as leituras seguem
+ * em paralelo pelas conexões somente leitura do pool.
+ * <p>
+ * As tarefas são confirmadas em grupo (group commit): o escritor junta os pedidos que chegam
+ * dentro de uma pequena janela de tempo (ou até o tamanho máximo do lote) e os aplica em uma
+ * única transação, pagando um só commit pelo lote. Cada tarefa roda sob o seu próprio savepoint,
+ * então a falha de uma delas desfaz apenas as suas escritas e não derruba as demais.
+ * <p>
+ * Uma tarefa pode registrar ações para depois do commit ({@link #aposCommit(Runnable)}), como
+ * atualizar caches: elas rodam só se o lote for confirmado e a tarefa não tiver sido desfeita,
+ * e antes de a tarefa ser dada como concluída para quem a enfileirou. Do mesmo modo, uma tarefa
+ * que altera estado em memória junto com o banco registra como desfazê-lo
+ * ({@link #aoDesfazer(Runnable)}): as ações rodam, em ordem inversa, se a tarefa ou o lote for desfeito.
+ * <p>
+ * Com o {@link LedgerJournal} ativo, os registros das tarefas confirmadas de um lote são gravados
+ * no journal e forçados para o disco uma vez, antes do commit; se o commit falhar, um registro
+ * de anulação marca esse intervalo para não ser reaplicado na recuperação.
+ */
+public class DatabaseWriter {
+
+    private final Connection conexao;
+    private final LedgerJournal journal;
+    private final BlockingQueue<Pedido<?>> fila;
+    private final int tamanhoMaximoLote;
+    private final long janelaNanos;
+    private final Thread thread;
+    private volatile boolean ativo = true;
+    // Acessadas apenas pela thread de escrita
+    private final List<Runnable> acoesLote = new ArrayList<>();
+    private final List<Runnable> acoesItem = new ArrayList<>();
+    private final List<Runnable> desfazerLote = new ArrayList<>();
+    private final List<Runnable> desfazerItem = new ArrayList<>();
+    private final List<RegistroJournal> registrosLote = new ArrayList<>();
+    private final List<RegistroJournal> registrosItem = new ArrayList<>();
+
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong itens = new AtomicLong();
+    private final AtomicLong itensFalhos = new AtomicLong();
+
+    /**
+     * @param journal journal gravado antes de cada commit, ou null para usar só o SQLite.
+     */
+    public DatabaseWriter(Connection conexao, LedgerJournal journal, int capacidadeFila, int tamanhoMaximoLote,
+                          long janelaMicros) throws SQLException {
+        this.conexao = conexao;
+        this.journal = journal;
+        this.conexao.setAutoCommit(false);
+        this.fila = new LinkedBlockingQueue<>(capacidadeFila);
+        this.tamanhoMaximoLote = tamanhoMaximoLote;
+        this.janelaNanos = TimeUnit.MICROSECONDS.toNanos(janelaMicros);
+        this.thread = new Thread(this::executarLaco, "pix-db-escritor");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Enfileira a tarefa e aguarda a sua confirmação (commit) ou falha (rollback).
+     */
+    public <T> T executar(WriteTask<T> tarefa) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            // Chamada aninhada de dentro de outra tarefa: já estamos na transação corrente
+            return tarefa.executar(conexao);
+        }
+        if (!ativo) {
+            throw new SQLException("Escritor do banco de dados encerrado.");
+        }
+
+        Pedido<T> pedido = new Pedido<>(tarefa);
+        try {
+            fila.put(pedido);
+            return pedido.resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando a escrita no banco de dados.", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) throw (SQLException) causa;
+            if (causa instanceof RuntimeException) throw (RuntimeException) causa;
+            throw new SQLException("Falha na escrita: " + causa.getMessage(), causa);
+        }
+    }
+
+    /**
+     * Dentro de uma tarefa, agenda a ação para depois do commit do lote; descartada se a tarefa
+     * ou o lote falhar. Fora da thread de escrita não há transação em aberto: roda na hora.
+     */
+    public void aposCommit(Runnable acao) {
+        if (Thread.currentThread() == thread) {
+            acoesItem.add(acao);
+        } else {
+            acao.run();
+        }
+    }
+
+    /**
+     * Dentro de uma tarefa, registra como desfazer uma alteração feita fora do banco; roda se a
+     * tarefa ou o lote for desfeito (rollback), e é descartada após o commit.
+     */
+    public void aoDesfazer(Runnable acao) {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("Ações de desfazer só podem ser registradas por uma tarefa de escrita.");
+        }
+        desfazerItem.add(acao);
+    }
+
+    public boolean isJournalAtivo() {
+        return journal != null;
+    }
+
+    /**
+     * Dentro de uma tarefa, inclui o registro no journal do lote; descartado se a tarefa falhar.
+     */
+    void registrar(RegistroJournal registro) {
+        if (journal == null) return;
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("Registros do journal só podem ser incluídos por uma tarefa de escrita.");
+        }
+        registrosItem.add(registro);
+    }
+
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    public long getLotes() {
+        return lotes.get();
+    }
+
+    public long getItens() {
+        return itens.get();
+    }
+
+    public long getItensFalhos() {
+        return itensFalhos.get();
+    }
+
+    public void encerrar() {
+        ativo = false;
+        thread.interrupt();
+    }
+
+    private void executarLaco() {
+        List<Pedido<?>> lote = new ArrayList<>(tamanhoMaximoLote);
+        while (ativo) {
+            try {
+                lote.add(fila.take());
+                coletar(lote);
+            } catch (InterruptedException e) {
+                if (lote.isEmpty()) break;
+                ativo = false; // Ainda aplica o que já foi retirado da fila antes de sair
+            }
+            executarLote(lote);
+            lote.clear();
+        }
+        try {
+            conexao.close();
+        } catch (SQLException e) { /* Ignorar */ }
+        if (journal != null) {
+            journal.fechar();
+        }
+    }
+
+    // Junta os pedidos que chegarem até o fim da janela ou até completar o lote
+    private void coletar(List<Pedido<?>> lote) throws InterruptedException {
+        fila.drainTo(lote, tamanhoMaximoLote - lote.size());
+        long prazo = System.nanoTime() + janelaNanos;
+        while (lote.size() < tamanhoMaximoLote) {
+            long restante = prazo - System.nanoTime();
+            if (restante <= 0) break;
+            Pedido<?> pedido = fila.poll(restante, TimeUnit.NANOSECONDS);
+            if (pedido == null) break;
+            lote.add(pedido);
+            fila.drainTo(lote, tamanhoMaximoLote - lote.size());
+        }
+    }
+
+    private void executarLote(List<Pedido<?>> lote) {
+        long primeiraNoJournal = -1;
+        try {
+            for (Pedido<?> pedido : lote) {
+                executarItem(pedido);
+            }
+            // Só com o journal ativo (pix.journal.ativo=true); sem ele o lote vai direto ao commit
+            if (journal != null && !registrosLote.isEmpty()) {
+                primeiraNoJournal = journal.getProximaSequencia();
+                gravarNoJournal(registrosLote);
+            }
+            conexao.commit();
+            executarAcoesAposCommit();
+        } catch (SQLException e) {
+            // Falha do commit (ou da própria conexão): nada do lote foi gravado
+            try {
+                conexao.rollback();
+            } catch (SQLException ignored) {}
+            if (primeiraNoJournal >= 0) {
+                anularNoJournal(primeiraNoJournal);
+            }
+            desfazer(desfazerLote);
+            for (Pedido<?> pedido : lote) {
+                pedido.erro = e;
+            }
+        } finally {
+            acoesLote.clear();
+            desfazerLote.clear();
+            registrosLote.clear();
+        }
+        descartarSegmentosDoJournal();
+
+        lotes.incrementAndGet();
+        itens.addAndGet(lote.size());
+        for (Pedido<?> pedido : lote) {
+            if (pedido.erro != null) itensFalhos.incrementAndGet();
+            pedido.concluir();
+        }
+    }
+
+    private <T> void executarItem(Pedido<T> pedido) throws SQLException {
+        Savepoint savepoint = conexao.setSavepoint();
+        try {
+            pedido.valor = pedido.tarefa.executar(conexao);
+            conexao.releaseSavepoint(savepoint);
+            acoesLote.addAll(acoesItem);
+            desfazerLote.addAll(desfazerItem);
+            registrosLote.addAll(registrosItem);
+        } catch (Throwable e) {
+            desfazer(desfazerItem);
+            conexao.rollback(savepoint);
+            conexao.releaseSavepoint(savepoint);
+            pedido.erro = e;
+        } finally {
+            acoesItem.clear();
+            desfazerItem.clear();
+            registrosItem.clear();
+        }
+    }
+
+    private void gravarNoJournal(List<RegistroJournal> registros) throws SQLException {
+        try {
+            journal.gravar(registros);
+            // Um fsync a mais por lote, além do commit do SQLite: as respostas continuam esperando
+            // o commit, então o journal não acelera a confirmação, só permite recuperar um lote
+            // cujo commit não chegou ao disco. Por isso só existe com o journal ativado.
+            journal.forcar();
+        } catch (IOException | RuntimeException e) {
+            throw new SQLException("Falha ao gravar no journal: " + e.getMessage(), e);
+        }
+    }
+
+    // O que já foi gravado do lote pode ter chegado ao disco: marca o intervalo como não aplicado
+    private void anularNoJournal(long primeira) {
+        long ultima = journal.getProximaSequencia() - 1;
+        if (ultima < primeira) return;
+        try {
+            gravarNoJournal(Collections.singletonList(RegistroJournal.anulacao(primeira, ultima)));
+        } catch (SQLException e) {
+            System.err.println("Falha ao anular as sequências " + primeira + ".." + ultima + " no journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apaga os segmentos fechados do journal depois de um checkpoint completo: com todo o WAL
+     * copiado e sincronizado no arquivo do banco, o conteúdo deles não é mais necessário.
+     * PASSIVE para não esperar leitores; se o checkpoint ficar incompleto, tenta no próximo lote.
+     */
+    private void descartarSegmentosDoJournal() {
+        if (journal == null || !journal.temSegmentosFechados()) return;
+        try (Statement statement = conexao.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA wal_checkpoint(PASSIVE)")) {
+            // (busy, páginas no WAL, páginas copiadas); fora do modo WAL vem (0, -1, -1)
+            if (rs.next() && rs.getInt(1) == 0 && rs.getInt(2) == rs.getInt(3)) {
+                journal.descartarFechados();
+            }
+        } catch (SQLException e) {
+            System.err.println("Falha no checkpoint para descartar segmentos do journal: " + e.getMessage());
+        }
+    }
+
+    private void executarAcoesAposCommit() {
+        for (Runnable acao : acoesLote) {
+            try {
+                acao.run();
+            } catch (RuntimeException e) {
+                // O lote já foi gravado: uma ação com falha não pode desfazê-lo
+                System.err.println("Falha em ação após commit: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void desfazer(List<Runnable> acoes) {
+        for (int i = acoes.size() - 1; i >= 0; i--) {
+            try {
+                acoes.get(i).run();
+            } catch (RuntimeException e) {
+                System.err.println("Falha ao desfazer alteração em memória: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Pedido<T> {
+        final WriteTask<T> tarefa;
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+        // Preenchidos pela thread de escrita e publicados somente após o commit do lote
+        T valor;
+        Throwable erro;
+
+        Pedido(WriteTask<T> tarefa) {
+            this.tarefa = tarefa;
+        }
+
+        void concluir() {
+            if (erro != null) {
+                resultado.completeExceptionally(erro);
+            } else {
+                resultado.complete(valor);
+            }
+        }
+    }
+}
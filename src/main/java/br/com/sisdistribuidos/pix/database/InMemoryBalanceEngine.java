@@ -0,0 +1,257 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Saldos em memória (pix.saldos.motor=memoria): um {@link MapaSaldos} de CPF para centavos.
+ * <p>
+ * Só a thread de escrita do {@link DatabaseWriter} altera o mapa, de dentro das tarefas, então os
+ * lançamentos são aplicados um de cada vez, na ordem em que as linhas de transacao são gravadas,
+ * sem locks entre eles. Cada alteração registra como ser desfeita
+ * ({@link DatabaseManager#aoDesfazer(Runnable)}) caso a tarefa ou o commit do lote falhe. As
+ * leituras das threads de atendimento são otimistas (StampedLock): sem bloqueio, repetidas sob
+ * lock só se coincidirem com uma alteração. Uma leitura pode ver um lançamento cujo commit ainda
+ * está em andamento; a conferência de saldo antes de transferir não é afetada, pois acontece com
+ * a conta bloqueada no {@link AccountLockManager}.
+ * <p>
+ * Durabilidade: a tabela transacao é o log. A coluna usuario.saldo_centavos só é atualizada nos
+ * snapshots periódicos, que gravam as contas alteradas desde o anterior e, na mesma transação, a
+ * última linha de transacao já incluída (tabela saldo_snapshot). Na inicialização os lançamentos
+ * gravados depois do snapshot são reaplicados sobre a coluna antes de carregar o mapa (ver
+ * {@link DatabaseManager#initialize()}).
+ */
+public class InMemoryBalanceEngine implements BalanceStore {
+
+    private final MapaSaldos saldos;
+    private final StampedLock lock = new StampedLock();
+    // Contas alteradas desde o último snapshot; só a thread de escrita usa
+    private MapaSaldos alteradas = new MapaSaldos(1024);
+    private ScheduledExecutorService agendador;
+
+    private final AtomicLong lancamentos = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong contasGravadas = new AtomicLong();
+
+    public InMemoryBalanceEngine(int capacidadeInicial) {
+        this.saldos = new MapaSaldos(capacidadeInicial);
+    }
+
+    /**
+     * @return o motor configurado, ou null para manter os saldos no banco (pix.saldos.motor=banco, o padrão).
+     */
+    public static InMemoryBalanceEngine fromSystemProperties() {
+        String motor = System.getProperty("pix.saldos.motor", "banco");
+        if ("banco".equalsIgnoreCase(motor)) {
+            return null;
+        }
+        if (!"memoria".equalsIgnoreCase(motor)) {
+            throw new IllegalArgumentException("pix.saldos.motor deve ser 'banco' ou 'memoria': " + motor);
+        }
+        return new InMemoryBalanceEngine(Integer.getInteger("pix.saldos.capacidadeInicial", 100_000));
+    }
+
+    @Override
+    public Long ler(Cpf cpf) {
+        long chave = cpf.getDigitos();
+        long stamp = lock.tryOptimisticRead();
+        long saldo = saldos.get(chave);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                saldo = saldos.get(chave);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return saldo == MapaSaldos.AUSENTE ? null : saldo;
+    }
+
+    // Na thread de escrita, a única que altera o mapa: lê sem lock
+    @Override
+    public Long lerComConexao(Connection conn, Cpf cpf) {
+        long saldo = saldos.get(cpf.getDigitos());
+        return saldo == MapaSaldos.AUSENTE ? null : saldo;
+    }
+
+    @Override
+    public boolean debitarComConexao(Connection conn, Cpf cpf, long valorCentavos) {
+        long chave = cpf.getDigitos();
+        long saldo = saldos.get(chave);
+        if (saldo == MapaSaldos.AUSENTE || saldo < valorCentavos) {
+            return false;
+        }
+        alterar(chave, saldo - valorCentavos);
+        return true;
+    }
+
+    @Override
+    public boolean creditarComConexao(Connection conn, Cpf cpf, long valorCentavos) {
+        long chave = cpf.getDigitos();
+        long saldo = saldos.get(chave);
+        if (saldo == MapaSaldos.AUSENTE) {
+            return false;
+        }
+        alterar(chave, saldo + valorCentavos);
+        return true;
+    }
+
+    @Override
+    public void definirComConexao(Connection conn, Cpf cpf, long saldoCentavos) {
+        alterar(cpf.getDigitos(), saldoCentavos);
+    }
+
+    @Override
+    public void contaCriadaComConexao(Connection conn, Cpf cpf, long saldoCentavos) {
+        alterar(cpf.getDigitos(), saldoCentavos);
+    }
+
+    /**
+     * Também grava um snapshot na mesma transação: as transações da conta foram apagadas junto
+     * com ela e o SQLite pode reutilizar os rowids delas, que o marcador anterior já daria como incluídos.
+     */
+    @Override
+    public void contaRemovidaComConexao(Connection conn, Cpf cpf) throws SQLException {
+        long chave = cpf.getDigitos();
+        long anterior = saldos.get(chave);
+        DatabaseManager.aoDesfazer(() -> restaurar(chave, anterior));
+        long stamp = lock.writeLock();
+        try {
+            saldos.remove(chave);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        gravarSnapshotComConexao(conn);
+    }
+
+    /**
+     * Carrega os saldos da tabela usuario. Chamado uma vez, na inicialização, dentro de uma tarefa
+     * de escrita e depois de a coluna ter sido posta em dia com os lançamentos posteriores ao snapshot.
+     */
+    void carregarComConexao(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT cpf, saldo_centavos FROM usuario")) {
+            long stamp = lock.writeLock();
+            try {
+                while (rs.next()) {
+                    saldos.put(rs.getLong(1), rs.getLong(2));
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        System.out.println("Saldos em memória: " + saldos.tamanho() + " contas carregadas.");
+    }
+
+    /**
+     * Grava em usuario.saldo_centavos as contas alteradas desde o snapshot anterior e, como
+     * marcador, a última linha de transacao já refletida nelas. Roda dentro de uma tarefa de escrita.
+     */
+    void gravarSnapshotComConexao(Connection conn) throws SQLException {
+        MapaSaldos gravadas = alteradas;
+        // Se o snapshot for desfeito, as contas continuam pendentes para o próximo
+        DatabaseManager.aoDesfazer(() -> gravadas.paraCada((chave, ignorado) -> alteradas.put(chave, 0L)));
+        alteradas = new MapaSaldos(Math.max(1024, gravadas.tamanho()));
+
+        long[] chaves = new long[gravadas.tamanho()];
+        int[] total = {0};
+        gravadas.paraCada((chave, ignorado) -> chaves[total[0]++] = chave);
+        int contas = 0;
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE usuario SET saldo_centavos = ? WHERE cpf = ?")) {
+            for (long chave : chaves) {
+                long saldo = saldos.get(chave);
+                if (saldo == MapaSaldos.AUSENTE) continue; // Conta removida
+                stmt.setLong(1, saldo);
+                stmt.setLong(2, chave);
+                stmt.addBatch();
+                contas++;
+            }
+            if (contas > 0) {
+                stmt.executeBatch();
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT OR REPLACE INTO saldo_snapshot (id, ultima_transacao, criado_em) " +
+                "VALUES (1, (SELECT COALESCE(MAX(rowid), 0) FROM transacao), ?)")) {
+            stmt.setString(1, Instant.now().toString());
+            stmt.executeUpdate();
+        }
+        int gravadasNoSnapshot = contas;
+        DatabaseManager.aposCommit(() -> {
+            snapshots.incrementAndGet();
+            contasGravadas.addAndGet(gravadasNoSnapshot);
+        });
+    }
+
+    /** Agenda um snapshot a cada {@code intervaloSegundos}, em uma thread própria. */
+    void iniciarSnapshots(long intervaloSegundos) {
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-saldos-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                DatabaseManager.executarEscrita(conn -> {
+                    gravarSnapshotComConexao(conn);
+                    return null;
+                });
+            } catch (SQLException | RuntimeException e) {
+                // O próximo snapshot grava estas contas também
+                System.err.println("Falha ao gravar o snapshot de saldos: " + e.getMessage());
+            }
+        }, intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+    }
+
+    public int getContas() {
+        return saldos.tamanho();
+    }
+
+    public long getLancamentos() {
+        return lancamentos.get();
+    }
+
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    public long getContasGravadas() {
+        return contasGravadas.get();
+    }
+
+    private void alterar(long chave, long novoSaldo) {
+        long anterior = saldos.get(chave);
+        DatabaseManager.aoDesfazer(() -> restaurar(chave, anterior)); // Falha fora de uma tarefa de escrita
+        long stamp = lock.writeLock();
+        try {
+            saldos.put(chave, novoSaldo);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        alteradas.put(chave, 0L);
+        lancamentos.incrementAndGet();
+    }
+
+    private void restaurar(long chave, long anterior) {
+        long stamp = lock.writeLock();
+        try {
+            if (anterior == MapaSaldos.AUSENTE) {
+                saldos.remove(chave);
+            } else {
+                saldos.put(chave, anterior);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
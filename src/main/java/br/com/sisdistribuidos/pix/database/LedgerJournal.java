@@ -0,0 +1,187 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal das transferências, depósitos e exclusões de conta aceitos, gravado antes do commit no SQLite.
+ * <p>
+ * Registros de tamanho fixo ({@link RegistroJournal}) são acrescentados a segmentos mapeados em
+ * memória; o {@link DatabaseWriter} grava os registros de um lote inteiro e força o segmento
+ * para o disco uma única vez, logo antes do commit em grupo. Ao encher, o segmento é forçado,
+ * fechado e um novo é criado, com a primeira sequência no nome do arquivo.
+ * <p>
+ * Na inicialização os segmentos existentes são lidos e o que não chegou ao banco é reaplicado
+ * (ver {@link DatabaseManager#initialize()}). Um segmento fechado só é apagado depois de um
+ * checkpoint completo do SQLite, quando tudo o que ele contém já está no arquivo do banco.
+ * <p>
+ * Não é thread-safe: depois de aberto, só a thread de escrita o usa.
+ */
+public class LedgerJournal {
+
+    private static final String EXTENSAO = ".journal";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final boolean descartarSegmentos;
+
+    private FileChannel canal;
+    private MappedByteBuffer mapa;
+    private long primeiraSequenciaDoAtual;
+    private final List<Path> fechados = new ArrayList<>();
+    private long proximaSequencia = 1;
+
+    private long registrosGravados;
+    private long forcas;
+
+    /**
+     * @param tamanhoSegmento em bytes, arredondado para baixo para um múltiplo do tamanho do registro.
+     * @param descartarSegmentos false mantém os segmentos fechados para sempre (quando o checkpoint
+     *                           do banco não garante a gravação em disco, como com synchronous=OFF).
+     */
+    public LedgerJournal(Path diretorio, int tamanhoSegmento, boolean descartarSegmentos) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = Math.max(1, tamanhoSegmento / RegistroJournal.TAMANHO) * RegistroJournal.TAMANHO;
+        this.descartarSegmentos = descartarSegmentos;
+    }
+
+    /**
+     * @return o journal configurado, ou null se desativado (pix.journal.ativo=false, o padrão).
+     */
+    public static LedgerJournal fromSystemProperties(boolean descartarSegmentos) {
+        if (!Boolean.getBoolean("pix.journal.ativo")) {
+            return null;
+        }
+        return new LedgerJournal(Paths.get(System.getProperty("pix.journal.diretorio", "journal")),
+                                 Integer.getInteger("pix.journal.tamanhoSegmentoMb", 64) * 1024 * 1024,
+                                 descartarSegmentos);
+    }
+
+    /**
+     * Lê os segmentos deixados pela execução anterior e abre um segmento novo depois deles.
+     * Os antigos passam a contar como fechados.
+     *
+     * @return os registros válidos encontrados, em ordem de sequência.
+     */
+    List<RegistroJournal> abrir() throws IOException {
+        Files.createDirectories(diretorio);
+        List<Path> existentes = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                existentes.add(arquivo);
+            }
+        }
+        existentes.sort(null); // Nomes com a sequência em largura fixa: ordem alfabética = ordem de gravação
+
+        List<RegistroJournal> registros = new ArrayList<>();
+        for (Path arquivo : existentes) {
+            lerSegmento(arquivo, registros);
+            fechados.add(arquivo);
+            // Também pula segmentos vazios, para o novo não colidir com o nome de um deles
+            String nome = arquivo.getFileName().toString();
+            proximaSequencia = Math.max(proximaSequencia, Long.parseLong(nome.substring(0, nome.length() - EXTENSAO.length())) + 1);
+        }
+        if (!registros.isEmpty()) {
+            proximaSequencia = Math.max(proximaSequencia, registros.get(registros.size() - 1).sequencia + 1);
+        }
+        abrirSegmento();
+        return registros;
+    }
+
+    /**
+     * Acrescenta os registros, atribuindo as sequências, sem forçar para o disco.
+     */
+    void gravar(List<RegistroJournal> registros) throws IOException {
+        for (RegistroJournal registro : registros) {
+            if (mapa.remaining() < RegistroJournal.TAMANHO) {
+                rolar();
+            }
+            registro.sequencia = proximaSequencia++;
+            registro.escrever(mapa);
+            registrosGravados++;
+        }
+    }
+
+    /** Força para o disco o que foi gravado no segmento atual. */
+    void forcar() {
+        mapa.force();
+        forcas++;
+    }
+
+    long getProximaSequencia() {
+        return proximaSequencia;
+    }
+
+    boolean temSegmentosFechados() {
+        return descartarSegmentos && !fechados.isEmpty();
+    }
+
+    /** Apaga os segmentos fechados; só deve ser chamado com o conteúdo deles já gravado no banco. */
+    void descartarFechados() {
+        for (Path arquivo : fechados) {
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                System.err.println("Falha ao apagar o segmento do journal " + arquivo + ": " + e.getMessage());
+            }
+        }
+        fechados.clear();
+    }
+
+    public long getRegistrosGravados() {
+        return registrosGravados;
+    }
+
+    public long getForcas() {
+        return forcas;
+    }
+
+    void fechar() {
+        if (canal == null) return;
+        try {
+            mapa.force();
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("Falha ao fechar o journal: " + e.getMessage());
+        }
+        canal = null;
+    }
+
+    private void rolar() throws IOException {
+        mapa.force();
+        forcas++;
+        canal.close();
+        fechados.add(segmento(primeiraSequenciaDoAtual));
+        abrirSegmento();
+    }
+
+    private void abrirSegmento() throws IOException {
+        primeiraSequenciaDoAtual = proximaSequencia;
+        canal = FileChannel.open(segmento(proximaSequencia),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapear além do fim estende o arquivo; o restante fica zerado, que é lido como fim do segmento
+        mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+    }
+
+    private Path segmento(long primeiraSequencia) {
+        return diretorio.resolve(String.format("%020d", primeiraSequencia) + EXTENSAO);
+    }
+
+    private static void lerSegmento(Path arquivo, List<RegistroJournal> destino) throws IOException {
+        try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer conteudo = leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size());
+            RegistroJournal registro;
+            while ((registro = RegistroJournal.ler(conteudo)) != null) {
+                destino.add(registro);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.sisdistribuidos.pix.database;
+
+/**
+ * Mapa de CPF (os dígitos, ver {@link br.com.sisdistribuidos.pix.model.Cpf}) para saldo em
+ * centavos, com endereçamento aberto e sondagem linear sobre um único array de long (chave e
+ * valor lado a lado): sem objetos por entrada e sem boxing. Mantém a ocupação em até metade da
+ * capacidade; a remoção desloca para trás as entradas seguintes do agrupamento, sem marcadores
+ * de removido.
+ * <p>
+ * Não é thread-safe. O {@link InMemoryBalanceEngine} faz todas as alterações na thread de escrita
+ * e protege as leituras concorrentes com um StampedLock; por isso uma leitura nunca percorre mais
+ * que a capacidade da tabela, mesmo vendo um estado intermediário (que a validação descarta).
+ */
+final class MapaSaldos {
+
+    static final long AUSENTE = Long.MIN_VALUE;
+    private static final long VAZIO = -1L; // Nenhum CPF vira -1: as chaves têm no máximo 11 dígitos
+
+    // [chave0, valor0, chave1, valor1, ...]: uma única referência, sempre com chaves e valores coerentes
+    private long[] tabela;
+    private int tamanho;
+
+    MapaSaldos(int capacidadeEsperada) {
+        tabela = novaTabela(Integer.highestOneBit(Math.max(16, capacidadeEsperada * 2 - 1)) << 1);
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    /** @return o saldo, ou {@link #AUSENTE}. */
+    long get(long chave) {
+        long[] t = tabela;
+        int mascara = (t.length >> 1) - 1;
+        int i = indice(chave, mascara);
+        for (int sondagens = 0; sondagens <= mascara; sondagens++, i = (i + 1) & mascara) {
+            long atual = t[i << 1];
+            if (atual == chave) return t[(i << 1) + 1];
+            if (atual == VAZIO) return AUSENTE;
+        }
+        return AUSENTE;
+    }
+
+    /** @return o valor anterior, ou {@link #AUSENTE}. */
+    long put(long chave, long valor) {
+        int mascara = (tabela.length >> 1) - 1;
+        int i = indice(chave, mascara);
+        while (tabela[i << 1] != VAZIO) {
+            if (tabela[i << 1] == chave) {
+                long anterior = tabela[(i << 1) + 1];
+                tabela[(i << 1) + 1] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        if ((tamanho + 1) * 2 > mascara + 1) {
+            crescer();
+            return put(chave, valor);
+        }
+        tabela[i << 1] = chave;
+        tabela[(i << 1) + 1] = valor;
+        tamanho++;
+        return AUSENTE;
+    }
+
+    /** @return o valor removido, ou {@link #AUSENTE}. */
+    long remove(long chave) {
+        int mascara = (tabela.length >> 1) - 1;
+        int i = indice(chave, mascara);
+        while (tabela[i << 1] != chave) {
+            if (tabela[i << 1] == VAZIO) return AUSENTE;
+            i = (i + 1) & mascara;
+        }
+        long removido = tabela[(i << 1) + 1];
+        // Desloca para trás as entradas cuja posição ideal não fica entre a lacuna e elas
+        int lacuna = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            long chaveJ = tabela[j << 1];
+            if (chaveJ == VAZIO) break;
+            int ideal = indice(chaveJ, mascara);
+            if (((j - ideal) & mascara) >= ((j - lacuna) & mascara)) {
+                tabela[lacuna << 1] = chaveJ;
+                tabela[(lacuna << 1) + 1] = tabela[(j << 1) + 1];
+                lacuna = j;
+            }
+        }
+        tabela[lacuna << 1] = VAZIO;
+        tamanho--;
+        return removido;
+    }
+
+    void paraCada(Visitante visitante) {
+        long[] t = tabela;
+        for (int i = 0; i < t.length; i += 2) {
+            if (t[i] != VAZIO) visitante.visitar(t[i], t[i + 1]);
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(long chave, long valor);
+    }
+
+    private void crescer() {
+        long[] antiga = tabela;
+        tabela = novaTabela(antiga.length); // Dobra: antiga.length já conta chave e valor
+        tamanho = 0;
+        for (int i = 0; i < antiga.length; i += 2) {
+            if (antiga[i] != VAZIO) put(antiga[i], antiga[i + 1]);
+        }
+    }
+
+    private static long[] novaTabela(int capacidade) {
+        long[] t = new long[capacidade * 2];
+        for (int i = 0; i < t.length; i += 2) {
+            t[i] = VAZIO;
+        }
+        return t;
+    }
+
+    // Mistura os bits (constante do SplitMix64): CPFs próximos não caem em posições vizinhas
+    private static int indice(long chave, int mascara) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
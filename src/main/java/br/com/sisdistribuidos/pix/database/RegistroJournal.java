@@ -0,0 +1,154 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de tamanho fixo do {@link LedgerJournal} (64 bytes, big-endian):
+ * <pre>
+ *  0  int   CRC32 dos bytes 4..63
+ *  4  byte  tipo (1 transferência, 2 depósito, 3 anulação, 4 exclusão de conta; 0 = fim do segmento)
+ *  5  3 bytes reservados
+ *  8  long  sequência
+ * 16  long  id da transação (UUID, bits mais significativos)
+ * 24  long  id da transação (UUID, bits menos significativos)
+ * 32  long  valor em centavos           | anulação: primeira sequência anulada
+ * 40  long  CPF do enviador (dígitos)   | anulação: última sequência anulada | exclusão: CPF da conta
+ * 48  long  CPF do recebedor (dígitos)
+ * 56  long  criado_em em segundos (UTC)
+ * </pre>
+ */
+final class RegistroJournal {
+
+    static final int TAMANHO = 64;
+
+    static final byte FIM = 0;
+    static final byte TRANSFERENCIA = 1;
+    static final byte DEPOSITO = 2;
+    static final byte ANULACAO = 3;
+    static final byte EXCLUSAO = 4;
+
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    final byte tipo;
+    long sequencia; // Atribuída pelo journal ao gravar
+    final long idAlto;
+    final long idBaixo;
+    final long valorCentavos;
+    final long cpfEnviador;
+    final long cpfRecebedor;
+    final long criadoEm;
+
+    private RegistroJournal(byte tipo, long sequencia, long idAlto, long idBaixo, long valorCentavos,
+                            long cpfEnviador, long cpfRecebedor, long criadoEm) {
+        this.tipo = tipo;
+        this.sequencia = sequencia;
+        this.idAlto = idAlto;
+        this.idBaixo = idBaixo;
+        this.valorCentavos = valorCentavos;
+        this.cpfEnviador = cpfEnviador;
+        this.cpfRecebedor = cpfRecebedor;
+        this.criadoEm = criadoEm;
+    }
+
+    static RegistroJournal transferencia(Transacao transacao) {
+        return deTransacao(TRANSFERENCIA, transacao);
+    }
+
+    static RegistroJournal deposito(Transacao transacao) {
+        return deTransacao(DEPOSITO, transacao);
+    }
+
+    /** Marca as sequências do intervalo como não aplicadas (o commit do lote falhou). */
+    static RegistroJournal anulacao(long primeira, long ultima) {
+        return new RegistroJournal(ANULACAO, 0, 0, 0, primeira, ultima, 0, 0);
+    }
+
+    /**
+     * A conta foi removida junto com as suas transações: os lançamentos dela gravados antes
+     * deste registro não devem ser reaplicados, mesmo que a conta seja criada de novo depois.
+     */
+    static RegistroJournal exclusao(Cpf cpf) {
+        return new RegistroJournal(EXCLUSAO, 0, 0, 0, 0, cpf.getDigitos(), 0, 0);
+    }
+
+    private static RegistroJournal deTransacao(byte tipo, Transacao transacao) {
+        UUID id = UUID.fromString(transacao.getId());
+        long criadoEm = LocalDateTime.parse(transacao.getCriadoEm(), ISO_FORMATTER).toEpochSecond(ZoneOffset.UTC);
+        return new RegistroJournal(tipo, 0, id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                transacao.getValorCentavos(), transacao.getCpfEnviador().getDigitos(),
+                transacao.getCpfRecebedor().getDigitos(), criadoEm);
+    }
+
+    /** Reconstrói a transação gravada (transferência ou depósito). */
+    Transacao paraTransacao() {
+        Transacao transacao = tipo == DEPOSITO
+                ? Transacao.deposito(valorCentavos, Cpf.deDigitos(cpfRecebedor))
+                : Transacao.transferencia(valorCentavos, Cpf.deDigitos(cpfEnviador), Cpf.deDigitos(cpfRecebedor));
+        transacao.setId(new UUID(idAlto, idBaixo).toString());
+        String data = LocalDateTime.ofEpochSecond(criadoEm, 0, ZoneOffset.UTC).format(ISO_FORMATTER);
+        transacao.setCriadoEm(data);
+        transacao.setAtualizadoEm(data);
+        return transacao;
+    }
+
+    long primeiraAnulada() {
+        return valorCentavos;
+    }
+
+    long ultimaAnulada() {
+        return cpfEnviador;
+    }
+
+    long cpfExcluido() {
+        return cpfEnviador;
+    }
+
+    void escrever(ByteBuffer destino) {
+        int inicio = destino.position();
+        destino.putInt(0); // CRC, preenchido abaixo
+        destino.put(tipo);
+        destino.put((byte) 0).put((byte) 0).put((byte) 0);
+        destino.putLong(sequencia);
+        destino.putLong(idAlto);
+        destino.putLong(idBaixo);
+        destino.putLong(valorCentavos);
+        destino.putLong(cpfEnviador);
+        destino.putLong(cpfRecebedor);
+        destino.putLong(criadoEm);
+        destino.putInt(inicio, crc(destino, inicio));
+    }
+
+    /**
+     * Lê o registro na posição atual do buffer.
+     *
+     * @return null no fim do segmento ou em um registro incompleto/corrompido (escrita interrompida).
+     */
+    static RegistroJournal ler(ByteBuffer origem) {
+        if (origem.remaining() < TAMANHO) return null;
+        int inicio = origem.position();
+        int crcGravado = origem.getInt();
+        byte tipo = origem.get();
+        if (tipo == FIM || crcGravado != crc(origem, inicio)) {
+            origem.position(inicio);
+            return null;
+        }
+        origem.position(inicio + 8);
+        return new RegistroJournal(tipo, origem.getLong(), origem.getLong(), origem.getLong(),
+                origem.getLong(), origem.getLong(), origem.getLong(), origem.getLong());
+    }
+
+    private static int crc(ByteBuffer buffer, int inicio) {
+        CRC32 crc = new CRC32();
+        for (int i = inicio + 4; i < inicio + TAMANHO; i++) {
+            crc.update(buffer.get(i));
+        }
+        return (int) crc.getValue();
+    }
+}
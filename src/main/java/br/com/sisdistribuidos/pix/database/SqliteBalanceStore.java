@@ -0,0 +1,54 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Saldos na própria tabela usuario: cada lançamento é um UPDATE condicional da coluna
+ * saldo_centavos, na mesma transação da linha em transacao.
+ */
+public class SqliteBalanceStore implements BalanceStore {
+
+    private final UsuarioDAO usuarioDao = new UsuarioDAO();
+
+    @Override
+    public Long ler(Cpf cpf) throws SQLException {
+        return saldo(usuarioDao.ler(cpf));
+    }
+
+    @Override
+    public Long lerComConexao(Connection conn, Cpf cpf) throws SQLException {
+        return saldo(usuarioDao.lerComConexao(conn, cpf));
+    }
+
+    @Override
+    public boolean debitarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException {
+        return usuarioDao.debitarComConexao(conn, cpf, valorCentavos);
+    }
+
+    @Override
+    public boolean creditarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException {
+        return usuarioDao.creditarComConexao(conn, cpf, valorCentavos);
+    }
+
+    @Override
+    public void definirComConexao(Connection conn, Cpf cpf, long saldoCentavos) throws SQLException {
+        usuarioDao.definirSaldoComConexao(conn, cpf, saldoCentavos);
+    }
+
+    @Override
+    public void contaCriadaComConexao(Connection conn, Cpf cpf, long saldoCentavos) {
+        // O saldo já está na linha inserida
+    }
+
+    @Override
+    public void contaRemovidaComConexao(Connection conn, Cpf cpf) {
+        // Saiu junto com a linha removida
+    }
+
+    private static Long saldo(Usuario usuario) {
+        return usuario == null ? null : usuario.getSaldoCentavos();
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.util.Properties;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Configuração de armazenamento do SQLite (pragmas aplicados ao abrir cada conexão).
+ * Os valores padrão podem ser sobrescritos por propriedades de sistema "pix.db.*".
+ */
+public class StorageConfig {
+
+    private final SQLiteConfig.JournalMode journalMode;
+    private final SQLiteConfig.SynchronousMode synchronous;
+    private final int cacheSizeKb;
+    private final long mmapSize;
+    private final int busyTimeoutMs;
+
+    public StorageConfig(SQLiteConfig.JournalMode journalMode, SQLiteConfig.SynchronousMode synchronous,
+                         int cacheSizeKb, long mmapSize, int busyTimeoutMs) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKb = cacheSizeKb;
+        this.mmapSize = mmapSize;
+        this.busyTimeoutMs = busyTimeoutMs;
+    }
+
+    public static StorageConfig fromSystemProperties() {
+        return new StorageConfig(
+                SQLiteConfig.JournalMode.valueOf(System.getProperty("pix.db.journalMode", "WAL").toUpperCase()),
+                SQLiteConfig.SynchronousMode.valueOf(System.getProperty("pix.db.synchronous", "NORMAL").toUpperCase()),
+                Integer.getInteger("pix.db.cacheSizeKb", 16 * 1024),
+                Long.getLong("pix.db.mmapSize", 256L * 1024 * 1024),
+                Integer.getInteger("pix.db.busyTimeoutMs", 5000));
+    }
+
+    public SQLiteConfig.SynchronousMode getSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Propriedades da conexão de escrita. O journal_mode é persistente no arquivo,
+     * então basta a conexão de escrita defini-lo.
+     */
+    public Properties propriedadesEscrita() {
+        SQLiteConfig config = base();
+        config.setJournalMode(journalMode);
+        return config.toProperties();
+    }
+
+    public Properties propriedadesLeitura() {
+        SQLiteConfig config = base();
+        config.setReadOnly(true);
+        return config.toProperties();
+    }
+
+    private SQLiteConfig base() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(synchronous);
+        config.setCacheSize(-cacheSizeKb); // Valor negativo: tamanho em KiB em vez de páginas
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        config.setBusyTimeout(busyTimeoutMs);
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return "StorageConfig{journalMode=" + journalMode + ", synchronous=" + synchronous +
+               ", cacheSizeKb=" + cacheSizeKb + ", mmapSize=" + mmapSize + ", busyTimeoutMs=" + busyTimeoutMs + '}';
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Transacao;
+import java.io.IOException;
+
+/**
+ * Recebe as transações uma a uma, na ordem do cursor, sem materializar a lista inteira.
+ */
+@FunctionalInterface
+public interface TransacaoConsumer {
+    void aceitar(Transacao transacao) throws IOException;
+}
@@ -1,54 +1,344 @@
 package br.com.sisdistribuidos.pix.database;
 
+import br.com.sisdistribuidos.pix.model.Cpf;
 import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class TransacaoDAO {
 
+    // Por padrão os nomes vêm do cache de contas, e só os que faltam são buscados em lotes
+    // com IN (...); com "true", volta ao JOIN com a tabela usuario a cada página
+    private static final boolean EXTRATO_COM_JOIN =
+            Boolean.parseBoolean(System.getProperty("pix.db.extratoComJoin", "false"));
+    private static final int TAMANHO_LOTE_IN = 500;
+    // Transações lidas por vez ao percorrer o extrato. Com dois CPFs por transação, os nomes que
+    // faltam de um bloco cabem em um único IN (...)
+    private static final int TAMANHO_BLOCO_EXTRATO = TAMANHO_LOTE_IN / 2;
+
+    private final UsuarioCache usuarioCache = DatabaseManager.getUsuarioCache();
+    public static final int SEM_LIMITE = 0;
+
+    // Transações do CPF no período. UNION ALL em vez de "cpf_enviador = ? OR cpf_recebedor = ?" para que
+    // cada ramo faça uma busca por intervalo nos índices (cpf, criado_em); o segundo ramo exclui as
+    // transações em que o CPF também é o enviador (depósitos), que já vieram no primeiro.
+    private static final String TRANSACOES_DO_CPF_NO_PERIODO =
+            "SELECT * FROM transacao WHERE cpf_enviador = ? AND criado_em BETWEEN ? AND ? " +
+            "UNION ALL " +
+            "SELECT * FROM transacao WHERE cpf_recebedor = ? AND cpf_enviador <> ? AND criado_em BETWEEN ? AND ?";
+    // A mesma consulta continuando de um cursor: apenas o que vem depois de (criado_em, id) na ordem do extrato
+    private static final String TRANSACOES_DO_CPF_NO_PERIODO_APOS_CURSOR =
+            "SELECT * FROM transacao WHERE cpf_enviador = ? AND criado_em BETWEEN ? AND ? AND (criado_em, id) < (?, ?) " +
+            "UNION ALL " +
+            "SELECT * FROM transacao WHERE cpf_recebedor = ? AND cpf_enviador <> ? AND criado_em BETWEEN ? AND ? AND (criado_em, id) < (?, ?)";
+
     public void criarComConexao(Connection conn, Transacao transacao) throws SQLException {
-        String sql = "INSERT INTO transacao (id, valor, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO transacao (id, valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em, tipo) VALUES (?, ?, ?, ?, ?, ?, ?)";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, transacao.getId());
-            stmt.setDouble(2, transacao.getValor());
-            stmt.setString(3, transacao.getCpfEnviador());
-            stmt.setString(4, transacao.getCpfRecebedor());
+            stmt.setLong(2, transacao.getValorCentavos());
+            stmt.setLong(3, transacao.getCpfEnviador().getDigitos());
+            stmt.setLong(4, transacao.getCpfRecebedor().getDigitos());
             stmt.setString(5, transacao.getCriadoEm());
             stmt.setString(6, transacao.getAtualizadoEm());
+            stmt.setString(7, transacao.getTipo());
             stmt.executeUpdate();
         }
     }
 
-    public List<Transacao> lerPorCpfComDatas(String cpf, String dataInicial, String dataFinal) throws SQLException {
+    public boolean existeComConexao(Connection conn, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM transacao WHERE id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Insere várias transações com um único comando preparado, enviado em lote (executeBatch).
+     */
+    public void criarLoteComConexao(Connection conn, List<Transacao> transacoes) throws SQLException {
+        if (transacoes.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO transacao (id, valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em, tipo) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Transacao transacao : transacoes) {
+                stmt.setString(1, transacao.getId());
+                stmt.setLong(2, transacao.getValorCentavos());
+                stmt.setLong(3, transacao.getCpfEnviador().getDigitos());
+                stmt.setLong(4, transacao.getCpfRecebedor().getDigitos());
+                stmt.setString(5, transacao.getCriadoEm());
+                stmt.setString(6, transacao.getAtualizadoEm());
+                stmt.setString(7, transacao.getTipo());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    public List<Transacao> lerPorCpfComDatas(Cpf cpf, String dataInicial, String dataFinal) throws SQLException {
+        return lerPorCpfComDatas(cpf, dataInicial, dataFinal, null, SEM_LIMITE);
+    }
+
+    /**
+     * Lê no máximo {@code limite} transações do período, começando logo após o cursor (se houver).
+     */
+    public List<Transacao> lerPorCpfComDatas(Cpf cpf, String dataInicial, String dataFinal,
+                                             CursorTransacao apos, int limite) throws SQLException {
         List<Transacao> transacoes = new ArrayList<>();
         
-        String sql = "SELECT * FROM transacao WHERE (cpf_enviador = ? OR cpf_recebedor = ?) AND criado_em BETWEEN ? AND ? ORDER BY criado_em DESC";// Usa BETWEEN para compatibilidade com mais bancos de dados
+        String sql = "SELECT * FROM (" + transacoesDoCpfNoPeriodo(apos) + ") ORDER BY criado_em DESC, id DESC LIMIT ?";// Usa BETWEEN para compatibilidade com mais bancos de dados
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, cpf);
-            stmt.setString(2, cpf);
-            stmt.setString(3, dataInicial);
-            stmt.setString(4, dataFinal);
+            int indice = setParametrosPeriodo(stmt, cpf, dataInicial, dataFinal, apos);
+            stmt.setInt(indice, limiteSql(limite));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Transacao transacao = new Transacao();
-                    transacao.setId(rs.getString("id"));
-                    transacao.setValor(rs.getDouble("valor"));
-                    transacao.setCpfEnviador(rs.getString("cpf_enviador"));
-                    transacao.setCpfRecebedor(rs.getString("cpf_recebedor"));
-                    transacao.setCriadoEm(rs.getString("criado_em"));
-                    transacao.setAtualizadoEm(rs.getString("atualizado_em"));
-                    transacoes.add(transacao);
+                    transacoes.add(buildTransacaoFromResultSet(rs));
                 }
             }
         }
         return transacoes;
     }
-}
\ No newline at end of file
+
+    /**
+     * Lê o extrato já com o nome e o CPF do enviador e do recebedor de cada transação,
+     * em uma única consulta (JOIN) em vez de duas buscas de usuário por linha.
+     */
+    public List<Transacao> lerPorCpfComDatasComUsuarios(Cpf cpf, String dataInicial, String dataFinal) throws SQLException {
+        List<Transacao> transacoes = new ArrayList<>();
+        try {
+            percorrerPorCpfComDatasComUsuarios(cpf, dataInicial, dataFinal, transacoes::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Não ocorre: adicionar à lista não faz E/S
+        }
+        return transacoes;
+    }
+
+    /**
+     * Igual a {@link #lerPorCpfComDatasComUsuarios}, mas entrega cada transação ao consumidor
+     * em blocos, mantendo constante a memória usada por extratos grandes.
+     */
+    public void percorrerPorCpfComDatasComUsuarios(Cpf cpf, String dataInicial, String dataFinal,
+                                                  TransacaoConsumer consumidor) throws SQLException, IOException {
+        percorrerPaginaPorCpfComDatasComUsuarios(cpf, dataInicial, dataFinal, null, SEM_LIMITE, consumidor);
+    }
+
+    /**
+     * Percorre uma página do extrato: até {@code limite} transações (ou todas, com {@link #SEM_LIMITE})
+     * a partir do cursor, na ordem "criado_em DESC, id DESC".
+     * <p>
+     * As transações são lidas em blocos de até {@link #TAMANHO_BLOCO_EXTRATO}, cada um em uma consulta
+     * que continua do último lido (como o cursor do cliente). A conexão do pool volta ao pool antes
+     * de o bloco ser entregue: um consumidor lento (escrevendo no socket) não segura uma conexão de
+     * leitura nem um snapshot do WAL, que impediria o checkpoint. Por isso blocos diferentes podem
+     * ver commits diferentes, como páginas diferentes; cada bloco busca uma linha a mais para saber
+     * se o extrato continua.
+     *
+     * @return true se ainda há transações depois da última entregue.
+     */
+    public boolean percorrerPaginaPorCpfComDatasComUsuarios(Cpf cpf, String dataInicial, String dataFinal,
+                                                           CursorTransacao apos, int limite,
+                                                           TransacaoConsumer consumidor) throws SQLException, IOException {
+        CursorTransacao cursor = apos;
+        int restantes = limite;
+        while (true) {
+            int tamanhoBloco = limite == SEM_LIMITE ? TAMANHO_BLOCO_EXTRATO : Math.min(TAMANHO_BLOCO_EXTRATO, restantes);
+            List<Transacao> bloco = new ArrayList<>(tamanhoBloco + 1);
+            try (Connection conn = DatabaseManager.getConnection()) {
+                lerBlocoComUsuarios(conn, cpf, dataInicial, dataFinal, cursor, tamanhoBloco + 1, bloco);
+            }
+            boolean continua = bloco.size() > tamanhoBloco;
+            if (continua) {
+                bloco.remove(tamanhoBloco); // Linha extra: só indica que há mais
+            }
+            for (Transacao transacao : bloco) {
+                consumidor.aceitar(transacao);
+            }
+            if (!continua) {
+                return false;
+            }
+            if (limite != SEM_LIMITE) {
+                restantes -= tamanhoBloco;
+                if (restantes == 0) {
+                    return true;
+                }
+            }
+            Transacao ultima = bloco.get(bloco.size() - 1);
+            cursor = new CursorTransacao(ultima.getCriadoEm(), ultima.getId());
+        }
+    }
+
+    // Um bloco do extrato, já com os nomes: pelo JOIN com usuario ou, por padrão, do cache de contas
+    private void lerBlocoComUsuarios(Connection conn, Cpf cpf, String dataInicial, String dataFinal,
+                                     CursorTransacao apos, int limite, List<Transacao> bloco) throws SQLException {
+        String sql;
+        if (EXTRATO_COM_JOIN) {
+            sql = "SELECT t.id, t.valor_centavos, t.cpf_enviador, t.cpf_recebedor, t.criado_em, t.atualizado_em, " +
+                  "ue.nome AS nome_enviador, ur.nome AS nome_recebedor " +
+                  "FROM (" + transacoesDoCpfNoPeriodo(apos) + ") t " +
+                  "LEFT JOIN usuario ue ON ue.cpf = t.cpf_enviador " +
+                  "LEFT JOIN usuario ur ON ur.cpf = t.cpf_recebedor " +
+                  "ORDER BY t.criado_em DESC, t.id DESC LIMIT ?";
+        } else {
+            sql = "SELECT * FROM (" + transacoesDoCpfNoPeriodo(apos) + ") ORDER BY criado_em DESC, id DESC LIMIT ?";
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int indice = setParametrosPeriodo(stmt, cpf, dataInicial, dataFinal, apos);
+            stmt.setInt(indice, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Transacao transacao = buildTransacaoFromResultSet(rs);
+                    if (EXTRATO_COM_JOIN) {
+                        transacao.setUsuarioEnviador(usuarioResumido(transacao.getCpfEnviador(), rs.getString("nome_enviador")));
+                        transacao.setUsuarioRecebedor(usuarioResumido(transacao.getCpfRecebedor(), rs.getString("nome_recebedor")));
+                    }
+                    bloco.add(transacao);
+                }
+            }
+        }
+        if (!EXTRATO_COM_JOIN) {
+            preencherUsuarios(conn, bloco);
+        }
+    }
+
+    private static String transacoesDoCpfNoPeriodo(CursorTransacao apos) {
+        return apos == null ? TRANSACOES_DO_CPF_NO_PERIODO : TRANSACOES_DO_CPF_NO_PERIODO_APOS_CURSOR;
+    }
+
+    // No SQLite, LIMIT negativo significa "sem limite"
+    private static int limiteSql(int limite) {
+        return limite == SEM_LIMITE ? -1 : limite;
+    }
+
+    /**
+     * Preenche os parâmetros dos dois ramos da consulta e devolve o índice do próximo parâmetro.
+     */
+    private int setParametrosPeriodo(PreparedStatement stmt, Cpf cpf, String dataInicial, String dataFinal,
+                                     CursorTransacao apos) throws SQLException {
+        // Com cursor, o fim do período cai para o criado_em do cursor: a busca no índice já começa ali
+        String fim = dataFinal;
+        if (apos != null && apos.getCriadoEm().compareTo(dataFinal) < 0) {
+            fim = apos.getCriadoEm();
+        }
+
+        int indice = 1;
+        for (int ramo = 0; ramo < 2; ramo++) {
+            stmt.setLong(indice++, cpf.getDigitos());
+            if (ramo == 1) {
+                stmt.setLong(indice++, cpf.getDigitos());
+            }
+            stmt.setString(indice++, dataInicial);
+            stmt.setString(indice++, fim);
+            if (apos != null) {
+                stmt.setString(indice++, apos.getCriadoEm());
+                stmt.setString(indice++, apos.getId());
+            }
+        }
+        return indice;
+    }
+
+    // Nomes do cache de contas; os CPFs que faltam são buscados em lotes de IN (...), uma consulta por lote
+    private void preencherUsuarios(Connection conn, List<Transacao> transacoes) throws SQLException {
+        Map<Cpf, String> nomes = new HashMap<>();
+        Set<Cpf> faltantes = new LinkedHashSet<>();
+        for (Transacao t : transacoes) {
+            buscarNomeEmCache(t.getCpfEnviador(), nomes, faltantes);
+            buscarNomeEmCache(t.getCpfRecebedor(), nomes, faltantes);
+        }
+
+        List<Cpf> lote = new ArrayList<>(TAMANHO_LOTE_IN);
+        for (Cpf cpf : faltantes) {
+            lote.add(cpf);
+            if (lote.size() == TAMANHO_LOTE_IN) {
+                lerNomes(conn, lote, nomes);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            lerNomes(conn, lote, nomes);
+        }
+
+        for (Transacao t : transacoes) {
+            t.setUsuarioEnviador(usuarioResumido(t.getCpfEnviador(), nomes.get(t.getCpfEnviador())));
+            t.setUsuarioRecebedor(usuarioResumido(t.getCpfRecebedor(), nomes.get(t.getCpfRecebedor())));
+        }
+    }
+
+    private void buscarNomeEmCache(Cpf cpf, Map<Cpf, String> nomes, Set<Cpf> faltantes) {
+        if (nomes.containsKey(cpf) || faltantes.contains(cpf)) return;
+        String nome = usuarioCache.lerNome(cpf);
+        if (nome != null) {
+            nomes.put(cpf, nome);
+        } else {
+            faltantes.add(cpf);
+        }
+    }
+
+    // Lê as contas inteiras para já deixá-las no cache
+    private void lerNomes(Connection conn, List<Cpf> cpfs, Map<Cpf, String> nomes) throws SQLException {
+        Map<Cpf, Long> geracoes = new HashMap<>();
+        for (Cpf cpf : cpfs) {
+            geracoes.put(cpf, usuarioCache.geracao(cpf));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT cpf, nome, senha, saldo_centavos FROM usuario WHERE cpf IN (");
+        for (int i = 0; i < cpfs.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < cpfs.size(); i++) {
+                stmt.setLong(i + 1, cpfs.get(i).getDigitos());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Usuario usuario = new Usuario(Cpf.deDigitos(rs.getLong("cpf")), rs.getString("nome"),
+                                                  rs.getString("senha"), rs.getLong("saldo_centavos"));
+                    nomes.put(usuario.getCpf(), usuario.getNome());
+                    usuarioCache.preencher(usuario, geracoes.get(usuario.getCpf()));
+                }
+            }
+        }
+    }
+
+    // Usuário com apenas nome e CPF, como exigido em 'usuario_enviador'/'usuario_recebedor'
+    private Usuario usuarioResumido(Cpf cpf, String nome) {
+        if (nome == null) {
+            return null; // Usuário não existe mais
+        }
+        Usuario usuario = new Usuario();
+        usuario.setNome(nome);
+        usuario.setCpf(cpf);
+        return usuario;
+    }
+
+    private Transacao buildTransacaoFromResultSet(ResultSet rs) throws SQLException {
+        Transacao transacao = new Transacao();
+        transacao.setId(rs.getString("id"));
+        transacao.setValorCentavos(rs.getLong("valor_centavos"));
+        transacao.setCpfEnviador(Cpf.deDigitos(rs.getLong("cpf_enviador")));
+        transacao.setCpfRecebedor(Cpf.deDigitos(rs.getLong("cpf_recebedor")));
+        transacao.setCriadoEm(rs.getString("criado_em"));
+        transacao.setAtualizadoEm(rs.getString("atualizado_em"));
+        return transacao;
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.sql.SQLException;
+
+/**
+ * Lançada dentro de uma tarefa de escrita quando a operação é recusada depois de já ter
+ * gravado algo (ex.: o débito foi aplicado mas o recebedor não existe). Como toda exceção
+ * da tarefa, faz o escritor desfazer as suas escritas; quem chamou trata como recusa.
+ */
+public class TransacaoRecusadaException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransacaoRecusadaException(String mensagem) {
+        super(mensagem);
+    }
+}
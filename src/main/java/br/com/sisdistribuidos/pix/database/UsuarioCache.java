@@ -0,0 +1,222 @@
+package br.com.sisdistribuidos.pix.database;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Cache em memória das contas, por CPF, na frente do {@link UsuarioDAO}. Limitado em tamanho:
+ * dividido em faixas (como o {@link AccountLockManager}), cada uma um LRU com a sua parte da
+ * capacidade e o seu próprio lock, então leituras de contas diferentes raramente disputam.
+ * <p>
+ * Coerência com o banco: toda escrita em uma conta chega aqui só depois do commit (ver
+ * {@link DatabaseManager#aposCommit(Runnable)}) e incrementa a geração da faixa. Quem lê do
+ * banco após uma falta anota a geração antes da consulta e só preenche o cache se ela não
+ * mudou; assim uma leitura feita antes de um commit nunca sobrescreve o valor novo.
+ * <p>
+ * As entradas são cópias: quem lê recebe um {@link Usuario} próprio e pode alterá-lo à vontade.
+ */
+public class UsuarioCache {
+
+    private final Faixa[] faixas;
+    private final int mascara;
+    private final boolean ativo;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+
+    /**
+     * @param capacidade número máximo de contas em memória; 0 desativa o cache.
+     * @param numeroFaixas pelo menos 1, arredondado para a próxima potência de 2.
+     */
+    public UsuarioCache(int capacidade, int numeroFaixas) {
+        int tamanho = AccountLockManager.potenciaDe2(numeroFaixas);
+        this.faixas = new Faixa[tamanho];
+        int capacidadePorFaixa = Math.max(1, capacidade / tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            faixas[i] = new Faixa(capacidadePorFaixa);
+        }
+        this.mascara = tamanho - 1;
+        this.ativo = capacidade > 0;
+    }
+
+    public static UsuarioCache fromSystemProperties() {
+        return new UsuarioCache(Integer.getInteger("pix.cache.usuarios.capacidade", 10_000),
+                                Integer.getInteger("pix.cache.usuarios.faixas", 16));
+    }
+
+    /**
+     * @return uma cópia da conta em cache, ou null se ela não estiver em memória.
+     */
+    public Usuario ler(Cpf cpf) {
+        Usuario usuario = buscar(cpf);
+        return usuario == null ? null : copiar(usuario);
+    }
+
+    /**
+     * @return o nome da conta em cache, sem copiar a entrada, ou null se ela não estiver em memória.
+     */
+    public String lerNome(Cpf cpf) {
+        Usuario usuario = buscar(cpf);
+        return usuario == null ? null : usuario.getNome();
+    }
+
+    /**
+     * Geração atual da faixa do CPF; deve ser lida antes da consulta ao banco e passada a
+     * {@link #preencher(Usuario, long)}.
+     */
+    public long geracao(Cpf cpf) {
+        Faixa faixa = faixa(cpf);
+        faixa.lock.lock();
+        try {
+            return faixa.geracao;
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    /**
+     * Guarda a conta lida do banco, a menos que alguma escrita na faixa tenha sido confirmada
+     * depois de {@code geracao}.
+     */
+    public void preencher(Usuario usuario, long geracao) {
+        if (!ativo) return;
+        Faixa faixa = faixa(usuario.getCpf());
+        faixa.lock.lock();
+        try {
+            if (faixa.geracao == geracao) {
+                faixa.entradas.put(usuario.getCpf(), copiar(usuario));
+            }
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    /** Write-through: grava a conta já confirmada no banco. */
+    public void atualizar(Usuario usuario) {
+        Faixa faixa = faixa(usuario.getCpf());
+        faixa.lock.lock();
+        try {
+            faixa.geracao++;
+            if (ativo) {
+                faixa.entradas.put(usuario.getCpf(), copiar(usuario));
+            }
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    /**
+     * Write-through parcial: aplica à conta em cache, se houver, a alteração já confirmada no banco
+     * (só alguns campos, como nome e senha). Sem a conta em memória, só incrementa a geração.
+     */
+    public void alterar(Cpf cpf, Consumer<Usuario> alteracao) {
+        Faixa faixa = faixa(cpf);
+        faixa.lock.lock();
+        try {
+            faixa.geracao++;
+            Usuario usuario = faixa.entradas.get(cpf);
+            if (usuario != null) {
+                alteracao.accept(usuario);
+            }
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    /** Remove a conta, para ser relida do banco no próximo acesso. */
+    public void invalidar(Cpf cpf) {
+        Faixa faixa = faixa(cpf);
+        faixa.lock.lock();
+        try {
+            faixa.geracao++;
+            faixa.entradas.remove(cpf);
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        int tamanho = 0;
+        for (Faixa faixa : faixas) {
+            faixa.lock.lock();
+            try {
+                tamanho += faixa.entradas.size();
+            } finally {
+                faixa.lock.unlock();
+            }
+        }
+        return new Estatisticas(tamanho, acertos.sum(), faltas.sum(), despejos.sum());
+    }
+
+    private Usuario buscar(Cpf cpf) {
+        if (!ativo) return null;
+        Faixa faixa = faixa(cpf);
+        Usuario usuario;
+        faixa.lock.lock();
+        try {
+            usuario = faixa.entradas.get(cpf); // Em ordem de acesso: também marca como recente
+        } finally {
+            faixa.lock.unlock();
+        }
+        (usuario == null ? faltas : acertos).increment();
+        return usuario;
+    }
+
+    private Faixa faixa(Cpf cpf) {
+        int h = cpf.hashCode();
+        return faixas[(h ^ (h >>> 16)) & mascara];
+    }
+
+    private static Usuario copiar(Usuario usuario) {
+        return new Usuario(usuario.getCpf(), usuario.getNome(), usuario.getSenha(), usuario.getSaldoCentavos());
+    }
+
+    // ReentrantLock em vez de synchronized, pelo mesmo motivo do DatabaseManager (virtual threads)
+    private final class Faixa {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Cpf, Usuario> entradas;
+        long geracao;
+
+        Faixa(int capacidade) {
+            this.entradas = new LinkedHashMap<Cpf, Usuario>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Cpf, Usuario> maisAntiga) {
+                    if (size() <= capacidade) return false;
+                    despejos.increment();
+                    return true;
+                }
+            };
+        }
+    }
+
+    public static final class Estatisticas {
+        private final int tamanho;
+        private final long acertos;
+        private final long faltas;
+        private final long despejos;
+
+        Estatisticas(int tamanho, long acertos, long faltas, long despejos) {
+            this.tamanho = tamanho;
+            this.acertos = acertos;
+            this.faltas = faltas;
+            this.despejos = despejos;
+        }
+
+        public int getTamanho() { return tamanho; }
+        public long getAcertos() { return acertos; }
+        public long getFaltas() { return faltas; }
+        public long getDespejos() { return despejos; }
+
+        @Override
+        public String toString() {
+            return "CacheUsuarios{tamanho=" + tamanho + ", acertos=" + acertos +
+                   ", faltas=" + faltas + ", despejos=" + despejos + '}';
+        }
+    }
+}
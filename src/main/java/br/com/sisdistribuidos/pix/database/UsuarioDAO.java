@@ -1,5 +1,6 @@
 package br.com.sisdistribuidos.pix.database;
 
+import br.com.sisdistribuidos.pix.model.Cpf;
 import br.com.sisdistribuidos.pix.model.Usuario;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -8,33 +9,53 @@ import java.sql.SQLException;
 
 public class UsuarioDAO {
 
+    private final UsuarioCache cache = DatabaseManager.getUsuarioCache();
+
     public void criar(Usuario usuario) throws SQLException {
-        String sql = "INSERT INTO usuario (cpf, nome, senha, saldo) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, usuario.getCpf());
-            stmt.setString(2, usuario.getNome());
-            stmt.setString(3, usuario.getSenha());
-            stmt.setDouble(4, usuario.getSaldo()); 
-            stmt.executeUpdate();
-        }
+        String sql = "INSERT INTO usuario (cpf, nome, senha, saldo_centavos) VALUES (?, ?, ?, ?)";
+        DatabaseManager.executarEscrita(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, usuario.getCpf().getDigitos());
+                stmt.setString(2, usuario.getNome());
+                stmt.setString(3, usuario.getSenha());
+                stmt.setLong(4, usuario.getSaldoCentavos());
+                stmt.executeUpdate();
+            }
+            DatabaseManager.getSaldos().contaCriadaComConexao(conn, usuario.getCpf(), usuario.getSaldoCentavos());
+            Usuario confirmado = new Usuario(usuario.getCpf(), usuario.getNome(), usuario.getSenha(), usuario.getSaldoCentavos());
+            DatabaseManager.aposCommit(() -> cache.atualizar(confirmado));
+            return null;
+        });
     }
 
-    public Usuario ler(String cpf) throws SQLException {
-        String sql = "SELECT cpf, nome, senha, saldo FROM usuario WHERE cpf = ?";
+    /**
+     * Lê a conta do cache e, se ela não estiver em memória, do banco (preenchendo o cache).
+     */
+    public Usuario ler(Cpf cpf) throws SQLException {
+        Usuario emCache = cache.ler(cpf);
+        if (emCache != null) {
+            return emCache;
+        }
+        long geracao = cache.geracao(cpf);
+        String sql = "SELECT cpf, nome, senha, saldo_centavos FROM usuario WHERE cpf = ?";
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, cpf);
+            stmt.setLong(1, cpf.getDigitos());
             try (ResultSet rs = stmt.executeQuery()) {
-                return buildUsuarioFromResultSet(rs);
+                Usuario usuario = buildUsuarioFromResultSet(rs);
+                if (usuario != null) {
+                    cache.preencher(usuario, geracao);
+                }
+                return usuario;
             }
         }
     }
-    
-    public Usuario lerComConexao(Connection conn, String cpf) throws SQLException {
-        String sql = "SELECT cpf, nome, senha, saldo FROM usuario WHERE cpf = ?";
+
+    // Sempre do banco: dentro de uma tarefa de escrita, vê também o que ainda não foi confirmado
+    public Usuario lerComConexao(Connection conn, Cpf cpf) throws SQLException {
+        String sql = "SELECT cpf, nome, senha, saldo_centavos FROM usuario WHERE cpf = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, cpf);
+            stmt.setLong(1, cpf.getDigitos());
             try (ResultSet rs = stmt.executeQuery()) {
                 return buildUsuarioFromResultSet(rs);
             }
@@ -42,50 +63,161 @@ public class UsuarioDAO {
     }
 
     public void atualizar(Usuario usuario) throws SQLException {
-        String sql = "UPDATE usuario SET nome = ?, senha = ?, saldo = ? WHERE cpf = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, usuario.getNome());
-            stmt.setString(2, usuario.getSenha());
-            stmt.setDouble(3, usuario.getSaldo());
-            stmt.setString(4, usuario.getCpf());
-            if (stmt.executeUpdate() == 0) {
-                 throw new SQLException("Falha ao atualizar usuário: Usuário não encontrado.");
-            }
-            System.out.println("Usuário atualizado com sucesso: " + usuario.getCpf());
-        }
+        DatabaseManager.executarEscrita(conn -> {
+            atualizarComConexao(conn, usuario);
+            return null;
+        });
+        System.out.println("Usuário atualizado com sucesso: " + usuario.getCpf());
     }
     
     public void atualizarComConexao(Connection conn, Usuario usuario) throws SQLException {
-        String sql = "UPDATE usuario SET nome = ?, senha = ?, saldo = ? WHERE cpf = ?";
+        String sql = "UPDATE usuario SET nome = ?, senha = ?, saldo_centavos = ? WHERE cpf = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, usuario.getNome());
             stmt.setString(2, usuario.getSenha());
-            stmt.setDouble(3, usuario.getSaldo());
-            stmt.setString(4, usuario.getCpf());
+            stmt.setLong(3, usuario.getSaldoCentavos());
+            stmt.setLong(4, usuario.getCpf().getDigitos());
             if (stmt.executeUpdate() == 0) {
                  throw new SQLException("Falha ao atualizar usuário: Usuário não encontrado.");
             }
         }
+        Usuario confirmado = new Usuario(usuario.getCpf(), usuario.getNome(), usuario.getSenha(), usuario.getSaldoCentavos());
+        DatabaseManager.aposCommit(() -> cache.atualizar(confirmado));
     }
 
-    public void deletar(String cpf) throws SQLException {
+    /**
+     * Altera só o nome e a senha, sem tocar no saldo (que pode estar no motor em memória,
+     * ver {@link BalanceStore}).
+     *
+     * @return false se o usuário não existe.
+     */
+    public boolean atualizarDados(Cpf cpf, String nome, String senha) throws SQLException {
+        String sql = "UPDATE usuario SET nome = ?, senha = ? WHERE cpf = ?";
+        return DatabaseManager.executarEscrita(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, nome);
+                stmt.setString(2, senha);
+                stmt.setLong(3, cpf.getDigitos());
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            DatabaseManager.aposCommit(() -> cache.alterar(cpf, usuario -> {
+                usuario.setNome(nome);
+                usuario.setSenha(senha);
+            }));
+            return true;
+        });
+    }
+
+    /**
+     * Troca só a senha gravada, e só se ela ainda for {@code senhaAtual} (usado ao refazer o hash no login).
+     *
+     * @return false se a senha mudou nesse meio tempo ou o usuário não existe; nesse caso nada muda.
+     */
+    public boolean trocarSenhaSeIgual(Cpf cpf, String senhaAtual, String novaSenha) throws SQLException {
+        String sql = "UPDATE usuario SET senha = ? WHERE cpf = ? AND senha = ?";
+        return DatabaseManager.executarEscrita(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, novaSenha);
+                stmt.setLong(2, cpf.getDigitos());
+                stmt.setString(3, senhaAtual);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            DatabaseManager.aposCommit(() -> cache.alterar(cpf, usuario -> usuario.setSenha(novaSenha)));
+            return true;
+        });
+    }
+
+    /**
+     * Debita o valor (em centavos) em um único UPDATE condicional, sem ler o saldo antes.
+     *
+     * @return false se o usuário não existe ou o saldo é insuficiente; nesse caso nada muda.
+     */
+    public boolean debitarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException {
+        String sql = "UPDATE usuario SET saldo_centavos = saldo_centavos - ? WHERE cpf = ? AND saldo_centavos >= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, valorCentavos);
+            stmt.setLong(2, cpf.getDigitos());
+            stmt.setLong(3, valorCentavos);
+            return alterouSaldo(cpf, stmt.executeUpdate() == 1);
+        }
+    }
+
+    /**
+     * Credita o valor (em centavos) em um único UPDATE, sem ler o saldo antes.
+     *
+     * @return false se o usuário não existe.
+     */
+    public boolean creditarComConexao(Connection conn, Cpf cpf, long valorCentavos) throws SQLException {
+        String sql = "UPDATE usuario SET saldo_centavos = saldo_centavos + ? WHERE cpf = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, valorCentavos);
+            stmt.setLong(2, cpf.getDigitos());
+            return alterouSaldo(cpf, stmt.executeUpdate() == 1);
+        }
+    }
+
+    /**
+     * Grava o saldo (em centavos) já calculado pelo chamador.
+     */
+    public void definirSaldoComConexao(Connection conn, Cpf cpf, long saldoCentavos) throws SQLException {
+        String sql = "UPDATE usuario SET saldo_centavos = ? WHERE cpf = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, saldoCentavos);
+            stmt.setLong(2, cpf.getDigitos());
+            if (stmt.executeUpdate() == 1) {
+                DatabaseManager.aposCommit(() -> cache.alterar(cpf, usuario -> usuario.setSaldoCentavos(saldoCentavos)));
+            }
+        }
+    }
+
+    /**
+     * Remove a conta e as transações em que ela aparece. As chaves estrangeiras de transacao
+     * declaram ON DELETE CASCADE, mas o SQLite não as aplica (PRAGMA foreign_keys desligado),
+     * então as transações são apagadas aqui, na mesma transação.
+     */
+    public void deletar(Cpf cpf) throws SQLException {
+        String sqlTransacoes = "DELETE FROM transacao WHERE cpf_enviador = ? OR cpf_recebedor = ?";
         String sql = "DELETE FROM usuario WHERE cpf = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, cpf);
-            stmt.executeUpdate();
-            System.out.println("Usuário deletado com sucesso: " + cpf);
+        DatabaseManager.executarEscrita(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, cpf.getDigitos());
+                if (stmt.executeUpdate() == 1) {
+                    try (PreparedStatement transacoes = conn.prepareStatement(sqlTransacoes)) {
+                        transacoes.setLong(1, cpf.getDigitos());
+                        transacoes.setLong(2, cpf.getDigitos());
+                        transacoes.executeUpdate();
+                    }
+                    DatabaseManager.registrarExclusao(cpf);
+                    DatabaseManager.getSaldos().contaRemovidaComConexao(conn, cpf);
+                }
+            }
+            DatabaseManager.aposCommit(() -> cache.invalidar(cpf));
+            return null;
+        });
+        System.out.println("Usuário deletado com sucesso: " + cpf);
+    }
+
+    // Débito e crédito relativos: o novo saldo só é conhecido pelo banco, então a conta sai do cache
+    // e é relida no próximo acesso. As escritas com valores conhecidos (criar, atualizar, atualizarDados,
+    // trocarSenhaSeIgual, definirSaldoComConexao) gravam direto no cache.
+    private boolean alterouSaldo(Cpf cpf, boolean alterou) {
+        if (alterou) {
+            DatabaseManager.aposCommit(() -> cache.invalidar(cpf));
         }
+        return alterou;
     }
 
     private Usuario buildUsuarioFromResultSet(ResultSet rs) throws SQLException {
         if (rs.next()) {
             Usuario usuario = new Usuario();
-            usuario.setCpf(rs.getString("cpf"));
+            usuario.setCpf(Cpf.deDigitos(rs.getLong("cpf")));
             usuario.setNome(rs.getString("nome"));
             usuario.setSenha(rs.getString("senha"));
-            usuario.setSaldo(rs.getFloat("saldo")); 
+            usuario.setSaldoCentavos(rs.getLong("saldo_centavos"));
             return usuario;
         }
         return null; 
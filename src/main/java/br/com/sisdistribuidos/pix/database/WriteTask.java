@@ -0,0 +1,13 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Unidade de trabalho executada pela thread de escrita dentro de uma transação.
+ * Lançar uma exceção desfaz tudo o que a tarefa escreveu.
+ */
+@FunctionalInterface
+public interface WriteTask<T> {
+    T executar(Connection conn) throws SQLException;
+}
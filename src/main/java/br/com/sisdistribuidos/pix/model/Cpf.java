@@ -0,0 +1,98 @@
+package br.com.sisdistribuidos.pix.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * CPF guardado como os seus 11 dígitos em um {@code long}: é o que vai nos mapas, nos caches,
+ * nos parâmetros dos DAOs e na coluna INTEGER do banco. O texto "000.000.000-00" só existe no
+ * protocolo; a conversão é feita uma vez na entrada (depois do {@code Validator}, ao ler a
+ * requisição) e uma na saída, ao escrever o JSON.
+ */
+public final class Cpf implements Comparable<Cpf> {
+
+    private static final long MAXIMO = 99_999_999_999L;
+
+    private final long digitos;
+
+    private Cpf(long digitos) {
+        this.digitos = digitos;
+    }
+
+    public static Cpf deDigitos(long digitos) {
+        if (digitos < 0 || digitos > MAXIMO) {
+            throw new IllegalArgumentException("CPF deve ter no máximo 11 dígitos: " + digitos);
+        }
+        return new Cpf(digitos);
+    }
+
+    /**
+     * @throws IllegalArgumentException se o texto não estiver no formato "000.000.000-00".
+     */
+    @JsonCreator
+    public static Cpf parse(String texto) {
+        if (!isFormatoValido(texto)) {
+            throw new IllegalArgumentException("CPF fora do formato '000.000.000-00': " + texto);
+        }
+        long digitos = 0;
+        for (int i = 0; i < 14; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') digitos = digitos * 10 + (c - '0');
+        }
+        return new Cpf(digitos);
+    }
+
+    // "000.000.000-00"
+    public static boolean isFormatoValido(String s) {
+        if (s == null || s.length() != 14) return false;
+        for (int i = 0; i < 14; i++) {
+            char c = s.charAt(i);
+            if (i == 3 || i == 7) {
+                if (c != '.') return false;
+            } else if (i == 11) {
+                if (c != '-') return false;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getDigitos() {
+        return digitos;
+    }
+
+    /** "000.000.000-00", como no protocolo. */
+    @JsonValue
+    @Override
+    public String toString() {
+        char[] texto = new char[14];
+        long resto = digitos;
+        for (int i = 13; i >= 0; i--) {
+            if (i == 11) {
+                texto[i] = '-';
+            } else if (i == 3 || i == 7) {
+                texto[i] = '.';
+            } else {
+                texto[i] = (char) ('0' + resto % 10);
+                resto /= 10;
+            }
+        }
+        return new String(texto);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Cpf && ((Cpf) o).digitos == digitos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(digitos);
+    }
+
+    @Override
+    public int compareTo(Cpf outro) {
+        return Long.compare(digitos, outro.digitos);
+    }
+}
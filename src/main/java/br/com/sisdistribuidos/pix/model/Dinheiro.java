@@ -0,0 +1,159 @@
+package br.com.sisdistribuidos.pix.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores em dinheiro são guardados como {@code long} em centavos, do JSON até o banco.
+ * No protocolo continuam em reais com até 2 casas decimais (ex: 70.25); a conversão é feita
+ * aqui, uma vez na entrada e uma na saída, sem passar por double. Valores recebidos com mais
+ * casas são arredondados para o centavo com {@link #ARREDONDAMENTO} (70.255 vira 70.26 e 70.245
+ * vira 70.24), como o protocolo original, que aceitava qualquer double.
+ */
+public final class Dinheiro {
+
+    public static final int CASAS_DECIMAIS = 2;
+
+    /** Arredondamento de valores com mais de {@link #CASAS_DECIMAIS} casas: meio para o par. */
+    public static final RoundingMode ARREDONDAMENTO = RoundingMode.HALF_EVEN;
+
+    /** R$ 100 bilhões: limite de um valor recebido, longe do overflow de um long somando saldos. */
+    public static final long MAXIMO_CENTAVOS = 10_000_000_000_000L;
+
+    private Dinheiro() {}
+
+    /** Resultado de {@link #centavosDe(long)} e {@link #centavosDe(double)} para um valor não representável. */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    private static final BigDecimal MAXIMO = BigDecimal.valueOf(MAXIMO_CENTAVOS);
+
+    // Dígitos da parte inteira de MAXIMO_CENTAVOS; conferidos antes de arredondar, para um expoente
+    // enorme (ex.: 1E+999999999 ou 1E-999999999) não virar um BigInteger gigante
+    private static final int DIGITOS_MAXIMO = MAXIMO.precision();
+
+    /**
+     * Converte reais em centavos, arredondando com {@link #ARREDONDAMENTO}.
+     *
+     * @throws ArithmeticException se o valor passar de {@link #MAXIMO_CENTAVOS}.
+     */
+    public static long paraCentavos(BigDecimal reais) {
+        long centavos = centavosDe(reais);
+        if (centavos == INVALIDO) {
+            throw new ArithmeticException("Valor fora do limite: " + reais.toPlainString());
+        }
+        return centavos;
+    }
+
+    /** Indica se o valor em reais pode ser convertido por {@link #paraCentavos(BigDecimal)}. */
+    public static boolean isRepresentavel(BigDecimal reais) {
+        return centavosDe(reais) != INVALIDO;
+    }
+
+    /**
+     * Converte reais em centavos, arredondando com {@link #ARREDONDAMENTO}.
+     *
+     * @return os centavos, ou {@link #INVALIDO} se passar de {@link #MAXIMO_CENTAVOS}.
+     */
+    public static long centavosDe(BigDecimal reais) {
+        // Dígitos da parte inteira em centavos, sem mexer na escala de reais ainda
+        long digitos = (long) reais.precision() - reais.scale() + CASAS_DECIMAIS;
+        if (digitos > DIGITOS_MAXIMO) {
+            return INVALIDO;
+        }
+        if (digitos < 0) { // menos de 0,1 centavo
+            return 0;
+        }
+        BigDecimal centavos = reais.setScale(CASAS_DECIMAIS, ARREDONDAMENTO).movePointRight(CASAS_DECIMAIS);
+        return centavos.abs().compareTo(MAXIMO) <= 0 ? centavos.longValue() : INVALIDO;
+    }
+
+    /**
+     * Converte reais inteiros em centavos, sem alocar nada.
+     *
+     * @return os centavos, ou {@link #INVALIDO} se passar de {@link #MAXIMO_CENTAVOS}.
+     */
+    public static long centavosDe(long reais) {
+        long limite = MAXIMO_CENTAVOS / 100;
+        return reais >= -limite && reais <= limite ? reais * 100 : INVALIDO;
+    }
+
+    /**
+     * Converte reais lidos como double (o padrão do Jackson para números com ponto) em centavos.
+     * Quando o double é exatamente o mais próximo de um valor com até 2 casas (o caso comum, ex.:
+     * 70.25) a conversão não aloca nada; com mais casas (ex.: 70.251) o valor é arredondado pelo
+     * seu texto decimal mais curto, como foi escrito no JSON, e não pelo binário do double.
+     *
+     * @return os centavos, ou {@link #INVALIDO} se não for finito ou passar de {@link #MAXIMO_CENTAVOS}.
+     */
+    public static long centavosDe(double reais) {
+        double centavos = Math.rint(reais * 100);
+        if (!(Math.abs(centavos) <= MAXIMO_CENTAVOS + 1)) {
+            return INVALIDO;
+        }
+        if (centavos / 100 != reais) {
+            return centavosDe(BigDecimal.valueOf(reais));
+        }
+        return Math.abs(centavos) <= MAXIMO_CENTAVOS ? (long) centavos : INVALIDO;
+    }
+
+    /** Como {@link #centavosDe(double)}, para um número lido como float. */
+    public static long centavosDe(float reais) {
+        double centavos = Math.rint((double) reais * 100);
+        if (!(Math.abs(centavos) <= MAXIMO_CENTAVOS + 1)) {
+            return INVALIDO;
+        }
+        if ((float) (centavos / 100) != reais) {
+            return centavosDe(new BigDecimal(Float.toString(reais)));
+        }
+        return Math.abs(centavos) <= MAXIMO_CENTAVOS ? (long) centavos : INVALIDO;
+    }
+
+    public static BigDecimal paraReais(long centavos) {
+        return BigDecimal.valueOf(centavos, CASAS_DECIMAIS);
+    }
+
+    public static String formatar(long centavos) {
+        return paraReais(centavos).toPlainString();
+    }
+
+    /** Escreve os centavos como número decimal em reais. */
+    public static class Serializador extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long centavos, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(paraReais(centavos));
+        }
+    }
+
+    /** Lê um número decimal em reais como centavos, arredondado; o {@code Validator} já recusou valores fora do limite. */
+    public static class Desserializador extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long centavos;
+            switch (p.getNumberType()) {
+                case INT:
+                case LONG:
+                    centavos = centavosDe(p.getLongValue());
+                    break;
+                case FLOAT:
+                    centavos = centavosDe(p.getFloatValue());
+                    break;
+                case DOUBLE:
+                    centavos = centavosDe(p.getDoubleValue());
+                    break;
+                default: // BigInteger ou BigDecimal (ex.: do Smile)
+                    centavos = centavosDe(p.getDecimalValue());
+            }
+            if (centavos == INVALIDO) {
+                return (Long) ctxt.handleWeirdNumberValue(Long.class, p.getNumberValue(), "fora do limite");
+            }
+            return centavos;
+        }
+    }
+}
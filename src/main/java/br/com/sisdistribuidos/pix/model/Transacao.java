@@ -3,23 +3,35 @@ package br.com.sisdistribuidos.pix.model;
 import java.util.UUID;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 // A anotação @JsonInclude é usada para não incluir campos nulos na serialização JSON.
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Transacao {
+    public static final String TIPO_TRANSFERENCIA = "transferencia";
+    public static final String TIPO_DEPOSITO = "deposito";
+
     private String id;
+    // Só interno: um depósito e uma transferência para si mesmo têm os mesmos CPFs, mas efeitos diferentes no saldo
+    @JsonIgnore
+    private String tipo;
+    // Em centavos; no JSON continua 'valor_enviado' em reais
     @JsonProperty("valor_enviado")
-    private double valor;
+    @JsonSerialize(using = Dinheiro.Serializador.class)
+    @JsonDeserialize(using = Dinheiro.Desserializador.class)
+    private long valorCentavos;
     @JsonProperty("usuario_enviador")
     private Usuario usuarioEnviador;
     @JsonProperty("usuario_recebedor") 
     private Usuario usuarioRecebedor; 
     @JsonProperty("cpf_enviador") 
-    private String cpfEnviador;
+    private Cpf cpfEnviador;
     @JsonProperty("cpf_recebedor") 
-    private String cpfRecebedor;
+    private Cpf cpfRecebedor;
     @JsonProperty("criado_em")
     private String criadoEm; 
     @JsonProperty("atualizado_em")
@@ -34,18 +46,33 @@ public class Transacao {
         this.atualizadoEm = agora;
     }
 
-    public Transacao(double valor, String cpfEnviador, String cpfRecebedor) {
+    public Transacao(long valorCentavos, Cpf cpfEnviador, Cpf cpfRecebedor) {
         this();
-        this.valor = valor;
+        this.valorCentavos = valorCentavos;
         this.cpfEnviador = cpfEnviador;
         this.cpfRecebedor = cpfRecebedor;
     }
 
+    public static Transacao transferencia(long valorCentavos, Cpf cpfEnviador, Cpf cpfRecebedor) {
+        Transacao transacao = new Transacao(valorCentavos, cpfEnviador, cpfRecebedor);
+        transacao.tipo = TIPO_TRANSFERENCIA;
+        return transacao;
+    }
+
+    public static Transacao deposito(long valorCentavos, Cpf cpf) {
+        Transacao transacao = new Transacao(valorCentavos, cpf, cpf);
+        transacao.tipo = TIPO_DEPOSITO;
+        return transacao;
+    }
+
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
-    public double getValor() { return valor; }
-    public void setValor(double valor) { this.valor = valor; }
+    public String getTipo() { return tipo; }
+    public void setTipo(String tipo) { this.tipo = tipo; }
+
+    public long getValorCentavos() { return valorCentavos; }
+    public void setValorCentavos(long valorCentavos) { this.valorCentavos = valorCentavos; }
 
     
     
@@ -57,11 +84,11 @@ public class Transacao {
 
     
     
-    public String getCpfEnviador() { return cpfEnviador; }
-    public void setCpfEnviador(String cpfEnviador) { this.cpfEnviador = cpfEnviador; }
+    public Cpf getCpfEnviador() { return cpfEnviador; }
+    public void setCpfEnviador(Cpf cpfEnviador) { this.cpfEnviador = cpfEnviador; }
 
-    public String getCpfRecebedor() { return cpfRecebedor; }
-    public void setCpfRecebedor(String cpfRecebedor) { this.cpfRecebedor = cpfRecebedor; }
+    public Cpf getCpfRecebedor() { return cpfRecebedor; }
+    public void setCpfRecebedor(Cpf cpfRecebedor) { this.cpfRecebedor = cpfRecebedor; }
 
     
     
@@ -75,7 +102,7 @@ public class Transacao {
     public String toString() {
         return "Transacao{" +
                 "id='" + id + '\'' +
-                ", valor=" + valor +
+                ", valor=" + Dinheiro.formatar(valorCentavos) +
                 ", cpfEnviador='" + cpfEnviador + '\'' +
                 ", cpfRecebedor='" + cpfRecebedor + '\'' +
                 '}';
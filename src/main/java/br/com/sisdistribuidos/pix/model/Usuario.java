@@ -1,29 +1,36 @@
 package br.com.sisdistribuidos.pix.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 // A anotação @JsonInclude é usada para não incluir campos nulos na serialização JSON.
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Usuario {
-    private String cpf;
+    private Cpf cpf;
     private String nome;
     private String senha;
-    private double saldo;
+    // Em centavos; no JSON continua 'saldo' em reais
+    @JsonProperty("saldo")
+    @JsonSerialize(using = Dinheiro.Serializador.class)
+    @JsonDeserialize(using = Dinheiro.Desserializador.class)
+    private long saldoCentavos;
 
     // Construtor vazio, necessário para o Jackson
     public Usuario() {}
 
     // Construtor completo para facilitar a criação de objetos
-    public Usuario(String cpf, String nome, String senha, double saldo) {
+    public Usuario(Cpf cpf, String nome, String senha, long saldoCentavos) {
         this.cpf = cpf;
         this.nome = nome;
         this.senha = senha;
-        this.saldo = saldo;
+        this.saldoCentavos = saldoCentavos;
     }
     
     // Getters e Setters para todos os campos
-    public String getCpf() { return cpf; }
-    public void setCpf(String cpf) { this.cpf = cpf; }
+    public Cpf getCpf() { return cpf; }
+    public void setCpf(Cpf cpf) { this.cpf = cpf; }
     
     public String getNome() { return nome; }
     public void setNome(String nome) { this.nome = nome; }
@@ -31,15 +38,15 @@ public class Usuario {
     public String getSenha() { return senha; }
     public void setSenha(String senha) { this.senha = senha; }
     
-    public double getSaldo() { return saldo; }
-    public void setSaldo(double saldo) { this.saldo = saldo; }
+    public long getSaldoCentavos() { return saldoCentavos; }
+    public void setSaldoCentavos(long saldoCentavos) { this.saldoCentavos = saldoCentavos; }
 
     @Override
     public String toString() {
         return "Usuario{" +
                 "cpf='" + cpf + '\'' +
                 ", nome='" + nome + '\'' +
-                ", saldo=" + saldo +
+                ", saldo=" + Dinheiro.formatar(saldoCentavos) +
                 '}';
     }
 }
\ No newline at end of file
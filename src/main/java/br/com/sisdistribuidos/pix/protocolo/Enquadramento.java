@@ -0,0 +1,98 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura e escrita das mensagens no socket: linhas de texto (JSON) ou quadros binários
+ * com prefixo de tamanho (Smile). Os streams devem ser bufferizados por quem chama.
+ */
+public final class Enquadramento {
+
+    public static final int TAMANHO_CABECALHO_QUADRO = 4;
+    public static final int TAMANHO_MAXIMO_QUADRO = 1024 * 1024;
+
+    private Enquadramento() {}
+
+    /**
+     * Lê uma linha terminada em '\n' (um '\r' antes dele é descartado), lendo byte a byte do
+     * stream para não consumir nada além da linha: depois do handshake os próximos bytes
+     * podem já ser quadros binários.
+     *
+     * @return a linha sem o terminador, ou null no fim do stream sem nenhum byte lido.
+     */
+    public static String lerLinha(InputStream in) throws IOException {
+        ByteArrayOutputStream linha = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return texto(linha);
+            }
+            linha.write(b);
+        }
+        return linha.size() > 0 ? texto(linha) : null;
+    }
+
+    /**
+     * Lê um quadro: 4 bytes com o tamanho (big-endian) e a mensagem.
+     *
+     * @return a mensagem, ou null se o stream terminou entre dois quadros.
+     * @throws IOException se o stream terminar no meio de um quadro ou o tamanho for inválido.
+     */
+    public static byte[] lerQuadro(InputStream in) throws IOException {
+        int b0 = in.read();
+        if (b0 == -1) {
+            return null;
+        }
+        int tamanho = (b0 << 24) | (lerByte(in) << 16) | (lerByte(in) << 8) | lerByte(in);
+        validarTamanho(tamanho);
+
+        byte[] quadro = new byte[tamanho];
+        int lidos = 0;
+        while (lidos < tamanho) {
+            int n = in.read(quadro, lidos, tamanho - lidos);
+            if (n == -1) {
+                throw new EOFException("Conexão encerrada no meio de um quadro.");
+            }
+            lidos += n;
+        }
+        return quadro;
+    }
+
+    public static void escreverCabecalho(OutputStream out, int tamanho) throws IOException {
+        out.write(tamanho >>> 24);
+        out.write(tamanho >>> 16);
+        out.write(tamanho >>> 8);
+        out.write(tamanho);
+    }
+
+    public static void escreverQuadro(OutputStream out, byte[] mensagem) throws IOException {
+        escreverCabecalho(out, mensagem.length);
+        out.write(mensagem);
+    }
+
+    public static void validarTamanho(int tamanho) throws IOException {
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_QUADRO) {
+            throw new IOException("Tamanho de quadro inválido: " + tamanho);
+        }
+    }
+
+    private static int lerByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Conexão encerrada no meio de um quadro.");
+        }
+        return b;
+    }
+
+    private static String texto(ByteArrayOutputStream linha) {
+        byte[] bytes = linha.toByteArray();
+        int tamanho = bytes.length;
+        if (tamanho > 0 && bytes[tamanho - 1] == '\r') tamanho--;
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+}
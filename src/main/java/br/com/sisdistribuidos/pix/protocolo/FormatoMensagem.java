@@ -0,0 +1,34 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+/**
+ * Codificação das mensagens de uma conexão, negociada no 'conectar' pelo campo opcional "formato".
+ * O handshake é sempre em JSON texto; a partir da resposta dele, a conexão usa o formato escolhido.
+ */
+public enum FormatoMensagem {
+    // Uma mensagem JSON por linha, terminada em '\n' (padrão)
+    JSON("json"),
+    // Quadros binários: 4 bytes com o tamanho (big-endian) seguidos da mensagem em Smile
+    SMILE("smile");
+
+    private final String valor;
+
+    FormatoMensagem(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    /**
+     * @throws IllegalArgumentException se o valor não corresponder a nenhum formato.
+     */
+    public static FormatoMensagem deValor(String valor) {
+        for (FormatoMensagem formato : values()) {
+            if (formato.valor.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de mensagem não suportado: " + valor);
+    }
+}
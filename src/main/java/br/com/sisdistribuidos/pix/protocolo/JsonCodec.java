@@ -0,0 +1,232 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificação JSON do servidor, criada uma única vez no início do processo e compartilhada
+ * por todas as conexões. Um único ObjectMapper mantém os caches de serializadores e
+ * desserializadores do Jackson; os ObjectReader/ObjectWriter de cada mensagem são montados
+ * no construtor e são imutáveis, podendo ser usados por qualquer thread.
+ * <p>
+ * As conexões que negociam o formato binário usam um segundo ObjectMapper com a fábrica Smile.
+ * As duas codificações produzem a mesma árvore (JsonNode), então a validação e a conversão
+ * para as requisições tipadas são as mesmas. As respostas são serializadas direto no formato
+ * da conexão, cada uma com os seus ObjectWriter, sem passar por JSON.
+ */
+public class JsonCodec {
+
+    private static final List<Class<?>> REQUISICOES = Arrays.asList(
+            RequisicaoToken.class, RequisicaoLogin.class, RequisicaoCriarUsuario.class,
+            RequisicaoAtualizarUsuario.class, RequisicaoTransacao.class, RequisicaoExtrato.class,
+            RequisicaoDeposito.class, RequisicaoErroServidor.class, RequisicaoTransacaoLote.class,
+            RequisicaoDepositoLote.class);
+    private static final List<Class<? extends Resposta>> RESPOSTAS = Arrays.asList(
+            Resposta.class, RespostaLogin.class, RespostaUsuario.class, RespostaLote.class);
+
+    private static final byte[] PREFIXO_ID = "{\"id\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper mapperSmile;
+    private final Map<Class<?>, ObjectReader> leitores;
+    private final Map<Class<?>, ObjectWriter> escritores;
+    private final Map<Class<?>, ObjectWriter> escritoresSmile;
+    private final ObjectWriter escritorComIdSmile;
+    // Sem flush a cada transação: o JsonGenerator só descarrega quando o seu buffer enche
+    private final ObjectWriter escritorTransacao;
+    private final ObjectWriter escritorTransacaoSmile;
+
+    public JsonCodec() {
+        this.mapper = new ObjectMapper();
+        this.mapperSmile = new ObjectMapper(new SmileFactory());
+
+        Map<Class<?>, ObjectReader> leitores = new HashMap<>();
+        for (Class<?> tipo : REQUISICOES) {
+            leitores.put(tipo, mapper.readerFor(tipo));
+        }
+        this.leitores = Collections.unmodifiableMap(leitores);
+
+        Map<Class<?>, ObjectWriter> escritores = new HashMap<>();
+        Map<Class<?>, ObjectWriter> escritoresSmile = new HashMap<>();
+        for (Class<?> tipo : RESPOSTAS) {
+            escritores.put(tipo, mapper.writerFor(tipo));
+            escritoresSmile.put(tipo, mapperSmile.writerFor(tipo));
+        }
+        this.escritores = Collections.unmodifiableMap(escritores);
+        this.escritoresSmile = Collections.unmodifiableMap(escritoresSmile);
+        this.escritorComIdSmile = mapperSmile.writerFor(RespostaComId.class);
+
+        this.escritorTransacao = mapper.writerFor(Transacao.class)
+                                       .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.escritorTransacaoSmile = mapperSmile.writerFor(Transacao.class)
+                                                 .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Exercita uma vez cada leitura e escrita do protocolo para que o Jackson construa
+     * (e guarde em cache) todos os serializadores antes da primeira conexão.
+     */
+    public JsonCodec aquecer() throws IOException {
+        ObjectNode vazio = mapper.createObjectNode();
+        for (Class<?> tipo : REQUISICOES) {
+            ler(vazio, tipo);
+        }
+        mapper.readTree("{\"operacao\":\"conectar\",\"usuario\":{\"nome\":\"x\"},\"valor\":1.5,\"limite\":1}");
+
+        Usuario usuario = new Usuario(Cpf.deDigitos(0L), "Aquecimento", null, 0L);
+        // O 'id' pode ser número (int ou long, conforme o tamanho) ou texto; cada tipo de nó tem o seu serializador
+        List<JsonNode> ids = Arrays.asList(mapper.getNodeFactory().numberNode(1), mapper.getNodeFactory().numberNode(1L),
+                                           mapper.getNodeFactory().textNode("1"));
+        // Os resultados do lote vêm num ArrayList, como no ClientHandler: o serializador é do tipo concreto
+        List<RespostaLote.ResultadoItem> resultados = new ArrayList<>();
+        resultados.add(new RespostaLote.ResultadoItem(true, "Aquecimento"));
+        List<Resposta> respostas = Arrays.asList(
+                new Resposta("conectar", true, "Aquecimento"), new RespostaLogin("token"), new RespostaUsuario(usuario),
+                new RespostaLote("depositar_lote", "Aquecimento", resultados));
+        for (Resposta resposta : respostas) {
+            for (FormatoMensagem formato : FormatoMensagem.values()) {
+                codificar(serializar(resposta), formato);
+                for (JsonNode id : ids) {
+                    codificar(serializar(resposta), formato, id);
+                }
+            }
+        }
+
+        Transacao transacao = new Transacao(100L, usuario.getCpf(), usuario.getCpf());
+        transacao.setUsuarioEnviador(usuario);
+        transacao.setUsuarioRecebedor(usuario);
+        escritorTransacao.writeValueAsBytes(transacao);
+        escritorTransacaoSmile.writeValueAsBytes(transacao);
+        lerArvore(codificar(RespostaPronta.fixa("conectar", true, "Aquecimento"), FormatoMensagem.SMILE), FormatoMensagem.SMILE);
+        return this;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    public ObjectWriter getEscritorTransacao() {
+        return escritorTransacao;
+    }
+
+    public JsonFactory getFactory(FormatoMensagem formato) {
+        return formato == FormatoMensagem.SMILE ? mapperSmile.getFactory() : mapper.getFactory();
+    }
+
+    public ObjectWriter getEscritorTransacao(FormatoMensagem formato) {
+        return formato == FormatoMensagem.SMILE ? escritorTransacaoSmile : escritorTransacao;
+    }
+
+    public JsonNode lerArvore(String json) throws JsonProcessingException {
+        return mapper.readTree(json);
+    }
+
+    /** Lê uma mensagem binária (o conteúdo de um quadro) no formato da conexão. */
+    public JsonNode lerArvore(byte[] mensagem, FormatoMensagem formato) throws IOException {
+        return formato == FormatoMensagem.SMILE ? mapperSmile.readTree(mensagem) : mapper.readTree(mensagem);
+    }
+
+    /** Converte a árvore já validada na requisição tipada. */
+    public <T> T ler(JsonNode rootNode, Class<T> tipo) throws IOException {
+        ObjectReader leitor = leitores.get(tipo);
+        if (leitor == null) {
+            throw new IllegalArgumentException("Requisição não registrada no codec: " + tipo.getName());
+        }
+        return leitor.readValue(rootNode);
+    }
+
+    /**
+     * A resposta pronta para envio. A serialização fica para {@link #codificar}, que já sabe o
+     * formato da conexão: cada resposta é codificada uma única vez, só no formato em que sai.
+     */
+    public RespostaPronta serializar(Resposta resposta) {
+        escritor(escritores, resposta); // Falha aqui, e não no envio, se o tipo não estiver registrado
+        return new RespostaPronta(resposta);
+    }
+
+    /**
+     * Os bytes da resposta no formato da conexão, serializados na primeira vez e guardados na
+     * própria resposta, então as respostas constantes são serializadas uma única vez por formato.
+     */
+    public byte[] codificar(RespostaPronta resposta, FormatoMensagem formato) throws IOException {
+        if (formato == FormatoMensagem.JSON) {
+            return json(resposta);
+        }
+        byte[] smile = resposta.getBytesSmile();
+        if (smile == null) {
+            Resposta origem = resposta.getResposta();
+            if (origem != null) {
+                smile = escritor(escritoresSmile, origem).writeValueAsBytes(origem);
+            } else {
+                smile = mapperSmile.writeValueAsBytes(mapper.readTree(resposta.getBytes())); // Montada direto em JSON
+            }
+            resposta.setBytesSmile(smile);
+        }
+        return smile;
+    }
+
+    /**
+     * Como {@link #codificar(RespostaPronta, FormatoMensagem)}, devolvendo também o 'id' da
+     * requisição (quando houver) como primeira chave da resposta.
+     */
+    public byte[] codificar(RespostaPronta resposta, FormatoMensagem formato, JsonNode id) throws IOException {
+        if (id == null) {
+            return codificar(resposta, formato);
+        }
+        if (formato == FormatoMensagem.JSON) {
+            byte[] json = json(resposta);
+            // {"id":<id>, seguido do objeto original sem o '{'
+            byte[] campoId = mapper.writeValueAsBytes(id);
+            byte[] comId = new byte[PREFIXO_ID.length + campoId.length + json.length];
+            System.arraycopy(PREFIXO_ID, 0, comId, 0, PREFIXO_ID.length);
+            System.arraycopy(campoId, 0, comId, PREFIXO_ID.length, campoId.length);
+            comId[PREFIXO_ID.length + campoId.length] = ',';
+            System.arraycopy(json, 1, comId, PREFIXO_ID.length + campoId.length + 1, json.length - 1);
+            return comId;
+        }
+        Resposta origem = resposta.getResposta();
+        if (origem != null) {
+            return escritorComIdSmile.writeValueAsBytes(new RespostaComId(id, origem));
+        }
+        ObjectNode arvore = mapperSmile.createObjectNode(); // Montada direto em JSON
+        arvore.set("id", id);
+        arvore.setAll((ObjectNode) mapper.readTree(resposta.getBytes()));
+        return mapperSmile.writeValueAsBytes(arvore);
+    }
+
+    private byte[] json(RespostaPronta resposta) throws JsonProcessingException {
+        byte[] json = resposta.getBytes();
+        if (json == null) {
+            Resposta origem = resposta.getResposta();
+            json = escritor(escritores, origem).writeValueAsBytes(origem);
+            resposta.setBytes(json);
+        }
+        return json;
+    }
+
+    private static ObjectWriter escritor(Map<Class<?>, ObjectWriter> escritores, Resposta resposta) {
+        ObjectWriter escritor = escritores.get(resposta.getClass());
+        if (escritor == null) {
+            throw new IllegalArgumentException("Resposta não registrada no codec: " + resposta.getClass().getName());
+        }
+        return escritor;
+    }
+}
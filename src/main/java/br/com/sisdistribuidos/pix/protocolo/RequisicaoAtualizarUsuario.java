@@ -0,0 +1,29 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Requisição de 'usuario_atualizar'; em 'usuario' vêm apenas os campos alterados (nome e/ou senha).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoAtualizarUsuario {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("usuario")
+    private AlteracaoUsuario usuario;
+
+    public String getToken() { return token; }
+    public AlteracaoUsuario getUsuario() { return usuario; }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class AlteracaoUsuario {
+        @JsonProperty("nome")
+        private String nome;
+        @JsonProperty("senha")
+        private String senha;
+
+        public String getNome() { return nome; }
+        public String getSenha() { return senha; }
+    }
+}
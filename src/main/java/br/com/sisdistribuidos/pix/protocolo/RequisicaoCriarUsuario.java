@@ -0,0 +1,22 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Requisição de 'usuario_criar'.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoCriarUsuario {
+    @JsonProperty("nome")
+    private String nome;
+    @JsonProperty("cpf")
+    private Cpf cpf;
+    @JsonProperty("senha")
+    private String senha;
+
+    public String getNome() { return nome; }
+    public Cpf getCpf() { return cpf; }
+    public String getSenha() { return senha; }
+}
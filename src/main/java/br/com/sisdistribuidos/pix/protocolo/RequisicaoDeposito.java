@@ -0,0 +1,21 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Requisição de 'depositar'.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoDeposito {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("valor_enviado")
+    @JsonDeserialize(using = Dinheiro.Desserializador.class)
+    private long valorCentavos;
+
+    public String getToken() { return token; }
+    public long getValorCentavos() { return valorCentavos; }
+}
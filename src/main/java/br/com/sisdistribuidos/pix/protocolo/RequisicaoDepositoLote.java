@@ -0,0 +1,30 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.util.List;
+
+/**
+ * Requisição de 'depositar_lote': vários depósitos na conta do usuário da sessão.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoDepositoLote {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("depositos")
+    private List<ItemDeposito> depositos;
+
+    public String getToken() { return token; }
+    public List<ItemDeposito> getDepositos() { return depositos; }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ItemDeposito {
+        @JsonProperty("valor_enviado")
+        @JsonDeserialize(using = Dinheiro.Desserializador.class)
+        private long valorCentavos;
+
+        public long getValorCentavos() { return valorCentavos; }
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Mensagem 'erro_servidor' enviada pelo cliente ao receber uma resposta fora do protocolo.
+ * Os campos só precisam estar presentes (de qualquer tipo), por isso ficam como JsonNode.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoErroServidor {
+    @JsonProperty("operacao_enviada")
+    private JsonNode operacaoEnviada;
+    @JsonProperty("info")
+    private JsonNode info;
+
+    public String getOperacaoEnviada() { return operacaoEnviada.asText(); }
+    public String getInfo() { return info.asText(); }
+}
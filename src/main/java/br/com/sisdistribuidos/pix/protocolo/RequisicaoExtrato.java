@@ -0,0 +1,27 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Requisição de 'transacao_ler'. 'limite' e 'cursor' são opcionais (paginação).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoExtrato {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("data_inicial")
+    private String dataInicial;
+    @JsonProperty("data_final")
+    private String dataFinal;
+    @JsonProperty("limite")
+    private Integer limite;
+    @JsonProperty("cursor")
+    private String cursor;
+
+    public String getToken() { return token; }
+    public String getDataInicial() { return dataInicial; }
+    public String getDataFinal() { return dataFinal; }
+    public Integer getLimite() { return limite; }
+    public String getCursor() { return cursor; }
+}
@@ -0,0 +1,15 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Requisição que só carrega o token da sessão: usuario_ler, usuario_logout e usuario_deletar.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoToken {
+    @JsonProperty("token")
+    private String token;
+
+    public String getToken() { return token; }
+}
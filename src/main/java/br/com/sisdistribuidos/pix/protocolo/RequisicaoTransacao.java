@@ -0,0 +1,25 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Requisição de 'transacao_criar'.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoTransacao {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("valor")
+    @JsonDeserialize(using = Dinheiro.Desserializador.class)
+    private long valorCentavos;
+    @JsonProperty("cpf_destino")
+    private Cpf cpfDestino;
+
+    public String getToken() { return token; }
+    public long getValorCentavos() { return valorCentavos; }
+    public Cpf getCpfDestino() { return cpfDestino; }
+}
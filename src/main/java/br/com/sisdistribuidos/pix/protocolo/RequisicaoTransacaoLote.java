@@ -0,0 +1,35 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Dinheiro;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.util.List;
+
+/**
+ * Requisição de 'transacao_criar_lote': várias transferências do usuário da sessão,
+ * cada uma com os mesmos campos de 'transacao_criar'.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true) // 'operacao' já foi lida e validada
+public class RequisicaoTransacaoLote {
+    @JsonProperty("token")
+    private String token;
+    @JsonProperty("transacoes")
+    private List<ItemTransacao> transacoes;
+
+    public String getToken() { return token; }
+    public List<ItemTransacao> getTransacoes() { return transacoes; }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ItemTransacao {
+        @JsonProperty("valor")
+        @JsonDeserialize(using = Dinheiro.Desserializador.class)
+        private long valorCentavos;
+        @JsonProperty("cpf_destino")
+        private Cpf cpfDestino;
+
+        public long getValorCentavos() { return valorCentavos; }
+        public Cpf getCpfDestino() { return cpfDestino; }
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Resposta com as chaves base do protocolo: operacao, status e info.
+ */
+@JsonPropertyOrder({ "operacao", "status", "info" })
+public class Resposta {
+    private final String operacao;
+    private final boolean status;
+    private final String info;
+
+    public Resposta(String operacao, boolean status, String info) {
+        this.operacao = operacao;
+        this.status = status;
+        this.info = info;
+    }
+
+    public String getOperacao() { return operacao; }
+    public boolean isStatus() { return status; }
+    public String getInfo() { return info; }
+
+    // Só para o log das respostas que não chegam a ser serializadas em JSON
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{operacao=" + operacao + ", status=" + status + ", info=" + info + '}';
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Uma resposta em pipeline no formato binário: o 'id' da requisição como primeira chave, seguido
+ * das chaves da própria resposta (de qualquer subclasse de {@link Resposta}).
+ */
+@JsonPropertyOrder({ "id" })
+final class RespostaComId {
+    private final JsonNode id;
+    private final Resposta resposta;
+
+    RespostaComId(JsonNode id, Resposta resposta) {
+        this.id = id;
+        this.resposta = resposta;
+    }
+
+    public JsonNode getId() { return id; }
+
+    @JsonUnwrapped
+    public Resposta getResposta() { return resposta; }
+}
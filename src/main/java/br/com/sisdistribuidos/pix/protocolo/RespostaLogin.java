@@ -0,0 +1,15 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+/**
+ * Resposta de sucesso de 'usuario_login'.
+ */
+public class RespostaLogin extends Resposta {
+    private final String token;
+
+    public RespostaLogin(String token) {
+        super("usuario_login", true, "Login bem-sucedido.");
+        this.token = token;
+    }
+
+    public String getToken() { return token; }
+}
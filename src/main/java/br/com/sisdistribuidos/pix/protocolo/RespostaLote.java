@@ -0,0 +1,31 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import java.util.List;
+
+/**
+ * Resposta de 'transacao_criar_lote' e 'depositar_lote': um resultado por item, na ordem
+ * da requisição. O lote foi processado mesmo que alguns itens tenham sido recusados.
+ */
+public class RespostaLote extends Resposta {
+    private final List<ResultadoItem> resultados;
+
+    public RespostaLote(String operacao, String info, List<ResultadoItem> resultados) {
+        super(operacao, true, info);
+        this.resultados = resultados;
+    }
+
+    public List<ResultadoItem> getResultados() { return resultados; }
+
+    public static class ResultadoItem {
+        private final boolean status;
+        private final String info;
+
+        public ResultadoItem(boolean status, String info) {
+            this.status = status;
+            this.info = info;
+        }
+
+        public boolean isStatus() { return status; }
+        public String getInfo() { return info; }
+    }
+}
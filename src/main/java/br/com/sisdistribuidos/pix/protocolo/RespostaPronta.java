@@ -0,0 +1,90 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resposta pronta para ser escrita no socket. As respostas constantes ("Token inválido.",
+ * "Logout realizado com sucesso.", ...) são criadas uma única vez, já em JSON. As montadas pelo
+ * {@link JsonCodec} guardam a {@link Resposta} e são serializadas só no formato em que forem
+ * enviadas, direto do objeto; os bytes de cada formato ficam guardados depois do primeiro envio.
+ */
+public final class RespostaPronta {
+    private final Resposta resposta; // Null só nas montadas direto em bytes
+    private volatile byte[] bytes; // JSON; criado pelo JsonCodec na primeira vez que for enviado em JSON
+    private String texto; // Só para o log; criado na primeira vez que for pedido
+    private volatile byte[] bytesSmile; // Criado pelo JsonCodec na primeira vez que for enviado em Smile
+
+    public RespostaPronta(byte[] bytes) {
+        this(null, bytes);
+    }
+
+    RespostaPronta(Resposta resposta) {
+        this(resposta, null);
+    }
+
+    private RespostaPronta(Resposta resposta, byte[] bytes) {
+        this.resposta = resposta;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Resposta constante com as chaves base. Montada direto em bytes (com o escape de strings do
+     * Jackson), para poder ser guardada em campos estáticos sem depender de um ObjectMapper.
+     */
+    public static RespostaPronta fixa(String operacao, boolean status, String info) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        escrever(json, "{\"operacao\":\"");
+        escreverEscapado(json, operacao);
+        escrever(json, "\",\"status\":" + status + ",\"info\":\"");
+        escreverEscapado(json, info);
+        escrever(json, "\"}");
+        return new RespostaPronta(new Resposta(operacao, status, info), json.toByteArray());
+    }
+
+    private static void escrever(ByteArrayOutputStream json, String ascii) {
+        byte[] bytes = ascii.getBytes(StandardCharsets.UTF_8);
+        json.write(bytes, 0, bytes.length);
+    }
+
+    private static void escreverEscapado(ByteArrayOutputStream json, String texto) {
+        byte[] bytes = JsonStringEncoder.getInstance().quoteAsUTF8(texto);
+        json.write(bytes, 0, bytes.length);
+    }
+
+    Resposta getResposta() {
+        return resposta;
+    }
+
+    /** Os bytes UTF-8 do JSON, sem o '\n' final, ou null se ainda não foi enviada em JSON. Não devem ser alterados. */
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    void setBytes(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    byte[] getBytesSmile() {
+        return bytesSmile;
+    }
+
+    void setBytesSmile(byte[] bytesSmile) {
+        this.bytesSmile = bytesSmile;
+    }
+
+    @Override
+    public String toString() {
+        String t = texto;
+        if (t == null) {
+            byte[] json = bytes;
+            if (json == null) {
+                return String.valueOf(resposta); // Enviada só em Smile
+            }
+            t = new String(json, StandardCharsets.UTF_8);
+            texto = t;
+        }
+        return t;
+    }
+}
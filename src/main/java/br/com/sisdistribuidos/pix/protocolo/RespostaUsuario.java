@@ -0,0 +1,17 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import br.com.sisdistribuidos.pix.model.Usuario;
+
+/**
+ * Resposta de sucesso de 'usuario_ler'. O usuário deve vir sem a senha.
+ */
+public class RespostaUsuario extends Resposta {
+    private final Usuario usuario;
+
+    public RespostaUsuario(Usuario usuario) {
+        super("usuario_ler", true, "Dados recuperados.");
+        this.usuario = usuario;
+    }
+
+    public Usuario getUsuario() { return usuario; }
+}
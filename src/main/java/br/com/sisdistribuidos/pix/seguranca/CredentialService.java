@@ -0,0 +1,245 @@
+package br.com.sisdistribuidos.pix.seguranca;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Verificação e geração de senhas para o servidor, em cima do {@link PasswordHasher}.
+ * <p>
+ * O PBKDF2 é caro de propósito, então roda em um executor próprio com poucas threads e fila
+ * limitada: num pico de logins o custo de CPU fica contido nessas threads e as de atendimento
+ * só esperam o resultado. Com a fila cheia ou a espera acima do prazo, a operação falha com
+ * {@link TimeoutException} em vez de acumular trabalho.
+ * <p>
+ * Logins repetidos da mesma conta, dentro de um prazo curto, são confirmados por um cache das
+ * credenciais verificadas há pouco. O cache não guarda a senha, e sim um HMAC dela com uma
+ * chave aleatória gerada na inicialização, junto do valor gravado no banco naquele momento:
+ * se a senha for trocada (ou refeita) a entrada deixa de valer sozinha.
+ */
+public class CredentialService {
+
+    private static final String ALGORITMO_CACHE = "HmacSHA256";
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final long ttlCacheNanos;
+    private final int maximoCache;
+    private final byte[] chaveCache = new byte[32];
+    private final ConcurrentHashMap<Cpf, Verificada> verificadas = new ConcurrentHashMap<>();
+
+    private final AtomicLong hashesCalculados = new AtomicLong();
+    private final AtomicLong acertosCache = new AtomicLong();
+    private final AtomicLong recusadas = new AtomicLong();
+    private final AtomicLong rehashes = new AtomicLong();
+
+    public CredentialService(PasswordHasher hasher, int threads, int capacidadeFila, long timeoutMs,
+                             long ttlCacheSegundos, int maximoCache) {
+        this.hasher = hasher;
+        this.timeoutMs = timeoutMs;
+        this.ttlCacheNanos = TimeUnit.SECONDS.toNanos(ttlCacheSegundos);
+        this.maximoCache = maximoCache;
+        new SecureRandom().nextBytes(chaveCache);
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), r -> {
+                    Thread t = new Thread(r, "pix-senhas-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public static CredentialService fromSystemProperties() {
+        return new CredentialService(
+                new PasswordHasher(Integer.getInteger("pix.senha.iteracoes", 310_000)),
+                Integer.getInteger("pix.senha.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                Integer.getInteger("pix.senha.filaMaxima", 1_000),
+                Long.getLong("pix.senha.timeoutMs", 5_000L),
+                Long.getLong("pix.senha.cacheTtlSegundos", 120L),
+                Integer.getInteger("pix.senha.cacheMaximo", 10_000));
+    }
+
+    /**
+     * Confere a senha informada com o valor gravado para o CPF.
+     *
+     * @throws TimeoutException se a verificação não pôde ser feita a tempo (executor saturado).
+     */
+    public boolean verificar(Cpf cpf, String senha, String armazenada) throws TimeoutException {
+        if (armazenada == null) return false;
+        byte[] digest = digestCache(cpf, senha);
+        Verificada anterior = verificadas.get(cpf);
+        if (anterior != null && anterior.confirma(armazenada, digest, System.nanoTime())) {
+            acertosCache.incrementAndGet();
+            return true;
+        }
+
+        boolean valida = calcular(() -> hasher.verificar(senha, armazenada));
+        if (valida) {
+            lembrar(cpf, armazenada, digest);
+        }
+        return valida;
+    }
+
+    /**
+     * Gera o hash a gravar para uma senha nova.
+     *
+     * @throws TimeoutException se o hash não pôde ser calculado a tempo (executor saturado).
+     */
+    public String gerarHash(String senha) throws TimeoutException {
+        return calcular(() -> hasher.gerar(senha));
+    }
+
+    public boolean precisaRehash(String armazenada) {
+        return hasher.precisaRehash(armazenada);
+    }
+
+    /**
+     * Migração preguiçosa: depois de um login válido com senha em texto puro (ou custo antigo),
+     * refaz o hash em segundo plano e o entrega para gravação. Com o executor cheio a migração é
+     * simplesmente adiada para o próximo login.
+     */
+    public void rehashEmSegundoPlano(Cpf cpf, String senha, String armazenada, Gravacao gravacao) {
+        try {
+            executor.execute(() -> {
+                String novoHash = hasher.gerar(senha);
+                hashesCalculados.incrementAndGet();
+                try {
+                    if (gravacao.gravar(novoHash)) {
+                        rehashes.incrementAndGet();
+                        lembrar(cpf, novoHash, digestCache(cpf, senha));
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Falha ao gravar o novo hash de senha de " + cpf + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Fica para o próximo login
+        }
+    }
+
+    /** Descarta a credencial em cache do CPF (senha trocada ou conta removida). */
+    public void esquecer(Cpf cpf) {
+        verificadas.remove(cpf);
+    }
+
+    public int getIteracoes() {
+        return hasher.getIteracoes();
+    }
+
+    public long getHashesCalculados() {
+        return hashesCalculados.get();
+    }
+
+    public long getAcertosCache() {
+        return acertosCache.get();
+    }
+
+    public long getRecusadas() {
+        return recusadas.get();
+    }
+
+    public long getRehashes() {
+        return rehashes.get();
+    }
+
+    private <T> T calcular(Callable<T> calculo) throws TimeoutException {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(calculo);
+        } catch (RejectedExecutionException e) {
+            recusadas.incrementAndGet();
+            throw new TimeoutException("Fila de verificação de senhas cheia.");
+        }
+        try {
+            T resultado = futuro.get(timeoutMs, TimeUnit.MILLISECONDS);
+            hashesCalculados.incrementAndGet();
+            return resultado;
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            recusadas.incrementAndGet();
+            throw e;
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrompido aguardando a verificação de senha.");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) throw (RuntimeException) causa;
+            throw new IllegalStateException(causa);
+        }
+    }
+
+    private void lembrar(Cpf cpf, String armazenada, byte[] digest) {
+        long agora = System.nanoTime();
+        if (verificadas.size() >= maximoCache && !verificadas.containsKey(cpf)) {
+            removerExpiradas(agora);
+            if (verificadas.size() >= maximoCache) return; // Cheio de entradas válidas: não guarda
+        }
+        verificadas.put(cpf, new Verificada(armazenada, digest, agora + ttlCacheNanos));
+    }
+
+    private void removerExpiradas(long agora) {
+        Iterator<Verificada> it = verificadas.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expirada(agora)) it.remove();
+        }
+    }
+
+    private byte[] digestCache(Cpf cpf, String senha) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO_CACHE);
+            mac.init(new SecretKeySpec(chaveCache, ALGORITMO_CACHE));
+            for (int i = 56; i >= 0; i -= 8) {
+                mac.update((byte) (cpf.getDigitos() >>> i));
+            }
+            return mac.doFinal(senha.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITMO_CACHE + " indisponível nesta JVM.", e);
+        }
+    }
+
+    /** Grava o novo hash; devolve false se a senha mudou nesse meio tempo e nada foi gravado. */
+    @FunctionalInterface
+    public interface Gravacao {
+        boolean gravar(String novoHash) throws SQLException;
+    }
+
+    private static final class Verificada {
+        final String armazenada;
+        final byte[] digest;
+        final long expiraEm;
+
+        Verificada(String armazenada, byte[] digest, long expiraEm) {
+            this.armazenada = armazenada;
+            this.digest = digest;
+            this.expiraEm = expiraEm;
+        }
+
+        boolean expirada(long agora) {
+            return agora - expiraEm >= 0;
+        }
+
+        boolean confirma(String armazenadaAtual, byte[] digestInformado, long agora) {
+            return !expirada(agora) && armazenada.equals(armazenadaAtual) && MessageDigest.isEqual(digest, digestInformado);
+        }
+    }
+}
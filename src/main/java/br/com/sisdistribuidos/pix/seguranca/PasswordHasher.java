@@ -0,0 +1,94 @@
+package br.com.sisdistribuidos.pix.seguranca;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hash de senhas com PBKDF2 (HMAC-SHA256) do próprio JDK, com sal aleatório por senha.
+ * <p>
+ * Formato gravado: {@code pbkdf2$<iterações>$<sal em Base64>$<hash em Base64>}. O número de
+ * iterações vai junto do hash, então aumentar o custo não invalida as senhas já gravadas: elas
+ * continuam sendo verificadas com o custo antigo e são refeitas no próximo login
+ * ({@link #precisaRehash(String)}). Valores sem o prefixo são senhas em texto puro de antes
+ * desta mudança.
+ */
+public class PasswordHasher {
+
+    private static final String PREFIXO = "pbkdf2";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int TAMANHO_SAL = 16;
+    private static final int TAMANHO_HASH_BITS = 256;
+    private static final int ITERACOES_MINIMAS = 1_000;
+
+    private final int iteracoes;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iteracoes) {
+        if (iteracoes < ITERACOES_MINIMAS) {
+            throw new IllegalArgumentException("O PBKDF2 exige pelo menos " + ITERACOES_MINIMAS + " iterações: " + iteracoes);
+        }
+        this.iteracoes = iteracoes;
+    }
+
+    public int getIteracoes() {
+        return iteracoes;
+    }
+
+    /** Gera o hash da senha com um sal novo e o custo atual. Caro: roda no executor do {@link CredentialService}. */
+    public String gerar(String senha) {
+        byte[] sal = new byte[TAMANHO_SAL];
+        random.nextBytes(sal);
+        byte[] hash = pbkdf2(senha, sal, iteracoes);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + '$' + iteracoes + '$' + base64.encodeToString(sal) + '$' + base64.encodeToString(hash);
+    }
+
+    /**
+     * Confere a senha com o valor gravado, seja um hash (com o custo gravado nele) ou texto puro.
+     * A comparação final é em tempo constante.
+     */
+    public boolean verificar(String senha, String armazenada) {
+        if (armazenada == null) return false;
+        if (!isHash(armazenada)) {
+            return MessageDigest.isEqual(senha.getBytes(StandardCharsets.UTF_8), armazenada.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] partes = armazenada.split("\\$");
+        if (partes.length != 4) return false;
+        try {
+            int iteracoesGravadas = Integer.parseInt(partes[1]);
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] sal = base64.decode(partes[2]);
+            byte[] esperado = base64.decode(partes[3]);
+            return MessageDigest.isEqual(pbkdf2(senha, sal, iteracoesGravadas), esperado);
+        } catch (IllegalArgumentException e) {
+            return false; // Valor gravado corrompido
+        }
+    }
+
+    /** Senha em texto puro ou hash com custo diferente do atual. */
+    public boolean precisaRehash(String armazenada) {
+        if (!isHash(armazenada)) return true;
+        int fim = armazenada.indexOf('$', PREFIXO.length() + 1);
+        return fim < 0 || !armazenada.substring(PREFIXO.length() + 1, fim).equals(Integer.toString(iteracoes));
+    }
+
+    public static boolean isHash(String armazenada) {
+        return armazenada.startsWith(PREFIXO + '$');
+    }
+
+    private static byte[] pbkdf2(String senha, byte[] sal, int iteracoes) {
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), sal, iteracoes, TAMANHO_HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITMO + " indisponível nesta JVM.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package br.com.sisdistribuidos.pix.sessao;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sessões de login (token -> CPF) compartilhadas por todas as conexões.
+ * <p>
+ * A consulta do token, feita em toda operação autenticada, é um {@code get} no
+ * ConcurrentHashMap mais a leitura de um campo volátil, sem lock. Uma sessão expira pelo
+ * tempo de vida total (TTL) ou por ociosidade; a expiração é verificada na própria consulta e
+ * uma thread de limpeza remove periodicamente as sessões vencidas que ninguém mais consultou.
+ * Cada CPF tem um número máximo de sessões simultâneas: um novo login além do limite derruba
+ * a sessão mais antiga daquele CPF.
+ */
+public class SessionStore {
+
+    // Precisão do registro de último acesso: evita escrever no campo volátil a cada requisição
+    private static final long RESOLUCAO_ACESSO_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier relogio;
+    private final long ttlNanos;
+    private final long ociosidadeNanos;
+    private final int maximoPorCpf;
+
+    private final ConcurrentHashMap<String, Sessao> porToken = new ConcurrentHashMap<>();
+    // Tokens de cada CPF em ordem de criação; só é alterado dentro de compute() da chave do CPF
+    private final ConcurrentHashMap<Cpf, Deque<Sessao>> porCpf = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService limpeza;
+
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong encerradas = new AtomicLong();
+    private final AtomicLong expiradas = new AtomicLong();
+    private final AtomicLong despejadas = new AtomicLong();
+
+    public SessionStore(long ttlSegundos, long ociosidadeSegundos, int maximoPorCpf, long intervaloLimpezaSegundos) {
+        this(System::nanoTime, TimeUnit.SECONDS.toNanos(ttlSegundos), TimeUnit.SECONDS.toNanos(ociosidadeSegundos),
+                maximoPorCpf, TimeUnit.SECONDS.toNanos(intervaloLimpezaSegundos));
+    }
+
+    /**
+     * Durações em nanossegundos, medidas pelo relógio informado no lugar de {@link System#nanoTime()}
+     * (os testes avançam o tempo à mão).
+     */
+    SessionStore(LongSupplier relogio, long ttlNanos, long ociosidadeNanos, int maximoPorCpf, long intervaloLimpezaNanos) {
+        this.relogio = relogio;
+        this.ttlNanos = ttlNanos;
+        this.ociosidadeNanos = ociosidadeNanos;
+        this.maximoPorCpf = maximoPorCpf;
+
+        this.limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-sessoes-limpeza");
+            t.setDaemon(true);
+            return t;
+        });
+        limpeza.scheduleWithFixedDelay(this::removerExpiradas, intervaloLimpezaNanos, intervaloLimpezaNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static SessionStore fromSystemProperties() {
+        return new SessionStore(
+                Long.getLong("pix.sessao.ttlSegundos", TimeUnit.HOURS.toSeconds(8)),
+                Long.getLong("pix.sessao.ociosidadeSegundos", TimeUnit.MINUTES.toSeconds(30)),
+                Integer.getInteger("pix.sessao.maxPorCpf", 5),
+                Long.getLong("pix.sessao.intervaloLimpezaSegundos", 60));
+    }
+
+    /**
+     * Cria uma sessão para o CPF e devolve o seu token.
+     * <p>
+     * A sessão entra nos dois mapas dentro do compute() do CPF, atômica em relação a
+     * {@link #encerrarTodas(Cpf)}: ou é criada antes e encerrada junto com as outras, ou é
+     * criada depois. Neste último caso quem conferiu a conta antes de criar a sessão deve
+     * conferir de novo depois, e encerrá-la se a conta tiver sido excluída nesse meio tempo.
+     */
+    public String criar(Cpf cpf) {
+        long agora = relogio.getAsLong();
+        Sessao sessao = new Sessao(UUID.randomUUID().toString(), cpf, agora);
+        porCpf.compute(cpf, (chave, sessoes) -> {
+            if (sessoes == null) {
+                sessoes = new ArrayDeque<>();
+            }
+            porToken.put(sessao.token, sessao);
+            sessoes.addLast(sessao);
+            while (sessoes.size() > maximoPorCpf) {
+                Sessao maisAntiga = sessoes.pollFirst();
+                if (porToken.remove(maisAntiga.token, maisAntiga)) {
+                    despejadas.incrementAndGet();
+                }
+            }
+            return sessoes;
+        });
+        criadas.incrementAndGet();
+        return sessao.token;
+    }
+
+    /**
+     * Devolve o CPF dono do token, ou null se o token não existe ou a sessão expirou.
+     */
+    public Cpf cpfDoToken(String token) {
+        Sessao sessao = porToken.get(token);
+        if (sessao == null) {
+            return null;
+        }
+        long agora = relogio.getAsLong();
+        if (expirou(sessao, agora)) {
+            if (remover(sessao)) {
+                expiradas.incrementAndGet();
+            }
+            return null;
+        }
+        if (agora - sessao.ultimoAcesso > RESOLUCAO_ACESSO_NANOS) {
+            sessao.ultimoAcesso = agora;
+        }
+        return sessao.cpf;
+    }
+
+    /**
+     * Encerra a sessão do token (logout).
+     *
+     * @return true se o token existia.
+     */
+    public boolean encerrar(String token) {
+        Sessao sessao = porToken.get(token);
+        if (sessao != null && remover(sessao)) {
+            encerradas.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Encerra todas as sessões do CPF (ex.: usuário excluído).
+     */
+    public void encerrarTodas(Cpf cpf) {
+        Deque<Sessao> sessoes = porCpf.remove(cpf);
+        if (sessoes == null) {
+            return;
+        }
+        // Fora do mapa, ninguém mais altera esta fila
+        for (Sessao sessao : sessoes) {
+            if (porToken.remove(sessao.token, sessao)) {
+                encerradas.incrementAndGet();
+            }
+        }
+    }
+
+    public int getAtivas() {
+        return porToken.size();
+    }
+
+    public long getCriadas() {
+        return criadas.get();
+    }
+
+    public long getEncerradas() {
+        return encerradas.get();
+    }
+
+    public long getExpiradas() {
+        return expiradas.get();
+    }
+
+    public long getDespejadas() {
+        return despejadas.get();
+    }
+
+    public void fechar() {
+        limpeza.shutdownNow();
+    }
+
+    private boolean expirou(Sessao sessao, long agora) {
+        return agora - sessao.criadaEm > ttlNanos || agora - sessao.ultimoAcesso > ociosidadeNanos;
+    }
+
+    private boolean remover(Sessao sessao) {
+        if (!porToken.remove(sessao.token, sessao)) {
+            return false; // Outra thread já removeu
+        }
+        porCpf.computeIfPresent(sessao.cpf, (chave, sessoes) -> {
+            sessoes.remove(sessao);
+            return sessoes.isEmpty() ? null : sessoes;
+        });
+        return true;
+    }
+
+    private void removerExpiradas() {
+        long agora = relogio.getAsLong();
+        int removidas = 0;
+        for (Sessao sessao : porToken.values()) {
+            if (expirou(sessao, agora) && remover(sessao)) {
+                expiradas.incrementAndGet();
+                removidas++;
+            }
+        }
+        if (removidas > 0) {
+            System.out.println("Sessões expiradas removidas: " + removidas + " (ativas: " + getAtivas() + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Sessoes{ativas=" + getAtivas() + ", criadas=" + criadas.get() + ", encerradas=" + encerradas.get() +
+               ", expiradas=" + expiradas.get() + ", despejadas=" + despejadas.get() + '}';
+    }
+
+    private static final class Sessao {
+        final String token;
+        final Cpf cpf;
+        final long criadaEm;
+        volatile long ultimoAcesso;
+
+        Sessao(String token, Cpf cpf, long criadaEm) {
+            this.token = token;
+            this.cpf = cpf;
+            this.criadaEm = criadaEm;
+            this.ultimoAcesso = criadaEm;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.sisdistribuidos.pix.validador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Uma verificação sobre um nó JSON, montada uma vez na inicialização do {@link Validator}.
+ */
+@FunctionalInterface
+interface Regra {
+    ResultadoValidacao validar(JsonNode node);
+}
@@ -0,0 +1,289 @@
+package br.com.sisdistribuidos.pix.validador;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Dinheiro;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Fábricas das regras de campo usadas pelo {@link Validator}. Cada regra já guarda os
+ * resultados de erro com a sua mensagem pronta, e os formatos de CPF e data são conferidos
+ * caractere a caractere, sem expressão regular.
+ */
+final class Regras {
+
+    private Regras() {}
+
+    static Regra obrigatorio(String campo) {
+        ResultadoValidacao ausente = ausente(campo);
+        return node -> presente(node.get(campo)) ? ResultadoValidacao.VALIDO : ausente;
+    }
+
+    static Regra texto(String campo, int minimo, int maximo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = tipoString(campo);
+        ResultadoValidacao curto = ResultadoValidacao.invalido("O campo '" + campo + "' deve ter no mínimo " + minimo + " caracteres.");
+        ResultadoValidacao longo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ter no máximo " + maximo + " caracteres.");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isTextual()) return tipo;
+            int tamanho = tamanhoSemEspacos(valor.textValue());
+            if (tamanho < minimo) return curto;
+            if (tamanho > maximo) return longo;
+            return ResultadoValidacao.VALIDO;
+        };
+    }
+
+    static Regra cpf(String campo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = tipoString(campo);
+        ResultadoValidacao formato = ResultadoValidacao.invalido("O campo '" + campo + "' deve estar no formato '000.000.000-00'.");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isTextual()) return tipo;
+            return Cpf.isFormatoValido(valor.textValue()) ? ResultadoValidacao.VALIDO : formato;
+        };
+    }
+
+    static Regra data(String campo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = tipoString(campo);
+        ResultadoValidacao formato = ResultadoValidacao.invalido("O campo '" + campo + "' deve estar no formato ISO 8601 UTC 'yyyy-MM-dd'T'HH:mm:ss'Z'.");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isTextual()) return tipo;
+            return isDataIso(valor.textValue()) ? ResultadoValidacao.VALIDO : formato;
+        };
+    }
+
+    static Regra numero(String campo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser do tipo numérico (int, double, etc).");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            return valor.isNumber() ? ResultadoValidacao.VALIDO : tipo;
+        };
+    }
+
+    /**
+     * Valor em reais: numérico e dentro do limite de {@link Dinheiro}. Casas decimais além da
+     * segunda não são recusadas; o valor é arredondado para o centavo na desserialização.
+     */
+    static Regra dinheiro(String campo) {
+        Regra numero = numero(campo);
+        ResultadoValidacao formato = ResultadoValidacao.invalido("O campo '" + campo + "' deve ter valor absoluto até "
+                + Dinheiro.formatar(Dinheiro.MAXIMO_CENTAVOS) + ".");
+        return node -> {
+            ResultadoValidacao resultado = numero.validar(node);
+            if (!resultado.isValido()) return resultado;
+            return isDinheiro(node.get(campo)) ? ResultadoValidacao.VALIDO : formato;
+        };
+    }
+
+    // Confere o valor primitivo do nó, como o Dinheiro.Desserializador fará; só um valor com mais de 2 casas cria um BigDecimal
+    private static boolean isDinheiro(JsonNode valor) {
+        if (valor.isIntegralNumber()) {
+            return valor.canConvertToLong() && Dinheiro.centavosDe(valor.longValue()) != Dinheiro.INVALIDO;
+        }
+        if (valor.isBigDecimal()) {
+            return Dinheiro.isRepresentavel(valor.decimalValue());
+        }
+        if (valor.isFloat()) {
+            return Dinheiro.centavosDe(valor.floatValue()) != Dinheiro.INVALIDO;
+        }
+        return Dinheiro.centavosDe(valor.doubleValue()) != Dinheiro.INVALIDO;
+    }
+
+    static Regra inteiro(String campo) {
+        return inteiroEntre(campo, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    static Regra inteiroEntre(String campo, int minimo, int maximo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser do tipo int.");
+        ResultadoValidacao fora = ResultadoValidacao.invalido("O campo '" + campo + "' deve estar entre " + minimo + " e " + maximo + ".");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isInt()) return tipo;
+            int n = valor.intValue();
+            return n < minimo || n > maximo ? fora : ResultadoValidacao.VALIDO;
+        };
+    }
+
+    static Regra umDe(String campo, String... valores) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = tipoString(campo);
+        ResultadoValidacao fora = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser um dos valores: " + String.join(", ", valores) + ".");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isTextual()) return tipo;
+            for (String permitido : valores) {
+                if (permitido.equals(valor.textValue())) return ResultadoValidacao.VALIDO;
+            }
+            return fora;
+        };
+    }
+
+    /** Identificador de correlação: um inteiro ou uma String não vazia, devolvido como veio. */
+    static Regra identificador(String campo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser um número inteiro ou uma String de até 64 caracteres.");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (valor.isIntegralNumber() && valor.canConvertToLong()) return ResultadoValidacao.VALIDO;
+            if (valor.isTextual() && !valor.textValue().isEmpty() && valor.textValue().length() <= 64) return ResultadoValidacao.VALIDO;
+            return tipo;
+        };
+    }
+
+    static Regra booleano(String campo, String mensagemTipo) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido(mensagemTipo);
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            return valor.isBoolean() ? ResultadoValidacao.VALIDO : tipo;
+        };
+    }
+
+    /** Aplica as regras internas ao objeto do campo, que é obrigatório. */
+    static Regra objeto(String campo, Regra... internas) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser um objeto JSON (ex: { ... }).");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isObject()) return tipo;
+            return aplicar(internas, valor);
+        };
+    }
+
+    /** Aplica as regras internas a cada elemento do array do campo, que é obrigatório. */
+    static Regra cadaItem(String campo, Regra... internas) {
+        ResultadoValidacao ausente = ausente(campo);
+        ResultadoValidacao tipo = ResultadoValidacao.invalido("O campo '" + campo + "' deve ser um array JSON (ex: [ ... ]).");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (!presente(valor)) return ausente;
+            if (!valor.isArray()) return tipo;
+            for (int i = 0; i < valor.size(); i++) {
+                ResultadoValidacao resultado = aplicar(internas, valor.get(i));
+                if (!resultado.isValido()) return resultado;
+            }
+            return ResultadoValidacao.VALIDO;
+        };
+    }
+
+    /** Como {@link #cadaItem(String, Regra...)}, exigindo também de {@code minimo} a {@code maximo} itens. */
+    static Regra cadaItem(String campo, int minimo, int maximo, Regra... internas) {
+        Regra itens = cadaItem(campo, internas);
+        ResultadoValidacao tamanho = ResultadoValidacao.invalido("O campo '" + campo + "' deve ter entre " + minimo + " e " + maximo + " itens.");
+        return node -> {
+            JsonNode valor = node.get(campo);
+            if (valor != null && valor.isArray() && (valor.size() < minimo || valor.size() > maximo)) return tamanho;
+            return itens.validar(node);
+        };
+    }
+
+    /** A regra só é aplicada se o campo estiver presente. */
+    static Regra opcional(String campo, Regra regra) {
+        return node -> node.has(campo) ? regra.validar(node) : ResultadoValidacao.VALIDO;
+    }
+
+    static Regra algumDos(String mensagem, String... campos) {
+        ResultadoValidacao nenhum = ResultadoValidacao.invalido(mensagem);
+        return node -> {
+            for (String campo : campos) {
+                if (node.has(campo)) return ResultadoValidacao.VALIDO;
+            }
+            return nenhum;
+        };
+    }
+
+    static Regra proibido(String campo, String mensagem) {
+        ResultadoValidacao presente = ResultadoValidacao.invalido(mensagem);
+        return node -> node.has(campo) ? presente : ResultadoValidacao.VALIDO;
+    }
+
+    /**
+     * Recusa chaves fora do conjunto esperado. Conta quantas esperadas estão presentes: se o total
+     * bate com o tamanho do objeto não há chave extra, sem precisar iterar os nomes dos campos.
+     */
+    static Regra semChavesExtras(RulesEnum operacao, Set<String> esperadas) {
+        String[] chaves = esperadas.toArray(new String[0]);
+        return node -> {
+            int presentes = 0;
+            for (String chave : chaves) {
+                if (node.has(chave)) presentes++;
+            }
+            if (presentes == node.size()) {
+                return ResultadoValidacao.VALIDO;
+            }
+            Iterator<String> atuais = node.fieldNames();
+            while (atuais.hasNext()) {
+                String chave = atuais.next();
+                if (!esperadas.contains(chave)) {
+                    return ResultadoValidacao.invalido("Chave inesperada '" + chave + "' encontrada para a operação '" + operacao + "'.");
+                }
+            }
+            return ResultadoValidacao.VALIDO;
+        };
+    }
+
+    static ResultadoValidacao aplicar(Regra[] regras, JsonNode node) {
+        for (Regra regra : regras) {
+            ResultadoValidacao resultado = regra.validar(node);
+            if (!resultado.isValido()) return resultado;
+        }
+        return ResultadoValidacao.VALIDO;
+    }
+
+    // "yyyy-MM-ddTHH:mm:ssZ"
+    static boolean isDataIso(String s) {
+        if (s.length() != 20) return false;
+        for (int i = 0; i < 20; i++) {
+            char c = s.charAt(i);
+            char esperado;
+            switch (i) {
+                case 4: case 7: esperado = '-'; break;
+                case 10: esperado = 'T'; break;
+                case 13: case 16: esperado = ':'; break;
+                case 19: esperado = 'Z'; break;
+                default:
+                    if (c < '0' || c > '9') return false;
+                    continue;
+            }
+            if (c != esperado) return false;
+        }
+        return true;
+    }
+
+    // Mesmo resultado de s.trim().length(), sem criar a String aparada
+    private static int tamanhoSemEspacos(String s) {
+        int inicio = 0;
+        int fim = s.length();
+        while (inicio < fim && s.charAt(inicio) <= ' ') inicio++;
+        while (fim > inicio && s.charAt(fim - 1) <= ' ') fim--;
+        return fim - inicio;
+    }
+
+    private static boolean presente(JsonNode valor) {
+        return valor != null && !valor.isNull();
+    }
+
+    private static ResultadoValidacao ausente(String campo) {
+        return ResultadoValidacao.invalido("O campo obrigatório '" + campo + "' não foi encontrado ou é nulo.");
+    }
+
+    private static ResultadoValidacao tipoString(String campo) {
+        return ResultadoValidacao.invalido("O campo '" + campo + "' deve ser do tipo String.");
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.sisdistribuidos.pix.validador;
+
+/**
+ * Resultado de uma validação: válido ou inválido com a mensagem do motivo.
+ * As regras devolvem instâncias criadas de antemão, então validar uma mensagem
+ * (aceita ou recusada por uma regra de campo) não aloca nada.
+ */
+public final class ResultadoValidacao {
+
+    public static final ResultadoValidacao VALIDO = new ResultadoValidacao(null);
+
+    private final String mensagem;
+
+    private ResultadoValidacao(String mensagem) {
+        this.mensagem = mensagem;
+    }
+
+    public static ResultadoValidacao invalido(String mensagem) {
+        return new ResultadoValidacao(mensagem);
+    }
+
+    public boolean isValido() {
+        return mensagem == null;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    @Override
+    public String toString() {
+        return isValido() ? "VALIDO" : "INVALIDO: " + mensagem;
+    }
+}
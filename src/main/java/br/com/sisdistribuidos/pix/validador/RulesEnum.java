@@ -1,5 +1,8 @@
 package br.com.sisdistribuidos.pix.validador;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 
 public enum RulesEnum {
@@ -17,6 +20,9 @@ public enum RulesEnum {
     TRANSACAO_CRIAR("transacao_criar"),
     TRANSACAO_LER("transacao_ler"), // É literalmente o envio de um 'getTransacao()' para o servidor, porém os parâmetros influenciam
     DEPOSITAR("depositar"),
+    // Vários itens em uma única mensagem e transação do banco
+    TRANSACAO_CRIAR_LOTE("transacao_criar_lote"),
+    DEPOSITAR_LOTE("depositar_lote"),
     // Erro no servidor
     ERRO_SERVIDOR("erro_servidor");
 
@@ -26,6 +32,15 @@ public enum RulesEnum {
 
     private final String rule;
 
+    // Busca por valor sem percorrer values() (que copia o array a cada chamada)
+    private static final Map<String, RulesEnum> POR_VALOR = new HashMap<>();
+
+    static {
+        for (RulesEnum enumConstant : values()) {
+            POR_VALOR.put(enumConstant.rule, enumConstant);
+        }
+    }
+
     public String getValue() {
         return rule;
     }
@@ -41,13 +56,19 @@ public enum RulesEnum {
     public static RulesEnum getEnum(String rule) throws Exception{
         Objects.requireNonNull(rule, "O valor da regra não pode ser nulo.");
 
-        for (RulesEnum enumConstant : RulesEnum.values()) {
-            if (enumConstant.getValue().equalsIgnoreCase(rule)) {
-                return enumConstant;
-            }
+        RulesEnum enumConstant = buscar(rule);
+        if (enumConstant == null) {
+            throw new IllegalArgumentException("Nenhuma regra encontrada para o valor: " + rule);
         }
-        
-        throw new IllegalArgumentException("Nenhuma regra encontrada para o valor: " + rule);
+        return enumConstant;
+    }
+
+    /**
+     * Igual a {@link #getEnum(String)}, mas devolve null quando não há regra para o valor.
+     */
+    public static RulesEnum buscar(String rule) {
+        // toLowerCase devolve a própria String quando ela já está em minúsculas (o caso comum)
+        return POR_VALOR.get(rule.toLowerCase(Locale.ROOT));
     }
 
 }   
\ No newline at end of file
@@ -2,19 +2,35 @@ package br.com.sisdistribuidos.pix.validador;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Map;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+
+import static br.com.sisdistribuidos.pix.validador.Regras.*;
 
 public class Validator {
 
     private Validator() {}
 
     // ObjectMapper é a classe principal do Jackson para converter JSON.
-    // É uma boa prática reutilizar a mesma instância.
-    private static final ObjectMapper mapper = new ObjectMapper();
+    // É uma boa prática reutilizar a mesma instância: o servidor injeta a do seu JsonCodec.
+    private static volatile ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Define o ObjectMapper usado para parsear as mensagens, compartilhando os caches do Jackson
+     * com o restante da aplicação. Deve ser chamado na inicialização.
+     */
+    public static void setObjectMapper(ObjectMapper objectMapper) {
+        mapper = objectMapper;
+    }
+
+    // Tamanho máximo de página aceito em 'transacao_ler' (campo opcional 'limite')
+    public static final int LIMITE_MAXIMO_PAGINA = 100;
+    public static final String ID = "id";
+    public static final int LIMITE_MAXIMO_LOTE = 1000;
     // --- DEFINIÇÃO DAS CHAVES ESPERADAS ---
 
     private static final Map<RulesEnum, Set<String>> EXPECTED_CLIENT_KEYS = new HashMap<>();
@@ -23,7 +39,7 @@ public class Validator {
     // Bloco estático para inicializar os mapas
     static {
         // Cliente -> Servidor
-        EXPECTED_CLIENT_KEYS.put(RulesEnum.CONECTAR, Set.of("operacao"));
+        EXPECTED_CLIENT_KEYS.put(RulesEnum.CONECTAR, Set.of("operacao", "formato"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_LOGIN, Set.of("operacao", "cpf", "senha"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_CRIAR, Set.of("operacao", "nome", "cpf", "senha"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_LER, Set.of("operacao", "token"));
@@ -31,8 +47,10 @@ public class Validator {
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_DELETAR, Set.of("operacao", "token"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_LOGOUT, Set.of("operacao", "token"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_CRIAR, Set.of("operacao", "token", "valor", "cpf_destino"));
-        EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "token", "data_inicial", "data_final"));
+        EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "token", "data_inicial", "data_final", "limite", "cursor"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.DEPOSITAR, Set.of("operacao", "token", "valor_enviado"));
+        EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_CRIAR_LOTE, Set.of("operacao", "token", "transacoes"));
+        EXPECTED_CLIENT_KEYS.put(RulesEnum.DEPOSITAR_LOTE, Set.of("operacao", "token", "depositos"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.ERRO_SERVIDOR, Set.of("operacao", "operacao_enviada", "info"));
 
         // Servidor -> Cliente (Respostas)
@@ -41,237 +59,225 @@ public class Validator {
         // Respostas de sucesso que contêm dados adicionais
         EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LOGIN, Set.of("operacao", "status", "info", "token"));
         EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LER, Set.of("operacao", "status", "info", "usuario"));
-        EXPECTED_SERVER_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "status", "info", "transacoes"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "status", "info", "transacoes", "proximo_cursor"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.TRANSACAO_CRIAR_LOTE, Set.of("operacao", "status", "info", "resultados"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.DEPOSITAR_LOTE, Set.of("operacao", "status", "info", "resultados"));
         
         // Para as demais operações, a resposta (sucesso ou falha) só contém as chaves base.
         for (RulesEnum rule : RulesEnum.values()) {
             EXPECTED_CLIENT_KEYS.computeIfAbsent(rule, k -> new HashSet<>()); // Garante que não haja nulls
             // Se a regra já não tiver chaves específicas de servidor, usa as chaves base
             EXPECTED_SERVER_KEYS.computeIfAbsent(rule, k -> serverBaseKeys);
-        }
-    }
-
-    /**
-     * Valida uma mensagem JSON enviada do Cliente para o Servidor.
-     *
-     * @param jsonString A mensagem JSON como uma String.
-     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
-     */
-    public static void validateClient(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
-
-        // Valida a presença e o tipo do campo 'operacao'
-        JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
-        validateStringLength(rootNode, "operacao", 3, 200); // Operacao também é uma string
 
-        // Converte a string da operação para o nosso Enum
-        // NOTA: Certifique-se de que o RulesEnum.java contenha a operação DEPOSITAR.
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
-
-        checkExtraKeys(rootNode, operacao, EXPECTED_CLIENT_KEYS);
-
-        // Chama o método de validação específico para a operação
-        switch (operacao) {
-            case CONECTAR:
-                break;
-            case USUARIO_LOGIN:
-                validateUsuarioLoginClient(rootNode);
-                break;
-            case USUARIO_LOGOUT:
-                validateUsuarioLogoutClient(rootNode);
-                break;
-            case USUARIO_CRIAR:
-                validateUsuarioCriarClient(rootNode);
-                break;
-            case USUARIO_LER:
-                validateUsuarioLerClient(rootNode);
-                break;
-            case USUARIO_ATUALIZAR:
-                validateUsuarioAtualizarClient(rootNode);
-                break;
-            case USUARIO_DELETAR:
-                validateUsuarioDeletarClient(rootNode);
-                break;
-            case TRANSACAO_CRIAR:
-                validateTransacaoCriarClient(rootNode);
-                break;
-            case TRANSACAO_LER:
-                validateTransacaoLerClient(rootNode);
-                break;
-            case DEPOSITAR:
-                validateDepositarClient(rootNode);
-                break;
-            case ERRO_SERVIDOR:
-                validateErroServidorClient(rootNode);
-                break;
-            // =======================================================
-            default:
-                throw new IllegalArgumentException("Operação do cliente desconhecida ou não suportada: " + operacao);
+            // 'id' opcional: correlaciona requisição e resposta quando o cliente envia várias
+            // requisições sem esperar as respostas. O handshake ('conectar') não usa.
+            if (rule != RulesEnum.CONECTAR) {
+                EXPECTED_CLIENT_KEYS.put(rule, comId(EXPECTED_CLIENT_KEYS.get(rule)));
+            }
+            EXPECTED_SERVER_KEYS.put(rule, comId(EXPECTED_SERVER_KEYS.get(rule)));
         }
     }
 
-    /**
-     * Valida uma mensagem JSON enviada do Servidor para o Cliente.
-     *
-     * @param jsonString A mensagem JSON como uma String.
-     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
-     */
-    public static void validateServer(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
-
-        // Toda resposta do servidor deve ter 'operacao', 'status' e 'info'
-        JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
-        validateStringLength(rootNode, "operacao", 3, 200);
-        
-        JsonNode statusNode = getRequiredField(rootNode, "status");
-        if (!statusNode.isBoolean()) {
-            throw new IllegalArgumentException("O campo 'status' na resposta do servidor deve ser um booleano (true/false).");
-        }
+    private static Set<String> comId(Set<String> chaves) {
+        Set<String> comId = new HashSet<>(chaves);
+        comId.add(ID);
+        return comId;
+    }
 
-        validateStringLength(rootNode, "info", 3, 200);
+    // --- CADEIAS DE REGRAS POR OPERAÇÃO (montadas uma única vez) ---
 
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
+    private static final Regra OPERACAO = texto("operacao", 3, 200); // Operacao também é uma string
+    private static final Regra STATUS = booleano("status", "O campo 'status' na resposta do servidor deve ser um booleano (true/false).");
+    private static final Regra INFO = texto("info", 3, 200);
+    private static final Regra TOKEN = texto("token", 3, 200);
+    private static final Regra ID_OPCIONAL = opcional(ID, identificador(ID));
 
-        Set<String> expectedKeysForThisResponse;
-        if (statusNode.asBoolean()) {
-            expectedKeysForThisResponse = EXPECTED_SERVER_KEYS.get(operacao);
-            if (expectedKeysForThisResponse == null) { // Segurança extra
-                throw new IllegalArgumentException("Definição de chaves não encontrada para operação de sucesso: " + operacao);
-            }
-        } else {
-            expectedKeysForThisResponse = Set.of("operacao", "status", "info");
-        }
+    private static final Map<RulesEnum, Regra[]> CLIENT_RULES = new EnumMap<>(RulesEnum.class);
+    private static final Map<RulesEnum, Regra[]> SERVER_RULES = new EnumMap<>(RulesEnum.class);
+    private static final Map<RulesEnum, Regra> SERVER_ERROR_KEYS = new EnumMap<>(RulesEnum.class);
 
-        checkExtraKeys(rootNode, operacao, Map.of(operacao, expectedKeysForThisResponse));
-
-        // Chama a validação específica apenas se o status for true (sucesso)
-        if (statusNode.asBoolean()) {
-            switch (operacao) {
-                case USUARIO_LOGIN:
-                    validateUsuarioLoginServer(rootNode);
-                    break;
-                case USUARIO_LER:
-                    validateUsuarioLerServer(rootNode);
-                    break;
-                case TRANSACAO_LER:
-                    validateTransacaoLerServer(rootNode);
-                    break;
-                // Outras operações de sucesso (como criar, atualizar, deletar e depositar)
-                // não retornam dados adicionais, então não precisam de validação extra.
-                default:
-                    break; 
-            }
+    static {
+        // Cliente -> Servidor
+        cliente(RulesEnum.CONECTAR, opcional("formato", umDe("formato", "json", "smile")));
+        cliente(RulesEnum.USUARIO_LOGIN, cpf("cpf"), texto("senha", 6, 120));
+        cliente(RulesEnum.USUARIO_LOGOUT, TOKEN);
+        cliente(RulesEnum.USUARIO_CRIAR, texto("nome", 6, 120), cpf("cpf"), texto("senha", 6, 120));
+        cliente(RulesEnum.USUARIO_LER, TOKEN);
+        cliente(RulesEnum.USUARIO_ATUALIZAR, TOKEN,
+                objeto("usuario",
+                        algumDos("O objeto 'usuario' para atualização deve conter pelo menos o campo 'nome' ou 'senha'.", "nome", "senha"),
+                        opcional("nome", texto("nome", 6, 120)),
+                        opcional("senha", texto("senha", 6, 120))));
+        cliente(RulesEnum.USUARIO_DELETAR, TOKEN);
+        cliente(RulesEnum.TRANSACAO_CRIAR, TOKEN, cpf("cpf_destino"), dinheiro("valor"));
+        // Paginação opcional: 'limite' transações por página, continuando do 'cursor' devolvido na página anterior
+        cliente(RulesEnum.TRANSACAO_LER, TOKEN, data("data_inicial"), data("data_final"),
+                opcional("limite", inteiroEntre("limite", 1, LIMITE_MAXIMO_PAGINA)),
+                opcional("cursor", texto("cursor", 1, 200)));
+        cliente(RulesEnum.DEPOSITAR, TOKEN, dinheiro("valor_enviado"));
+        // Lotes: os itens têm os mesmos campos das operações individuais
+        cliente(RulesEnum.TRANSACAO_CRIAR_LOTE, TOKEN,
+                cadaItem("transacoes", 1, LIMITE_MAXIMO_LOTE,
+                        semChavesExtras(RulesEnum.TRANSACAO_CRIAR_LOTE, Set.of("cpf_destino", "valor")),
+                        cpf("cpf_destino"), dinheiro("valor")));
+        cliente(RulesEnum.DEPOSITAR_LOTE, TOKEN,
+                cadaItem("depositos", 1, LIMITE_MAXIMO_LOTE,
+                        semChavesExtras(RulesEnum.DEPOSITAR_LOTE, Set.of("valor_enviado")),
+                        dinheiro("valor_enviado")));
+        cliente(RulesEnum.ERRO_SERVIDOR, obrigatorio("operacao"), obrigatorio("operacao_enviada"), obrigatorio("info"));
+
+        // Servidor -> Cliente (respostas de sucesso)
+        // Outras operações de sucesso (como criar, atualizar, deletar e depositar)
+        // não retornam dados adicionais, então não precisam de validação extra.
+        servidor(RulesEnum.USUARIO_LOGIN, TOKEN);
+        servidor(RulesEnum.USUARIO_LER,
+                objeto("usuario", cpf("cpf"), texto("nome", 6, 120), numero("saldo"),
+                        proibido("senha", "A resposta do servidor para 'usuario_ler' não deve conter o campo 'senha'.")));
+        servidor(RulesEnum.TRANSACAO_LER,
+                cadaItem("transacoes",
+                        inteiro("id"),
+                        dinheiro("valor_enviado"),
+                        objeto("usuario_enviador", texto("nome", 6, 120), cpf("cpf")),
+                        objeto("usuario_recebedor", texto("nome", 6, 120), cpf("cpf")),
+                        data("criado_em"),
+                        data("atualizado_em")),
+                opcional("proximo_cursor", texto("proximo_cursor", 1, 200)));
+        Regra resultadosLote = cadaItem("resultados",
+                booleano("status", "O campo 'status' de cada resultado do lote deve ser um booleano (true/false)."),
+                texto("info", 3, 200));
+        servidor(RulesEnum.TRANSACAO_CRIAR_LOTE, resultadosLote);
+        servidor(RulesEnum.DEPOSITAR_LOTE, resultadosLote);
+        for (RulesEnum rule : RulesEnum.values()) {
+            SERVER_RULES.computeIfAbsent(rule, k -> new Regra[] { semChavesExtras(k, EXPECTED_SERVER_KEYS.get(k)) });
+            // Respostas de falha só contêm as chaves base
+            SERVER_ERROR_KEYS.put(rule, semChavesExtras(rule, Set.of("operacao", "status", "info", ID)));
         }
     }
 
-    // ===================================================================================
-    // MÉTODOS DE VALIDAÇÃO PRIVADOS (CLIENTE -> SERVIDOR)
-    // ===================================================================================
-
-    private static void validateUsuarioLoginClient(JsonNode node) {
-        validateCpfFormat(node, "cpf");
-        validateStringLength(node, "senha", 6, 120);
+    private static void cliente(RulesEnum operacao, Regra... regras) {
+        Regra[] cadeia = comChaves(semChavesExtras(operacao, EXPECTED_CLIENT_KEYS.get(operacao)), regras);
+        if (operacao != RulesEnum.CONECTAR) {
+            cadeia = Arrays.copyOf(cadeia, cadeia.length + 1);
+            cadeia[cadeia.length - 1] = ID_OPCIONAL;
+        }
+        CLIENT_RULES.put(operacao, cadeia);
     }
 
-    private static void validateUsuarioLogoutClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
+    private static void servidor(RulesEnum operacao, Regra... regras) {
+        SERVER_RULES.put(operacao, comChaves(semChavesExtras(operacao, EXPECTED_SERVER_KEYS.get(operacao)), regras));
     }
 
-    private static void validateUsuarioCriarClient(JsonNode node) {
-        validateStringLength(node, "nome", 6, 120);
-        validateCpfFormat(node, "cpf");
-        validateStringLength(node, "senha", 6, 120);
+    private static Regra[] comChaves(Regra chaves, Regra[] regras) {
+        Regra[] cadeia = new Regra[regras.length + 1];
+        cadeia[0] = chaves;
+        System.arraycopy(regras, 0, cadeia, 1, regras.length);
+        return cadeia;
     }
 
-    private static void validateUsuarioLerClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
+    /**
+     * Valida uma mensagem JSON enviada do Cliente para o Servidor.
+     *
+     * @param jsonString A mensagem JSON como uma String.
+     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
+     */
+    public static void validateClient(String jsonString) throws Exception {
+        validateClient(parseJson(jsonString));
     }
 
-    private static void validateUsuarioAtualizarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        JsonNode usuarioNode = getRequiredObject(node, "usuario");
-        
-        if (!usuarioNode.has("nome") && !usuarioNode.has("senha")) {
-            throw new IllegalArgumentException("O objeto 'usuario' para atualização deve conter pelo menos o campo 'nome' ou 'senha'.");
-        }
-        if (usuarioNode.has("nome")){
-            validateStringLength(usuarioNode, "nome", 6, 120);
-        }
-        if (usuarioNode.has("senha")){
-            validateStringLength(usuarioNode, "senha", 6, 120);
-        }
+    /**
+     * Valida uma mensagem do Cliente já convertida em árvore, para quem vai usar a árvore
+     * em seguida e não quer parsear o mesmo texto duas vezes.
+     *
+     * @param rootNode A mensagem JSON já parseada (ver {@link #parseJson(String)}).
+     * @throws Exception se a mensagem não seguir o protocolo.
+     */
+    public static void validateClient(JsonNode rootNode) throws Exception {
+        lancarSeInvalido(verificarCliente(rootNode));
     }
 
-    private static void validateUsuarioDeletarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-    }
+    /**
+     * Igual a {@link #validateClient(JsonNode)}, mas devolve o resultado em vez de lançar exceção.
+     * Para uma mensagem válida nada é alocado.
+     */
+    public static ResultadoValidacao verificarCliente(JsonNode rootNode) {
+        // Valida a presença e o tipo do campo 'operacao'
+        ResultadoValidacao resultado = OPERACAO.validar(rootNode);
+        if (!resultado.isValido()) return resultado;
 
-    private static void validateTransacaoCriarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        validateCpfFormat(node, "cpf_destino");
-        getRequiredNumber(node, "valor");
-    }
+        // Converte a string da operação para o nosso Enum
+        String valor = rootNode.get("operacao").textValue();
+        RulesEnum operacao = RulesEnum.buscar(valor);
+        if (operacao == null) {
+            return ResultadoValidacao.invalido("Nenhuma regra encontrada para o valor: " + valor);
+        }
 
-    private static void validateTransacaoLerClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        validateDateFormat(node, "data_inicial"); 
-        validateDateFormat(node, "data_final");   
+        // Chaves esperadas e depois as regras específicas da operação
+        return aplicar(CLIENT_RULES.get(operacao), rootNode);
     }
 
-    private static void validateDepositarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        getRequiredNumber(node, "valor_enviado");
+    /**
+     * Valida só o 'id' opcional da requisição, antes da validação completa: o servidor
+     * usa o resultado para decidir se a requisição pode ser processada em pipeline.
+     */
+    public static ResultadoValidacao verificarId(JsonNode rootNode) {
+        return ID_OPCIONAL.validar(rootNode);
     }
 
-    private static void validateErroServidorClient(JsonNode node) {
-        getRequiredField(node, "operacao");
-        getRequiredField(node, "operacao_enviada");
-        getRequiredField(node, "info");
+    /**
+     * Valida uma mensagem JSON enviada do Servidor para o Cliente.
+     *
+     * @param jsonString A mensagem JSON como uma String.
+     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
+     */
+    public static void validateServer(String jsonString) throws Exception {
+        validateServer(parseJson(jsonString));
     }
-    // =======================================================
 
-    // ===================================================================================
-    // MÉTODOS DE VALIDAÇÃO PRIVADOS (SERVIDOR -> CLIENTE)
-    // ===================================================================================
-
-    private static void validateUsuarioLoginServer(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
+    /**
+     * Valida uma resposta do Servidor já convertida em árvore.
+     *
+     * @param rootNode A resposta JSON já parseada (ver {@link #parseJson(String)}).
+     * @throws Exception se a resposta não seguir o protocolo.
+     */
+    public static void validateServer(JsonNode rootNode) throws Exception {
+        lancarSeInvalido(verificarServidor(rootNode));
     }
 
-    private static void validateUsuarioLerServer(JsonNode node) {
-        JsonNode usuarioNode = getRequiredObject(node, "usuario");
-        validateCpfFormat(usuarioNode, "cpf");
-        validateStringLength(usuarioNode, "nome", 6, 120);
-        getRequiredNumber(usuarioNode, "saldo");
-        if (usuarioNode.has("senha")) {
-            throw new IllegalArgumentException("A resposta do servidor para 'usuario_ler' não deve conter o campo 'senha'.");
+    /**
+     * Igual a {@link #validateServer(JsonNode)}, mas devolve o resultado em vez de lançar exceção.
+     */
+    public static ResultadoValidacao verificarServidor(JsonNode rootNode) {
+        // Toda resposta do servidor deve ter 'operacao', 'status' e 'info'
+        ResultadoValidacao resultado = OPERACAO.validar(rootNode);
+        if (!resultado.isValido()) return resultado;
+        resultado = STATUS.validar(rootNode);
+        if (!resultado.isValido()) return resultado;
+        resultado = INFO.validar(rootNode);
+        if (!resultado.isValido()) return resultado;
+
+        String valor = rootNode.get("operacao").textValue();
+        RulesEnum operacao = RulesEnum.buscar(valor);
+        if (operacao == null) {
+            return ResultadoValidacao.invalido("Nenhuma regra encontrada para o valor: " + valor);
         }
-    }
-    
-    private static void validateTransacaoLerServer(JsonNode node) {
-        JsonNode transacoesNode = getRequiredArray(node, "transacoes");
-        for (JsonNode transacao : transacoesNode) {
-            getRequiredInt(transacao, "id");
-            getRequiredNumber(transacao, "valor_enviado");
-            
-            JsonNode enviadorNode = getRequiredObject(transacao, "usuario_enviador");
-            validateStringLength(enviadorNode, "nome", 6, 120);
-            validateCpfFormat(enviadorNode, "cpf");
-            
-            JsonNode recebedorNode = getRequiredObject(transacao, "usuario_recebedor");
-            validateStringLength(recebedorNode, "nome", 6, 120);
-            validateCpfFormat(recebedorNode, "cpf");
-
-            validateDateFormat(transacao, "criado_em");
-            validateDateFormat(transacao, "atualizado_em");
+
+        // A validação específica só se aplica às respostas de sucesso
+        if (rootNode.get("status").booleanValue()) {
+            return aplicar(SERVER_RULES.get(operacao), rootNode);
         }
+        return SERVER_ERROR_KEYS.get(operacao).validar(rootNode);
     }
 
     // ===================================================================================
     // MÉTODOS AUXILIARES (HELPERS)
     // ===================================================================================
 
-    private static JsonNode parseJson(String jsonString) throws Exception {
+    /**
+     * Converte o texto em árvore JSON, com as mesmas mensagens de erro de sintaxe da validação.
+     *
+     * @throws Exception se o texto for vazio ou não for um JSON válido.
+     */
+    public static JsonNode parseJson(String jsonString) throws Exception {
         if (jsonString == null || jsonString.trim().isEmpty()) {
             throw new Exception("A mensagem JSON não pode ser nula ou vazia.");
         }
@@ -282,95 +288,9 @@ public class Validator {
         }
     }
 
-    private static JsonNode getRequiredField(JsonNode parentNode, String fieldName) {
-        if (parentNode.has(fieldName) && !parentNode.get(fieldName).isNull()) {
-            return parentNode.get(fieldName);
-        }
-        throw new IllegalArgumentException("O campo obrigatório '" + fieldName + "' não foi encontrado ou é nulo.");
-    }
-
-    private static void validateStringLength(JsonNode parentNode, String fieldName, int minLength, int maxLength) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
-        }
-        
-        String value = field.asText().trim();
-        
-        if (value.length() < minLength) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ter no mínimo " + minLength + " caracteres.");
-        }
-        if (value.length() > maxLength) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ter no máximo " + maxLength + " caracteres.");
-        }
-    }
-
-    private static void validateCpfFormat(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
-        }
-        String cpf = field.asText();
-        String cpfRegex = "\\d{3}\\.\\d{3}\\.\\d{3}-\\d{2}";
-        if (!cpf.matches(cpfRegex)) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato '000.000.000-00'.");
-        }
-    }
-
-    private static void validateDateFormat(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
-        }
-        String date = field.asText();
-        String isoRegex = "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z";
-        if (!date.matches(isoRegex)) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato ISO 8601 UTC 'yyyy-MM-dd'T'HH:mm:ss'Z'.");
-        }
-    }
-    
-    private static void getRequiredNumber(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isNumber()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo numérico (int, double, etc).");
-        }
-    }
-
-    private static void getRequiredInt(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isInt()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo int.");
-        }
-    }
-
-    private static JsonNode getRequiredObject(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isObject()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser um objeto JSON (ex: { ... }).");
-        }
-        return field;
-    }
-    
-    private static JsonNode getRequiredArray(JsonNode parentNode, String fieldName) {
-        JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isArray()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser um array JSON (ex: [ ... ]).");
-        }
-        return field;
-    }
-
-    private static void checkExtraKeys(JsonNode node, RulesEnum operacao, Map<RulesEnum, Set<String>> expectedKeysMap) {
-        Set<String> expected = expectedKeysMap.get(operacao);
-        if (expected == null) {
-            throw new IllegalArgumentException("Definição de chaves esperadas não encontrada para a operação: " + operacao);
-        }
-        
-        Iterator<String> actualKeys = node.fieldNames();
-        while (actualKeys.hasNext()) {
-            String key = actualKeys.next();
-            if (!expected.contains(key)) {
-                throw new IllegalArgumentException("Chave inesperada '" + key + "' encontrada para a operação '" + operacao + "'.");
-            }
+    private static void lancarSeInvalido(ResultadoValidacao resultado) {
+        if (!resultado.isValido()) {
+            throw new IllegalArgumentException(resultado.getMensagem());
         }
     }
-}
\ No newline at end of file
+}
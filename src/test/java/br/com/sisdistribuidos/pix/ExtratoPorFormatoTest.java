@@ -0,0 +1,165 @@
+package br.com.sisdistribuidos.pix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.database.DatabaseManager;
+import br.com.sisdistribuidos.pix.database.TransacaoDAO;
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.protocolo.Enquadramento;
+import br.com.sisdistribuidos.pix.protocolo.FormatoMensagem;
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import br.com.sisdistribuidos.pix.validador.Validator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * O mesmo transacao_ler sem 'limite' em cada formato: JSON (com e sem 'id') traz o extrato
+ * inteiro; Smile traz uma página de LIMITE_MAXIMO_PAGINA, avisa no 'info' e devolve o cursor.
+ */
+class ExtratoPorFormatoTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final int TOTAL = Validator.LIMITE_MAXIMO_PAGINA + 50;
+    // Lado do cliente, separado do mapper do codec
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+
+    private static JsonCodec codec;
+    private static ExecutorService executor;
+    private static String token;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        for (String arquivo : new String[] { "pix_database.db", "pix_database.db-wal", "pix_database.db-shm" }) {
+            Files.deleteIfExists(Paths.get(arquivo));
+        }
+        DatabaseManager.initialize();
+        codec = new JsonCodec().aquecer();
+        Validator.setObjectMapper(codec.getMapper());
+        executor = Executors.newCachedThreadPool();
+
+        Conexao conexao = new Conexao(FormatoMensagem.JSON);
+        conexao.enviar("{\"operacao\":\"usuario_criar\",\"nome\":\"Ana Maria\",\"cpf\":\"111.111.111-11\",\"senha\":\"senha123\"}");
+        JsonNode login = conexao.enviar("{\"operacao\":\"usuario_login\",\"cpf\":\"111.111.111-11\",\"senha\":\"senha123\"}");
+        token = login.get("token").asText();
+
+        List<Transacao> depositos = new ArrayList<>();
+        for (int i = 0; i < TOTAL; i++) {
+            Transacao deposito = Transacao.deposito(100 + i, ANA);
+            deposito.setCriadoEm(String.format("2024-03-10T%02d:%02d:00Z", i / 60, i % 60));
+            deposito.setAtualizadoEm(deposito.getCriadoEm());
+            depositos.add(deposito);
+        }
+        TransacaoDAO transacaoDao = new TransacaoDAO();
+        DatabaseManager.executarEscrita(conn -> {
+            transacaoDao.criarLoteComConexao(conn, depositos);
+            return null;
+        });
+    }
+
+    @AfterAll
+    static void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void jsonTrazOExtratoInteiro() throws Exception {
+        JsonNode resposta = new Conexao(FormatoMensagem.JSON).enviar(extrato(""));
+        assertEquals(TOTAL, resposta.get("transacoes").size());
+        assertFalse(resposta.has("proximo_cursor"));
+    }
+
+    @Test
+    void jsonEmPipelineTambemTrazOExtratoInteiro() throws Exception {
+        JsonNode resposta = new Conexao(FormatoMensagem.JSON).enviar(extrato(",\"id\":42"));
+        assertEquals(42, resposta.get("id").asInt());
+        assertEquals(TOTAL, resposta.get("transacoes").size());
+        assertFalse(resposta.has("proximo_cursor"));
+    }
+
+    @Test
+    void smileSemLimiteAvisaQueOExtratoVeioIncompleto() throws Exception {
+        Conexao conexao = new Conexao(FormatoMensagem.SMILE);
+        JsonNode primeira = conexao.enviar(extrato(""));
+        assertEquals(Validator.LIMITE_MAXIMO_PAGINA, primeira.get("transacoes").size());
+        assertTrue(primeira.get("info").asText().startsWith("Extrato incompleto"));
+
+        JsonNode segunda = conexao.enviar(extrato(",\"cursor\":\"" + primeira.get("proximo_cursor").asText() + "\""));
+        assertEquals(TOTAL - Validator.LIMITE_MAXIMO_PAGINA, segunda.get("transacoes").size());
+        assertEquals("Transações recuperadas com sucesso.", segunda.get("info").asText());
+        assertFalse(segunda.has("proximo_cursor"));
+    }
+
+    @Test
+    void smileComLimitePaginaSemAviso() throws Exception {
+        JsonNode resposta = new Conexao(FormatoMensagem.SMILE).enviar(extrato(",\"limite\":10,\"id\":\"p1\""));
+        assertEquals("p1", resposta.get("id").asText());
+        assertEquals(10, resposta.get("transacoes").size());
+        assertEquals("Transações recuperadas com sucesso.", resposta.get("info").asText());
+        assertTrue(resposta.has("proximo_cursor"));
+    }
+
+    private static String extrato(String extras) {
+        return "{\"operacao\":\"transacao_ler\",\"token\":\"" + token + "\"," +
+               "\"data_inicial\":\"2024-03-01T00:00:00Z\",\"data_final\":\"2024-03-20T00:00:00Z\"" + extras + "}";
+    }
+
+    /** Um ClientHandler sem socket: cada requisição é processada e a resposta lida da saída em memória. */
+    private static final class Conexao {
+        private final ClientHandler handler = new ClientHandler(new Socket(), codec, executor);
+        private final FormatoMensagem formato;
+        private final ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        private int lidos;
+
+        Conexao(FormatoMensagem formato) throws Exception {
+            this.formato = formato;
+            handler.processConectar("{\"operacao\":\"conectar\",\"formato\":\"" + formato.getValor() + "\"}", saida);
+            proximaLinha();
+        }
+
+        JsonNode enviar(String json) throws Exception {
+            if (formato == FormatoMensagem.JSON) {
+                assertTrue(handler.processRequest(json, saida));
+            } else {
+                assertTrue(handler.processFrame(SMILE.writeValueAsBytes(codec.lerArvore(json)), saida));
+            }
+            handler.requisicoesConcluidas().get(10, TimeUnit.SECONDS);
+            return formato == FormatoMensagem.JSON ? codec.lerArvore(proximaLinha()) : proximoQuadro();
+        }
+
+        private String proximaLinha() {
+            byte[] tudo = saida.toByteArray();
+            int fim = lidos;
+            while (tudo[fim] != '\n') fim++;
+            String linha = new String(tudo, lidos, fim - lidos, StandardCharsets.UTF_8);
+            lidos = fim + 1;
+            return linha;
+        }
+
+        private JsonNode proximoQuadro() throws Exception {
+            byte[] tudo = saida.toByteArray();
+            InputStream in = new ByteArrayInputStream(tudo, lidos, tudo.length - lidos);
+            byte[] quadro = Enquadramento.lerQuadro(in);
+            lidos += Enquadramento.TAMANHO_CABECALHO_QUADRO + quadro.length;
+            return codec.lerArvore(quadro, FormatoMensagem.SMILE);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package br.com.sisdistribuidos.pix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.protocolo.Enquadramento;
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import br.com.sisdistribuidos.pix.validador.Validator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * O servidor NIO de ponta a ponta, por um socket de verdade: mensagens partidas ou juntas em
+ * qualquer ponto chegam inteiras ao handler, e um cliente que demora a ler recebe todas as
+ * respostas sem que o servidor as acumule sem limite. As requisições usam um token inválido, respondido sem ir ao banco.
+ */
+class NioServerTest {
+
+    private static final String LER = "{\"operacao\":\"usuario_ler\",\"token\":\"token-invalido\"}";
+    // Lado do cliente, separado do mapper do codec
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+
+    private static int porta;
+
+    @BeforeAll
+    static void iniciarServidor() throws Exception {
+        JsonCodec codec = new JsonCodec().aquecer();
+        Validator.setObjectMapper(codec.getMapper());
+        NioServer servidor = new NioServer(0, codec, 4, 100);
+        porta = servidor.getPorta();
+        Thread thread = new Thread(() -> {
+            try {
+                servidor.iniciar();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "nio-teste");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    void linhasPartidasEJuntasChegamInteiras() throws Exception {
+        try (Socket socket = conectar()) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            // Handshake e duas requisições no mesmo write, a segunda terminada em CRLF
+            escrever(out, "{\"operacao\":\"conectar\"}\n" + LER + "\n" + LER + "\r\n");
+            assertTrue(proximaLinha(in).get("status").asBoolean());
+            assertTokenInvalido(proximaLinha(in));
+            assertTokenInvalido(proximaLinha(in));
+
+            // Uma requisição byte a byte
+            for (byte b : (LER + "\n").getBytes(StandardCharsets.UTF_8)) {
+                out.write(b);
+                out.flush();
+            }
+            assertTokenInvalido(proximaLinha(in));
+
+            // A última linha sem '\n' ainda é respondida quando o cliente encerra a escrita
+            escrever(out, LER + "\r");
+            socket.shutdownOutput();
+            assertTokenInvalido(proximaLinha(in));
+            assertNull(Enquadramento.lerLinha(in));
+        }
+    }
+
+    @Test
+    void quadrosSmilePartidosNoCabecalhoENoConteudo() throws Exception {
+        try (Socket socket = conectar()) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            // O primeiro quadro vem no mesmo write que o handshake em texto
+            byte[] quadro = quadro(LER);
+            byte[] handshake = "{\"operacao\":\"conectar\",\"formato\":\"smile\"}\n".getBytes(StandardCharsets.UTF_8);
+            byte[] juntos = Arrays.copyOf(handshake, handshake.length + quadro.length);
+            System.arraycopy(quadro, 0, juntos, handshake.length, quadro.length);
+            out.write(juntos);
+            out.flush();
+            assertTrue(JSON.readTree(Enquadramento.lerLinha(in)).get("status").asBoolean());
+            assertTokenInvalido(SMILE.readTree(Enquadramento.lerQuadro(in)));
+
+            // Cabeçalho partido em 1 + 3 bytes e conteúdo em duas partes
+            out.write(quadro, 0, 1);
+            out.flush();
+            Thread.sleep(20);
+            out.write(quadro, 1, 5);
+            out.flush();
+            Thread.sleep(20);
+            out.write(quadro, 6, quadro.length - 6);
+            out.flush();
+            assertTokenInvalido(SMILE.readTree(Enquadramento.lerQuadro(in)));
+        }
+    }
+
+    @Test
+    void linhaAcimaDoLimiteEncerraAConexao() throws Exception {
+        try (Socket socket = conectar()) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            escrever(out, "{\"operacao\":\"conectar\"}\n");
+            assertTrue(proximaLinha(in).get("status").asBoolean());
+
+            byte[] bloco = new byte[64 * 1024];
+            Arrays.fill(bloco, (byte) 'a');
+            try {
+                for (int i = 0; i < 20; i++) {
+                    out.write(bloco);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // O servidor pode fechar antes de o cliente terminar de escrever
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void clienteLentoRecebeTodasAsRespostas() throws Exception {
+        int total = 200_000; // Mais de 10 MiB em cada sentido, além dos buffers do socket
+        try (Socket socket = conectar()) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            escrever(out, "{\"operacao\":\"conectar\"}\n");
+            assertTrue(proximaLinha(in).get("status").asBoolean());
+
+            // O cliente escreve tudo antes de ler qualquer resposta: o servidor precisa parar de
+            // ler a conexão em vez de acumular as respostas sem limite
+            CompletableFuture<Void> escrita = CompletableFuture.runAsync(() -> {
+                try {
+                    byte[] linha = (LER + "\n").getBytes(StandardCharsets.UTF_8);
+                    for (int i = 0; i < total; i++) {
+                        out.write(linha);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Thread.sleep(500);
+            assertFalse(escrita.isDone(), "com o cliente sem ler, a escrita deveria estar bloqueada");
+
+            for (int i = 0; i < total; i++) {
+                assertTokenInvalido(proximaLinha(in));
+            }
+            escrita.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Socket conectar() throws IOException {
+        Socket socket = new Socket("localhost", porta);
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static void escrever(OutputStream out, String texto) throws IOException {
+        out.write(texto.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static JsonNode proximaLinha(InputStream in) throws IOException {
+        return JSON.readTree(Enquadramento.lerLinha(in));
+    }
+
+    private static byte[] quadro(String json) throws IOException {
+        ByteArrayOutputStream quadro = new ByteArrayOutputStream();
+        Enquadramento.escreverQuadro(quadro, SMILE.writeValueAsBytes(JSON.readTree(json)));
+        return quadro.toByteArray();
+    }
+
+    private static void assertTokenInvalido(JsonNode resposta) {
+        assertEquals("usuario_ler", resposta.get("operacao").asText());
+        assertFalse(resposta.get("status").asBoolean());
+        assertEquals("Token inválido.", resposta.get("info").asText());
+    }
+}
@@ -0,0 +1,126 @@
+package br.com.sisdistribuidos.pix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.protocolo.JsonCodec;
+import br.com.sisdistribuidos.pix.validador.Validator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cada mensagem é parseada uma única vez: o handler valida e despacha a mesma árvore, e o
+ * {@link Validator} não volta a ler o texto. As requisições usam um token inválido, respondido
+ * sem ir ao banco.
+ */
+class ParseUnicoTest {
+
+    private static final String LER = "{\"operacao\":\"usuario_ler\",\"token\":\"token-invalido\"}";
+
+    // Conta os textos que o Validator converte em árvore
+    private static final AtomicInteger parsesDoValidator = new AtomicInteger();
+
+    private static JsonCodec codec;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        codec = new JsonCodec().aquecer();
+        Validator.setObjectMapper(new ObjectMapper(new JsonFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public JsonParser createParser(String content) throws IOException {
+                parsesDoValidator.incrementAndGet();
+                return super.createParser(content);
+            }
+        }));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterAll
+    static void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void handshakeEParseadoUmaVezERequisicoesNaoPassamPeloValidator() throws Exception {
+        ClientHandler handler = new ClientHandler(new Socket(), codec, executor);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        int antes = parsesDoValidator.get();
+
+        assertTrue(handler.processConectar("{\"operacao\":\"conectar\"}", saida));
+        assertEquals(antes + 1, parsesDoValidator.get());
+
+        assertTrue(handler.processRequest(LER, saida));
+        // Requisição fora do protocolo: a validação roda na árvore já lida e o erro é respondido
+        assertTrue(handler.processRequest("{\"operacao\":\"usuario_ler\"}", saida));
+        assertEquals(antes + 1, parsesDoValidator.get());
+
+        String[] linhas = new String(saida.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, linhas.length);
+        assertTrue(codec.lerArvore(linhas[0]).get("status").asBoolean());
+        JsonNode tokenInvalido = codec.lerArvore(linhas[1]);
+        assertFalse(tokenInvalido.get("status").asBoolean());
+        assertEquals("Token inválido.", tokenInvalido.get("info").asText());
+        JsonNode semToken = codec.lerArvore(linhas[2]);
+        assertFalse(semToken.get("status").asBoolean());
+        assertTrue(semToken.get("info").asText().contains("token"));
+    }
+
+    @Test
+    void textoInvalidoNaoChegaAValidacao() throws Exception {
+        ClientHandler handler = new ClientHandler(new Socket(), codec, executor);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        assertTrue(handler.processConectar("{\"operacao\":\"conectar\"}", saida));
+        saida.reset();
+
+        assertFalse(handler.processRequest("{\"operacao\":", saida));
+        assertEquals(0, saida.size());
+    }
+
+    @Test
+    void validacaoDaArvoreEDoTextoConcordam() throws Exception {
+        String[] mensagens = {
+            LER,
+            "{\"operacao\":\"usuario_ler\"}",
+            "{\"operacao\":\"depositar\",\"token\":\"abc\",\"valor_enviado\":\"10\"}",
+            "{\"operacao\":\"inexistente\"}",
+        };
+        for (String mensagem : mensagens) {
+            String peloTexto = mensagemDeErro(() -> Validator.validateClient(mensagem));
+            JsonNode arvore = Validator.parseJson(mensagem);
+            String pelaArvore = mensagemDeErro(() -> Validator.validateClient(arvore));
+            assertEquals(peloTexto, pelaArvore, mensagem);
+        }
+        Exception sintaxe = assertThrows(Exception.class, () -> Validator.parseJson("{\"operacao\":"));
+        assertEquals("Erro de sintaxe. A mensagem não é um JSON válido.", sintaxe.getMessage());
+    }
+
+    private interface Validacao {
+        void executar() throws Exception;
+    }
+
+    private static String mensagemDeErro(Validacao validacao) {
+        try {
+            validacao.executar();
+            return null;
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.sisdistribuidos.pix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RequestPipelineTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void mesmaContaEmOrdem() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(executor, 64);
+        List<Integer> executadas = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> esperadas = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            esperadas.add(n);
+            pipeline.executar("conta", () -> {
+                if (n % 7 == 0) dormir(1);
+                executadas.add(n);
+            });
+        }
+        pipeline.concluidas().get(10, TimeUnit.SECONDS);
+        assertEquals(esperadas, executadas);
+    }
+
+    @Test
+    void contasDiferentesEmParalelo() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(executor, 64);
+        CountDownLatch juntas = new CountDownLatch(2);
+        AtomicInteger encontradas = new AtomicInteger();
+        for (String conta : new String[] { "a", "b" }) {
+            pipeline.executar(conta, () -> {
+                juntas.countDown();
+                try {
+                    // Só termina se a outra conta estiver rodando ao mesmo tempo
+                    if (juntas.await(5, TimeUnit.SECONDS)) encontradas.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        pipeline.aguardar();
+        assertEquals(2, encontradas.get());
+    }
+
+    @Test
+    void noLimiteODespachoEsperaUmaVaga() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(executor, 2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Runnable presa = () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        pipeline.executar("a", presa);
+        pipeline.executar("b", presa);
+
+        CountDownLatch despachada = new CountDownLatch(1);
+        Thread leitora = new Thread(() -> {
+            pipeline.executar("c", () -> { });
+            despachada.countDown();
+        });
+        leitora.start();
+
+        assertFalse(despachada.await(200, TimeUnit.MILLISECONDS));
+        liberar.countDown();
+        assertTrue(despachada.await(5, TimeUnit.SECONDS));
+        pipeline.concluidas().get(5, TimeUnit.SECONDS);
+        leitora.join();
+    }
+
+    @Test
+    void tarefaComFalhaNaoTravaAFilaDaConta() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(executor, 4);
+        AtomicInteger seguintes = new AtomicInteger();
+        pipeline.executar("conta", () -> { throw new IllegalStateException("falha simulada"); });
+        pipeline.executar("conta", seguintes::incrementAndGet);
+        pipeline.concluidas().get(5, TimeUnit.SECONDS);
+        assertEquals(1, seguintes.get());
+    }
+
+    @Test
+    void recusaLimiteMenorQueUm() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestPipeline(executor, 0));
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AccountLockManagerTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+
+    private int saldo; // Protegido pelo bloqueio das duas contas
+
+    @Test
+    void arredondaAsFaixasParaPotenciaDe2() {
+        assertEquals(1, AccountLockManager.potenciaDe2(1));
+        assertEquals(2, AccountLockManager.potenciaDe2(2));
+        assertEquals(4, AccountLockManager.potenciaDe2(3));
+        assertEquals(1024, AccountLockManager.potenciaDe2(1024));
+        assertEquals(2048, AccountLockManager.potenciaDe2(1025));
+        assertEquals(1, new AccountLockManager(1).getNumeroFaixas());
+        assertThrows(IllegalArgumentException.class, () -> AccountLockManager.potenciaDe2(0));
+    }
+
+    @Test
+    void transferenciasEmSentidosOpostosNaoTravam() {
+        for (int faixas : new int[] { 1, 2, 1024 }) {
+            AccountLockManager contas = new AccountLockManager(faixas);
+            saldo = 0;
+            ExecutorService threads = Executors.newFixedThreadPool(2);
+            try {
+                assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+                    CompletableFuture<Void> ida = CompletableFuture.runAsync(() -> transferir(contas, ANA, BRUNO), threads);
+                    CompletableFuture<Void> volta = CompletableFuture.runAsync(() -> transferir(contas, BRUNO, ANA), threads);
+                    CompletableFuture.allOf(ida, volta).join();
+                });
+            } finally {
+                threads.shutdownNow();
+            }
+            assertEquals(2 * 20_000, saldo, "faixas " + faixas);
+        }
+    }
+
+    @Test
+    void cpfRepetidoBloqueiaUmaVezSo() throws Exception {
+        AccountLockManager contas = new AccountLockManager(16);
+        AccountLockManager.Bloqueio bloqueio = contas.bloquear(ANA, ANA);
+        bloqueio.liberar();
+
+        // Se a faixa tivesse ficado presa, outra thread não conseguiria bloquear
+        ExecutorService outra = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Boolean> conseguiu = CompletableFuture.supplyAsync(() -> {
+                contas.bloquear(ANA).liberar();
+                return true;
+            }, outra);
+            assertTrue(conseguiu.get(5, TimeUnit.SECONDS));
+        } finally {
+            outra.shutdownNow();
+        }
+    }
+
+    private void transferir(AccountLockManager contas, Cpf origem, Cpf destino) {
+        for (int i = 0; i < 20_000; i++) {
+            AccountLockManager.Bloqueio bloqueio = contas.bloquear(origem, destino);
+            try {
+                saldo++;
+            } finally {
+                bloqueio.liberar();
+            }
+        }
+    }
+}
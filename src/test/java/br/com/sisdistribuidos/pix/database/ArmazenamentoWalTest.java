@@ -0,0 +1,91 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Com WAL, as conexões do pool são só de leitura e uma leitura em andamento não bloqueia o
+ * escritor único: ela continua vendo o seu snapshot enquanto o commit acontece.
+ */
+class ArmazenamentoWalTest {
+
+    private static final AtomicLong proximoCpf = new AtomicLong(70_000_000_000L);
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BancoDeTeste.limpar();
+        DatabaseManager.initialize();
+    }
+
+    @Test
+    void arquivoFicaEmModoWal() throws SQLException {
+        assertEquals("wal", BancoDeTeste.consultarTexto("PRAGMA journal_mode"));
+    }
+
+    @Test
+    void conexoesDoPoolTemOsPragmasEsperados() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals(1, consultarLong(conn, "PRAGMA synchronous")); // NORMAL
+            assertEquals(-16 * 1024, consultarLong(conn, "PRAGMA cache_size"));
+            assertEquals(5000, consultarLong(conn, "PRAGMA busy_timeout"));
+        }
+    }
+
+    @Test
+    void conexaoDoPoolRecusaEscrita() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            assertThrows(SQLException.class, () -> st.executeUpdate(
+                    "INSERT INTO usuario (cpf, nome, senha, saldo_centavos) VALUES (1, 'Somente leitura', 'x', 0)"));
+        }
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM usuario WHERE cpf = 1"));
+    }
+
+    @Test
+    void leituraEmAndamentoNaoBloqueiaOEscritorEMantemOSnapshot() throws Exception {
+        inserirUsuario();
+        try (Connection leitura = DatabaseManager.getConnection()) {
+            leitura.setAutoCommit(false);
+            long antes = consultarLong(leitura, "SELECT COUNT(*) FROM usuario");
+
+            // Com o journal de rollback este commit esperaria o busy_timeout e falharia
+            long inicio = System.nanoTime();
+            inserirUsuario();
+            assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(2));
+
+            assertEquals(antes, consultarLong(leitura, "SELECT COUNT(*) FROM usuario"));
+            leitura.commit();
+            assertEquals(antes + 1, consultarLong(leitura, "SELECT COUNT(*) FROM usuario"));
+        }
+    }
+
+    private static void inserirUsuario() throws SQLException {
+        long cpf = proximoCpf.getAndIncrement();
+        DatabaseManager.executarEscrita(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO usuario (cpf, nome, senha, saldo_centavos) VALUES (?, ?, 'x', 0)")) {
+                ps.setLong(1, cpf);
+                ps.setString(2, "Usuario " + cpf);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private static long consultarLong(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
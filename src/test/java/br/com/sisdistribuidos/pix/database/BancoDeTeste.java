@@ -0,0 +1,71 @@
+package br.com.sisdistribuidos.pix.database;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Arquivos usados pelo {@link DatabaseManager} no diretório de trabalho dos testes (ver o
+ * surefire no pom.xml). Cada classe de teste roda em uma JVM nova e começa apagando o que a
+ * anterior deixou, antes da primeira chamada a {@link DatabaseManager#initialize()}.
+ */
+final class BancoDeTeste {
+
+    static final Path ARQUIVO = Paths.get("pix_database.db");
+    static final Path JOURNAL = Paths.get("journal");
+
+    private BancoDeTeste() {}
+
+    static void limpar() throws IOException {
+        Files.deleteIfExists(ARQUIVO);
+        Files.deleteIfExists(Paths.get(ARQUIVO + "-wal"));
+        Files.deleteIfExists(Paths.get(ARQUIVO + "-shm"));
+        if (Files.isDirectory(JOURNAL)) {
+            try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(JOURNAL)) {
+                for (Path arquivo : arquivos) {
+                    Files.delete(arquivo);
+                }
+            }
+            Files.delete(JOURNAL);
+        }
+    }
+
+    /** Conexão direta ao arquivo, fora do pool e do escritor, para montar e conferir o banco. */
+    static Connection conectar() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + ARQUIVO);
+    }
+
+    static void executar(String... comandos) throws SQLException {
+        try (Connection conn = conectar(); Statement statement = conn.createStatement()) {
+            for (String sql : comandos) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    static long consultarLong(String sql) throws SQLException {
+        try (Connection conn = conectar();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new SQLException("Consulta sem resultado: " + sql);
+            }
+            return rs.getLong(1);
+        }
+    }
+
+    static String consultarTexto(String sql) throws SQLException {
+        try (Connection conn = conectar();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
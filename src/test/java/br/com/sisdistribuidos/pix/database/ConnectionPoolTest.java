@@ -0,0 +1,147 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConnectionPoolTest {
+
+    @TempDir
+    Path pasta;
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void fechar() {
+        if (pool != null) {
+            pool.fechar();
+        }
+    }
+
+    @Test
+    void closeDevolveAConexaoFisicaParaSerReaproveitada() throws Exception {
+        pool = novo(4, 0, 1000, 60_000);
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.emprestar()) {
+                assertEquals(1, pool.getEstatisticas().getEmUso());
+                executar(conn, "SELECT 1");
+            }
+        }
+        ConnectionPool.Estatisticas estatisticas = pool.getEstatisticas();
+        assertEquals(1, estatisticas.getCriadas());
+        assertEquals(5, estatisticas.getEmprestimos());
+        assertEquals(0, estatisticas.getEmUso());
+        assertEquals(1, estatisticas.getOciosas());
+    }
+
+    @Test
+    void devolucaoDesfazTransacaoEmAberto() throws Exception {
+        pool = novo(1, 0, 1000, 60_000);
+        try (Connection conn = pool.emprestar()) {
+            executar(conn, "CREATE TABLE t (x INTEGER)");
+        }
+        try (Connection conn = pool.emprestar()) {
+            conn.setAutoCommit(false);
+            executar(conn, "INSERT INTO t VALUES (1)");
+            // Esquecida sem commit nem rollback
+        }
+        try (Connection conn = pool.emprestar()) {
+            assertTrue(conn.getAutoCommit());
+            assertEquals(0, contar(conn));
+        }
+        assertEquals(1, pool.getEstatisticas().getCriadas());
+    }
+
+    @Test
+    void poolCheioEsgotaOTempoDeAquisicao() throws Exception {
+        pool = novo(2, 0, 50, 60_000);
+        Connection primeira = pool.emprestar();
+        Connection segunda = pool.emprestar();
+        long inicio = System.nanoTime();
+        assertThrows(SQLTimeoutException.class, pool::emprestar);
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(1, pool.getEstatisticas().getTimeouts());
+        assertEquals(2, pool.getEstatisticas().getEmUso());
+
+        primeira.close();
+        try (Connection conn = pool.emprestar()) {
+            executar(conn, "SELECT 1");
+        }
+        segunda.close();
+        assertEquals(2, pool.getEstatisticas().getCriadas());
+        assertEquals(0, pool.getEstatisticas().getEmUso());
+    }
+
+    @Test
+    void conexaoDevolvidaNaoPodeSerUsadaNemDevolvidaDuasVezes() throws Exception {
+        pool = novo(1, 0, 50, 60_000);
+        Connection conn = pool.emprestar();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(0, pool.getEstatisticas().getEmUso());
+
+        // A segunda devolução não liberou uma permissão a mais: o limite continua sendo 1
+        Connection outra = pool.emprestar();
+        assertFalse(outra.isClosed());
+        assertThrows(SQLTimeoutException.class, pool::emprestar);
+        outra.close();
+    }
+
+    @Test
+    void limpezaFechaOciosasAlemDoMinimo() throws Exception {
+        // Tempo ocioso de 1 ms: a limpeza roda a cada 1 s (o intervalo mínimo)
+        pool = novo(3, 1, 1000, 1);
+        List<Connection> emprestadas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            emprestadas.add(pool.emprestar());
+        }
+        for (Connection conn : emprestadas) {
+            conn.close();
+        }
+        assertEquals(3, pool.getEstatisticas().getOciosas());
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.getEstatisticas().getOciosas() > 1 && System.nanoTime() < limite) {
+            Thread.sleep(50);
+        }
+        ConnectionPool.Estatisticas estatisticas = pool.getEstatisticas();
+        assertEquals(1, estatisticas.getOciosas());
+        assertEquals(1, estatisticas.getAbertas());
+        assertEquals(2, estatisticas.getDescartadas());
+    }
+
+    private ConnectionPool novo(int tamanhoMaximo, int minimoOcioso, long timeoutMillis, long ociosoMillis) {
+        String url = "jdbc:sqlite:" + pasta.resolve("pool.db");
+        return new ConnectionPool(url, new Properties(), tamanhoMaximo, minimoOcioso, timeoutMillis, ociosoMillis, true);
+    }
+
+    private static void executar(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static int contar(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class CursorTransacaoTest {
+
+    @Test
+    void codificaEDecodificaAPosicao() {
+        CursorTransacao cursor = new CursorTransacao("2024-05-01T12:30:00Z", "4f1c2a9e-0000-4000-8000-000000000001");
+        String texto = cursor.codificar();
+
+        // Seguro para URL e sem padding: o cliente devolve o texto como recebeu
+        assertTrue(texto.matches("[A-Za-z0-9_-]+"));
+
+        CursorTransacao lido = CursorTransacao.decodificar(texto);
+        assertEquals(cursor.getCriadoEm(), lido.getCriadoEm());
+        assertEquals(cursor.getId(), lido.getId());
+    }
+
+    @Test
+    void idComSeparadorContinuaInteiro() {
+        CursorTransacao lido = CursorTransacao.decodificar(new CursorTransacao("2024-05-01T12:30:00Z", "a|b").codificar());
+        assertEquals("2024-05-01T12:30:00Z", lido.getCriadoEm());
+        assertEquals("a|b", lido.getId());
+    }
+
+    @Test
+    void recusaCursorQueNaoVeioDoServidor() {
+        assertThrows(IllegalArgumentException.class, () -> CursorTransacao.decodificar("não é base64!"));
+        assertThrows(IllegalArgumentException.class, () -> CursorTransacao.decodificar(codificar("sem separador")));
+        assertThrows(IllegalArgumentException.class, () -> CursorTransacao.decodificar(codificar("|id")));
+        assertThrows(IllegalArgumentException.class, () -> CursorTransacao.decodificar(codificar("2024-05-01T12:30:00Z|")));
+    }
+
+    private static String codificar(String bruto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+}
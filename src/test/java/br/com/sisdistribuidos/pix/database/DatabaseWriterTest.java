@@ -0,0 +1,196 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseWriterTest {
+
+    // Janela longa e lote de 3: os três pedidos enviados juntos caem sempre no mesmo lote
+    private static final int TAMANHO_LOTE = 3;
+    private static final long JANELA_LONGA_MICROS = 2_000_000L;
+    private static final long JANELA_CURTA_MICROS = 200L;
+
+    @TempDir
+    Path diretorio;
+
+    private DatabaseWriter writer;
+    private ExecutorService clientes;
+    // Ordem em que o escritor rodou as tarefas; os clientes concorrentes não garantem a de envio
+    private final List<String> executadas = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void encerrar() {
+        if (clientes != null) clientes.shutdownNow();
+        if (writer != null) writer.encerrar();
+    }
+
+    @Test
+    void tarefaComFalhaDesfazSoAsSuasEscritas() throws Exception {
+        iniciar(false, JANELA_LONGA_MICROS);
+        List<String> aposCommit = Collections.synchronizedList(new ArrayList<>());
+        List<String> desfeitas = Collections.synchronizedList(new ArrayList<>());
+        long lotesAntes = writer.getLotes();
+
+        List<Future<Object>> resultados = enviarLote(
+                inserir("a", aposCommit, desfeitas, false),
+                inserir("b", aposCommit, desfeitas, true),
+                inserir("c", aposCommit, desfeitas, false));
+
+        assertEquals("a", resultados.get(0).get());
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> resultados.get(1).get());
+        assertTrue(erro.getCause() instanceof SQLException);
+        assertEquals("c", resultados.get(2).get());
+
+        assertEquals(1, writer.getLotes() - lotesAntes);
+        assertEquals(1, writer.getItensFalhos());
+        assertEquals(Arrays.asList("a", "c"), chaves());
+        assertEquals(Arrays.asList("a", "c"), ordenadas(aposCommit));
+        assertEquals(Collections.singletonList("b"), desfeitas);
+    }
+
+    @Test
+    void falhaNoCommitDesfazOLoteInteiro() throws Exception {
+        iniciar(true, JANELA_LONGA_MICROS);
+        List<String> aposCommit = Collections.synchronizedList(new ArrayList<>());
+        List<String> desfeitas = Collections.synchronizedList(new ArrayList<>());
+
+        // A chave estrangeira adiada só é verificada no commit: o savepoint da tarefa é liberado sem erro
+        List<Future<Object>> resultados = enviarLote(
+                inserir("a", aposCommit, desfeitas, false),
+                conn -> {
+                    try (Statement statement = conn.createStatement()) {
+                        statement.executeUpdate("INSERT INTO filho (chave) VALUES ('inexistente')");
+                    }
+                    registrarAcoes("orfao", aposCommit, desfeitas);
+                    return "orfao";
+                },
+                inserir("c", aposCommit, desfeitas, false));
+
+        for (Future<Object> resultado : resultados) {
+            ExecutionException erro = assertThrows(ExecutionException.class, resultado::get);
+            assertTrue(erro.getCause() instanceof SQLException);
+        }
+        assertEquals(Collections.emptyList(), chaves());
+        assertEquals(Collections.emptyList(), aposCommit);
+        // Desfeitas em ordem inversa de registro
+        List<String> inversa = new ArrayList<>(executadas);
+        Collections.reverse(inversa);
+        assertEquals(3, inversa.size());
+        assertEquals(inversa, desfeitas);
+
+        // O escritor continua aceitando tarefas depois do rollback do lote
+        assertEquals("d", writer.executar(inserir("d", aposCommit, desfeitas, false)));
+        assertEquals(Collections.singletonList("d"), chaves());
+    }
+
+    @Test
+    void tarefaAninhadaRodaNaTransacaoCorrente() throws Exception {
+        iniciar(false, JANELA_CURTA_MICROS);
+        int linhas = writer.executar(conn -> {
+            writer.executar(interna -> {
+                try (Statement statement = interna.createStatement()) {
+                    return statement.executeUpdate("INSERT INTO registro (chave) VALUES ('interna')");
+                }
+            });
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM registro")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+        assertEquals(1, linhas);
+    }
+
+    @Test
+    void aposCommitForaDeUmaTarefaRodaNaHora() throws Exception {
+        iniciar(false, JANELA_CURTA_MICROS);
+        List<String> executadas = new ArrayList<>();
+        writer.aposCommit(() -> executadas.add("agora"));
+        assertEquals(Collections.singletonList("agora"), executadas);
+        assertThrows(IllegalStateException.class, () -> writer.aoDesfazer(() -> { }));
+    }
+
+    private void iniciar(boolean chaveEstrangeiraAdiada, long janelaMicros) throws SQLException {
+        Connection conexao = DriverManager.getConnection(url());
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("CREATE TABLE registro (chave VARCHAR(20) PRIMARY KEY)");
+            if (chaveEstrangeiraAdiada) {
+                statement.execute("PRAGMA foreign_keys = ON");
+                statement.execute("CREATE TABLE filho (chave VARCHAR(20) " +
+                                  "REFERENCES registro(chave) DEFERRABLE INITIALLY DEFERRED)");
+            }
+        }
+        writer = new DatabaseWriter(conexao, null, 100, TAMANHO_LOTE, janelaMicros);
+        clientes = Executors.newFixedThreadPool(TAMANHO_LOTE);
+    }
+
+    @SafeVarargs
+    private final List<Future<Object>> enviarLote(WriteTask<Object>... tarefas) {
+        List<Future<Object>> resultados = new ArrayList<>();
+        for (WriteTask<Object> tarefa : tarefas) {
+            resultados.add(clientes.submit(() -> writer.executar(tarefa)));
+        }
+        return resultados;
+    }
+
+    private WriteTask<Object> inserir(String chave, List<String> aposCommit, List<String> desfeitas, boolean falhar) {
+        return conn -> {
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate("INSERT INTO registro (chave) VALUES ('" + chave + "')");
+            }
+            registrarAcoes(chave, aposCommit, desfeitas);
+            if (falhar) {
+                throw new SQLException("Falha simulada em " + chave);
+            }
+            return chave;
+        };
+    }
+
+    private void registrarAcoes(String chave, List<String> aposCommit, List<String> desfeitas) {
+        executadas.add(chave);
+        writer.aposCommit(() -> aposCommit.add(chave));
+        writer.aoDesfazer(() -> desfeitas.add(chave));
+    }
+
+    // Lidas por outra conexão: só aparece o que o escritor já confirmou
+    private List<String> chaves() throws SQLException {
+        List<String> chaves = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(url());
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT chave FROM registro ORDER BY chave")) {
+            while (rs.next()) {
+                chaves.add(rs.getString(1));
+            }
+        }
+        return chaves;
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + diretorio.resolve("teste.db");
+    }
+
+    private static List<String> ordenadas(List<String> valores) {
+        List<String> copia = new ArrayList<>(valores);
+        Collections.sort(copia);
+        return copia;
+    }
+}
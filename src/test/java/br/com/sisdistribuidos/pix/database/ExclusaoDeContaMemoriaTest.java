@@ -0,0 +1,16 @@
+package br.com.sisdistribuidos.pix.database;
+
+import org.junit.jupiter.api.BeforeAll;
+
+/**
+ * Os mesmos casos de {@link ExclusaoDeContaTest} com os saldos no motor em memória.
+ */
+class ExclusaoDeContaMemoriaTest extends ExclusaoDeContaTest {
+
+    // Mesmo nome: esconde o da superclasse
+    @BeforeAll
+    static void preparar() throws Exception {
+        System.setProperty("pix.saldos.motor", "memoria");
+        iniciar();
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A exclusão de uma conta apaga as transações dela explicitamente (o SQLite não aplica o
+ * ON DELETE CASCADE com foreign_keys desligado) e a tira do cache e do armazenamento de saldos.
+ */
+class ExclusaoDeContaTest {
+
+    private static final String INICIO = "2024-01-01T00:00:00Z";
+    private static final String FIM = "2024-12-31T23:59:59Z";
+
+    private final UsuarioDAO usuarioDao = new UsuarioDAO();
+    private final TransacaoDAO transacaoDao = new TransacaoDAO();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        iniciar();
+    }
+
+    static void iniciar() throws Exception {
+        BancoDeTeste.limpar();
+        DatabaseManager.initialize();
+    }
+
+    @Test
+    void apagaAsTransacoesDaContaEAsDemaisFicam() throws SQLException {
+        Cpf ana = criar("111.111.111-11", 1000);
+        Cpf bruno = criar("222.222.222-22", 0);
+        Cpf carla = criar("333.333.333-33", 0);
+        gravar(transacao("a1", Transacao.transferencia(100, ana, bruno)),
+               transacao("a2", Transacao.transferencia(50, carla, ana)),
+               transacao("a3", Transacao.deposito(10, ana)),
+               transacao("a4", Transacao.transferencia(20, bruno, carla)));
+        assertNotNull(usuarioDao.ler(ana)); // Fica no cache
+
+        usuarioDao.deletar(ana);
+
+        assertNull(usuarioDao.ler(ana));
+        assertNull(DatabaseManager.getSaldos().ler(ana));
+        assertEquals(0, BancoDeTeste.consultarLong(
+                "SELECT COUNT(*) FROM transacao WHERE cpf_enviador = 11111111111 OR cpf_recebedor = 11111111111"));
+        List<Transacao> extratoBruno = transacaoDao.lerPorCpfComDatas(bruno, INICIO, FIM);
+        assertEquals(1, extratoBruno.size());
+        assertEquals("a4", extratoBruno.get(0).getId());
+    }
+
+    @Test
+    void contaCriadaDeNovoComecaSemHistorico() throws SQLException {
+        Cpf dora = criar("444.444.444-44", 700);
+        Cpf edu = criar("555.555.555-55", 0);
+        gravar(transacao("d1", Transacao.transferencia(300, dora, edu)));
+
+        usuarioDao.deletar(dora);
+        criar("444.444.444-44", 0);
+
+        assertEquals(Long.valueOf(0), DatabaseManager.getSaldos().ler(dora));
+        assertEquals(0, usuarioDao.ler(dora).getSaldoCentavos());
+        assertTrue(transacaoDao.lerPorCpfComDatas(dora, INICIO, FIM).isEmpty());
+        assertTrue(transacaoDao.lerPorCpfComDatas(edu, INICIO, FIM).isEmpty());
+    }
+
+    @Test
+    void excluirContaInexistenteNaoApagaNada() throws SQLException {
+        Cpf fabio = criar("666.666.666-66", 0);
+        Cpf gabi = criar("777.777.777-77", 0);
+        gravar(transacao("f1", Transacao.transferencia(1, fabio, gabi)));
+
+        usuarioDao.deletar(Cpf.parse("888.888.888-88"));
+
+        assertEquals(1, transacaoDao.lerPorCpfComDatas(fabio, INICIO, FIM).size());
+        assertNotNull(usuarioDao.ler(fabio));
+    }
+
+    private Cpf criar(String texto, long saldoCentavos) throws SQLException {
+        Cpf cpf = Cpf.parse(texto);
+        usuarioDao.criar(new Usuario(cpf, "Conta " + texto, "senha", saldoCentavos));
+        return cpf;
+    }
+
+    // Só as linhas: o que importa aqui é quais transações sobrevivem à exclusão
+    private void gravar(Transacao... transacoes) throws SQLException {
+        DatabaseManager.executarEscrita(conn -> {
+            transacaoDao.criarLoteComConexao(conn, Arrays.asList(transacoes));
+            return null;
+        });
+    }
+
+    private static Transacao transacao(String id, Transacao transacao) {
+        transacao.setId(id);
+        transacao.setCriadoEm("2024-06-01T12:00:00Z");
+        transacao.setAtualizadoEm("2024-06-01T12:00:00Z");
+        return transacao;
+    }
+}
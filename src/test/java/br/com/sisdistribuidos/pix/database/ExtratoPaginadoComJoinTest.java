@@ -0,0 +1,17 @@
+package br.com.sisdistribuidos.pix.database;
+
+import org.junit.jupiter.api.BeforeAll;
+
+/**
+ * Os mesmos casos de {@link ExtratoPaginadoTest} com os nomes vindos do JOIN com usuario
+ * (pix.db.extratoComJoin=true) em vez do cache de contas.
+ */
+class ExtratoPaginadoComJoinTest extends ExtratoPaginadoTest {
+
+    // Mesmo nome: esconde o da superclasse, para a propriedade valer antes de carregar o TransacaoDAO
+    @BeforeAll
+    static void preparar() throws Exception {
+        System.setProperty("pix.db.extratoComJoin", "true");
+        montarExtrato();
+    }
+}
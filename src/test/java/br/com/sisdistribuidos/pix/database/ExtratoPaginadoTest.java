@@ -0,0 +1,194 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Percorre o extrato página a página pelo cursor, inclusive com várias transações no mesmo
+ * segundo, e confere que o resultado é o extrato inteiro, na ordem, sem repetições.
+ */
+class ExtratoPaginadoTest {
+
+    static final Cpf ANA = Cpf.parse("111.111.111-11");
+    static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+    static final Cpf CARLA = Cpf.parse("333.333.333-33");
+    static final Cpf DANIEL = Cpf.parse("444.444.444-44");
+    // Extrato grande do Daniel: mais transações que um bloco de nomes, de muitos pagadores diferentes
+    static final int PAGADORES = 300;
+    static final int TRANSACOES_DANIEL = 2 * PAGADORES;
+    static final String INICIO = "2024-01-01T00:00:00Z";
+    static final String FIM = "2024-01-31T23:59:59Z";
+
+    // Extrato da Ana na ordem "criado_em DESC, id DESC"
+    static final List<String> EXTRATO_ANA = Arrays.asList("t08", "t07", "t06", "t05", "t04", "t03", "t01");
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        montarExtrato();
+    }
+
+    static void montarExtrato() throws Exception {
+        BancoDeTeste.limpar();
+        DatabaseManager.initialize();
+
+        UsuarioDAO usuarioDao = new UsuarioDAO();
+        usuarioDao.criar(new Usuario(ANA, "Ana", "senha", 0));
+        usuarioDao.criar(new Usuario(BRUNO, "Bruno", "senha", 0));
+        usuarioDao.criar(new Usuario(CARLA, "Carla", "senha", 0));
+
+        List<Transacao> transacoes = Arrays.asList(
+                transacao("t01", Transacao.deposito(100, ANA), "2024-01-05T10:00:00Z"),
+                transacao("t02", Transacao.transferencia(100, BRUNO, CARLA), "2024-01-06T10:00:00Z"),
+                transacao("t03", Transacao.transferencia(100, ANA, BRUNO), "2024-01-07T10:00:00Z"),
+                // Três no mesmo segundo: o id desempata
+                transacao("t05", Transacao.transferencia(100, BRUNO, ANA), "2024-01-08T10:00:00Z"),
+                transacao("t04", Transacao.transferencia(100, ANA, CARLA), "2024-01-08T10:00:00Z"),
+                transacao("t06", Transacao.deposito(100, ANA), "2024-01-08T10:00:00Z"),
+                transacao("t07", Transacao.transferencia(100, CARLA, ANA), "2024-01-09T10:00:00Z"),
+                transacao("t08", Transacao.transferencia(100, ANA, BRUNO), "2024-01-10T10:00:00Z"),
+                // Fora do período
+                transacao("t09", Transacao.transferencia(100, ANA, BRUNO), "2024-02-01T10:00:00Z"));
+        TransacaoDAO transacaoDao = new TransacaoDAO();
+        DatabaseManager.executarEscrita(conn -> {
+            transacaoDao.criarLoteComConexao(conn, transacoes);
+            return null;
+        });
+
+        List<Transacao> doDaniel = new ArrayList<>();
+        for (int i = 0; i < TRANSACOES_DANIEL; i++) {
+            String criadoEm = String.format("2024-01-%02dT%02d:%02d:00Z", 1 + i / 60, (i / 60) % 24, i % 60);
+            doDaniel.add(transacao(String.format("d%04d", i), Transacao.transferencia(1, pagador(i % PAGADORES), DANIEL), criadoEm));
+        }
+        DatabaseManager.executarEscrita(conn -> {
+            usuarioDao.criar(new Usuario(DANIEL, "Daniel", "senha", 0)); // Aninhadas: mesma transação
+            for (int i = 0; i < PAGADORES; i++) {
+                usuarioDao.criar(new Usuario(pagador(i), "Pagador " + i, "senha", 0));
+            }
+            transacaoDao.criarLoteComConexao(conn, doDaniel);
+            return null;
+        });
+        // Metade dos pagadores fora do cache: os nomes vêm em parte do cache e em parte do IN (...)
+        for (int i = 0; i < PAGADORES; i += 2) {
+            DatabaseManager.getUsuarioCache().invalidar(pagador(i));
+        }
+    }
+
+    @Test
+    void paginasCobremOExtratoInteiroNaOrdem() throws Exception {
+        for (int limite = 1; limite <= EXTRATO_ANA.size() + 1; limite++) {
+            List<String> ids = new ArrayList<>();
+            int paginas = percorrer(limite, ids);
+            assertEquals(EXTRATO_ANA, ids, "limite " + limite);
+            assertEquals(Math.max(1, (EXTRATO_ANA.size() + limite - 1) / limite), paginas, "limite " + limite);
+        }
+    }
+
+    @Test
+    void paginaComOResultadoExatoNaoIndicaProxima() throws Exception {
+        List<Transacao> pagina = new ArrayList<>();
+        boolean haMais = new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(
+                ANA, INICIO, FIM, null, EXTRATO_ANA.size(), pagina::add);
+        assertFalse(haMais);
+        assertEquals(EXTRATO_ANA.size(), pagina.size());
+    }
+
+    @Test
+    void cursorNoMeioDoSegundoContinuaPeloId() throws Exception {
+        List<Transacao> pagina = new ArrayList<>();
+        CursorTransacao cursor = new CursorTransacao("2024-01-08T10:00:00Z", "t05");
+        boolean haMais = new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(
+                ANA, INICIO, FIM, cursor, 1, pagina::add);
+        assertTrue(haMais);
+        assertEquals("t04", pagina.get(0).getId());
+        assertEquals("Ana", pagina.get(0).getUsuarioEnviador().getNome());
+        assertEquals("Carla", pagina.get(0).getUsuarioRecebedor().getNome());
+    }
+
+    @Test
+    void semLimiteEntregaTudoDeUmaVez() throws Exception {
+        List<String> ids = new ArrayList<>();
+        boolean haMais = new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(
+                ANA, INICIO, FIM, null, TransacaoDAO.SEM_LIMITE, t -> ids.add(t.getId()));
+        assertFalse(haMais);
+        assertEquals(EXTRATO_ANA, ids);
+    }
+
+    @Test
+    void extratoGrandeSemLimiteTrazTodosOsNomes() throws Exception {
+        List<Transacao> extrato = new ArrayList<>();
+        boolean haMais = new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(
+                DANIEL, INICIO, FIM, null, TransacaoDAO.SEM_LIMITE, extrato::add);
+        assertFalse(haMais);
+        assertEquals(TRANSACOES_DANIEL, extrato.size());
+        for (int i = 0; i < extrato.size(); i++) {
+            int original = TRANSACOES_DANIEL - 1 - i;
+            Transacao transacao = extrato.get(i);
+            assertEquals(String.format("d%04d", original), transacao.getId());
+            assertEquals("Pagador " + (original % PAGADORES), transacao.getUsuarioEnviador().getNome());
+            assertEquals("Daniel", transacao.getUsuarioRecebedor().getNome());
+        }
+    }
+
+    @Test
+    void consumidorNaoSeguraConexaoDoPool() throws Exception {
+        List<Integer> emUso = new ArrayList<>();
+        new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(DANIEL, INICIO, FIM, null, TransacaoDAO.SEM_LIMITE,
+                t -> emUso.add(DatabaseManager.getPoolEstatisticas().getEmUso()));
+        assertEquals(TRANSACOES_DANIEL, emUso.size());
+        for (int conexoes : emUso) {
+            assertEquals(0, conexoes);
+        }
+    }
+
+    @Test
+    void limiteMaiorQueUmBlocoContinuaDeOndeParou() throws Exception {
+        List<Transacao> pagina = new ArrayList<>();
+        boolean haMais = new TransacaoDAO().percorrerPaginaPorCpfComDatasComUsuarios(
+                DANIEL, INICIO, FIM, null, TRANSACOES_DANIEL - 1, pagina::add);
+        assertTrue(haMais);
+        assertEquals(TRANSACOES_DANIEL - 1, pagina.size());
+        assertEquals("d0001", pagina.get(pagina.size() - 1).getId());
+    }
+
+    private static Cpf pagador(int i) {
+        return Cpf.deDigitos(50_000_000_000L + i);
+    }
+
+    // Segue o cursor como o cliente: o texto opaco da última transação de cada página
+    private static int percorrer(int limite, List<String> ids) throws Exception {
+        TransacaoDAO dao = new TransacaoDAO();
+        CursorTransacao cursor = null;
+        int paginas = 0;
+        boolean haMais;
+        do {
+            List<Transacao> pagina = new ArrayList<>();
+            haMais = dao.percorrerPaginaPorCpfComDatasComUsuarios(ANA, INICIO, FIM, cursor, limite, pagina::add);
+            paginas++;
+            for (Transacao transacao : pagina) {
+                ids.add(transacao.getId());
+            }
+            if (haMais) {
+                Transacao ultima = pagina.get(pagina.size() - 1);
+                cursor = CursorTransacao.decodificar(new CursorTransacao(ultima.getCriadoEm(), ultima.getId()).codificar());
+            }
+        } while (haMais);
+        return paginas;
+    }
+
+    private static Transacao transacao(String id, Transacao transacao, String criadoEm) {
+        transacao.setId(id);
+        transacao.setCriadoEm(criadoEm);
+        transacao.setAtualizadoEm(criadoEm);
+        return transacao;
+    }
+}
@@ -0,0 +1,103 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.sql.SQLException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class InMemoryBalanceEngineTest {
+
+    private static InMemoryBalanceEngine motor;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        System.setProperty("pix.saldos.motor", "memoria");
+        BancoDeTeste.limpar();
+        DatabaseManager.initialize();
+        motor = DatabaseManager.getMotorDeSaldos();
+        assertNotNull(motor);
+    }
+
+    @Test
+    void tarefaComFalhaDesfazOsLancamentos() throws SQLException {
+        Cpf ana = criar("111.111.111-11", 1000);
+        Cpf bruno = criar("222.222.222-22", 0);
+
+        // Resultados conferidos fora da tarefa: uma falha de asserção no escritor viraria SQLException
+        boolean[] aplicados = new boolean[2];
+        assertThrows(SQLException.class, () -> DatabaseManager.executarEscrita(conn -> {
+            aplicados[0] = motor.debitarComConexao(conn, ana, 400);
+            aplicados[1] = motor.creditarComConexao(conn, bruno, 400);
+            throw new SQLException("Falha simulada depois dos lançamentos");
+        }));
+
+        assertTrue(aplicados[0] && aplicados[1]);
+        assertEquals(Long.valueOf(1000), motor.ler(ana));
+        assertEquals(Long.valueOf(0), motor.ler(bruno));
+    }
+
+    @Test
+    void exclusaoDesfeitaDevolveAConta() throws SQLException {
+        Cpf carla = criar("333.333.333-33", 250);
+
+        assertThrows(SQLException.class, () -> DatabaseManager.executarEscrita(conn -> {
+            motor.contaRemovidaComConexao(conn, carla);
+            throw new SQLException("Falha simulada depois da exclusão");
+        }));
+
+        assertEquals(Long.valueOf(250), motor.ler(carla));
+    }
+
+    @Test
+    void recusaDebitoAlemDoSaldoEContaInexistente() throws SQLException {
+        Cpf dora = criar("444.444.444-44", 100);
+        Cpf inexistente = Cpf.parse("999.999.999-99");
+
+        boolean debitou = DatabaseManager.executarEscrita(conn -> motor.debitarComConexao(conn, dora, 101));
+        boolean creditou = DatabaseManager.executarEscrita(conn -> motor.creditarComConexao(conn, inexistente, 1));
+
+        assertFalse(debitou);
+        assertFalse(creditou);
+        assertEquals(Long.valueOf(100), motor.ler(dora));
+        assertNull(motor.ler(inexistente));
+    }
+
+    @Test
+    void snapshotGravaOsSaldosEOMarcador() throws SQLException {
+        Cpf edu = criar("555.555.555-55", 0);
+        Transacao deposito = Transacao.deposito(321, edu);
+        TransacaoDAO transacaoDao = new TransacaoDAO();
+
+        boolean creditou = DatabaseManager.executarEscrita(conn -> {
+            transacaoDao.criarComConexao(conn, deposito);
+            return motor.creditarComConexao(conn, edu, 321);
+        });
+        assertTrue(creditou);
+        // Até o snapshot, a coluna continua com o saldo da criação
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 55555555555"));
+
+        DatabaseManager.executarEscrita(conn -> {
+            motor.gravarSnapshotComConexao(conn);
+            return null;
+        });
+
+        assertEquals(321, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 55555555555"));
+        assertEquals(BancoDeTeste.consultarLong("SELECT MAX(rowid) FROM transacao"),
+                     BancoDeTeste.consultarLong("SELECT ultima_transacao FROM saldo_snapshot WHERE id = 1"));
+    }
+
+    private static Cpf criar(String texto, long saldoCentavos) throws SQLException {
+        Cpf cpf = Cpf.parse(texto);
+        new UsuarioDAO().criar(new Usuario(cpf, "Conta " + texto, "senha", saldoCentavos));
+        return cpf;
+    }
+}
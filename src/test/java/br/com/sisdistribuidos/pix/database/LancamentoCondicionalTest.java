@@ -0,0 +1,116 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Débito e crédito como UPDATEs condicionais: o saldo nunca fica negativo, nem com vários
+ * débitos concorrentes, e uma recusa depois do débito desfaz o que a tarefa gravou.
+ */
+class LancamentoCondicionalTest {
+
+    private final UsuarioDAO usuarioDao = new UsuarioDAO();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BancoDeTeste.limpar();
+        DatabaseManager.initialize();
+    }
+
+    @Test
+    void debitoSoComSaldoSuficiente() throws SQLException {
+        Cpf ana = criar("111.111.111-11", 500);
+        assertFalse(debitar(ana, 501));
+        assertEquals(500, saldo(ana));
+        assertTrue(debitar(ana, 500));
+        assertEquals(0, saldo(ana));
+        assertFalse(debitar(ana, 1));
+    }
+
+    @Test
+    void contaInexistenteNaoEAlterada() throws SQLException {
+        Cpf ninguem = Cpf.parse("999.999.999-99");
+        assertFalse(debitar(ninguem, 1));
+        assertFalse(creditar(ninguem, 1));
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM usuario WHERE cpf = 99999999999"));
+    }
+
+    @Test
+    void transferenciaParaSiMesmoNaoCriaDinheiro() throws SQLException {
+        Cpf bruno = criar("222.222.222-22", 300);
+        DatabaseManager.executarEscrita(conn -> {
+            assertTrue(usuarioDao.debitarComConexao(conn, bruno, 200));
+            assertTrue(usuarioDao.creditarComConexao(conn, bruno, 200));
+            return null;
+        });
+        assertEquals(300, saldo(bruno));
+    }
+
+    @Test
+    void recusaDepoisDoDebitoDesfazOLancamento() throws SQLException {
+        Cpf carla = criar("333.333.333-33", 1000);
+        Cpf inexistente = Cpf.parse("888.888.888-88");
+        assertThrows(TransacaoRecusadaException.class, () -> DatabaseManager.executarEscrita(conn -> {
+            assertTrue(usuarioDao.debitarComConexao(conn, carla, 400));
+            if (!usuarioDao.creditarComConexao(conn, inexistente, 400)) {
+                throw new TransacaoRecusadaException("Recebedor não encontrado.");
+            }
+            return null;
+        }));
+        assertEquals(1000, saldo(carla));
+    }
+
+    @Test
+    void debitosConcorrentesNaoPassamDoSaldo() throws Exception {
+        Cpf dora = criar("444.444.444-44", 100);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> debitos = new ArrayList<>();
+            Callable<Boolean> debito = () -> debitar(dora, 1);
+            for (int i = 0; i < 250; i++) {
+                debitos.add(executor.submit(debito));
+            }
+            int aceitos = 0;
+            for (Future<Boolean> resultado : debitos) {
+                if (resultado.get()) aceitos++;
+            }
+            assertEquals(100, aceitos);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, saldo(dora));
+    }
+
+    private Cpf criar(String texto, long saldoCentavos) throws SQLException {
+        Cpf cpf = Cpf.parse(texto);
+        usuarioDao.criar(new Usuario(cpf, "Conta " + texto, "senha", saldoCentavos));
+        return cpf;
+    }
+
+    private boolean debitar(Cpf cpf, long valorCentavos) throws SQLException {
+        return DatabaseManager.executarEscrita(conn -> usuarioDao.debitarComConexao(conn, cpf, valorCentavos));
+    }
+
+    private boolean creditar(Cpf cpf, long valorCentavos) throws SQLException {
+        return DatabaseManager.executarEscrita(conn -> usuarioDao.creditarComConexao(conn, cpf, valorCentavos));
+    }
+
+    // Direto no arquivo, sem passar pelo cache
+    private static long saldo(Cpf cpf) throws SQLException {
+        return BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = " + cpf.getDigitos());
+    }
+}
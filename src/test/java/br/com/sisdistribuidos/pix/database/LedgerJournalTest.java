@@ -0,0 +1,156 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LedgerJournalTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void reabreComOsRegistrosGravados() throws IOException {
+        Transacao transferencia = transacao(Transacao.transferencia(1234, ANA, BRUNO));
+        Transacao deposito = transacao(Transacao.deposito(99, ANA));
+
+        LedgerJournal journal = abrirNovo(64 * 1024);
+        journal.gravar(Arrays.asList(RegistroJournal.transferencia(transferencia), RegistroJournal.deposito(deposito),
+                                     RegistroJournal.anulacao(1, 2), RegistroJournal.exclusao(BRUNO)));
+        journal.forcar();
+        journal.fechar();
+
+        List<RegistroJournal> lidos = new LedgerJournal(diretorio, 64 * 1024, true).abrir();
+        assertEquals(4, lidos.size());
+        for (int i = 0; i < lidos.size(); i++) {
+            assertEquals(i + 1, lidos.get(i).sequencia);
+        }
+        assertIgual(transferencia, lidos.get(0).paraTransacao());
+        assertIgual(deposito, lidos.get(1).paraTransacao());
+        assertEquals(RegistroJournal.ANULACAO, lidos.get(2).tipo);
+        assertEquals(1, lidos.get(2).primeiraAnulada());
+        assertEquals(2, lidos.get(2).ultimaAnulada());
+        assertEquals(RegistroJournal.EXCLUSAO, lidos.get(3).tipo);
+        assertEquals(BRUNO.getDigitos(), lidos.get(3).cpfExcluido());
+    }
+
+    @Test
+    void rolaSegmentosEContinuaASequenciaAoReabrir() throws IOException {
+        // Dois registros por segmento
+        LedgerJournal journal = abrirNovo(2 * RegistroJournal.TAMANHO);
+        journal.gravar(depositos(5));
+        journal.fechar();
+        assertEquals(3, segmentos().size());
+
+        LedgerJournal reaberto = new LedgerJournal(diretorio, 2 * RegistroJournal.TAMANHO, true);
+        List<RegistroJournal> lidos = reaberto.abrir();
+        assertEquals(5, lidos.size());
+        assertEquals(5, lidos.get(4).sequencia);
+        assertEquals(6, reaberto.getProximaSequencia());
+
+        List<RegistroJournal> novos = depositos(1);
+        reaberto.gravar(novos);
+        assertEquals(6, novos.get(0).sequencia);
+        reaberto.fechar();
+    }
+
+    @Test
+    void paraNoPrimeiroRegistroCorrompido() throws IOException {
+        LedgerJournal journal = abrirNovo(64 * 1024);
+        journal.gravar(depositos(3));
+        journal.fechar();
+
+        // Um byte trocado no valor do segundo registro: o CRC não confere
+        try (FileChannel canal = FileChannel.open(segmentos().get(0), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] { 0x7f }), RegistroJournal.TAMANHO + 39);
+        }
+
+        List<RegistroJournal> lidos = new LedgerJournal(diretorio, 64 * 1024, true).abrir();
+        assertEquals(1, lidos.size());
+        assertEquals(1, lidos.get(0).sequencia);
+    }
+
+    @Test
+    void descartaSoOsSegmentosFechados() throws IOException {
+        LedgerJournal journal = abrirNovo(2 * RegistroJournal.TAMANHO);
+        journal.gravar(depositos(3));
+        assertTrue(journal.temSegmentosFechados());
+        journal.descartarFechados();
+        assertFalse(journal.temSegmentosFechados());
+        journal.fechar();
+
+        List<Path> restantes = segmentos();
+        assertEquals(1, restantes.size());
+        assertEquals(String.format("%020d", 3) + ".journal", restantes.get(0).getFileName().toString());
+    }
+
+    @Test
+    void semDescarteOsSegmentosFicam() throws IOException {
+        LedgerJournal journal = new LedgerJournal(diretorio, 2 * RegistroJournal.TAMANHO, false);
+        journal.abrir();
+        journal.gravar(depositos(3));
+        assertFalse(journal.temSegmentosFechados());
+        journal.fechar();
+        assertEquals(2, segmentos().size());
+    }
+
+    private LedgerJournal abrirNovo(int tamanhoSegmento) throws IOException {
+        LedgerJournal journal = new LedgerJournal(diretorio, tamanhoSegmento, true);
+        assertEquals(Collections.emptyList(), journal.abrir());
+        return journal;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diretorio, "*.journal")) {
+            for (Path arquivo : stream) {
+                arquivos.add(arquivo);
+            }
+        }
+        Collections.sort(arquivos);
+        return arquivos;
+    }
+
+    private static List<RegistroJournal> depositos(int quantidade) {
+        List<RegistroJournal> registros = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            registros.add(RegistroJournal.deposito(transacao(Transacao.deposito(100 + i, ANA))));
+        }
+        return registros;
+    }
+
+    // Data fixa, para comparar com a que volta do journal
+    private static Transacao transacao(Transacao transacao) {
+        transacao.setCriadoEm("2024-03-10T08:15:30Z");
+        transacao.setAtualizadoEm("2024-03-10T08:15:30Z");
+        return transacao;
+    }
+
+    private static void assertIgual(Transacao esperada, Transacao lida) {
+        assertEquals(esperada.getId(), lida.getId());
+        assertEquals(esperada.getTipo(), lida.getTipo());
+        assertEquals(esperada.getValorCentavos(), lida.getValorCentavos());
+        assertEquals(esperada.getCpfEnviador(), lida.getCpfEnviador());
+        assertEquals(esperada.getCpfRecebedor(), lida.getCpfRecebedor());
+        assertEquals(esperada.getCriadoEm(), lida.getCriadoEm());
+    }
+}
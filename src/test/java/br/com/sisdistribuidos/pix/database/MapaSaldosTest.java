@@ -0,0 +1,68 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MapaSaldosTest {
+
+    @Test
+    void guardaSubstituiERemove() {
+        MapaSaldos mapa = new MapaSaldos(4);
+        assertEquals(MapaSaldos.AUSENTE, mapa.put(12345678901L, 100));
+        assertEquals(100, mapa.put(12345678901L, 250));
+        assertEquals(250, mapa.get(12345678901L));
+        assertEquals(MapaSaldos.AUSENTE, mapa.get(1L));
+        assertEquals(250, mapa.remove(12345678901L));
+        assertEquals(MapaSaldos.AUSENTE, mapa.remove(12345678901L));
+        assertEquals(0, mapa.tamanho());
+    }
+
+    @Test
+    void aceitaOsCpfsDosExtremosESaldosNegativos() {
+        MapaSaldos mapa = new MapaSaldos(4);
+        mapa.put(0L, -5);
+        mapa.put(99_999_999_999L, Long.MAX_VALUE);
+        assertEquals(-5, mapa.get(0L));
+        assertEquals(Long.MAX_VALUE, mapa.get(99_999_999_999L));
+    }
+
+    @Test
+    void confereComUmHashMapEmOperacoesAleatorias() {
+        // Poucas chaves e capacidade pequena: muitas colisões, crescimento e remoções no meio dos agrupamentos
+        MapaSaldos mapa = new MapaSaldos(2);
+        Map<Long, Long> referencia = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long chave = random.nextInt(2_000) * 1_000_003L;
+            int operacao = random.nextInt(3);
+            if (operacao == 0) {
+                assertEquals(valor(referencia.remove(chave)), mapa.remove(chave));
+            } else {
+                long valor = random.nextInt();
+                assertEquals(valor(referencia.put(chave, valor)), mapa.put(chave, valor));
+            }
+            if (i % 1_000 == 0) {
+                conferir(referencia, mapa);
+            }
+        }
+        conferir(referencia, mapa);
+    }
+
+    private static void conferir(Map<Long, Long> referencia, MapaSaldos mapa) {
+        assertEquals(referencia.size(), mapa.tamanho());
+        for (Map.Entry<Long, Long> entrada : referencia.entrySet()) {
+            assertEquals(entrada.getValue().longValue(), mapa.get(entrada.getKey()));
+        }
+        Map<Long, Long> visitadas = new HashMap<>();
+        mapa.paraCada(visitadas::put);
+        assertEquals(referencia, visitadas);
+    }
+
+    private static long valor(Long valor) {
+        return valor == null ? MapaSaldos.AUSENTE : valor;
+    }
+}
@@ -0,0 +1,112 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Abre um banco criado antes do controle de versão (CPF formatado, saldo e valor em REAL)
+ * e confere o resultado de todas as migrações.
+ */
+class MigracoesTest {
+
+    private static final Cpf ANA = Cpf.parse("111.222.333-44");
+    private static final Cpf BRUNO = Cpf.parse("555.666.777-88");
+
+    @BeforeAll
+    static void migrarBancoAntigo() throws Exception {
+        BancoDeTeste.limpar();
+        BancoDeTeste.executar(
+            "CREATE TABLE usuario (cpf VARCHAR(255) PRIMARY KEY, nome VARCHAR(255) NOT NULL, " +
+            "senha VARCHAR(255) NOT NULL, saldo REAL NOT NULL)",
+            "CREATE TABLE transacao (id VARCHAR(255) PRIMARY KEY, valor REAL NOT NULL, " +
+            "cpf_enviador VARCHAR(255) NOT NULL, cpf_recebedor VARCHAR(255) NOT NULL, " +
+            "criado_em VARCHAR(255) NOT NULL, atualizado_em VARCHAR(255) NOT NULL)",
+            "INSERT INTO usuario VALUES ('111.222.333-44', 'Ana', 'senha-antiga', 10.1)",
+            "INSERT INTO usuario VALUES ('555.666.777-88', 'Bruno', 'outra-senha', 0.29)",
+            "INSERT INTO usuario VALUES ('000.000.000-01', 'Zeros', 'senha', 0)",
+            // rowids fora de sequência: o marcador do snapshot de saldos depende deles
+            "INSERT INTO transacao (rowid, id, valor, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) " +
+            "VALUES (7, 't1', 2.35, '111.222.333-44', '555.666.777-88', '2024-01-01T10:00:00Z', '2024-01-01T10:00:00Z')",
+            "INSERT INTO transacao (rowid, id, valor, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) " +
+            "VALUES (9, 't2', 0.1, '111.222.333-44', '111.222.333-44', '2024-01-02T10:00:00Z', '2024-01-02T10:00:00Z')");
+
+        DatabaseManager.initialize();
+    }
+
+    @Test
+    void registraTodasAsVersoes() throws SQLException {
+        assertEquals(5, BancoDeTeste.consultarLong("SELECT MAX(versao) FROM schema_versao"));
+        assertEquals(5, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM schema_versao"));
+    }
+
+    @Test
+    void converteSaldosParaCentavosECpfParaInteiro() throws SQLException {
+        assertEquals(1010, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 11122233344"));
+        assertEquals(29, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 55566677788"));
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 1"));
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM usuario WHERE typeof(cpf) <> 'integer'"));
+        assertFalse(temColuna("usuario", "saldo"));
+    }
+
+    @Test
+    void converteTransacoesPreservandoORowid() throws SQLException {
+        assertEquals(235, BancoDeTeste.consultarLong("SELECT valor_centavos FROM transacao WHERE rowid = 7"));
+        assertEquals(10, BancoDeTeste.consultarLong("SELECT valor_centavos FROM transacao WHERE rowid = 9"));
+        assertEquals(11122233344L, BancoDeTeste.consultarLong("SELECT cpf_enviador FROM transacao WHERE id = 't1'"));
+        assertEquals(55566677788L, BancoDeTeste.consultarLong("SELECT cpf_recebedor FROM transacao WHERE id = 't1'"));
+        assertEquals(0, BancoDeTeste.consultarLong(
+                "SELECT COUNT(*) FROM transacao WHERE typeof(cpf_enviador) <> 'integer' OR typeof(cpf_recebedor) <> 'integer'"));
+        assertFalse(temColuna("transacao", "valor"));
+    }
+
+    @Test
+    void tipoSoNasTransferenciasEntreContasDiferentes() throws SQLException {
+        assertEquals(Transacao.TIPO_TRANSFERENCIA, BancoDeTeste.consultarTexto("SELECT tipo FROM transacao WHERE id = 't1'"));
+        // Um depósito antigo não se distingue de uma transferência para si mesmo
+        assertNull(BancoDeTeste.consultarTexto("SELECT tipo FROM transacao WHERE id = 't2'"));
+    }
+
+    @Test
+    void recriaOsIndicesDoExtratoEATabelaDoSnapshot() throws SQLException {
+        assertEquals(2, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' " +
+                "AND name IN ('idx_transacao_enviador_data', 'idx_transacao_recebedor_data')"));
+        assertEquals(1, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM sqlite_master WHERE name = 'saldo_snapshot'"));
+    }
+
+    @Test
+    void daosLeemOBancoMigrado() throws SQLException {
+        Usuario ana = new UsuarioDAO().ler(ANA);
+        assertEquals("Ana", ana.getNome());
+        assertEquals(1010, ana.getSaldoCentavos());
+
+        List<Transacao> extrato = new TransacaoDAO().lerPorCpfComDatasComUsuarios(
+                BRUNO, "2024-01-01T00:00:00Z", "2024-12-31T23:59:59Z");
+        assertEquals(1, extrato.size());
+        assertEquals(235, extrato.get(0).getValorCentavos());
+        assertEquals(ANA, extrato.get(0).getCpfEnviador());
+        assertEquals("Ana", extrato.get(0).getUsuarioEnviador().getNome());
+    }
+
+    private static boolean temColuna(String tabela, String coluna) throws SQLException {
+        try (Connection conn = BancoDeTeste.conectar();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA table_info(" + tabela + ")")) {
+            while (rs.next()) {
+                if (coluna.equals(rs.getString("name"))) return true;
+            }
+            return false;
+        }
+    }
+}
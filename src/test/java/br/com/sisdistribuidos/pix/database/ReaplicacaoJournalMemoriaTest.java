@@ -0,0 +1,18 @@
+package br.com.sisdistribuidos.pix.database;
+
+import org.junit.jupiter.api.BeforeAll;
+
+/**
+ * Os mesmos casos de {@link ReaplicacaoJournalTest} depois de uma execução com o motor de saldos
+ * em memória: o journal só insere as linhas de transacao e os saldos vêm da consolidação a partir
+ * do marcador do snapshot.
+ */
+class ReaplicacaoJournalMemoriaTest extends ReaplicacaoJournalTest {
+
+    // Mesmo nome: esconde o da superclasse
+    @BeforeAll
+    static void preparar() throws Exception {
+        System.setProperty("pix.saldos.motor", "memoria");
+        montarQueda(true);
+    }
+}
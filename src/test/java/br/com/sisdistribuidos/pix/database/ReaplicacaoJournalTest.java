@@ -0,0 +1,112 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Simula a queda depois do journal e antes do commit: o banco tem só parte dos lançamentos
+ * e a inicialização reaplica o restante, ignorando os anulados, os de contas inexistentes e
+ * os anteriores à exclusão de uma das contas.
+ */
+class ReaplicacaoJournalTest {
+
+    static final Cpf ANA = Cpf.parse("111.111.111-11");
+    static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+    static final Cpf CARLA = Cpf.parse("333.333.333-33");
+    static final Cpf DANIEL = Cpf.parse("444.444.444-44"); // Nunca existiu no banco
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        montarQueda(false);
+    }
+
+    /**
+     * @param comSnapshot a execução anterior usava o motor de saldos em memória: a coluna de saldo
+     *                    reflete o snapshot, cujo marcador é a última linha de transacao gravada.
+     */
+    static void montarQueda(boolean comSnapshot) throws Exception {
+        BancoDeTeste.limpar();
+        BancoDeTeste.executar(
+            "CREATE TABLE schema_versao (versao INTEGER PRIMARY KEY, descricao VARCHAR(255) NOT NULL, " +
+            "aplicada_em VARCHAR(255) NOT NULL)",
+            "INSERT INTO schema_versao VALUES (1, 'v1', 'x'), (2, 'v2', 'x'), (3, 'v3', 'x'), (4, 'v4', 'x'), (5, 'v5', 'x')",
+            "CREATE TABLE usuario (cpf INTEGER PRIMARY KEY, nome VARCHAR(255) NOT NULL, senha VARCHAR(255) NOT NULL, " +
+            "saldo_centavos INTEGER NOT NULL DEFAULT 0)",
+            "CREATE TABLE transacao (id VARCHAR(255) PRIMARY KEY, valor_centavos INTEGER NOT NULL DEFAULT 0, " +
+            "cpf_enviador INTEGER NOT NULL, cpf_recebedor INTEGER NOT NULL, criado_em VARCHAR(255) NOT NULL, " +
+            "atualizado_em VARCHAR(255) NOT NULL, tipo VARCHAR(20))",
+            "CREATE TABLE saldo_snapshot (id INTEGER PRIMARY KEY CHECK (id = 1), ultima_transacao INTEGER NOT NULL, " +
+            "criado_em VARCHAR(255) NOT NULL)",
+            // Ana começou com 15,00; só a primeira transferência chegou ao banco. Carla foi removida e criada de novo.
+            "INSERT INTO usuario VALUES (11111111111, 'Ana', 'senha', 1000), (22222222222, 'Bruno', 'senha', 500), " +
+            "(33333333333, 'Carla', 'senha', 0)");
+
+        Transacao aplicada = transacao("00000000-0000-4000-8000-000000000001", Transacao.transferencia(500, ANA, BRUNO));
+        try (Connection conn = BancoDeTeste.conectar()) {
+            new TransacaoDAO().criarComConexao(conn, aplicada);
+            if (comSnapshot) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO saldo_snapshot VALUES (1, (SELECT MAX(rowid) FROM transacao), 'x')")) {
+                    stmt.executeUpdate();
+                }
+            }
+        }
+
+        LedgerJournal journal = new LedgerJournal(BancoDeTeste.JOURNAL, 1024 * 1024, true);
+        journal.abrir();
+        journal.gravar(Arrays.asList(
+            RegistroJournal.transferencia(aplicada),                                                                   // 1
+            RegistroJournal.deposito(transacao("00000000-0000-4000-8000-000000000002", Transacao.deposito(1000, ANA))), // 2
+            RegistroJournal.transferencia(transacao("00000000-0000-4000-8000-000000000003",
+                                                    Transacao.transferencia(300, ANA, BRUNO))),                      // 3
+            RegistroJournal.anulacao(3, 3),                                                                          // 4
+            RegistroJournal.transferencia(transacao("00000000-0000-4000-8000-000000000005",
+                                                    Transacao.transferencia(200, CARLA, BRUNO))),                    // 5
+            RegistroJournal.exclusao(CARLA),                                                                         // 6
+            RegistroJournal.transferencia(transacao("00000000-0000-4000-8000-000000000007",
+                                                    Transacao.transferencia(50, ANA, DANIEL))),                      // 7
+            RegistroJournal.transferencia(transacao("00000000-0000-4000-8000-000000000008",
+                                                    Transacao.transferencia(100, BRUNO, ANA)))));                    // 8
+        journal.forcar();
+        journal.fechar();
+
+        System.setProperty("pix.journal.ativo", "true");
+        System.setProperty("pix.journal.tamanhoSegmentoMb", "1");
+        DatabaseManager.initialize();
+    }
+
+    @Test
+    void reaplicaSoOsLancamentosPerdidos() throws SQLException {
+        assertEquals(3, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM transacao"));
+        assertEquals(1, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM transacao WHERE id LIKE '%0002'"));
+        assertEquals(1, BancoDeTeste.consultarLong("SELECT COUNT(*) FROM transacao WHERE id LIKE '%0008'"));
+        assertEquals(Transacao.TIPO_DEPOSITO,
+                     BancoDeTeste.consultarTexto("SELECT tipo FROM transacao WHERE id LIKE '%0002'"));
+    }
+
+    @Test
+    void saldosRefletemOsLancamentosReaplicados() throws SQLException {
+        // Ana: 10,00 + depósito de 10,00 + 1,00 do Bruno; Bruno: 5,00 - 1,00; Carla: nada da conta antiga
+        assertEquals(Long.valueOf(2100), DatabaseManager.getSaldos().ler(ANA));
+        assertEquals(Long.valueOf(400), DatabaseManager.getSaldos().ler(BRUNO));
+        assertEquals(Long.valueOf(0), DatabaseManager.getSaldos().ler(CARLA));
+        assertEquals(2100, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 11111111111"));
+        assertEquals(400, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 22222222222"));
+        assertEquals(0, BancoDeTeste.consultarLong("SELECT saldo_centavos FROM usuario WHERE cpf = 33333333333"));
+    }
+
+    private static Transacao transacao(String id, Transacao transacao) {
+        transacao.setId(id);
+        transacao.setCriadoEm("2024-03-10T08:15:30Z");
+        transacao.setAtualizadoEm("2024-03-10T08:15:30Z");
+        return transacao;
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.sisdistribuidos.pix.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import org.junit.jupiter.api.Test;
+
+class UsuarioCacheTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+    private static final Cpf CARLA = Cpf.parse("333.333.333-33");
+
+    @Test
+    void preencheComAGeracaoLidaAntesDaConsulta() {
+        UsuarioCache cache = new UsuarioCache(100, 4);
+        long geracao = cache.geracao(ANA);
+        cache.preencher(usuario(ANA, "Ana", 100), geracao);
+
+        Usuario lido = cache.ler(ANA);
+        assertEquals("Ana", lido.getNome());
+        assertEquals(100, lido.getSaldoCentavos());
+        assertEquals("Ana", cache.lerNome(ANA));
+    }
+
+    @Test
+    void leituraAnteriorAUmCommitNaoSobrescreveOValorNovo() {
+        UsuarioCache cache = new UsuarioCache(100, 4);
+        // Leitor anota a geração e consulta o banco; antes de preencher, uma escrita é confirmada
+        long geracao = cache.geracao(ANA);
+        cache.invalidar(ANA);
+        cache.preencher(usuario(ANA, "Ana (antiga)", 100), geracao);
+        assertNull(cache.ler(ANA));
+
+        geracao = cache.geracao(ANA);
+        cache.atualizar(usuario(ANA, "Ana", 250));
+        cache.preencher(usuario(ANA, "Ana (antiga)", 100), geracao);
+        assertEquals(250, cache.ler(ANA).getSaldoCentavos());
+    }
+
+    @Test
+    void invalidarRemoveAConta() {
+        UsuarioCache cache = new UsuarioCache(100, 4);
+        cache.atualizar(usuario(ANA, "Ana", 100));
+        cache.invalidar(ANA);
+        assertNull(cache.ler(ANA));
+        assertNull(cache.lerNome(ANA));
+    }
+
+    @Test
+    void alterarGravaSoNaContaEmCache() {
+        UsuarioCache cache = new UsuarioCache(100, 4);
+        cache.atualizar(usuario(ANA, "Ana", 100));
+        cache.alterar(ANA, usuario -> usuario.setNome("Ana Maria"));
+        assertEquals("Ana Maria", cache.ler(ANA).getNome());
+        assertEquals(100, cache.ler(ANA).getSaldoCentavos());
+
+        // Sem a conta em memória nada é criado, mas uma leitura anterior não pode mais preencher
+        long geracao = cache.geracao(BRUNO);
+        cache.alterar(BRUNO, usuario -> usuario.setNome("Bruno"));
+        assertNull(cache.ler(BRUNO));
+        cache.preencher(usuario(BRUNO, "Bruno (antigo)", 0), geracao);
+        assertNull(cache.ler(BRUNO));
+    }
+
+    @Test
+    void entregaCopias() {
+        UsuarioCache cache = new UsuarioCache(100, 4);
+        Usuario original = usuario(ANA, "Ana", 100);
+        cache.atualizar(original);
+        original.setSaldoCentavos(0);
+        cache.ler(ANA).setSaldoCentavos(-1);
+        assertEquals(100, cache.ler(ANA).getSaldoCentavos());
+    }
+
+    @Test
+    void despejaAContaUsadaHaMaisTempo() {
+        // Uma faixa só: a capacidade inteira fica em um único LRU
+        UsuarioCache cache = new UsuarioCache(2, 1);
+        cache.atualizar(usuario(ANA, "Ana", 1));
+        cache.atualizar(usuario(BRUNO, "Bruno", 2));
+        assertNotNull(cache.ler(ANA));
+        cache.atualizar(usuario(CARLA, "Carla", 3));
+
+        assertNotNull(cache.ler(ANA));
+        assertNull(cache.ler(BRUNO));
+        assertNotNull(cache.ler(CARLA));
+        assertEquals(1, cache.getEstatisticas().getDespejos());
+        assertEquals(2, cache.getEstatisticas().getTamanho());
+    }
+
+    @Test
+    void capacidadeZeroDesativaOCache() {
+        UsuarioCache cache = new UsuarioCache(0, 4);
+        cache.atualizar(usuario(ANA, "Ana", 100));
+        cache.preencher(usuario(ANA, "Ana", 100), cache.geracao(ANA));
+        assertNull(cache.ler(ANA));
+        assertEquals(0, cache.getEstatisticas().getTamanho());
+    }
+
+    private static Usuario usuario(Cpf cpf, String nome, long saldoCentavos) {
+        return new Usuario(cpf, nome, "senha", saldoCentavos);
+    }
+}
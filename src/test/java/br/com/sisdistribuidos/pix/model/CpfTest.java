@@ -0,0 +1,62 @@
+package br.com.sisdistribuidos.pix.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class CpfTest {
+
+    @Test
+    void converteTextoEmDigitosEVolta() {
+        Cpf cpf = Cpf.parse("123.456.789-01");
+        assertEquals(12345678901L, cpf.getDigitos());
+        assertEquals("123.456.789-01", cpf.toString());
+    }
+
+    @Test
+    void mantemOsZerosAEsquerda() {
+        Cpf cpf = Cpf.parse("000.000.012-34");
+        assertEquals(1234L, cpf.getDigitos());
+        assertEquals("000.000.012-34", cpf.toString());
+        assertEquals("000.000.000-00", Cpf.deDigitos(0).toString());
+        assertEquals("999.999.999-99", Cpf.deDigitos(99_999_999_999L).toString());
+    }
+
+    @Test
+    void recusaTextoForaDoFormato() {
+        for (String invalido : new String[] { null, "", "12345678901", "123.456.789-0", "123.456.789-012",
+                                              "123-456-789.01", "123.456.78a-01", "123.456.789 01" }) {
+            assertFalse(Cpf.isFormatoValido(invalido), String.valueOf(invalido));
+            assertThrows(IllegalArgumentException.class, () -> Cpf.parse(invalido), String.valueOf(invalido));
+        }
+        assertTrue(Cpf.isFormatoValido("123.456.789-01"));
+    }
+
+    @Test
+    void recusaMaisDeOnzeDigitos() {
+        assertThrows(IllegalArgumentException.class, () -> Cpf.deDigitos(100_000_000_000L));
+        assertThrows(IllegalArgumentException.class, () -> Cpf.deDigitos(-1));
+    }
+
+    @Test
+    void igualdadeEOrdemPelosDigitos() {
+        Cpf a = Cpf.parse("111.111.111-11");
+        assertEquals(a, Cpf.deDigitos(11111111111L));
+        assertEquals(a.hashCode(), Cpf.deDigitos(11111111111L).hashCode());
+        assertNotEquals(a, Cpf.parse("111.111.111-12"));
+        assertTrue(a.compareTo(Cpf.parse("111.111.111-12")) < 0);
+        assertTrue(Cpf.parse("000.000.000-09").compareTo(Cpf.parse("000.000.000-10")) < 0);
+    }
+
+    @Test
+    void noJsonContinuaFormatado() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals("\"000.111.222-33\"", mapper.writeValueAsString(Cpf.parse("000.111.222-33")));
+        assertEquals(Cpf.parse("000.111.222-33"), mapper.readValue("\"000.111.222-33\"", Cpf.class));
+    }
+}
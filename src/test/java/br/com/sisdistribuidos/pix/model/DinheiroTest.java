@@ -0,0 +1,105 @@
+package br.com.sisdistribuidos.pix.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class DinheiroTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void convertePeloCaminhoDoBigDecimal() {
+        assertEquals(7025, Dinheiro.paraCentavos(new BigDecimal("70.25")));
+        assertEquals(7000, Dinheiro.paraCentavos(new BigDecimal("70")));
+        assertEquals(7000, Dinheiro.paraCentavos(new BigDecimal("70.000")));
+        assertEquals(-1, Dinheiro.paraCentavos(new BigDecimal("-0.01")));
+        assertEquals(7025, Dinheiro.paraCentavos(new BigDecimal("70.251")));
+        assertEquals(7026, Dinheiro.paraCentavos(new BigDecimal("70.255")));
+        assertEquals(7024, Dinheiro.paraCentavos(new BigDecimal("70.245")));
+        assertEquals(-7026, Dinheiro.paraCentavos(new BigDecimal("-70.255")));
+        assertThrows(ArithmeticException.class, () -> Dinheiro.paraCentavos(new BigDecimal("100000000000.01")));
+        assertEquals(Dinheiro.MAXIMO_CENTAVOS, Dinheiro.paraCentavos(new BigDecimal("100000000000")));
+    }
+
+    @Test
+    void doubleComDuasCasasConfereComOBigDecimal() {
+        // Todos os centavos de 0 a 1.000,00 e uma faixa perto do limite
+        for (long centavos = 0; centavos <= 100_000; centavos++) {
+            conferirDouble(centavos);
+        }
+        for (long centavos = Dinheiro.MAXIMO_CENTAVOS - 10_000; centavos <= Dinheiro.MAXIMO_CENTAVOS; centavos++) {
+            conferirDouble(centavos);
+        }
+    }
+
+    @Test
+    void arredondaDoublePeloTextoDecimal() {
+        assertEquals(7025, Dinheiro.centavosDe(70.251));
+        assertEquals(0, Dinheiro.centavosDe(0.001));
+        // 1.005 em binário é 1.00499999..., mas foi escrito 1.005: meio para o par dá 1.00
+        assertEquals(100, Dinheiro.centavosDe(1.005));
+        assertEquals(102, Dinheiro.centavosDe(1.015));
+        assertEquals(7026, Dinheiro.centavosDe(70.255));
+        assertEquals(7025, Dinheiro.centavosDe(70.251f));
+        assertEquals(Dinheiro.MAXIMO_CENTAVOS, Dinheiro.centavosDe(100_000_000_000.004));
+    }
+
+    @Test
+    void recusaDoubleForaDoLimite() {
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(100_000_000_000.01));
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(1e300));
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(Double.NaN));
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void reaisInteirosEFloat() {
+        assertEquals(7000, Dinheiro.centavosDe(70L));
+        assertEquals(Dinheiro.MAXIMO_CENTAVOS, Dinheiro.centavosDe(Dinheiro.MAXIMO_CENTAVOS / 100));
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(Dinheiro.MAXIMO_CENTAVOS / 100 + 1));
+        assertEquals(Dinheiro.INVALIDO, Dinheiro.centavosDe(Long.MAX_VALUE));
+        assertEquals(7025, Dinheiro.centavosDe(70.25f));
+        assertEquals(10, Dinheiro.centavosDe(0.1f));
+    }
+
+    @Test
+    void isRepresentavelSemExcecoes() {
+        assertTrue(Dinheiro.isRepresentavel(new BigDecimal("0.10")));
+        assertTrue(Dinheiro.isRepresentavel(new BigDecimal("1E+3")));
+        assertTrue(Dinheiro.isRepresentavel(new BigDecimal("0.005")));
+        assertTrue(Dinheiro.isRepresentavel(new BigDecimal("1E-400")));
+        assertFalse(Dinheiro.isRepresentavel(new BigDecimal("1E+20")));
+        assertFalse(Dinheiro.isRepresentavel(new BigDecimal("1E+999999999")));
+        assertFalse(Dinheiro.isRepresentavel(new BigDecimal("100000000000.015")));
+    }
+
+    @Test
+    void formataEmReais() {
+        assertEquals("70.25", Dinheiro.formatar(7025));
+        assertEquals("0.05", Dinheiro.formatar(5));
+        assertEquals("-1.00", Dinheiro.formatar(-100));
+    }
+
+    @Test
+    void jsonEmReaisNosDoisSentidos() throws Exception {
+        Transacao transacao = mapper.readValue("{\"valor_enviado\": 70.25}", Transacao.class);
+        assertEquals(7025, transacao.getValorCentavos());
+        assertEquals(7000, mapper.readValue("{\"valor_enviado\": 70}", Transacao.class).getValorCentavos());
+        assertTrue(mapper.writeValueAsString(transacao).contains("\"valor_enviado\":70.25"));
+        assertEquals(7025, mapper.readValue("{\"valor_enviado\": 70.251}", Transacao.class).getValorCentavos());
+        assertThrows(InvalidFormatException.class, () -> mapper.readValue("{\"valor_enviado\": 100000000000.01}", Transacao.class));
+    }
+
+    private static void conferirDouble(long centavos) {
+        double reais = Dinheiro.paraReais(centavos).doubleValue();
+        assertEquals(centavos, Dinheiro.centavosDe(reais), "R$ " + reais);
+        assertEquals(-centavos, Dinheiro.centavosDe(-reais), "R$ -" + reais);
+    }
+}
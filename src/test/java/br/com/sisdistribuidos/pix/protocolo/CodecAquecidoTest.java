@@ -0,0 +1,126 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Transacao;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Depois de {@link JsonCodec#aquecer()} o tráfego do protocolo não constrói mais nenhum
+ * serializador, e um único codec pode ser usado por várias conexões ao mesmo tempo.
+ */
+class CodecAquecidoTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+
+    @Test
+    void trafegoDepoisDoAquecimentoNaoCriaSerializadores() throws IOException {
+        JsonCodec codec = new JsonCodec().aquecer();
+        int json = serializadoresEmCache(codec, FormatoMensagem.JSON);
+        int smile = serializadoresEmCache(codec, FormatoMensagem.SMILE);
+
+        trafego(codec);
+        assertEquals(json, serializadoresEmCache(codec, FormatoMensagem.JSON));
+        assertEquals(smile, serializadoresEmCache(codec, FormatoMensagem.SMILE));
+    }
+
+    @Test
+    void semAquecimentoOPrimeiroUsoCriaSerializadores() throws IOException {
+        JsonCodec codec = new JsonCodec();
+        int json = serializadoresEmCache(codec, FormatoMensagem.JSON);
+        int smile = serializadoresEmCache(codec, FormatoMensagem.SMILE);
+
+        trafego(codec);
+        assertTrue(serializadoresEmCache(codec, FormatoMensagem.JSON) > json);
+        assertTrue(serializadoresEmCache(codec, FormatoMensagem.SMILE) > smile);
+    }
+
+    @Test
+    void mesmoCodecEmVariasThreadsProduzOsMesmosBytes() throws Exception {
+        JsonCodec codec = new JsonCodec().aquecer();
+        List<byte[]> esperado = trafego(codec);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<byte[]>>> resultados = new ArrayList<>();
+            Callable<List<byte[]>> tarefa = () -> {
+                List<byte[]> ultimo = null;
+                for (int i = 0; i < 200; i++) {
+                    ultimo = trafego(codec);
+                }
+                return ultimo;
+            };
+            for (int i = 0; i < 16; i++) {
+                resultados.add(executor.submit(tarefa));
+            }
+            for (Future<List<byte[]>> resultado : resultados) {
+                List<byte[]> obtido = resultado.get();
+                assertEquals(esperado.size(), obtido.size());
+                for (int i = 0; i < esperado.size(); i++) {
+                    assertArrayEquals(esperado.get(i), obtido.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // As mensagens de uma sessão típica, nos dois formatos, com e sem 'id'
+    private static List<byte[]> trafego(JsonCodec codec) throws IOException {
+        List<byte[]> bytes = new ArrayList<>();
+        Usuario ana = new Usuario(ANA, "Ana Maria", null, 15_050);
+        Usuario bruno = new Usuario(BRUNO, "Bruno Souza", null, 990);
+        List<JsonNode> ids = Arrays.asList(
+                codec.getMapper().getNodeFactory().numberNode(7L), codec.getMapper().getNodeFactory().textNode("req-1"));
+        // Como no ClientHandler, os resultados do lote num ArrayList
+        List<RespostaLote.ResultadoItem> resultados = new ArrayList<>();
+        resultados.add(new RespostaLote.ResultadoItem(true, "Transação realizada."));
+        resultados.add(new RespostaLote.ResultadoItem(false, "Saldo insuficiente."));
+        List<Resposta> respostas = Arrays.asList(
+                new Resposta("depositar", true, "Depósito realizado."),
+                new RespostaLogin("f2b0c6d4-token"),
+                new RespostaUsuario(ana),
+                new RespostaLote("transacao_criar_lote", "Lote processado.", resultados));
+        for (FormatoMensagem formato : FormatoMensagem.values()) {
+            for (Resposta resposta : respostas) {
+                bytes.add(codec.codificar(codec.serializar(resposta), formato));
+                for (JsonNode id : ids) {
+                    bytes.add(codec.codificar(codec.serializar(resposta), formato, id));
+                }
+            }
+            Transacao transacao = new Transacao(2_500L, ANA, BRUNO);
+            transacao.setId("42");
+            transacao.setCriadoEm("2024-03-10T12:00:00Z");
+            transacao.setAtualizadoEm("2024-03-10T12:00:00Z");
+            transacao.setUsuarioEnviador(ana);
+            transacao.setUsuarioRecebedor(bruno);
+            bytes.add(codec.getEscritorTransacao(formato).writeValueAsBytes(transacao));
+        }
+        JsonNode requisicao = codec.lerArvore(
+                "{\"operacao\":\"transacao_criar\",\"token\":\"abc\",\"cpf_destino\":\"222.222.222-22\",\"valor\":25}");
+        codec.ler(requisicao, RequisicaoTransacao.class);
+        return bytes;
+    }
+
+    private static int serializadoresEmCache(JsonCodec codec, FormatoMensagem formato) {
+        ObjectMapper mapper = (ObjectMapper) codec.getFactory(formato).getCodec();
+        // O cache de serializadores é compartilhado entre o provider do mapper e as suas instâncias
+        return ((DefaultSerializerProvider) mapper.getSerializerProvider()).cachedSerializersCount();
+    }
+}
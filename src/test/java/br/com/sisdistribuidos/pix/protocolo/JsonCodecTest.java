@@ -0,0 +1,119 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JsonCodecTest {
+
+    private final JsonCodec codec = new JsonCodec();
+
+    @Test
+    void smileTrazAsMesmasChavesQueOJson() throws IOException {
+        for (Resposta resposta : respostas()) {
+            JsonNode json = codec.lerArvore(codec.codificar(codec.serializar(resposta), FormatoMensagem.JSON), FormatoMensagem.JSON);
+            JsonNode smile = codec.lerArvore(codec.codificar(codec.serializar(resposta), FormatoMensagem.SMILE), FormatoMensagem.SMILE);
+            assertIgual(json, smile, resposta.toString());
+            assertEquals(Arrays.asList("operacao", "status", "info"), chaves(smile).subList(0, 3));
+        }
+    }
+
+    @Test
+    void respostaEnviadaEmSmileNaoESerializadaEmJson() throws IOException {
+        RespostaPronta pronta = codec.serializar(new RespostaLogin("abc"));
+        codec.codificar(pronta, FormatoMensagem.SMILE);
+        codec.codificar(pronta, FormatoMensagem.SMILE, codec.getMapper().getNodeFactory().numberNode(7));
+        assertNull(pronta.getBytes());
+        assertEquals("RespostaLogin{operacao=usuario_login, status=true, info=Login bem-sucedido.}", pronta.toString());
+    }
+
+    @Test
+    void idVemPrimeiroNosDoisFormatos() throws IOException {
+        JsonNode id = codec.lerArvore("{\"id\":{\"lote\":3}}").get("id");
+        for (Resposta resposta : respostas()) {
+            JsonNode esperado = comId(id, codec.lerArvore(
+                    codec.codificar(codec.serializar(resposta), FormatoMensagem.JSON), FormatoMensagem.JSON));
+            for (FormatoMensagem formato : FormatoMensagem.values()) {
+                JsonNode lido = codec.lerArvore(codec.codificar(codec.serializar(resposta), formato, id), formato);
+                assertIgual(esperado, lido, formato + " " + resposta);
+                assertEquals("id", chaves(lido).get(0));
+            }
+        }
+    }
+
+    @Test
+    void respostaFixaEConvertidaUmaVezPorFormato() throws IOException {
+        RespostaPronta fixa = RespostaPronta.fixa("usuario_logout", true, "Logout \"realizado\".");
+        byte[] smile = codec.codificar(fixa, FormatoMensagem.SMILE);
+        assertSame(smile, codec.codificar(fixa, FormatoMensagem.SMILE));
+        assertEquals(codec.lerArvore(new String(fixa.getBytes(), StandardCharsets.UTF_8)),
+                     codec.lerArvore(smile, FormatoMensagem.SMILE));
+    }
+
+    @Test
+    void respostaMontadaEmBytesTambemSaiEmSmile() throws IOException {
+        RespostaPronta bruta = new RespostaPronta("{\"status\":false,\"info\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+        JsonNode id = codec.getMapper().getNodeFactory().textNode("a");
+        JsonNode lido = codec.lerArvore(codec.codificar(bruta, FormatoMensagem.SMILE, id), FormatoMensagem.SMILE);
+        assertEquals(codec.lerArvore("{\"id\":\"a\",\"status\":false,\"info\":\"x\"}"), lido);
+        assertArrayEquals(bruta.getBytes(), codec.codificar(bruta, FormatoMensagem.JSON));
+    }
+
+    @Test
+    void recusaRespostaNaoRegistrada() {
+        Resposta desconhecida = new Resposta("x", true, "y") { };
+        assertThrows(IllegalArgumentException.class, () -> codec.serializar(desconhecida));
+    }
+
+    private static List<Resposta> respostas() {
+        Usuario usuario = new Usuario(Cpf.parse("123.456.789-01"), "Ana", "hash", 1234L);
+        return Arrays.asList(
+                new Resposta("transacao_criar", false, "Saldo \"insuficiente\"."),
+                new RespostaLogin("token-123"),
+                new RespostaUsuario(usuario),
+                new RespostaLote("depositar_lote", "Lote processado: 1 de 2 depósitos realizados.",
+                        Arrays.asList(new RespostaLote.ResultadoItem(true, "ok"), new RespostaLote.ResultadoItem(false, "não"))));
+    }
+
+    // Valores em dinheiro: o JSON lido vira double, o Smile traz o BigDecimal escrito pelo servidor
+    private static void assertIgual(JsonNode esperado, JsonNode lido, String mensagem) {
+        Comparator<JsonNode> numerico = (a, b) -> {
+            if (a.isNumber() && b.isNumber()) {
+                return a.decimalValue().compareTo(b.decimalValue());
+            }
+            return a.equals(b) ? 0 : 1;
+        };
+        assertTrue(esperado.equals(numerico, lido), mensagem + ": " + esperado + " <> " + lido);
+    }
+
+    private JsonNode comId(JsonNode id, JsonNode resposta) {
+        ObjectNode arvore = codec.getMapper().createObjectNode();
+        arvore.set("id", id);
+        arvore.setAll((ObjectNode) resposta);
+        return arvore;
+    }
+
+    private static List<String> chaves(JsonNode objeto) {
+        List<String> chaves = new ArrayList<>();
+        for (Iterator<String> nomes = objeto.fieldNames(); nomes.hasNext(); ) {
+            chaves.add(nomes.next());
+        }
+        return chaves;
+    }
+}
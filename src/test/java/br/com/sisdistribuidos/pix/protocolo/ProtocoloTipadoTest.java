@@ -0,0 +1,121 @@
+package br.com.sisdistribuidos.pix.protocolo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import br.com.sisdistribuidos.pix.model.Usuario;
+import br.com.sisdistribuidos.pix.validador.Validator;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * As requisições já validadas viram objetos tipados (CPF, centavos, campos opcionais) e as
+ * respostas saem com as chaves base primeiro, aceitas pela validação do cliente.
+ */
+class ProtocoloTipadoTest {
+
+    private final JsonCodec codec = new JsonCodec();
+
+    @Test
+    void transacaoConverteCpfEValor() throws Exception {
+        RequisicaoTransacao requisicao = ler(
+                "{\"operacao\":\"transacao_criar\",\"token\":\"abc\",\"cpf_destino\":\"123.456.789-01\",\"valor\":70.25}",
+                RequisicaoTransacao.class);
+        assertEquals("abc", requisicao.getToken());
+        assertEquals(Cpf.parse("123.456.789-01"), requisicao.getCpfDestino());
+        assertEquals(7025, requisicao.getValorCentavos());
+    }
+
+    @Test
+    void camposOpcionaisAusentesFicamNulos() throws Exception {
+        RequisicaoAtualizarUsuario atualizar = ler(
+                "{\"operacao\":\"usuario_atualizar\",\"token\":\"abc\",\"usuario\":{\"nome\":\"Novo Nome\"}}",
+                RequisicaoAtualizarUsuario.class);
+        assertEquals("Novo Nome", atualizar.getUsuario().getNome());
+        assertNull(atualizar.getUsuario().getSenha());
+
+        RequisicaoExtrato extrato = ler(
+                "{\"operacao\":\"transacao_ler\",\"token\":\"abc\",\"data_inicial\":\"2024-01-01T00:00:00Z\"," +
+                "\"data_final\":\"2024-01-31T23:59:59Z\"}",
+                RequisicaoExtrato.class);
+        assertEquals("2024-01-01T00:00:00Z", extrato.getDataInicial());
+        assertNull(extrato.getLimite());
+        assertNull(extrato.getCursor());
+    }
+
+    @Test
+    void loteConverteCadaItem() throws Exception {
+        RequisicaoTransacaoLote lote = ler(
+                "{\"operacao\":\"transacao_criar_lote\",\"token\":\"abc\",\"transacoes\":[" +
+                "{\"cpf_destino\":\"111.111.111-11\",\"valor\":1},{\"cpf_destino\":\"222.222.222-22\",\"valor\":2.5}]}",
+                RequisicaoTransacaoLote.class);
+        assertEquals(2, lote.getTransacoes().size());
+        assertEquals(Cpf.parse("111.111.111-11"), lote.getTransacoes().get(0).getCpfDestino());
+        assertEquals(100, lote.getTransacoes().get(0).getValorCentavos());
+        assertEquals(250, lote.getTransacoes().get(1).getValorCentavos());
+    }
+
+    @Test
+    void respostaDoUsuarioSemSenhaENaOrdemDoProtocolo() throws Exception {
+        // Como no handler: a senha é apagada antes de montar a resposta
+        Usuario usuario = new Usuario(Cpf.parse("123.456.789-01"), "Ana Maria", "segredo", 12_345);
+        usuario.setSenha(null);
+        JsonNode resposta = responder(new RespostaUsuario(usuario));
+
+        assertEquals(Arrays.asList("operacao", "status", "info", "usuario"), chaves(resposta));
+        JsonNode lido = resposta.get("usuario");
+        assertEquals("123.456.789-01", lido.get("cpf").asText());
+        assertEquals("123.45", lido.get("saldo").decimalValue().toPlainString());
+        assertFalse(lido.has("senha"));
+        Validator.validateServer(resposta);
+
+        // Uma resposta que vazasse a senha seria recusada pela validação do cliente
+        usuario.setSenha("segredo");
+        JsonNode comSenha = responder(new RespostaUsuario(usuario));
+        assertThrows(IllegalArgumentException.class, () -> Validator.validateServer(comSenha));
+    }
+
+    @Test
+    void respostaDeLoginNaOrdemDoProtocolo() throws Exception {
+        JsonNode resposta = responder(new RespostaLogin("token-abc"));
+        assertEquals(Arrays.asList("operacao", "status", "info", "token"), chaves(resposta));
+        assertEquals("token-abc", resposta.get("token").asText());
+        Validator.validateServer(resposta);
+    }
+
+    @Test
+    void respostaFixaIgualASerializadaPeloJackson() throws Exception {
+        String info = "Texto com \"aspas\", barra \\ e acentuação.";
+        byte[] fixa = RespostaPronta.fixa("usuario_ler", false, info).getBytes();
+        byte[] jackson = codec.getMapper().writeValueAsBytes(new Resposta("usuario_ler", false, info));
+        assertEquals(new String(jackson, StandardCharsets.UTF_8), new String(fixa, StandardCharsets.UTF_8));
+    }
+
+    private <T> T ler(String json, Class<T> tipo) throws Exception {
+        JsonNode arvore = codec.lerArvore(json);
+        Validator.validateClient(arvore);
+        return codec.ler(arvore, tipo);
+    }
+
+    private JsonNode responder(Resposta resposta) throws IOException {
+        return codec.lerArvore(new String(codec.codificar(codec.serializar(resposta), FormatoMensagem.JSON), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> chaves(JsonNode node) {
+        List<String> chaves = new ArrayList<>();
+        Iterator<String> nomes = node.fieldNames();
+        while (nomes.hasNext()) {
+            chaves.add(nomes.next());
+        }
+        return chaves;
+    }
+}
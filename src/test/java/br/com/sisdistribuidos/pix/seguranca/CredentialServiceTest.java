@@ -0,0 +1,102 @@
+package br.com.sisdistribuidos.pix.seguranca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class CredentialServiceTest {
+
+    private static final Cpf CPF = Cpf.parse("123.456.789-01");
+
+    private final CredentialService servico = new CredentialService(new PasswordHasher(1_000), 2, 10, 5_000L, 60L, 100);
+
+    @Test
+    void loginComSenhaEmTextoPuroRefazOHash() throws Exception {
+        assertTrue(servico.verificar(CPF, "senha123", "senha123"));
+        assertTrue(servico.precisaRehash("senha123"));
+
+        CompletableFuture<String> gravado = new CompletableFuture<>();
+        servico.rehashEmSegundoPlano(CPF, "senha123", "senha123", novoHash -> gravado.complete(novoHash));
+        String novoHash = gravado.get(5, TimeUnit.SECONDS);
+
+        assertTrue(PasswordHasher.isHash(novoHash));
+        assertFalse(servico.precisaRehash(novoHash));
+        assertTrue(new PasswordHasher(1_000).verificar("senha123", novoHash));
+        esperarRehashes(1);
+
+        // O novo hash já entra no cache: o próximo login não recalcula o PBKDF2
+        long calculados = servico.getHashesCalculados();
+        assertTrue(servico.verificar(CPF, "senha123", novoHash));
+        assertEquals(calculados, servico.getHashesCalculados());
+        assertEquals(1, servico.getAcertosCache());
+    }
+
+    @Test
+    void hashComCustoAntigoPedeRehash() throws Exception {
+        String antigo = new PasswordHasher(2_000).gerar("senha123");
+        assertTrue(servico.verificar(CPF, "senha123", antigo));
+        assertTrue(servico.precisaRehash(antigo));
+    }
+
+    @Test
+    void rehashNaoGravadoNaoEContado() throws Exception {
+        // Uma thread só: o hash seguinte na fila só começa depois do rehash terminar
+        CredentialService umaThread = new CredentialService(new PasswordHasher(1_000), 1, 10, 5_000L, 60L, 100);
+        CompletableFuture<String> tentativa = new CompletableFuture<>();
+        umaThread.rehashEmSegundoPlano(CPF, "senha123", "senha123", novoHash -> {
+            tentativa.complete(novoHash);
+            return false; // A senha mudou enquanto o hash era calculado
+        });
+        tentativa.get(5, TimeUnit.SECONDS);
+        umaThread.gerarHash("sincroniza");
+        assertEquals(0, umaThread.getRehashes());
+    }
+
+    @Test
+    void cacheDeixaDeValerQuandoOValorGravadoMuda() throws Exception {
+        String hash = servico.gerarHash("senha123");
+        assertTrue(servico.verificar(CPF, "senha123", hash));
+        assertTrue(servico.verificar(CPF, "senha123", hash));
+        assertEquals(1, servico.getAcertosCache());
+
+        // Senha trocada: a credencial lembrada era do valor gravado antes
+        String trocado = servico.gerarHash("outra");
+        assertFalse(servico.verificar(CPF, "senha123", trocado));
+        assertEquals(1, servico.getAcertosCache());
+
+        servico.esquecer(CPF);
+        assertTrue(servico.verificar(CPF, "senha123", hash));
+        assertEquals(1, servico.getAcertosCache());
+    }
+
+    @Test
+    void senhaErradaNaoEntraNoCache() throws Exception {
+        String hash = servico.gerarHash("senha123");
+        assertFalse(servico.verificar(CPF, "errada", hash));
+        assertFalse(servico.verificar(CPF, "errada", hash));
+        assertEquals(0, servico.getAcertosCache());
+    }
+
+    @Test
+    void executorSaturadoFalhaComTimeout() {
+        // Custo alto e prazo de 1 ms: a verificação não termina a tempo
+        CredentialService lento = new CredentialService(new PasswordHasher(5_000_000), 1, 1, 1L, 60L, 100);
+        assertThrows(TimeoutException.class, () -> lento.verificar(CPF, "senha123", "pbkdf2$5000000$AAAA$AAAA"));
+        assertEquals(1, lento.getRecusadas());
+    }
+
+    private void esperarRehashes(long esperados) throws InterruptedException {
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (servico.getRehashes() < esperados && System.nanoTime() < prazo) {
+            Thread.sleep(10);
+        }
+        assertEquals(esperados, servico.getRehashes());
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.sisdistribuidos.pix.seguranca;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    @Test
+    void verificaOHashGerado() {
+        String hash = hasher.gerar("senha123");
+        assertTrue(hash.startsWith("pbkdf2$1000$"));
+        assertTrue(hasher.verificar("senha123", hash));
+        assertFalse(hasher.verificar("senha124", hash));
+        assertFalse(hasher.precisaRehash(hash));
+    }
+
+    @Test
+    void salDiferenteACadaHash() {
+        assertNotEquals(hasher.gerar("senha123"), hasher.gerar("senha123"));
+    }
+
+    @Test
+    void senhaEmTextoPuroValeAteSerRefeita() {
+        assertTrue(hasher.verificar("senha123", "senha123"));
+        assertFalse(hasher.verificar("senha12", "senha123"));
+        assertTrue(hasher.precisaRehash("senha123"));
+    }
+
+    @Test
+    void hashComCustoAntigoContinuaValendoMasPedeRehash() {
+        String antigo = new PasswordHasher(2_000).gerar("senha123");
+        assertTrue(hasher.verificar("senha123", antigo));
+        assertTrue(hasher.precisaRehash(antigo));
+    }
+
+    @Test
+    void valorGravadoCorrompidoNaoConfere() {
+        String hash = hasher.gerar("senha123");
+        assertFalse(hasher.verificar("senha123", hash.substring(0, hash.lastIndexOf('$'))));
+        assertFalse(hasher.verificar("senha123", "pbkdf2$mil$abc$def"));
+        assertFalse(hasher.verificar("senha123", "pbkdf2$1000$@@@$@@@"));
+        assertFalse(hasher.verificar("senha123", null));
+    }
+
+    @Test
+    void recusaCustoAbaixoDoMinimo() {
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(999));
+    }
+}
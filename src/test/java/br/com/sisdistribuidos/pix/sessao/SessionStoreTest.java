@@ -0,0 +1,139 @@
+package br.com.sisdistribuidos.pix.sessao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.com.sisdistribuidos.pix.model.Cpf;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SessionStoreTest {
+
+    private static final Cpf ANA = Cpf.parse("111.111.111-11");
+    private static final Cpf BRUNO = Cpf.parse("222.222.222-22");
+
+    private static final long TTL = TimeUnit.SECONDS.toNanos(60);
+    private static final long OCIOSIDADE = TimeUnit.SECONDS.toNanos(30);
+    // Sem limpeza automática nos testes que conferem a expiração na consulta
+    private static final long SEM_LIMPEZA = TimeUnit.DAYS.toNanos(1);
+
+    // Começa longe de zero, como o System.nanoTime(), que pode ser qualquer valor
+    private final AtomicLong relogio = new AtomicLong(-TimeUnit.DAYS.toNanos(3));
+    private SessionStore sessoes;
+
+    @AfterEach
+    void fechar() {
+        if (sessoes != null) {
+            sessoes.fechar();
+        }
+    }
+
+    @Test
+    void ttlExpiraMesmoComAcessosFrequentes() {
+        sessoes = novo(5, SEM_LIMPEZA);
+        String token = sessoes.criar(ANA);
+        for (int i = 0; i < 3; i++) {
+            avancar(20);
+            assertEquals(ANA, sessoes.cpfDoToken(token));
+        }
+        avancar(1);
+        assertNull(sessoes.cpfDoToken(token));
+        assertEquals(1, sessoes.getExpiradas());
+        assertEquals(0, sessoes.getAtivas());
+    }
+
+    @Test
+    void ociosidadeExpiraSemAcessoEAcessoRenovaOPrazo() {
+        sessoes = novo(5, SEM_LIMPEZA);
+        String ativa = sessoes.criar(ANA);
+        String ociosa = sessoes.criar(ANA);
+
+        avancar(25);
+        assertEquals(ANA, sessoes.cpfDoToken(ativa));
+        // 50 s desde a criação: sem o acesso aos 25 s a sessão ativa também teria expirado
+        avancar(25);
+        assertEquals(ANA, sessoes.cpfDoToken(ativa));
+        assertNull(sessoes.cpfDoToken(ociosa));
+        assertEquals(1, sessoes.getExpiradas());
+    }
+
+    @Test
+    void acessoDentroDaResolucaoNaoRenovaOPrazo() {
+        sessoes = novo(5, SEM_LIMPEZA);
+        String token = sessoes.criar(ANA);
+        // O último acesso só é regravado depois de 1 s; um acesso antes disso não conta
+        relogio.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(ANA, sessoes.cpfDoToken(token));
+        relogio.addAndGet(OCIOSIDADE - TimeUnit.MILLISECONDS.toNanos(400));
+        assertNull(sessoes.cpfDoToken(token));
+    }
+
+    @Test
+    void limitePorCpfDespejaASessaoMaisAntiga() {
+        sessoes = novo(2, SEM_LIMPEZA);
+        String primeira = sessoes.criar(ANA);
+        String doBruno = sessoes.criar(BRUNO);
+        String segunda = sessoes.criar(ANA);
+        String terceira = sessoes.criar(ANA);
+
+        assertNull(sessoes.cpfDoToken(primeira));
+        assertEquals(ANA, sessoes.cpfDoToken(segunda));
+        assertEquals(ANA, sessoes.cpfDoToken(terceira));
+        assertEquals(BRUNO, sessoes.cpfDoToken(doBruno));
+        assertEquals(1, sessoes.getDespejadas());
+        assertEquals(3, sessoes.getAtivas());
+
+        // Uma sessão encerrada libera a vaga: o próximo login não despeja ninguém
+        assertTrue(sessoes.encerrar(segunda));
+        String quarta = sessoes.criar(ANA);
+        assertEquals(ANA, sessoes.cpfDoToken(terceira));
+        assertEquals(ANA, sessoes.cpfDoToken(quarta));
+        assertEquals(1, sessoes.getDespejadas());
+    }
+
+    @Test
+    void limpezaRemoveSessoesVencidasQueNinguemConsultou() throws Exception {
+        sessoes = novo(5, TimeUnit.MILLISECONDS.toNanos(10));
+        sessoes.criar(ANA);
+        sessoes.criar(ANA);
+        avancar(20);
+        String recente = sessoes.criar(BRUNO);
+        assertEquals(3, sessoes.getAtivas());
+
+        // Passa da ociosidade das duas primeiras, mas não da criada depois
+        avancar(15);
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sessoes.getAtivas() > 1 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, sessoes.getAtivas());
+        assertEquals(2, sessoes.getExpiradas());
+        assertEquals(BRUNO, sessoes.cpfDoToken(recente));
+    }
+
+    @Test
+    void encerrarTodasDerrubaSoAsSessoesDoCpf() {
+        sessoes = novo(5, SEM_LIMPEZA);
+        String a1 = sessoes.criar(ANA);
+        String a2 = sessoes.criar(ANA);
+        String b1 = sessoes.criar(BRUNO);
+
+        sessoes.encerrarTodas(ANA);
+        assertNull(sessoes.cpfDoToken(a1));
+        assertNull(sessoes.cpfDoToken(a2));
+        assertEquals(BRUNO, sessoes.cpfDoToken(b1));
+        assertEquals(2, sessoes.getEncerradas());
+        assertEquals(0, sessoes.getExpiradas());
+    }
+
+    private SessionStore novo(int maximoPorCpf, long intervaloLimpeza) {
+        return new SessionStore(relogio::get, TTL, OCIOSIDADE, maximoPorCpf, intervaloLimpeza);
+    }
+
+    private void avancar(long segundos) {
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(segundos));
+    }
+}
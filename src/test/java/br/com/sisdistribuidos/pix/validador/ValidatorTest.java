@@ -0,0 +1,92 @@
+package br.com.sisdistribuidos.pix.validador;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class ValidatorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Números com ponto como BigDecimal, como chegam de uma mensagem Smile
+    private static final ObjectMapper MAPPER_DECIMAL =
+            new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Test
+    void mensagemValidaDevolveOResultadoCompartilhado() throws Exception {
+        assertSame(ResultadoValidacao.VALIDO, verificar(MAPPER, deposito("70.25")));
+        assertSame(ResultadoValidacao.VALIDO, verificar(MAPPER,
+                "{\"operacao\":\"usuario_login\",\"cpf\":\"123.456.789-01\",\"senha\":\"123456\",\"id\":\"r1\"}"));
+    }
+
+    @Test
+    void dinheiroDentroDoLimite() throws Exception {
+        for (ObjectMapper mapper : new ObjectMapper[] { MAPPER, MAPPER_DECIMAL }) {
+            assertTrue(valido(mapper, deposito("70.25")));
+            assertTrue(valido(mapper, deposito("70.2")));
+            assertTrue(valido(mapper, deposito("70")));
+            assertTrue(valido(mapper, deposito("0.1")));
+            assertTrue(valido(mapper, deposito("1E+2")));
+            assertTrue(valido(mapper, deposito("100000000000")));
+
+            // Mais de 2 casas é arredondado na desserialização, não recusado
+            assertTrue(valido(mapper, deposito("70.251")));
+            assertTrue(valido(mapper, deposito("0.001")));
+            assertTrue(valido(mapper, deposito("100000000000.004")));
+
+            assertFalse(valido(mapper, deposito("100000000000.01")));
+            assertFalse(valido(mapper, deposito("1E+999999999")));
+            assertFalse(valido(mapper, deposito("100000000001")));
+            assertFalse(valido(mapper, deposito("123456789012345678901234567890")));
+            assertFalse(valido(mapper, deposito("1E+300")));
+            assertFalse(valido(mapper, deposito("\"70.25\"")));
+            assertFalse(valido(mapper, deposito("null")));
+        }
+    }
+
+    @Test
+    void dinheiroEmCadaItemDoLote() throws Exception {
+        assertTrue(valido(MAPPER, "{\"operacao\":\"depositar_lote\",\"token\":\"abc\"," +
+                                  "\"depositos\":[{\"valor_enviado\":1.5},{\"valor_enviado\":2}]}"));
+        assertFalse(valido(MAPPER, "{\"operacao\":\"depositar_lote\",\"token\":\"abc\"," +
+                                   "\"depositos\":[{\"valor_enviado\":1.5},{\"valor_enviado\":1E+12}]}"));
+    }
+
+    @Test
+    void recusaChavesDesconhecidasECpfForaDoFormato() throws Exception {
+        assertFalse(valido(MAPPER, "{\"operacao\":\"depositar\",\"token\":\"abc\",\"valor_enviado\":1,\"extra\":1}"));
+        assertFalse(valido(MAPPER, "{\"operacao\":\"usuario_login\",\"cpf\":\"12345678901\",\"senha\":\"123456\"}"));
+        assertFalse(valido(MAPPER, "{\"operacao\":\"operacao_inexistente\"}"));
+    }
+
+    @Test
+    void limiteDaPaginaDoExtrato() throws Exception {
+        assertTrue(valido(MAPPER, extrato("1")));
+        assertTrue(valido(MAPPER, extrato("100")));
+        assertFalse(valido(MAPPER, extrato("0")));
+        assertFalse(valido(MAPPER, extrato("101")));
+        assertFalse(valido(MAPPER, extrato("10.5")));
+    }
+
+    private static String deposito(String valor) {
+        return "{\"operacao\":\"depositar\",\"token\":\"abc\",\"valor_enviado\":" + valor + "}";
+    }
+
+    private static String extrato(String limite) {
+        return "{\"operacao\":\"transacao_ler\",\"token\":\"abc\",\"data_inicial\":\"2024-01-01T00:00:00Z\"," +
+               "\"data_final\":\"2024-01-31T23:59:59Z\",\"limite\":" + limite + "}";
+    }
+
+    private static boolean valido(ObjectMapper mapper, String json) throws Exception {
+        return verificar(mapper, json).isValido();
+    }
+
+    private static ResultadoValidacao verificar(ObjectMapper mapper, String json) throws Exception {
+        JsonNode raiz = mapper.readTree(json);
+        return Validator.verificarCliente(raiz);
+    }
+}